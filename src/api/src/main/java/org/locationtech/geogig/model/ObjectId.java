@@ -13,26 +13,28 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.Arrays;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Ordering;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
-import com.google.common.primitives.UnsignedBytes;
 
 /**
  * A unique identifier for a {@link RevObject}, which is created by passing a {@link HashFunction}
  * to {@link HashObjectFunnels}.
  * 
  * @apiNote the {@code ObjectId} effectively encloses a 20-byte byte array which is the
- *          <a href="https://en.wikipedia.org/wiki/SHA-1">SHA-1</a> hash resulting
+ *          <a href="https://en.wikipedia.org/wiki/SHA-1">SHA-1</a> hash resulting. In order to
+ *          reduce its memory footprint, the 20 bytes are held as one {@code int} and two
+ *          {@code long}s, in big endian order, accessible through {@link #h1()}, {@link #h2()},
+ *          and {@link #h3()}, so that specialized collections can store object ids without
+ *          keeping the {@code ObjectId} instances.
  * 
  * @since 1.0
  */
 public final class ObjectId implements Comparable<ObjectId>, Serializable {
 
-    private static final long serialVersionUID = -2445723120477753654L;
+    private static final long serialVersionUID = -5207489734123627713L;
 
     /**
      * A "natural order" {@link Ordering comparator}
@@ -65,16 +67,35 @@ public final class ObjectId implements Comparable<ObjectId>, Serializable {
 
         NUM_CHARS = 2 * NUM_BYTES;
 
-        NULL = new ObjectId(new byte[20]);
+        NULL = new ObjectId(0, 0L, 0L);
     }
 
-    private final byte[] hashCode;
+    /**
+     * bytes 0 to 3 of the SHA-1 hash
+     */
+    private final int h1;
+
+    /**
+     * bytes 4 to 11 of the SHA-1 hash
+     */
+    private final long h2;
+
+    /**
+     * bytes 12 to 19 of the SHA-1 hash
+     */
+    private final long h3;
 
     /**
      * Constructs a new {@code NULL} object id.
      */
     public ObjectId() {
-        this.hashCode = NULL.hashCode;
+        this(0, 0L, 0L);
+    }
+
+    private ObjectId(int h1, long h2, long h3) {
+        this.h1 = h1;
+        this.h2 = h2;
+        this.h3 = h3;
     }
 
     /**
@@ -83,25 +104,87 @@ public final class ObjectId implements Comparable<ObjectId>, Serializable {
      * @param raw the byte code to use
      */
     public ObjectId(byte[] raw) {
-        this(raw, true);
-    }
-
-    private ObjectId(byte[] raw, boolean cloneArg) {
         Preconditions.checkNotNull(raw);
         Preconditions.checkArgument(raw.length == NUM_BYTES, "expected a byte[%s], got byte[%s]",
                 NUM_BYTES, raw.length);
-        this.hashCode = cloneArg ? raw.clone() : raw;
+        this.h1 = h1(raw, 0);
+        this.h2 = h2(raw, 0);
+        this.h3 = h3(raw, 0);
     }
 
+    /**
+     * Kept for backwards compatibility, the byte array is not referenced anymore
+     */
     public static ObjectId createNoClone(byte[] rawHash) {
-        return new ObjectId(rawHash, false);
+        return new ObjectId(rawHash);
+    }
+
+    /**
+     * Creates an object id out of the 20 bytes starting at {@code offset} in {@code raw}
+     */
+    public static ObjectId create(byte[] raw, int offset) {
+        Preconditions.checkNotNull(raw);
+        Preconditions.checkArgument(offset >= 0 && offset + NUM_BYTES <= raw.length,
+                "expected %s bytes starting at %s, got byte[%s]", NUM_BYTES, offset, raw.length);
+        return new ObjectId(h1(raw, offset), h2(raw, offset), h3(raw, offset));
+    }
+
+    /**
+     * Creates an object id out of its {@link #h1()}, {@link #h2()}, and {@link #h3()} parts
+     */
+    public static ObjectId create(int h1, long h2, long h3) {
+        return new ObjectId(h1, h2, h3);
+    }
+
+    /**
+     * @return the first 4 bytes of the SHA-1 hash as a big endian {@code int}
+     */
+    public int h1() {
+        return h1;
+    }
+
+    /**
+     * @return bytes 4 to 11 of the SHA-1 hash as a big endian {@code long}
+     */
+    public long h2() {
+        return h2;
+    }
+
+    /**
+     * @return bytes 12 to 19 of the SHA-1 hash as a big endian {@code long}
+     */
+    public long h3() {
+        return h3;
+    }
+
+    private static int h1(byte[] raw, int offset) {
+        return ((raw[offset] & 0xFF) << 24) //
+                | ((raw[offset + 1] & 0xFF) << 16) //
+                | ((raw[offset + 2] & 0xFF) << 8) //
+                | (raw[offset + 3] & 0xFF);
+    }
+
+    private static long h2(byte[] raw, int offset) {
+        return toLong(raw, offset + 4);
+    }
+
+    private static long h3(byte[] raw, int offset) {
+        return toLong(raw, offset + 12);
+    }
+
+    private static long toLong(byte[] raw, int offset) {
+        long l = 0;
+        for (int i = 0; i < 8; i++) {
+            l = (l << 8) | (raw[offset + i] & 0xFF);
+        }
+        return l;
     }
 
     /**
      * @return whether or not this object id represents the {@link #NULL} object id
      */
     public boolean isNull() {
-        return NULL.equals(this);
+        return h1 == 0 && h2 == 0L && h3 == 0L;
     }
 
     /**
@@ -117,18 +200,24 @@ public final class ObjectId implements Comparable<ObjectId>, Serializable {
         if (!(o instanceof ObjectId)) {
             return false;
         }
-        return Arrays.equals(hashCode, ((ObjectId) o).hashCode);
+        ObjectId other = (ObjectId) o;
+        return h1 == other.h1 && h2 == other.h2 && h3 == other.h3;
     }
 
     /**
-     * @return a hash code based on the contents of the byte array.
+     * @return a hash code based on the contents of the SHA-1 hash.
      */
     @Override
     public int hashCode() {
-        return 17 ^ ((hashCode[0] & 0xFF)//
-                | ((hashCode[1] & 0xFF) << 8)//
-                | ((hashCode[2] & 0xFF) << 16)//
-                | ((hashCode[3] & 0xFF) << 24));
+        return hashCode(h1, h2, h3);
+    }
+
+    /**
+     * @return the same hash code than {@link #hashCode()} for an object id with the given parts,
+     *         so that collections holding the parts don't need to create the {@code ObjectId}
+     */
+    public static int hashCode(int h1, long h2, long h3) {
+        return h1 ^ (int) (h2 ^ (h2 >>> 32)) ^ (int) (h3 ^ (h3 >>> 32));
     }
 
     /**
@@ -159,7 +248,7 @@ public final class ObjectId implements Comparable<ObjectId>, Serializable {
         for (int i = 0; i < NUM_BYTES; i++) {
             raw[i] = (byte) Integer.parseInt(hash.substring(2 * i, 2 * i + 2), radix);
         }
-        return new ObjectId(raw, false);
+        return new ObjectId(raw);
     }
 
     /**
@@ -196,9 +285,23 @@ public final class ObjectId implements Comparable<ObjectId>, Serializable {
      * @see java.lang.Comparable#compareTo(java.lang.Object)
      */
     public int compareTo(final ObjectId o) {
-        byte[] left = this.hashCode;
-        byte[] right = o.hashCode;
-        return UnsignedBytes.lexicographicalComparator().compare(left, right);
+        return compare(h1, h2, h3, o.h1, o.h2, o.h3);
+    }
+
+    /**
+     * Compares two object ids given by their parts, with the same result than
+     * {@link #compareTo(ObjectId)}
+     */
+    public static int compare(int h1, long h2, long h3, int otherH1, long otherH2,
+            long otherH3) {
+        int c = Integer.compareUnsigned(h1, otherH1);
+        if (c == 0) {
+            c = Long.compareUnsigned(h2, otherH2);
+            if (c == 0) {
+                c = Long.compareUnsigned(h3, otherH3);
+            }
+        }
+        return c;
     }
 
     /**
@@ -206,7 +309,9 @@ public final class ObjectId implements Comparable<ObjectId>, Serializable {
      *         do not affect this object.
      */
     public byte[] getRawValue() {
-        return hashCode.clone();
+        byte[] raw = new byte[NUM_BYTES];
+        getRawValue(raw);
+        return raw;
     }
 
     /**
@@ -235,7 +340,9 @@ public final class ObjectId implements Comparable<ObjectId>, Serializable {
         Preconditions.checkArgument(length >= 0);
         Preconditions.checkArgument(length <= NUM_BYTES);
         Preconditions.checkArgument(target.length >= length);
-        System.arraycopy(hashCode, 0, target, 0, length);
+        for (int i = 0; i < length; i++) {
+            target[i] = (byte) byteAt(i);
+        }
     }
 
     /**
@@ -248,17 +355,29 @@ public final class ObjectId implements Comparable<ObjectId>, Serializable {
      */
     public int byteN(final int index) {
         Preconditions.checkArgument(index >= 0 && index < NUM_BYTES);
-        int b = this.hashCode[index] & 0xFF;
-        return b;
+        return byteAt(index);
+    }
+
+    private int byteAt(final int index) {
+        if (index < 4) {
+            return (h1 >>> (24 - 8 * index)) & 0xFF;
+        }
+        if (index < 12) {
+            return (int) (h2 >>> (56 - 8 * (index - 4))) & 0xFF;
+        }
+        return (int) (h3 >>> (56 - 8 * (index - 12))) & 0xFF;
     }
 
     public static ObjectId readFrom(DataInput in) throws IOException {
-        byte[] rawid = new byte[ObjectId.NUM_BYTES];
-        in.readFully(rawid);
-        return new ObjectId(rawid);
+        final int h1 = in.readInt();
+        final long h2 = in.readLong();
+        final long h3 = in.readLong();
+        return new ObjectId(h1, h2, h3);
     }
 
     public void writeTo(DataOutput out) throws IOException {
-        out.write(this.hashCode);
+        out.writeInt(h1);
+        out.writeLong(h2);
+        out.writeLong(h3);
     }
 }
@@ -0,0 +1,204 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.RandomAccess;
+
+/**
+ * An immutable, sorted list of unique {@link ObjectId}s packed in primitive arrays, taking 20
+ * bytes per id.
+ * <p>
+ * The ids are sorted in their {@link ObjectId#compareTo natural order}, so {@link #contains} and
+ * {@link #indexOf} are binary searches. The {@code ObjectId}s returned by {@link #get(int)} are
+ * created on demand.
+ *
+ * @since 1.1
+ */
+public final class ObjectIdArray extends AbstractList<ObjectId> implements RandomAccess {
+
+    public static final ObjectIdArray EMPTY = new ObjectIdArray(new int[0], new long[0],
+            new long[0], 0);
+
+    private final int[] h1s;
+
+    private final long[] h2s;
+
+    private final long[] h3s;
+
+    private final int size;
+
+    private ObjectIdArray(int[] h1s, long[] h2s, long[] h3s, int size) {
+        this.h1s = h1s;
+        this.h2s = h2s;
+        this.h3s = h3s;
+        this.size = size;
+    }
+
+    /**
+     * @return a sorted array with the unique ids in {@code ids}
+     */
+    public static ObjectIdArray sortedOf(Iterable<ObjectId> ids) {
+        checkNotNull(ids);
+        return sortedOf(ids.iterator());
+    }
+
+    /**
+     * @return a sorted array with the unique ids in {@code ids}
+     */
+    public static ObjectIdArray sortedOf(Iterator<ObjectId> ids) {
+        checkNotNull(ids);
+        int capacity = 16;
+        int[] h1s = new int[capacity];
+        long[] h2s = new long[capacity];
+        long[] h3s = new long[capacity];
+        int size = 0;
+        while (ids.hasNext()) {
+            ObjectId id = ids.next();
+            if (size == capacity) {
+                capacity = capacity + (capacity >> 1);
+                h1s = Arrays.copyOf(h1s, capacity);
+                h2s = Arrays.copyOf(h2s, capacity);
+                h3s = Arrays.copyOf(h3s, capacity);
+            }
+            h1s[size] = id.h1();
+            h2s[size] = id.h2();
+            h3s[size] = id.h3();
+            size++;
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        ObjectIdArray array = new ObjectIdArray(h1s, h2s, h3s, size);
+        array.heapSort();
+        final int unique = array.removeAdjacentDuplicates();
+        if (unique < capacity) {
+            h1s = Arrays.copyOf(h1s, unique);
+            h2s = Arrays.copyOf(h2s, unique);
+            h3s = Arrays.copyOf(h3s, unique);
+        }
+        return new ObjectIdArray(h1s, h2s, h3s, unique);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ObjectId get(int index) {
+        checkElementIndex(index, size);
+        return ObjectId.create(h1s[index], h2s[index], h3s[index]);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof ObjectId)) {
+            return -1;
+        }
+        ObjectId id = (ObjectId) o;
+        final int h1 = id.h1();
+        final long h2 = id.h2();
+        final long h3 = id.h3();
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int c = ObjectId.compare(h1s[mid], h2s[mid], h3s[mid], h1, h2, h3);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    private int compare(int i, int j) {
+        return ObjectId.compare(h1s[i], h2s[i], h3s[i], h1s[j], h2s[j], h3s[j]);
+    }
+
+    private void swap(int i, int j) {
+        final int h1 = h1s[i];
+        final long h2 = h2s[i];
+        final long h3 = h3s[i];
+        h1s[i] = h1s[j];
+        h2s[i] = h2s[j];
+        h3s[i] = h3s[j];
+        h1s[j] = h1;
+        h2s[j] = h2;
+        h3s[j] = h3;
+    }
+
+    /**
+     * In place heap sort of the parallel arrays, doesn't need any extra memory
+     */
+    private void heapSort() {
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i, size);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    private void siftDown(int root, final int end) {
+        while (true) {
+            int child = 2 * root + 1;
+            if (child >= end) {
+                return;
+            }
+            if (child + 1 < end && compare(child, child + 1) < 0) {
+                child++;
+            }
+            if (compare(root, child) >= 0) {
+                return;
+            }
+            swap(root, child);
+            root = child;
+        }
+    }
+
+    /**
+     * @return the number of unique ids, which are moved to the start of the arrays
+     */
+    private int removeAdjacentDuplicates() {
+        int unique = 1;
+        for (int i = 1; i < size; i++) {
+            if (compare(i, unique - 1) != 0) {
+                if (i != unique) {
+                    h1s[unique] = h1s[i];
+                    h2s[unique] = h2s[i];
+                    h3s[unique] = h3s[i];
+                }
+                unique++;
+            }
+        }
+        return unique;
+    }
+}
@@ -0,0 +1,316 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Open addressing, linear probing hash table of {@link ObjectId}s, holding the {@link ObjectId#h1()
+ * h1}, {@link ObjectId#h2() h2}, and {@link ObjectId#h3() h3} parts of each id in parallel primitive
+ * arrays, and optionally a value per id.
+ * <p>
+ * Empty slots are those where all the parts are zero, hence the {@link ObjectId#NULL NULL} id is
+ * kept apart from the table. Removals use backward shift deletion, so there are no tombstones.
+ * <p>
+ * Not thread safe.
+ */
+abstract class ObjectIdHashTable {
+
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final boolean withValues;
+
+    private int[] h1s;
+
+    private long[] h2s;
+
+    private long[] h3s;
+
+    private Object[] values;
+
+    private int mask;
+
+    private int resizeThreshold;
+
+    /**
+     * Number of ids in the table, not counting the {@code NULL} id
+     */
+    private int size;
+
+    private boolean hasNull;
+
+    private Object nullValue;
+
+    ObjectIdHashTable(final int expectedSize, final boolean withValues) {
+        checkArgument(expectedSize >= 0, "expectedSize must be >= 0: %s", expectedSize);
+        this.withValues = withValues;
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(final int expectedSize) {
+        final long needed = (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+        int capacity = 4;
+        while (capacity < needed && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(final int capacity) {
+        h1s = new int[capacity];
+        h2s = new long[capacity];
+        h3s = new long[capacity];
+        values = withValues ? new Object[capacity] : null;
+        mask = capacity - 1;
+        resizeThreshold = capacity == MAX_CAPACITY ? capacity - 1
+                : (int) (capacity * LOAD_FACTOR);
+    }
+
+    final int tableSize() {
+        return size + (hasNull ? 1 : 0);
+    }
+
+    final void tableClear() {
+        Arrays.fill(h1s, 0);
+        Arrays.fill(h2s, 0L);
+        Arrays.fill(h3s, 0L);
+        if (withValues) {
+            Arrays.fill(values, null);
+        }
+        size = 0;
+        hasNull = false;
+        nullValue = null;
+    }
+
+    private int home(final int h1, final long h2, final long h3) {
+        int h = ObjectId.hashCode(h1, h2, h3);
+        h ^= (h >>> 16);
+        return h & mask;
+    }
+
+    private boolean isEmpty(final int slot) {
+        return h1s[slot] == 0 && h2s[slot] == 0L && h3s[slot] == 0L;
+    }
+
+    /**
+     * @return the slot where the id is, or {@code -(insertionSlot + 1)} if not found
+     */
+    private int find(final int h1, final long h2, final long h3) {
+        int slot = home(h1, h2, h3);
+        while (!isEmpty(slot)) {
+            if (h1s[slot] == h1 && h2s[slot] == h2 && h3s[slot] == h3) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -(slot + 1);
+    }
+
+    final boolean tableContains(final ObjectId id) {
+        if (id.isNull()) {
+            return hasNull;
+        }
+        return find(id.h1(), id.h2(), id.h3()) >= 0;
+    }
+
+    @Nullable
+    final Object tableGet(final ObjectId id) {
+        if (id.isNull()) {
+            return nullValue;
+        }
+        final int slot = find(id.h1(), id.h2(), id.h3());
+        return slot < 0 ? null : values[slot];
+    }
+
+    /**
+     * Adds the id if not present and sets its value if this table holds values
+     *
+     * @return {@code true} if the id was added, {@code false} if it was already present
+     */
+    final boolean tablePut(final ObjectId id, @Nullable final Object value) {
+        if (id.isNull()) {
+            final boolean added = !hasNull;
+            hasNull = true;
+            nullValue = value;
+            return added;
+        }
+        final int h1 = id.h1();
+        final long h2 = id.h2();
+        final long h3 = id.h3();
+        int slot = find(h1, h2, h3);
+        if (slot >= 0) {
+            if (withValues) {
+                values[slot] = value;
+            }
+            return false;
+        }
+        if (size >= resizeThreshold) {
+            checkState(mask + 1 < MAX_CAPACITY, "ObjectId hash table is full");
+            rehash(2 * (mask + 1));
+            slot = find(h1, h2, h3);
+        }
+        slot = -(slot + 1);
+        h1s[slot] = h1;
+        h2s[slot] = h2;
+        h3s[slot] = h3;
+        if (withValues) {
+            values[slot] = value;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the id was present and hence removed
+     */
+    final boolean tableRemove(final ObjectId id) {
+        if (id.isNull()) {
+            final boolean removed = hasNull;
+            hasNull = false;
+            nullValue = null;
+            return removed;
+        }
+        final int slot = find(id.h1(), id.h2(), id.h3());
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    /**
+     * Backward shift deletion: moves up the entries following the removed one that would otherwise
+     * become unreachable from their home slot
+     */
+    private void removeAt(int gap) {
+        clearSlot(gap);
+        size--;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (isEmpty(slot)) {
+                break;
+            }
+            final int home = home(h1s[slot], h2s[slot], h3s[slot]);
+            final boolean reachable = gap <= slot ? (home > gap && home <= slot)
+                    : (home > gap || home <= slot);
+            if (!reachable) {
+                h1s[gap] = h1s[slot];
+                h2s[gap] = h2s[slot];
+                h3s[gap] = h3s[slot];
+                if (withValues) {
+                    values[gap] = values[slot];
+                }
+                clearSlot(slot);
+                gap = slot;
+            }
+        }
+    }
+
+    private void clearSlot(final int slot) {
+        h1s[slot] = 0;
+        h2s[slot] = 0L;
+        h3s[slot] = 0L;
+        if (withValues) {
+            values[slot] = null;
+        }
+    }
+
+    private void rehash(final int newCapacity) {
+        final int[] oldH1s = h1s;
+        final long[] oldH2s = h2s;
+        final long[] oldH3s = h3s;
+        final Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldH1s.length; i++) {
+            final int h1 = oldH1s[i];
+            final long h2 = oldH2s[i];
+            final long h3 = oldH3s[i];
+            if (h1 == 0 && h2 == 0L && h3 == 0L) {
+                continue;
+            }
+            int slot = home(h1, h2, h3);
+            while (!isEmpty(slot)) {
+                slot = (slot + 1) & mask;
+            }
+            h1s[slot] = h1;
+            h2s[slot] = h2;
+            h3s[slot] = h3;
+            if (withValues) {
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * A read only cursor over the table slots, {@link #next()} returns the slot index of the next
+     * id, or {@code -1} for the {@code NULL} id, which goes first if present
+     */
+    final class Cursor {
+
+        private int next;
+
+        private boolean nullPending = hasNull;
+
+        Cursor() {
+            next = advance(0);
+        }
+
+        private int advance(int from) {
+            int i = from;
+            while (i <= mask && isEmpty(i)) {
+                i++;
+            }
+            return i;
+        }
+
+        boolean hasNext() {
+            return nullPending || next <= mask;
+        }
+
+        int next() {
+            if (nullPending) {
+                nullPending = false;
+                return -1;
+            }
+            if (next > mask) {
+                throw new NoSuchElementException();
+            }
+            final int slot = next;
+            next = advance(slot + 1);
+            return slot;
+        }
+    }
+
+    final ObjectId idAt(final int slot) {
+        return slot == -1 ? ObjectId.NULL : ObjectId.create(h1s[slot], h2s[slot], h3s[slot]);
+    }
+
+    @Nullable
+    final Object valueAt(final int slot) {
+        return slot == -1 ? nullValue : values[slot];
+    }
+
+    final void setValueAt(final int slot, @Nullable Object value) {
+        if (slot == -1) {
+            nullValue = value;
+        } else {
+            values[slot] = value;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A {@link Map} keyed by {@link ObjectId} that doesn't keep the {@code ObjectId} instances but
+ * their 20 bytes in primitive arrays, and has no per entry objects, taking a fraction of the heap
+ * of a {@link java.util.HashMap HashMap&lt;ObjectId, V&gt;} for large number of entries.
+ * <p>
+ * The keys and entries returned by the {@link #entrySet()} iterator are created on the fly, and the
+ * iterator does not support {@link Iterator#remove() removal}. {@code null} values are not
+ * supported. This map is not thread safe.
+ *
+ * @since 1.1
+ */
+public class ObjectIdMap<V> extends AbstractMap<ObjectId, V> {
+
+    private final Table table;
+
+    private static final class Table extends ObjectIdHashTable {
+        Table(int expectedSize) {
+            super(expectedSize, true);
+        }
+    }
+
+    public ObjectIdMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize the number of entries the map is expected to hold, to avoid resizing
+     */
+    public ObjectIdMap(final int expectedSize) {
+        this.table = new Table(expectedSize);
+    }
+
+    @Override
+    public int size() {
+        return table.tableSize();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof ObjectId && table.tableContains((ObjectId) key);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public @Nullable V get(Object key) {
+        return key instanceof ObjectId ? (V) table.tableGet((ObjectId) key) : null;
+    }
+
+    @Override
+    public @Nullable V put(ObjectId key, V value) {
+        if (value == null) {
+            throw new NullPointerException("null values are not supported");
+        }
+        V previous = get(key);
+        table.tablePut(key, value);
+        return previous;
+    }
+
+    @Override
+    public @Nullable V remove(Object key) {
+        V previous = get(key);
+        if (previous != null) {
+            table.tableRemove((ObjectId) key);
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        table.tableClear();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEach(BiConsumer<? super ObjectId, ? super V> action) {
+        final ObjectIdHashTable.Cursor cursor = table.new Cursor();
+        while (cursor.hasNext()) {
+            final int slot = cursor.next();
+            action.accept(table.idAt(slot), (V) table.valueAt(slot));
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<ObjectId, V>> entrySet() {
+        return new AbstractSet<Map.Entry<ObjectId, V>>() {
+
+            @Override
+            public int size() {
+                return ObjectIdMap.this.size();
+            }
+
+            @Override
+            public Iterator<Map.Entry<ObjectId, V>> iterator() {
+                final ObjectIdHashTable.Cursor cursor = table.new Cursor();
+                return new Iterator<Map.Entry<ObjectId, V>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return cursor.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<ObjectId, V> next() {
+                        return new Entry(cursor.next());
+                    }
+                };
+            }
+        };
+    }
+
+    private class Entry extends AbstractMap.SimpleEntry<ObjectId, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int slot;
+
+        @SuppressWarnings("unchecked")
+        Entry(int slot) {
+            super(table.idAt(slot), (V) table.valueAt(slot));
+            this.slot = slot;
+        }
+
+        @Override
+        public V setValue(V value) {
+            if (value == null) {
+                throw new NullPointerException("null values are not supported");
+            }
+            table.setValueAt(slot, value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * A {@link java.util.Set} of {@link ObjectId}s that doesn't keep the {@code ObjectId} instances
+ * but their 20 bytes in primitive arrays, taking about a fifth of the heap of a
+ * {@link java.util.HashSet HashSet&lt;ObjectId&gt;} for large number of ids.
+ * <p>
+ * The ids returned by the {@link #iterator()} are created on the fly, and the iterator does not
+ * support {@link Iterator#remove() removal}. This set is not thread safe.
+ *
+ * @since 1.1
+ */
+public class ObjectIdSet extends AbstractSet<ObjectId> {
+
+    private final Table table;
+
+    private static final class Table extends ObjectIdHashTable {
+        Table(int expectedSize) {
+            super(expectedSize, false);
+        }
+    }
+
+    public ObjectIdSet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize the number of ids the set is expected to hold, to avoid resizing
+     */
+    public ObjectIdSet(final int expectedSize) {
+        this.table = new Table(expectedSize);
+    }
+
+    public ObjectIdSet(final Collection<ObjectId> ids) {
+        this(ids.size());
+        addAll(ids);
+    }
+
+    @Override
+    public int size() {
+        return table.tableSize();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof ObjectId && table.tableContains((ObjectId) o);
+    }
+
+    @Override
+    public boolean add(ObjectId id) {
+        return table.tablePut(id, null);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof ObjectId && table.tableRemove((ObjectId) o);
+    }
+
+    /**
+     * Overrides to remove each element of {@code c} from this set, as this set's iterator doesn't
+     * support removal
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        boolean modified = false;
+        for (Object o : c) {
+            modified |= remove(o);
+        }
+        return modified;
+    }
+
+    @Override
+    public void clear() {
+        table.tableClear();
+    }
+
+    @Override
+    public Iterator<ObjectId> iterator() {
+        final ObjectIdHashTable.Cursor cursor = table.new Cursor();
+        return new Iterator<ObjectId>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public ObjectId next() {
+                return table.idAt(cursor.next());
+            }
+        };
+    }
+}
@@ -15,6 +15,7 @@ import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.model.RevFeatureType;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
 
 /**
  * A class to compactly store information about a feature, including its path and feature type. This
@@ -27,6 +28,8 @@ public class FeatureInfo {
 
     private RevFeature feature;
 
+    private Supplier<RevFeature> featureSupplier;
+
     private ObjectId featureTypeId;    
  
     private String path;
@@ -58,6 +61,24 @@ public class FeatureInfo {
         return new FeatureInfo(feature, featureTypeId, path, false);
     }
 
+    /**
+     * Creates an insert {@code FeatureInfo} whose {@link RevFeature} is only built the first time
+     * {@link #getFeature()} is called, allowing consumers such as
+     * {@code WorkingTree.insert(Iterator, ProgressListener)} to compute the features, including
+     * their hash, out of the thread that iterates over the {@code FeatureInfo}s.
+     * <p>
+     * The supplier is called at most once.
+     */
+    public static FeatureInfo insert(Supplier<RevFeature> feature, ObjectId featureTypeId,
+            String path) {
+        Preconditions.checkNotNull(feature);
+        Preconditions.checkNotNull(featureTypeId);
+        Preconditions.checkNotNull(path);
+        FeatureInfo info = new FeatureInfo(null, featureTypeId, path, false);
+        info.featureSupplier = feature;
+        return info;
+    }
+
     public static FeatureInfo delete(final String path) {
         Preconditions.checkNotNull(path);
         return new FeatureInfo(null, null, path, true);
@@ -67,11 +88,16 @@ public class FeatureInfo {
      * The feature
      */
     public RevFeature getFeature() {
+        if (feature == null && featureSupplier != null) {
+            feature = featureSupplier.get();
+            featureSupplier = null;
+        }
         return feature;
     }
     
     public void setFeature(RevFeature f) {
         feature = f;
+        featureSupplier = null;
     }
 
     /**
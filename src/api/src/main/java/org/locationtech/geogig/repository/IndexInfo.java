@@ -28,7 +28,15 @@ import com.vividsolutions.jts.geom.Envelope;
 
 public final class IndexInfo {
     public static enum IndexType {
-        QUADTREE
+        /**
+         * Clusters the nodes by the bounds of a geometry attribute
+         */
+        QUADTREE,
+        /**
+         * Clusters the nodes by the value of a non geometry attribute, which is always materialized
+         * in the index nodes' {@link Node#getExtraData() extra data}
+         */
+        ATTRIBUTE
     }
 
     /**
@@ -114,6 +122,11 @@ public final class IndexInfo {
         if (attNames != null) {
             availableAttNames = Sets.newHashSet(attNames);
         }
+        if (IndexType.ATTRIBUTE.equals(info.getIndexType())
+                && !availableAttNames.contains(info.getAttributeName())) {
+            availableAttNames = Sets.newHashSet(availableAttNames);
+            availableAttNames.add(info.getAttributeName());
+        }
         return availableAttNames;
     }
 
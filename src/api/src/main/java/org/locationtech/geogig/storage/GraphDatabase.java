@@ -16,6 +16,7 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.repository.RepositoryConnectionException;
 
 import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 
 /**
@@ -105,6 +106,19 @@ public interface GraphDatabase extends Closeable {
          */
         public abstract boolean isSparse();
 
+        /**
+         * The generation of a commit is zero if it has no parents, and one plus the highest
+         * generation of its parents otherwise, so it's always greater than the generation of any of
+         * its ancestors. Traversals can use it to skip commits that can't possibly be descendants
+         * of a given one.
+         * 
+         * @return the generation number of this node, or {@link Optional#absent() absent} if it's
+         *         not known, for example because not all its ancestors are in the graph
+         */
+        public Optional<Integer> getGeneration() {
+            return Optional.absent();
+        }
+
         /**
          * Determine if this {@code GraphNode} is the same as another one.
          */
@@ -215,6 +229,9 @@ public interface GraphDatabase extends Closeable {
     /**
      * Gets the number of ancestors of the commit until it reaches one with no parents, for example
      * the root or an orphaned commit.
+     * <p>
+     * Implementations are encouraged to compute and store the depth of commits as they're
+     * {@link #put(ObjectId, ImmutableList) added}, so that this is a single lookup.
      * 
      * @param commitId the commit id to start from
      * @return the depth of the commit
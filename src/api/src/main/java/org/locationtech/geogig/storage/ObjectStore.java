@@ -250,4 +250,83 @@ public interface ObjectStore extends Closeable {
     public <T extends RevObject> AutoCloseableIterator<ObjectInfo<T>> getObjects(
             Iterator<NodeRef> nodes, BulkOpListener listener, Class<T> type);
 
-}
\ No newline at end of file
+    /**
+     * Identifies the encoding of the objects returned by {@link #getAllRaw} and accepted by
+     * {@link #putAllRaw}. Two stores whose raw formats are equal can exchange objects in their
+     * encoded form, without decoding and re-encoding them, hence the raw format shall tell apart
+     * stores configured to write objects with different encodings, so that a store is not handed
+     * objects encoded other than as it's configured to.
+     * 
+     * @return the raw format identifier, or {@code null} if this store doesn't support raw object
+     *         access, which is the default
+     */
+    @Beta
+    public default @Nullable String getRawFormat() {
+        return null;
+    }
+
+    /**
+     * Retrieves a collection of objects in the encoded form they're stored in this database.
+     * <p>
+     * Follows the same contract than {@link #getAll(Iterable, BulkOpListener)}, except the returned
+     * objects are not decoded, so they can be {@link #putAllRaw inserted} as is into another store
+     * with the same {@link #getRawFormat() raw format}.
+     * 
+     * @throws UnsupportedOperationException if {@link #getRawFormat()} is {@code null}
+     */
+    @Beta
+    public default Iterator<RawObject> getAllRaw(Iterable<ObjectId> ids, BulkOpListener listener) {
+        throw new UnsupportedOperationException("raw object access not supported by " + this);
+    }
+
+    /**
+     * Inserts objects already encoded in this store's {@link #getRawFormat() raw format}, trusting
+     * their {@link RawObject#id() ids} match their contents.
+     * <p>
+     * Follows the same contract than {@link #putAll(Iterator, BulkOpListener)}. This method is meant
+     * for the bulk transfer of trees, features and feature types between stores; commits shall be
+     * inserted through {@link #putAll} so that decorators keeping track of the commit graph get to
+     * see them.
+     * 
+     * @throws UnsupportedOperationException if {@link #getRawFormat()} is {@code null}
+     */
+    @Beta
+    public default void putAllRaw(Iterator<RawObject> objects, BulkOpListener listener) {
+        throw new UnsupportedOperationException("raw object access not supported by " + this);
+    }
+
+    /**
+     * Stores the objects encoded as this store is currently configured to, replacing the stored
+     * encoding of the ones that already exist instead of skipping them as {@link #putAll} does.
+     * <p>
+     * This method is meant to migrate existing objects to a different encoding. Objects are
+     * replaced in place, so they remain readable while this method runs, and each object is found
+     * either in its former or its new encoding should it be interrupted.
+     *
+     * @throws UnsupportedOperationException if this store can't replace objects, which is the
+     *         default
+     */
+    @Beta
+    public default void overwriteAll(Iterator<? extends RevObject> objects) {
+        throw new UnsupportedOperationException("overwriting objects not supported by " + this);
+    }
+
+    /**
+     * Copies the objects with the given ids from one store to another, transferring them in their
+     * {@link #getRawFormat() raw} encoded form if both stores share the same raw format, or
+     * decoding them from {@code from} and re-encoding them into {@code to} otherwise.
+     * 
+     * @see #getAllRaw
+     * @see #putAllRaw
+     */
+    @Beta
+    public static void copyAll(Iterable<ObjectId> ids, ObjectStore from, ObjectStore to,
+            BulkOpListener listener) {
+        final String rawFormat = from.getRawFormat();
+        if (rawFormat != null && rawFormat.equals(to.getRawFormat())) {
+            to.putAllRaw(from.getAllRaw(ids, BulkOpListener.NOOP_LISTENER), listener);
+        } else {
+            to.putAll(from.getAll(ids), listener);
+        }
+    }
+}
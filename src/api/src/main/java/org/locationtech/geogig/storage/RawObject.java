@@ -0,0 +1,73 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A revision object in the encoded form it's stored in an {@link ObjectStore}, as returned by
+ * {@link ObjectStore#getAllRaw} and accepted by {@link ObjectStore#putAllRaw}.
+ * <p>
+ * The {@link #bytes() bytes} are only meaningful to stores sharing the same
+ * {@link ObjectStore#getRawFormat() raw format}.
+ *
+ * @since 1.1
+ */
+@Beta
+public final class RawObject {
+
+    private final ObjectId id;
+
+    private final @Nullable TYPE type;
+
+    private final byte[] bytes;
+
+    private RawObject(ObjectId id, @Nullable TYPE type, byte[] bytes) {
+        this.id = id;
+        this.type = type;
+        this.bytes = bytes;
+    }
+
+    public ObjectId id() {
+        return id;
+    }
+
+    /**
+     * @return the object type if the store it was read from knows it without decoding the object,
+     *         {@code null} otherwise
+     */
+    public @Nullable TYPE type() {
+        return type;
+    }
+
+    /**
+     * @return the encoded object, not defensively copied, callers shall not modify it
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public static RawObject of(ObjectId id, @Nullable TYPE type, byte[] bytes) {
+        checkNotNull(id, "id");
+        checkNotNull(bytes, "bytes");
+        return new RawObject(id, type, bytes);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RawObject[%s, %s, %,d bytes]", id, type, bytes.length);
+    }
+}
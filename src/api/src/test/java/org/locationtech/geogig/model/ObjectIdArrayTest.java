@@ -0,0 +1,60 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class ObjectIdArrayTest {
+
+    @Test
+    public void testEmpty() {
+        assertSame(ObjectIdArray.EMPTY, ObjectIdArray.sortedOf(Collections.emptyList()));
+        assertEquals(0, ObjectIdArray.EMPTY.size());
+        assertFalse(ObjectIdArray.EMPTY.contains(ObjectId.NULL));
+    }
+
+    @Test
+    public void testSortedAndUnique() {
+        List<ObjectId> ids = ObjectIdSetTest.randomIds(10_000, 5);
+        List<ObjectId> withDuplicates = new ArrayList<>(ids);
+        withDuplicates.addAll(ids.subList(0, 1000));
+        withDuplicates.add(ObjectId.NULL);
+        Collections.shuffle(withDuplicates);
+
+        ObjectIdArray array = ObjectIdArray.sortedOf(withDuplicates);
+        List<ObjectId> expected = new ArrayList<>(new TreeSet<>(withDuplicates));
+        assertEquals(expected, array);
+        assertEquals(ObjectId.NULL, array.get(0));
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i, array.indexOf(expected.get(i)));
+            assertTrue(array.contains(expected.get(i)));
+        }
+        for (ObjectId missing : ObjectIdSetTest.randomIds(100, 6)) {
+            assertFalse(array.contains(missing));
+            assertEquals(-1, array.indexOf(missing));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        ObjectIdArray.sortedOf(ObjectIdSetTest.randomIds(10, 7)).get(10);
+    }
+}
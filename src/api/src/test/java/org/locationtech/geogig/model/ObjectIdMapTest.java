@@ -0,0 +1,74 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ObjectIdMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        final List<ObjectId> ids = ObjectIdSetTest.randomIds(10_000, 3);
+        ObjectIdMap<Integer> map = new ObjectIdMap<>(1);
+        Map<ObjectId, Integer> expected = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            assertNull(map.put(ids.get(i), Integer.valueOf(i)));
+            expected.put(ids.get(i), Integer.valueOf(i));
+        }
+        assertNull(map.put(ObjectId.NULL, Integer.valueOf(-1)));
+        expected.put(ObjectId.NULL, Integer.valueOf(-1));
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(expected, new HashMap<>(map));
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(Integer.valueOf(i), map.get(ids.get(i)));
+        }
+        assertEquals(Integer.valueOf(0), map.put(ids.get(0), Integer.valueOf(100)));
+        assertEquals(Integer.valueOf(100), map.get(ids.get(0)));
+        expected.put(ids.get(0), Integer.valueOf(100));
+
+        for (int i = 0; i < ids.size(); i += 3) {
+            assertEquals(expected.remove(ids.get(i)), map.remove(ids.get(i)));
+            assertNull(map.remove(ids.get(i)));
+            assertFalse(map.containsKey(ids.get(i)));
+        }
+        assertEquals(expected, map);
+
+        Map<ObjectId, Integer> visited = new HashMap<>();
+        map.forEach((k, v) -> visited.put(k, v));
+        assertEquals(expected, visited);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(ObjectId.NULL));
+    }
+
+    @Test
+    public void testEntrySetValue() {
+        final List<ObjectId> ids = ObjectIdSetTest.randomIds(100, 4);
+        ObjectIdMap<String> map = new ObjectIdMap<>();
+        ids.forEach((id) -> map.put(id, id.toString()));
+        for (Map.Entry<ObjectId, String> e : map.entrySet()) {
+            assertEquals(e.getKey().toString(), e.getValue());
+            e.setValue("changed");
+        }
+        ids.forEach((id) -> assertEquals("changed", map.get(id)));
+    }
+}
@@ -0,0 +1,106 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ObjectIdSetTest {
+
+    static List<ObjectId> randomIds(int count, long seed) {
+        Random random = new Random(seed);
+        List<ObjectId> ids = new ArrayList<>(count);
+        byte[] raw = new byte[ObjectId.NUM_BYTES];
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(raw);
+            ids.add(new ObjectId(raw));
+        }
+        return ids;
+    }
+
+    @Test
+    public void testEmpty() {
+        ObjectIdSet set = new ObjectIdSet();
+        assertEquals(0, set.size());
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(ObjectId.NULL));
+        assertFalse(set.iterator().hasNext());
+    }
+
+    @Test
+    public void testNullId() {
+        ObjectIdSet set = new ObjectIdSet();
+        assertTrue(set.add(ObjectId.NULL));
+        assertFalse(set.add(ObjectId.NULL));
+        assertEquals(1, set.size());
+        assertTrue(set.contains(ObjectId.NULL));
+        assertEquals(Lists.newArrayList(ObjectId.NULL), Lists.newArrayList(set));
+        assertTrue(set.remove(ObjectId.NULL));
+        assertFalse(set.contains(ObjectId.NULL));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testAddContainsRemove() {
+        final List<ObjectId> ids = randomIds(10_000, 1);
+        // start small to force rehashing
+        ObjectIdSet set = new ObjectIdSet(1);
+        Set<ObjectId> expected = new HashSet<>();
+        for (ObjectId id : ids) {
+            assertTrue(set.add(id));
+            expected.add(id);
+            assertFalse(set.add(id));
+        }
+        assertEquals(expected.size(), set.size());
+        assertEquals(expected, set);
+        assertEquals(expected, new HashSet<>(set));
+
+        // remove every other id, the remaining ones shall still be reachable
+        for (int i = 0; i < ids.size(); i += 2) {
+            assertTrue(set.remove(ids.get(i)));
+            assertFalse(set.remove(ids.get(i)));
+            expected.remove(ids.get(i));
+        }
+        assertEquals(expected.size(), set.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i % 2 == 1, set.contains(ids.get(i)));
+        }
+        assertEquals(expected, new HashSet<>(set));
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(ids.get(1)));
+    }
+
+    @Test
+    public void testRemoveAll() {
+        final List<ObjectId> ids = randomIds(1000, 2);
+        ObjectIdSet set = new ObjectIdSet(ids);
+        assertEquals(1000, set.size());
+        assertTrue(set.removeAll(ids.subList(0, 500)));
+        assertEquals(500, set.size());
+        assertEquals(new HashSet<>(ids.subList(500, 1000)), set);
+
+        List<ObjectId> list = new ArrayList<>(ids);
+        list.removeAll(set);
+        assertEquals(ids.subList(0, 500), list);
+    }
+}
@@ -9,6 +9,10 @@
  */
 package org.locationtech.geogig.model;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.util.Arrays;
 
 import org.junit.Rule;
@@ -123,8 +127,10 @@ public class ObjectIdTest extends TestCase {
         byte[] rawBytes = new byte[] { (byte) 0xab, 01, 02, 03, (byte) 0xff, 0, 0, 0, 0, 0, 0, 0, 0,
                 0, 0, 0, 0, 0, 0, 0 };
         ObjectId id = ObjectId.createNoClone(rawBytes);
+        assertEquals(1, id.byteN(1));
+        // the object id doesn't hold on to the array
         rawBytes[1] = 5;
-        assertEquals(5, id.byteN(1));
+        assertEquals(1, id.byteN(1));
     }
 
     @Test
@@ -175,4 +181,41 @@ public class ObjectIdTest extends TestCase {
         }
     }
 
+
+    @Test
+    public void testParts() {
+        ObjectId oid = ObjectId.valueOf("ff68b74766e20cca0102030405060708090a0b0c");
+        assertEquals(0xff68b747, oid.h1());
+        assertEquals(0x66e20cca01020304L, oid.h2());
+        assertEquals(0x05060708090a0b0cL, oid.h3());
+        assertEquals(oid, ObjectId.create(oid.h1(), oid.h2(), oid.h3()));
+        assertEquals(oid.hashCode(), ObjectId.hashCode(oid.h1(), oid.h2(), oid.h3()));
+        assertEquals(0xff, oid.byteN(0));
+        assertEquals(0x0c, oid.byteN(19));
+
+        byte[] raw = new byte[30];
+        System.arraycopy(oid.getRawValue(), 0, raw, 5, ObjectId.NUM_BYTES);
+        assertEquals(oid, ObjectId.create(raw, 5));
+    }
+
+    @Test
+    public void testCompareToUnsigned() {
+        ObjectId low = ObjectId.valueOf("0000000000000000000000000000000000000001");
+        ObjectId high = ObjectId.valueOf("0000000000000000000000008000000000000000");
+        ObjectId highest = ObjectId.valueOf("ffffffffffffffffffffffffffffffffffffffff");
+        assertTrue(low.compareTo(high) < 0);
+        assertTrue(high.compareTo(highest) < 0);
+        assertTrue(highest.compareTo(low) > 0);
+        assertTrue(ObjectId.NULL.compareTo(low) < 0);
+    }
+
+    @Test
+    public void testWriteToReadFrom() throws Exception {
+        ObjectId oid = ObjectId.valueOf("ff68b74766e20cca0102030405060708090a0b0c");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        oid.writeTo(new DataOutputStream(out));
+        assertTrue(Arrays.equals(oid.getRawValue(), out.toByteArray()));
+        assertEquals(oid,
+                ObjectId.readFrom(new DataInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
 }
@@ -17,6 +17,7 @@ import org.locationtech.geogig.cli.plumbing.MergeBase;
 import org.locationtech.geogig.cli.plumbing.RebuildGraph;
 import org.locationtech.geogig.cli.plumbing.RevList;
 import org.locationtech.geogig.cli.plumbing.RevParse;
+import org.locationtech.geogig.cli.plumbing.RewriteTrees;
 import org.locationtech.geogig.cli.plumbing.ShowRef;
 import org.locationtech.geogig.cli.plumbing.VerifyPatch;
 import org.locationtech.geogig.cli.plumbing.WalkGraph;
@@ -87,6 +88,7 @@ import com.google.inject.AbstractModule;
  * @see Fetch
  * @see Version
  * @see RebuildGraph
+ * @see RewriteTrees
  */
 public class BuiltinCommandsModule extends AbstractModule implements CLIModule {
 
@@ -135,6 +137,7 @@ public class BuiltinCommandsModule extends AbstractModule implements CLIModule {
         bind(WalkGraph.class);
         bind(Version.class);
         bind(RebuildGraph.class);
+        bind(RewriteTrees.class);
         bind(IndexCommandProxy.class);
     }
 
@@ -0,0 +1,42 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.cli.plumbing;
+
+import java.io.IOException;
+
+import org.locationtech.geogig.cli.AbstractCommand;
+import org.locationtech.geogig.cli.CLICommand;
+import org.locationtech.geogig.cli.GeogigCLI;
+import org.locationtech.geogig.plumbing.RewriteTreesOp;
+import org.locationtech.geogig.porcelain.ConfigGet;
+import org.locationtech.geogig.storage.datastream.SerializationFactoryProxy;
+
+import com.beust.jcommander.Parameters;
+
+/**
+ * Rewrites all the reachable trees in the serialization format set by the
+ * {@code storage.serialization} config key. An interrupted run can just be run again.
+ * 
+ * @see RewriteTreesOp
+ */
+@Parameters(commandNames = "rewrite-trees", commandDescription = "Rewrites the repository trees in the configured serialization format.")
+public class RewriteTrees extends AbstractCommand implements CLICommand {
+
+    @Override
+    public void runInternal(GeogigCLI cli) throws IOException {
+        String format = cli.getGeogig().command(ConfigGet.class)
+                .setName(SerializationFactoryProxy.FORMAT_CONFIG_KEY).call()
+                .or(SerializationFactoryProxy.DEFAULT_FORMAT);
+        cli.getConsole().println("Rewriting trees in format " + format + "...");
+        Long count = cli.getGeogig().command(RewriteTreesOp.class)
+                .setProgressListener(cli.getProgressListener()).call();
+        cli.getConsole().println(String.format("%,d trees rewritten.", count));
+    }
+}
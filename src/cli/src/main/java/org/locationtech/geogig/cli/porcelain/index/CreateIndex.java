@@ -18,8 +18,10 @@ import org.locationtech.geogig.cli.CommandFailedException;
 import org.locationtech.geogig.cli.GeogigCLI;
 import org.locationtech.geogig.cli.InvalidParameterException;
 import org.locationtech.geogig.cli.annotation.RequiresRepository;
+import org.locationtech.geogig.porcelain.index.CreateAttributeIndex;
 import org.locationtech.geogig.porcelain.index.CreateQuadTree;
 import org.locationtech.geogig.porcelain.index.Index;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 
@@ -29,7 +31,7 @@ import com.vividsolutions.jts.geom.Envelope;
 
 @RequiresRepository(true)
 @Parameters(commandNames = {
-        "create" }, commandDescription = "Creates a spatial index for the specified feature tree")
+        "create" }, commandDescription = "Creates a spatial or attribute index for the specified feature tree")
 public class CreateIndex extends AbstractCommand implements CLICommand {
 
     @Parameter(names = "--tree", required = true, description = "Name or path of the feature tree to create the index for.")
@@ -46,6 +48,9 @@ public class CreateIndex extends AbstractCommand implements CLICommand {
             "--extra-attributes" }, description = "Comma separated list of extra attribute names to hold inside index")
     private List<String> extraAttributes;
 
+    @Parameter(names = "--type", description = "Type of index to create, either QUADTREE (default), or ATTRIBUTE to index a non geometry attribute given by --attribute.")
+    private IndexType indexType = IndexType.QUADTREE;
+
     @Parameter(names = "--bounds", description = "If specified, the max bounds of the spatial index will be set to this parameter. <minx,miny,maxx,maxy>")
     private String bbox;
 
@@ -55,16 +60,29 @@ public class CreateIndex extends AbstractCommand implements CLICommand {
 
         Repository repo = cli.getGeogig().getRepository();
 
-        Envelope envelope = SpatialOps.parseNonReferencedBBOX(bbox);
+        Index index;
+        if (IndexType.ATTRIBUTE.equals(indexType)) {
+            checkParameter(attribute != null, "--attribute is required for ATTRIBUTE indexes");
+            checkParameter(bbox == null, "--bounds only applies to QUADTREE indexes");
+            index = repo.command(CreateAttributeIndex.class)//
+                    .setTreeRefSpec(treeRefSpec)//
+                    .setAttributeName(attribute)//
+                    .setExtraAttributes(extraAttributes)//
+                    .setIndexHistory(indexHistory)//
+                    .setProgressListener(cli.getProgressListener())//
+                    .call();
+        } else {
+            Envelope envelope = SpatialOps.parseNonReferencedBBOX(bbox);
 
-        Index index = repo.command(CreateQuadTree.class)//
-                .setTreeRefSpec(treeRefSpec)//
-                .setGeometryAttributeName(attribute)//
-                .setExtraAttributes(extraAttributes)//
-                .setIndexHistory(indexHistory)//
-                .setBounds(envelope)//
-                .setProgressListener(cli.getProgressListener())//
-                .call();
+            index = repo.command(CreateQuadTree.class)//
+                    .setTreeRefSpec(treeRefSpec)//
+                    .setGeometryAttributeName(attribute)//
+                    .setExtraAttributes(extraAttributes)//
+                    .setIndexHistory(indexHistory)//
+                    .setBounds(envelope)//
+                    .setProgressListener(cli.getProgressListener())//
+                    .call();
+        }
 
         cli.getConsole().println(
                 "Index created successfully: " + index.indexTreeId().toString().substring(0, 8));
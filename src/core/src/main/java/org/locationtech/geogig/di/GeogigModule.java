@@ -102,6 +102,8 @@ public class GeogigModule extends AbstractModule {
 
         bindConflictCheckingInterceptor();
 
+        bindObjectCache();
+
         bindDecorator(binder(), new CommandHooksDecorator());
     }
 
@@ -136,6 +138,10 @@ public class GeogigModule extends AbstractModule {
         bindDecorator(binder(), commitGraphUpdater);
     }
 
+    private void bindObjectCache() {
+        bindDecorator(binder(), new ObjectCacheDecorator(getProvider(ConfigDatabase.class)));
+    }
+
     public static void bindDecorator(Binder binder, Decorator decorator) {
 
         Multibinder.newSetBinder(binder, Decorator.class).addBinding().toInstance(decorator);
@@ -0,0 +1,47 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.di;
+
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.impl.CachingObjectDatabase;
+import org.locationtech.geogig.storage.impl.ObjectCache;
+
+import com.google.inject.Provider;
+import com.google.inject.util.Providers;
+
+/**
+ * Decorates the {@link ObjectDatabase} with a {@link CachingObjectDatabase}, whose cache budgets
+ * are taken from the {@code objectcache.*} config keys.
+ *
+ * @see ObjectCache
+ */
+class ObjectCacheDecorator implements Decorator {
+
+    private Provider<ConfigDatabase> configDb;
+
+    public ObjectCacheDecorator(Provider<ConfigDatabase> configDb) {
+        this.configDb = configDb;
+    }
+
+    @Override
+    public boolean canDecorate(Object subject) {
+        boolean canDecorate = subject instanceof ObjectDatabase
+                && !(subject instanceof CachingObjectDatabase);
+        return canDecorate;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public ObjectDatabase decorate(Object subject) {
+        ObjectCache cache = ObjectCache.build(configDb.get());
+        return new CachingObjectDatabase(Providers.of((ObjectDatabase) subject), cache);
+    }
+}
@@ -9,6 +9,8 @@
  */
 package org.locationtech.geogig.di;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import java.util.Iterator;
 
 import org.locationtech.geogig.model.ObjectId;
@@ -18,6 +20,7 @@ import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.GraphDatabase;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.RawObject;
 import org.locationtech.geogig.storage.impl.ForwardingObjectDatabase;
 
 import com.google.common.collect.ImmutableList;
@@ -107,6 +110,20 @@ class ObjectDatabasePutInterceptor implements Decorator {
             // }
         }
 
+        /**
+         * Raw objects can't be inspected without decoding them, so they're forwarded as is, but
+         * those known to be commits, which need to update the graph database, are rejected as per
+         * the {@link ObjectStore#putAllRaw} contract
+         */
+        @Override
+        public void putAllRaw(Iterator<RawObject> objects, BulkOpListener listener) {
+            Iterator<RawObject> checkingIterator = Iterators.transform(objects, (obj) -> {
+                checkArgument(!RevObject.TYPE.COMMIT.equals(obj.type()),
+                        "Commits can't be inserted as raw objects: %s", obj.id());
+                return obj;
+            });
+            super.putAllRaw(checkingIterator, listener);
+        }
     }
 
 }
@@ -0,0 +1,173 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import java.util.Date;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.internal.ClusteringStrategy;
+import org.locationtech.geogig.model.internal.ClusteringStrategyBuilder;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.storage.ObjectStore;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Builds index trees where nodes are clustered by the value of a single attribute, which must be
+ * {@link IndexInfo#getMaterializedAttribute materialized} in the nodes extra data.
+ * <p>
+ * Each node is assigned a {@link #key(Object) key}, an hexadecimal string that preserves the
+ * natural order of the attribute values, and at each depth of the tree nodes are split into
+ * buckets {@code 0-15} by the key's hex digit at that depth. Nodes whose key is exhausted at a
+ * given depth (i.e. whose key equals the bucket's key prefix) go to the
+ * {@link #UNPROMOTABLE_BUCKET extra bucket}, where they are split in canonical order. Hence the key
+ * range of any bucket can be told by its bucket index path alone, which allows to skip whole
+ * buckets when looking for a range of values (see {@link #bucketMayContain}).
+ */
+public class AttributeTreeBuilder extends AbstractTreeBuilder implements RevTreeBuilder {
+
+    /**
+     * The bucket index for the nodes whose key is exhausted at a given depth
+     */
+    public static final int UNPROMOTABLE_BUCKET = 16;
+
+    /**
+     * Max number of characters of a string value used to compute its key, values with a longer
+     * common prefix share the same key
+     */
+    static final int MAX_KEY_CHARS = 8;
+
+    private static final char NULL_TAG = '0', NUMBER_TAG = '1', STRING_TAG = '2';
+
+    private final ClusteringStrategy clusteringStrategy;
+
+    protected AttributeTreeBuilder(ObjectStore store, RevTree original,
+            ClusteringStrategy strategy) {
+        super(store, original);
+        clusteringStrategy = strategy;
+    }
+
+    @Override
+    protected final ClusteringStrategy clusteringStrategy() {
+        return clusteringStrategy;
+    }
+
+    public static AttributeTreeBuilder create(final ObjectStore source, final ObjectStore target,
+            final RevTree original, final String attributeName) {
+        Preconditions.checkNotNull(source);
+        Preconditions.checkNotNull(target);
+        Preconditions.checkNotNull(original);
+        Preconditions.checkNotNull(attributeName);
+
+        ClusteringStrategy strategy = ClusteringStrategyBuilder//
+                .attribute(source)//
+                .original(original)//
+                .attributeName(attributeName)//
+                .build();
+        AttributeTreeBuilder builder = new AttributeTreeBuilder(target, RevTree.EMPTY, strategy);
+        return builder;
+    }
+
+    /**
+     * Computes the index key for an attribute value.
+     * <p>
+     * Keys are hexadecimal strings whose lexicographical order matches the natural order of the
+     * values they're computed from, though different values may share the same key: {@code null}
+     * sorts first; numbers, dates and booleans are keyed by their {@code double} value; any other
+     * value is keyed by the first {@link #MAX_KEY_CHARS} characters of its string representation.
+     */
+    public static String key(@Nullable Object value) {
+        if (value == null) {
+            return String.valueOf(NULL_TAG);
+        }
+        if (value instanceof Number) {
+            return numberKey(((Number) value).doubleValue());
+        }
+        if (value instanceof Date) {
+            return numberKey(((Date) value).getTime());
+        }
+        if (value instanceof Boolean) {
+            return numberKey(((Boolean) value).booleanValue() ? 1 : 0);
+        }
+        final String s = value.toString();
+        final int length = Math.min(s.length(), MAX_KEY_CHARS);
+        StringBuilder sb = new StringBuilder(1 + 4 * length).append(STRING_TAG);
+        for (int i = 0; i < length; i++) {
+            appendHex(sb, s.charAt(i), 4);
+        }
+        return sb.toString();
+    }
+
+    private static String numberKey(double value) {
+        // flip the bits so that the unsigned order of the longs matches the order of the doubles
+        long bits = Double.doubleToLongBits(value == 0d ? 0d : value);
+        bits = bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+        return appendHex(new StringBuilder(17).append(NUMBER_TAG), bits, 16).toString();
+    }
+
+    private static StringBuilder appendHex(StringBuilder sb, long value, int digits) {
+        for (int shift = 4 * (digits - 1); shift >= 0; shift -= 4) {
+            sb.append(Character.forDigit((int) (value >>> shift) & 0xF, 16));
+        }
+        return sb;
+    }
+
+    /**
+     * @return the bucket index for {@code key} at the given depth, or {@code -1} if the key is
+     *         exhausted at that depth
+     */
+    public static int bucket(final String key, final int depthIndex) {
+        if (depthIndex >= key.length()) {
+            return -1;
+        }
+        return Character.digit(key.charAt(depthIndex), 16);
+    }
+
+    /**
+     * Determines whether the bucket addressed by {@code bucketIndexPath} in an attribute index tree
+     * may contain nodes with keys in the {@code [minKey, maxKey]} range.
+     *
+     * @param bucketIndexPath the bucket indexes from the root tree to the bucket, one per depth
+     * @param minKey the inclusive lower bound, or {@code null} if unbounded
+     * @param maxKey the inclusive upper bound, or {@code null} if unbounded
+     */
+    public static boolean bucketMayContain(final int[] bucketIndexPath,
+            final @Nullable String minKey, final @Nullable String maxKey) {
+        StringBuilder prefix = new StringBuilder(bucketIndexPath.length);
+        for (int bucketIndex : bucketIndexPath) {
+            if (bucketIndex == UNPROMOTABLE_BUCKET) {
+                // the key of all the nodes down this bucket is exactly the prefix so far
+                String key = prefix.toString();
+                return (minKey == null || minKey.compareTo(key) <= 0)
+                        && (maxKey == null || maxKey.compareTo(key) >= 0);
+            }
+            prefix.append(Character.forDigit(bucketIndex, 16));
+        }
+        // all the keys down this bucket start with prefix, and none is smaller than it
+        final String keyPrefix = prefix.toString();
+        if (maxKey != null && keyPrefix.compareTo(maxKey) > 0) {
+            return false;
+        }
+        if (minKey != null && minKey.compareTo(keyPrefix) > 0 && !minKey.startsWith(keyPrefix)) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the index key of the materialized value of {@code attributeName} in the node's extra
+     *         data
+     */
+    public static String key(final String attributeName, final Node node) {
+        return key(IndexInfo.getMaterializedAttribute(attributeName, node));
+    }
+}
@@ -151,6 +151,17 @@ public final class RevFeatureBuilder {
      * @return the newly constructed RevFeature
      */
     public static RevFeature build(Feature feature) {
+        return builder(feature).build();
+    }
+
+    /**
+     * Creates a builder holding a safe copy of the provided {@link Feature}'s values, so that the
+     * feature is no longer needed to {@link #build() build} the {@link RevFeature}.
+     * 
+     * @param feature the feature to copy the values from
+     * @return the builder, ready to build the {@link RevFeature}
+     */
+    public static RevFeatureBuilder builder(Feature feature) {
         if (feature == null) {
             throw new IllegalStateException("No feature set");
         }
@@ -168,6 +179,6 @@ public final class RevFeatureBuilder {
             Collection<Property> props = feature.getProperties();
             props.forEach((p) -> builder.addProperty(p));
         }
-        return builder.build();
+        return builder;
     }
 }
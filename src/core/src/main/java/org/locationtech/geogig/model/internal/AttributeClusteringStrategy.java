@@ -0,0 +1,87 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.internal;
+
+import java.util.Comparator;
+
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Clusters nodes by the order preserving {@link AttributeTreeBuilder#key key} of the value of an
+ * attribute materialized in their extra data, one hex digit of the key per tree depth.
+ * <p>
+ * Nodes whose key is exhausted at a given depth are moved to the
+ * {@link AttributeTreeBuilder#UNPROMOTABLE_BUCKET unpromotables} bucket, and split in canonical
+ * order from there on. Leaf trees hold their nodes in canonical order, so that index trees can be
+ * compared the same way canonical trees are.
+ *
+ * @see AttributeTreeBuilder
+ */
+final class AttributeClusteringStrategy extends ClusteringStrategy {
+
+    private final String attributeName;
+
+    AttributeClusteringStrategy(RevTree original, DAGStorageProvider storageProvider,
+            String attributeName) {
+        super(original, storageProvider);
+        this.attributeName = attributeName;
+    }
+
+    public String getAttributeName() {
+        return attributeName;
+    }
+
+    /**
+     * The fixed maximum size of a leaf {@link RevTree}, at any depth, when built as an attribute
+     * index.
+     *
+     * @return {@code 128}
+     */
+    @Override
+    int normalizedSizeLimit(final int depthIndex) {
+        return 128;
+    }
+
+    @Override
+    protected Comparator<NodeId> getNodeOrdering() {
+        return CanonicalClusteringStrategy.CANONICAL_ORDER;
+    }
+
+    /**
+     * @return a {@link NodeId} whose {@link NodeId#value() value} is the
+     *         {@link AttributeTreeBuilder#key key} of the node's materialized attribute value,
+     *         never {@code null} so that all nodes are indexed, even if the value is {@code null}
+     */
+    @Override
+    public NodeId computeId(final Node node) {
+        String key = AttributeTreeBuilder.key(attributeName, node);
+        return new NodeId(node.getName(), key);
+    }
+
+    /**
+     * Returns the bucket index in the range 0-15 corresponding to the hex digit of the node key at
+     * the specified depth, or {@code -1} if the key has no more digits.
+     */
+    @Override
+    public int bucket(final NodeId nodeId, final int depthIndex) {
+        final String key = nodeId.value();
+        Preconditions.checkNotNull(key, "node id has no key: %s", nodeId);
+        return AttributeTreeBuilder.bucket(key, depthIndex);
+    }
+
+    @Override
+    protected int unpromotableBucketIndex(final int depthIndex) {
+        return AttributeTreeBuilder.UNPROMOTABLE_BUCKET;
+    }
+}
@@ -14,7 +14,8 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.ObjectId;
@@ -53,9 +54,13 @@ final class CachingDAGStorageProvider implements DAGStorageProvider {
 
     private RocksdbDAGStorageProvider disk;
 
-    private DAGStorageProvider nodeStore;
+    private volatile DAGStorageProvider nodeStore;
 
-    private Lock swapLock = new ReentrantLock();
+    /**
+     * Nodes are saved holding the read lock, and the write lock is held while swapping the node
+     * store, so no node saved to the heap store concurrently with the swap gets lost
+     */
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
 
     private final Predicate<TreeId> heapTrees, diskTrees;
 
@@ -69,7 +74,7 @@ final class CachingDAGStorageProvider implements DAGStorageProvider {
         diskTrees = (id) -> id.depthLength() > HEAP_DEPTH_THRESHOLD;
     }
 
-    private DAGStorageProvider disk() {
+    private synchronized DAGStorageProvider disk() {
         if (disk == null) {
             disk = new RocksdbDAGStorageProvider(this.source, this.treeCache);
         }
@@ -130,13 +135,25 @@ final class CachingDAGStorageProvider implements DAGStorageProvider {
 
     @Override
     public void saveNode(NodeId nodeId, Node node) {
-        nodeStore.saveNode(nodeId, node);
+        final Lock readLock = swapLock.readLock();
+        readLock.lock();
+        try {
+            nodeStore.saveNode(nodeId, node);
+        } finally {
+            readLock.unlock();
+        }
         swapNodeStore();
     }
 
     @Override
     public void saveNodes(Map<NodeId, DAGNode> nodeMappings) {
-        nodeStore.saveNodes(nodeMappings);
+        final Lock readLock = swapLock.readLock();
+        readLock.lock();
+        try {
+            nodeStore.saveNodes(nodeMappings);
+        } finally {
+            readLock.unlock();
+        }
         swapNodeStore();
     }
 
@@ -165,7 +182,8 @@ final class CachingDAGStorageProvider implements DAGStorageProvider {
         if (heap.nodeCount() < NODE_SWAP_THRESHOLD) {
             return;
         }
-        swapLock.lock();
+        final Lock writeLock = swapLock.writeLock();
+        writeLock.lock();
         try {
             if (nodeStore != heap) {
                 // already swapped
@@ -187,7 +205,7 @@ final class CachingDAGStorageProvider implements DAGStorageProvider {
             }
             this.nodeStore = largeStore;
         } finally {
-            swapLock.unlock();
+            writeLock.unlock();
         }
     }
 }
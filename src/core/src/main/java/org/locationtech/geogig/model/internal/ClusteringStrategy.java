@@ -25,7 +25,9 @@ import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.Bucket;
@@ -203,10 +205,33 @@ public abstract class ClusteringStrategy {
         return 0;
     }
 
-    private Lock writeLock = new ReentrantLock();
+    /**
+     * Guards the structure of the {@link #root} DAG. Inserts into the root's existing buckets hold
+     * the read lock, so they can run concurrently with each other, while operations that change
+     * the root itself (mirroring the original tree, promoting its children to buckets, or
+     * shrinking it back to a leaf) and pruning the {@link DAGCache} hold the write lock.
+     */
+    private final ReadWriteLock rootLock = new ReentrantReadWriteLock();
 
     /**
-     * @param
+     * Serializes concurrent inserts into the same top level bucket, indexed by the bucket's index
+     * at depth zero. Everything below a top level bucket is only reached through it, so inserts
+     * into different top level buckets don't share any mutable DAG except the root.
+     */
+    private final Lock[] bucketLocks = new Lock[256];
+    {
+        for (int i = 0; i < bucketLocks.length; i++) {
+            bucketLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Adds, updates, or removes (if the node's object id is {@link ObjectId#NULL}) the given node.
+     * <p>
+     * This method is thread safe, and can be called concurrently by several threads: once the
+     * root DAG has been split into buckets, nodes that fall into different top level buckets are
+     * inserted in parallel.
+     * 
      * @return {@code 0} if the operation resulted in no change, {@code 1} if the node was
      *         inserted/updated, {@code -1} if the node was deleted
      */
@@ -220,18 +245,99 @@ public abstract class ClusteringStrategy {
         // feature in a spatial index)
 
         boolean remove = node.getObjectId().isNull();
-        int delta;
-        writeLock.lock();
-        try {
-            delta = put(root, nodeId, remove);
-            dagCache.prune();
-        } finally {
-            writeLock.unlock();
+        @Nullable
+        Integer delta = putConcurrent(nodeId, remove);
+        if (delta == null) {
+            final Lock writeLock = rootLock.writeLock();
+            writeLock.lock();
+            try {
+                delta = Integer.valueOf(put(root, nodeId, remove));
+                dagCache.prune();
+            } finally {
+                writeLock.unlock();
+            }
+        } else if (dagCache.needsPrune()) {
+            final Lock writeLock = rootLock.writeLock();
+            writeLock.lock();
+            try {
+                dagCache.prune();
+            } finally {
+                writeLock.unlock();
+            }
         }
         if (!remove) {
             storageProvider.saveNode(nodeId, node);
         }
-        return delta;
+        return delta.intValue();
+    }
+
+    /**
+     * Inserts the node into its top level bucket holding only the bucket's lock and the root's
+     * read lock, provided the root DAG is already a bucket DAG.
+     * <p>
+     * Mirrors what {@link #put(DAG, NodeId, boolean)} does for the root DAG, except shrinking the
+     * root, which is deferred to an exclusive lock if the removal of a node left the root
+     * underflown.
+     * 
+     * @return the size delta, or {@code null} if the node can't be added concurrently and must be
+     *         added holding the root's write lock
+     */
+    private @Nullable Integer putConcurrent(final NodeId nodeId, final boolean remove) {
+        final int deltaSize;
+        final boolean underflow;
+
+        final Lock readLock = rootLock.readLock();
+        readLock.lock();
+        try {
+            synchronized (root) {
+                if (root.getState() == STATE.INITIALIZED || root.numBuckets() == 0) {
+                    return null;
+                }
+            }
+            final @Nullable TreeId bucketId = computeBucketId(nodeId, 1);
+            if (bucketId == null) {
+                return null;
+            }
+            final Lock bucketLock = bucketLocks[bucketId.bucketIndex(0).intValue()];
+            bucketLock.lock();
+            try {
+                final DAG bucketDAG = getOrCreateDAG(bucketId);
+                deltaSize = put(bucketDAG, nodeId, remove);
+                final boolean changed = deltaSize != 0
+                        || bucketDAG.getState() == STATE.CHANGED;
+                final boolean empty = bucketDAG.getTotalChildCount() == 0;
+                synchronized (root) {
+                    if (empty) {
+                        root.removeBucket(bucketId);
+                    } else {
+                        root.addBucket(bucketId);
+                    }
+                    if (deltaSize != 0) {
+                        root.setTotalChildCount(root.getTotalChildCount() + deltaSize);
+                    }
+                    if (changed) {
+                        root.setChanged();
+                    }
+                    underflow = deltaSize < 0
+                            && root.getTotalChildCount() <= normalizedSizeLimit(0);
+                }
+            } finally {
+                bucketLock.unlock();
+            }
+        } finally {
+            readLock.unlock();
+        }
+
+        if (underflow) {
+            final Lock writeLock = rootLock.writeLock();
+            writeLock.lock();
+            try {
+                shrinkIfUnderflow(root, nodeId, 0);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return Integer.valueOf(deltaSize);
     }
 
     public DAG buildRoot() {
@@ -322,11 +428,19 @@ public abstract class ClusteringStrategy {
             checkState(childrenRecursive.size() == childCount, "expected %s, got %s, at: %s",
                     childCount, childrenRecursive.size(), bucketsDAG);
 
+            // the bucket DAGs are no longer reachable, but stay in the DAG cache and would be
+            // reused with their stale contents if this DAG is split again
+            bucketsDAG.forEachBucket((bucketId) -> clearRecursive(getOrCreateDAG(bucketId)));
             bucketsDAG.clearBuckets();
             childrenRecursive.forEach((id) -> bucketsDAG.addChild(id));
         }
     }
 
+    private void clearRecursive(final DAG dag) {
+        dag.forEachBucket((bucketId) -> clearRecursive(getOrCreateDAG(bucketId)));
+        dag.reset(RevTree.EMPTY_TREE_ID);
+    }
+
     private Set<NodeId> getChildrenRecursive(final DAG dag, final NodeId nodeId, final int depth) {
 
         Set<NodeId> children = new HashSet<>();
@@ -488,7 +602,9 @@ public abstract class ClusteringStrategy {
         @VisibleForTesting
         final Map<TreeId, DAG> treeBuff = new ConcurrentHashMap<>();
 
-        private Set<TreeId> dirty = new HashSet<>();
+        private static final int PRUNE_THRESHOLD = 10_000;
+
+        private Set<TreeId> dirty = ConcurrentHashMap.newKeySet();
 
         DAGCache(DAGStorageProvider store) {
             this.store = store;
@@ -547,9 +663,16 @@ public abstract class ClusteringStrategy {
             }
         }
 
+        public boolean needsPrune() {
+            return dirty.size() >= PRUNE_THRESHOLD;
+        }
+
+        /**
+         * Returns the dirty DAGs to the DAG store once there are enough of them. Must not be
+         * called concurrently with any modification to the DAGs.
+         */
         public void prune() {
-            final int dirtySize = dirty.size();
-            if (dirtySize < 10_000) {
+            if (!needsPrune()) {
                 return;
             }
 
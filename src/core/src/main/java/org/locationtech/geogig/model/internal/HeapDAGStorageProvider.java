@@ -16,8 +16,8 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.ObjectId;
@@ -44,7 +44,7 @@ class HeapDAGStorageProvider implements DAGStorageProvider {
         this.source = source;
         this.treeCache = treeCache;
         this.nodes = new ConcurrentHashMap<>();
-        this.trees = new TreeMap<>();
+        this.trees = new ConcurrentSkipListMap<>();
     }
 
     public synchronized void dispose() {
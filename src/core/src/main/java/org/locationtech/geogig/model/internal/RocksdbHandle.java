@@ -79,7 +79,6 @@ class RocksdbHandle {
                 .setAdviseRandomOnOpen(true)//
                 .setAllowMmapReads(true)//
                 .setAllowMmapWrites(true)//
-                .setAllowOsBuffer(true)//
                 .setWriteBufferSize(16 * 1024 * 1024)//
                 .setMaxWriteBufferNumber(8)//
                 .setMaxBackgroundCompactions(2)//
@@ -9,11 +9,12 @@
  */
 package org.locationtech.geogig.model.internal;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.ObjectIdMap;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ObjectStore;
@@ -23,15 +24,27 @@ import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Iterables;
 
 class TreeCache {
 
-    private final AtomicInteger idSequence = new AtomicInteger();
+    /**
+     * Tree id to internal id mapping, guarded by {@code this}
+     */
+    private final ObjectIdMap<Integer> internalIds = new ObjectIdMap<>(100_000);
 
-    private final BiMap<Integer, ObjectId> oidMapping = HashBiMap.create(100_000);
+    /**
+     * Internal id to tree id mapping, as the {@link ObjectId#h1() h1}, {@link ObjectId#h2() h2},
+     * and {@link ObjectId#h3() h3} parts of the tree ids indexed by internal id. Guarded by
+     * {@code this}
+     */
+    private int[] h1s = new int[100_000];
+
+    private long[] h2s = new long[100_000];
+
+    private long[] h3s = new long[100_000];
+
+    private int lastId;
 
     private final LoadingCache<Integer, RevTree> cache;
 
@@ -43,8 +56,7 @@ class TreeCache {
         final CacheLoader<Integer, RevTree> loader = new CacheLoader<Integer, RevTree>() {
             @Override
             public RevTree load(Integer key) throws Exception {
-                ObjectId treeId = oidMapping.get(key);
-                Preconditions.checkState(treeId != null, "No tree id mapped to " + key);
+                ObjectId treeId = treeId(key.intValue());
                 RevTree tree = TreeCache.this.store.getTree(treeId);
                 return tree;
             }
@@ -53,8 +65,18 @@ class TreeCache {
                 .build(loader);
     }
 
+    private synchronized ObjectId treeId(final int internalId) {
+        Preconditions.checkState(internalId > 0 && internalId <= lastId,
+                "No tree id mapped to %s", internalId);
+        return ObjectId.create(h1s[internalId], h2s[internalId], h3s[internalId]);
+    }
+
+    private synchronized Integer internalId(final ObjectId treeId) {
+        return internalIds.get(treeId);
+    }
+
     public RevTree getTree(final ObjectId treeId) {
-        Integer internalId = oidMapping.inverse().get(treeId);
+        Integer internalId = internalId(treeId);
         final RevTree tree;
         if (internalId == null) {
             tree = store.getTree(treeId);
@@ -79,11 +101,22 @@ class TreeCache {
         return tree;
     }
 
-    public Integer getTreeId(RevTree tree) {
-        Integer cacheId = oidMapping.inverse().get(tree.getId());
+    public synchronized Integer getTreeId(RevTree tree) {
+        final ObjectId treeId = tree.getId();
+        Integer cacheId = internalIds.get(treeId);
         if (cacheId == null) {
-            cacheId = Integer.valueOf(idSequence.incrementAndGet());
-            oidMapping.put(cacheId, tree.getId());
+            final int id = ++lastId;
+            if (id == h1s.length) {
+                final int capacity = id + (id >> 1);
+                h1s = Arrays.copyOf(h1s, capacity);
+                h2s = Arrays.copyOf(h2s, capacity);
+                h3s = Arrays.copyOf(h3s, capacity);
+            }
+            h1s[id] = treeId.h1();
+            h2s[id] = treeId.h2();
+            h3s[id] = treeId.h3();
+            cacheId = Integer.valueOf(id);
+            internalIds.put(treeId, cacheId);
             cache.put(cacheId, tree);
         }
         return cacheId;
@@ -11,25 +11,41 @@ package org.locationtech.geogig.plumbing;
 
 import java.util.List;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.locationtech.geogig.repository.AbstractGeoGigOp;
 import org.locationtech.geogig.repository.impl.DeduplicationService;
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.locationtech.geogig.storage.ConfigException;
+import org.locationtech.geogig.storage.impl.SpillingDeduplicationService;
 import org.locationtech.geogig.storage.memory.HeapDeduplicationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 
 /**
  * Uses the standard Java {@link ServiceLoader SPI mechanism} to look up for an implementation of
- * {@link DeduplicationService} in the classpath and returns it, or returns
- * {@link HeapDeduplicationService} if none is found.
- *
+ * {@link DeduplicationService} in the classpath and returns it.
+ * <p>
+ * If none is found, returns a {@link SpillingDeduplicationService} whose deduplicators keep up to
+ * {@code deduplicator.maxMemory} bytes of visited ids in memory before spilling them to disk, as
+ * configured in the repository config or the global config otherwise, defaulting to a quarter of
+ * the max heap size. The budget is shared by all the deduplicators in the process configured with
+ * the same value, not given to each of them. A {@code deduplicator.maxMemory} of zero means no
+ * limit, in which case a {@link HeapDeduplicationService} is returned.
  */
 public class CreateDeduplicator extends AbstractGeoGigOp<DeduplicationService> {
 
     private static final Logger LOG = LoggerFactory.getLogger(CreateDeduplicator.class);
 
+    public static final String KEY_MAX_MEMORY = "deduplicator.maxMemory";
+
+    private static final ConcurrentMap<Long, SpillingDeduplicationService> SHARED_SERVICES = new ConcurrentHashMap<>();
+
     @Override
     protected DeduplicationService _call() {
         ServiceLoader<DeduplicationService> loader = ServiceLoader.load(DeduplicationService.class);
@@ -37,9 +53,18 @@ public class CreateDeduplicator extends AbstractGeoGigOp<DeduplicationService> {
 
         DeduplicationService service;
         if (services.isEmpty()) {
-            LOG.info("No " + DeduplicationService.class.getSimpleName()
-                    + " service found, using default heap based one");
-            service = new HeapDeduplicationService();
+            final long maxMemory = maxMemory();
+            if (maxMemory == 0) {
+                LOG.info("No " + DeduplicationService.class.getSimpleName()
+                        + " service found, using default heap based one");
+                service = new HeapDeduplicationService();
+            } else {
+                LOG.info("No " + DeduplicationService.class.getSimpleName()
+                        + " service found, using default one with a {} bytes memory budget",
+                        maxMemory);
+                service = SHARED_SERVICES.computeIfAbsent(Long.valueOf(maxMemory),
+                        (m) -> new SpillingDeduplicationService(m.longValue()));
+            }
         } else {
             service = services.get(0);
             if (services.size() > 1) {
@@ -51,4 +76,21 @@ public class CreateDeduplicator extends AbstractGeoGigOp<DeduplicationService> {
         }
         return service;
     }
+
+    private long maxMemory() {
+        final long defaultValue = Runtime.getRuntime().maxMemory() / 4;
+        Optional<Long> value = Optional.absent();
+        try {
+            ConfigDatabase configdb = configDatabase();
+            value = configdb.get(KEY_MAX_MEMORY, Long.class);
+            if (!value.isPresent()) {
+                value = configdb.getGlobal(KEY_MAX_MEMORY, Long.class);
+            }
+        } catch (ConfigException e) {
+            // the repository may not exist yet, go with the default
+        }
+        final long maxMemory = value.or(Long.valueOf(defaultValue)).longValue();
+        Preconditions.checkArgument(maxMemory >= 0, "Invalid %s: %s", KEY_MAX_MEMORY, maxMemory);
+        return maxMemory;
+    }
 }
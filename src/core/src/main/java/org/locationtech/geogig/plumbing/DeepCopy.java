@@ -23,6 +23,7 @@ import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.LsTreeOp.Strategy;
 import org.locationtech.geogig.repository.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.locationtech.geogig.storage.ObjectStore;
 
@@ -141,8 +142,9 @@ public class DeepCopy extends AbstractGeoGigOp<ObjectId> {
             }
         };
 
-        // store objects into the target db and remove them from the origin db in one shot
-        to.putAll(from.getAll(ids));
+        // store objects into the target db in one shot, transferring them in their encoded form
+        // if both databases share the same storage format
+        ObjectStore.copyAll(ids, from, to, BulkOpListener.NOOP_LISTENER);
     }
 
     /**
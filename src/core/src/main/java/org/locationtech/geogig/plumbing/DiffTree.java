@@ -10,7 +10,11 @@
 package org.locationtech.geogig.plumbing;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -62,6 +66,14 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DiffTree.class);
 
+    /**
+     * Default max number of {@link DiffEntry}s buffered between the diff walk and the consumer of
+     * the iterator returned by {@link #call()}
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 10_000;
+
+    private static final int MAX_BATCH_SIZE = 512;
+
     private final List<String> pathFilters = Lists.newLinkedList();
 
     private ReferencedEnvelope boundsFilter;
@@ -78,6 +90,8 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
     private Predicate<Bounded> customFilter;
 
+    private Predicate<BucketIndex> bucketFilter;
+
     private Long limit;
 
     private ObjectId metadataId;
@@ -98,6 +112,8 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
     private boolean recordStats;
 
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
     static {
         ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true)
                 .setNameFormat("geogig-difftree-pool-%d").build();
@@ -167,6 +183,19 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return this;
     }
 
+    /**
+     * Sets the max number of {@link DiffEntry}s to buffer while the consumer of the iterator
+     * returned by {@link #call()} is behind the diff walk, which pauses once the buffer is full.
+     * Defaults to {@link #DEFAULT_BUFFER_SIZE}
+     * 
+     * @return {@code this}
+     */
+    public DiffTree setBufferSize(int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize must be > 0: %s", bufferSize);
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
     /**
      * @param path the path filter to use during the diff operation, replaces any other filter
      *        previously set
@@ -199,6 +228,18 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return this;
     }
 
+    /**
+     * @param bucketFilter a predicate to skip whole buckets by their position in the trees, only
+     *        meaningful if the clustering strategy of the trees tells the contents of a bucket by
+     *        its index path, and one of the trees is empty
+     * @see PreOrderDiffWalk.BucketIndexFilteringConsumer
+     * @return {@code this}
+     */
+    public DiffTree setBucketFilter(@Nullable Predicate<BucketIndex> bucketFilter) {
+        this.bucketFilter = bucketFilter;
+        return this;
+    }
+
     public DiffTree setChangeTypeFilter(@Nullable ChangeType changeType) {
         this.changeTypeFilter = changeType;
         return this;
@@ -221,7 +262,7 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
     @Override
     protected AutoCloseableIterator<DiffEntry> _call() throws IllegalArgumentException {
         checkArgument(oldRefSpec != null || oldTreeId != null, "old version not specified");
-        checkArgument(newRefSpec != null || oldTreeId != null, "new version not specified");
+        checkArgument(newRefSpec != null || newTreeId != null, "new version not specified");
         final ObjectStore leftSource;
         final ObjectStore rightSource;
 
@@ -239,8 +280,11 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
                 rightSource, preserveIterationOrder);
         visitor.setDefaultMetadataId(this.metadataId);
 
-        final BlockingQueue<DiffEntry> queue = new ArrayBlockingQueue<>(1000_000);
-        final DiffEntryProducer diffProducer = new DiffEntryProducer(queue);
+        final int maxBatchSize = Math.min(MAX_BATCH_SIZE, bufferSize);
+        final BlockingQueue<List<DiffEntry>> queue = new ArrayBlockingQueue<>(
+                Math.max(1, bufferSize / maxBatchSize));
+        final BatchingDiffEntrySink sink = new BatchingDiffEntrySink(queue, maxBatchSize);
+        final DiffEntryProducer diffProducer = new DiffEntryProducer(sink);
         diffProducer.setReportTrees(this.reportTrees);
         diffProducer.setRecursive(this.recursive);
 
@@ -251,29 +295,7 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         Runnable producer = new Runnable() {
             @Override
             public void run() {
-                Consumer consumer = diffProducer;
-                if (recordStats) {
-                    consumer = new AcceptedFeaturesStatsConsumer(consumer, stats);
-                }
-                if (limit != null) {// evaluated the latest
-                    consumer = new PreOrderDiffWalk.MaxFeatureDiffsLimiter(consumer, limit);
-                }
-                if (customFilter != null) {
-                    consumer = new PreOrderDiffWalk.FilteringConsumer(consumer, customFilter);
-                }
-                if (changeTypeFilter != null) {
-                    consumer = new ChangeTypeFilteringDiffConsumer(changeTypeFilter, consumer);
-                }
-                if (boundsFilter != null) {
-                    consumer = new BoundsFilteringDiffConsumer(boundsFilter, consumer,
-                            objectDatabase());
-                }
-                if (!pathFilters.isEmpty()) {// evaluated the former
-                    consumer = new PathFilteringDiffConsumer(pathFilters, consumer);
-                }
-                if (recordStats) {
-                    consumer = new StatsConsumer(consumer, stats);
-                }
+                Consumer consumer = buildConsumer(diffProducer);
                 try {
                     LOGGER.trace("walking diff {} / {}", oldRefSpec, newRefSpec);
                     visitor.walk(consumer);
@@ -283,6 +305,7 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
                     producerErrors.add(e);
                 } finally {
                     diffProducer.finished = true;
+                    sink.flush();
                 }
             }
         };
@@ -290,39 +313,45 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
         AutoCloseableIterator<DiffEntry> consumerIterator = new AutoCloseableIterator<DiffEntry>() {
 
+            private Iterator<DiffEntry> batch = Collections.emptyIterator();
+
             private DiffEntry next = null;
 
             private DiffEntry computeNext() {
-                if (!producerErrors.isEmpty()) {
-                    throw new RuntimeException("Error in producer thread", producerErrors.get(0));
-                }
-                BlockingQueue<DiffEntry> entries = queue;
-                boolean finished = diffProducer.isFinished();
-                boolean empty = entries.isEmpty();
-                while (!finished || !empty) {
+                while (true) {
+                    if (batch.hasNext()) {
+                        return batch.next();
+                    }
+                    if (!producerErrors.isEmpty()) {
+                        throw new RuntimeException("Error in producer thread",
+                                producerErrors.get(0));
+                    }
+                    // read the flag before polling, as the last batch is queued before it's set
+                    final boolean done = sink.isDone();
                     try {
-                        DiffEntry entry = entries.poll(10, TimeUnit.MILLISECONDS);
-                        if (entry != null) {
-                            return entry;
+                        List<DiffEntry> entries = queue.poll(10, TimeUnit.MILLISECONDS);
+                        if (entries != null) {
+                            batch = entries.iterator();
+                        } else if (done) {
+                            return null;
                         }
-                        finished = diffProducer.isFinished();
-                        empty = entries.isEmpty();
                     } catch (InterruptedException e) {
                         throw Throwables.propagate(e);
                     }
                 }
-                return null;
             }
 
             @Override
             protected void finalize() {
                 diffProducer.finished = true;
+                sink.cancel();
             }
 
             @Override
             public void close() {
                 visitor.abortTraversal();
-                // free up any threads waiting for the queue to be unblocked
+                // free up the producer if it's waiting for the queue to be unblocked
+                sink.cancel();
                 queue.clear();
                 // in case any threads are in the middle of reading
                 visitor.awaitTermination();
@@ -349,6 +378,71 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return consumerIterator;
     }
 
+    /**
+     * Push style alternative to {@link #call()} that walks the diff in the calling thread and hands
+     * each {@link DiffEntry} over to {@code action} as soon as it's found, with no buffering at
+     * all.
+     * <p>
+     * Unless {@link #setPreserveIterationOrder(boolean) iteration order is preserved}, the diff is
+     * walked in parallel and {@code action} is called concurrently from several threads, so it must
+     * be thread safe. Returning from this method means all the differences have been reported.
+     */
+    public void forEach(java.util.function.Consumer<? super DiffEntry> action) {
+        checkNotNull(action, "action is null");
+        checkArgument(oldRefSpec != null || oldTreeId != null, "old version not specified");
+        checkArgument(newRefSpec != null || newTreeId != null, "new version not specified");
+        final ObjectStore leftSource = this.leftSource == null ? objectDatabase()
+                : this.leftSource;
+        final ObjectStore rightSource = this.rightSource == null ? objectDatabase()
+                : this.rightSource;
+
+        final RevTree oldTree = resolveTree(oldRefSpec, this.oldTreeId, leftSource);
+        final RevTree newTree = resolveTree(newRefSpec, this.newTreeId, rightSource);
+        if (oldTree.equals(newTree)) {
+            return;
+        }
+        final PreOrderDiffWalk visitor = new PreOrderDiffWalk(oldTree, newTree, leftSource,
+                rightSource, preserveIterationOrder);
+        visitor.setDefaultMetadataId(this.metadataId);
+
+        final DiffEntryProducer diffProducer = new DiffEntryProducer(action);
+        diffProducer.setReportTrees(this.reportTrees);
+        diffProducer.setRecursive(this.recursive);
+        if (recordStats) {
+            stats = new Stats();
+        }
+        visitor.walk(buildConsumer(diffProducer));
+    }
+
+    private Consumer buildConsumer(DiffEntryProducer diffProducer) {
+        Consumer consumer = diffProducer;
+        if (recordStats) {
+            consumer = new AcceptedFeaturesStatsConsumer(consumer, stats);
+        }
+        if (limit != null) {// evaluated the latest
+            consumer = new PreOrderDiffWalk.MaxFeatureDiffsLimiter(consumer, limit);
+        }
+        if (customFilter != null) {
+            consumer = new PreOrderDiffWalk.FilteringConsumer(consumer, customFilter);
+        }
+        if (bucketFilter != null) {
+            consumer = new PreOrderDiffWalk.BucketIndexFilteringConsumer(consumer, bucketFilter);
+        }
+        if (changeTypeFilter != null) {
+            consumer = new ChangeTypeFilteringDiffConsumer(changeTypeFilter, consumer);
+        }
+        if (boundsFilter != null) {
+            consumer = new BoundsFilteringDiffConsumer(boundsFilter, consumer, objectDatabase());
+        }
+        if (!pathFilters.isEmpty()) {// evaluated the former
+            consumer = new PathFilteringDiffConsumer(pathFilters, consumer);
+        }
+        if (recordStats) {
+            consumer = new StatsConsumer(consumer, stats);
+        }
+        return consumer;
+    }
+
     private RevTree resolveTree(@Nullable final String treeIsh, @Nullable final ObjectId treeOid,
             final ObjectStore source) {
 
@@ -461,28 +555,110 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         }
     }
 
+    /**
+     * Hands off {@link DiffEntry}s to the consumer iterator in batches through a bounded queue,
+     * blocking the diff walk while the queue is full.
+     * <p>
+     * Batches start small so the first entries reach the consumer early, and double in size up to
+     * {@code maxBatchSize} as long as the consumer keeps up, that is, while there's room in the
+     * queue for the next batch.
+     */
+    private static class BatchingDiffEntrySink implements java.util.function.Consumer<DiffEntry> {
+
+        private static final int MIN_BATCH_SIZE = 16;
+
+        private final BlockingQueue<List<DiffEntry>> queue;
+
+        private final int maxBatchSize;
+
+        private int batchSize;
+
+        private List<DiffEntry> batch;
+
+        private volatile boolean cancelled, done;
+
+        BatchingDiffEntrySink(BlockingQueue<List<DiffEntry>> queue, int maxBatchSize) {
+            this.queue = queue;
+            this.maxBatchSize = maxBatchSize;
+            this.batchSize = Math.min(MIN_BATCH_SIZE, maxBatchSize);
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void accept(DiffEntry entry) {
+            List<DiffEntry> full = null;
+            synchronized (this) {
+                batch.add(entry);
+                if (batch.size() >= batchSize) {
+                    full = batch;
+                    if (batchSize < maxBatchSize && queue.remainingCapacity() > 0) {
+                        batchSize = Math.min(maxBatchSize, 2 * batchSize);
+                    }
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (full != null) {
+                handOff(full);
+            }
+        }
+
+        /**
+         * Hands off the last, possibly partial, batch and marks the end of the stream
+         */
+        public void flush() {
+            List<DiffEntry> last;
+            synchronized (this) {
+                last = batch;
+                batch = new ArrayList<>(0);
+            }
+            if (!last.isEmpty()) {
+                handOff(last);
+            }
+            done = true;
+        }
+
+        /**
+         * Waits for room in the queue, unless the consumer is gone
+         */
+        private void handOff(List<DiffEntry> entries) {
+            try {
+                while (!cancelled) {
+                    if (queue.offer(entries, 10, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                cancelled = true;
+            }
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+    }
+
     private static class DiffEntryProducer extends PreOrderDiffWalk.AbstractConsumer {
 
         private boolean reportFeatures = true, reportTrees = false;
 
-        private BlockingQueue<DiffEntry> entries;
+        private final java.util.function.Consumer<? super DiffEntry> entries;
 
         private volatile boolean finished;
 
         private boolean recursive = true;
 
-        public DiffEntryProducer(BlockingQueue<DiffEntry> queue) {
-            this.entries = queue;
+        public DiffEntryProducer(java.util.function.Consumer<? super DiffEntry> sink) {
+            this.entries = sink;
         }
 
         @Override
         public boolean feature(NodeRef left, NodeRef right) {
             if (!finished && reportFeatures) {
-                try {
-                    entries.put(new DiffEntry(left, right));
-                } catch (InterruptedException e) {
-                    // throw Throwables.propagate(e);
-                }
+                entries.accept(new DiffEntry(left, right));
             }
             return true;
         }
@@ -505,13 +681,7 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
             if (!finished && reportTrees) {
                 if (parentPath != null) {// do not report the root tree
-                    try {
-                        entries.put(new DiffEntry(left, right));
-                    } catch (InterruptedException e) {
-                        // throw Throwables.propagate(e);
-                        // die gracefully
-                        return false;
-                    }
+                    entries.accept(new DiffEntry(left, right));
                 }
             }
             if (recursive) {
@@ -95,6 +95,12 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
 
     /**
      * Finds the lowest common ancestor of two commits.
+     * <p>
+     * Once a common ancestor has been found, commits whose {@link GraphNode#getGeneration()
+     * generation} is lower than the generation of every common ancestor found so far are not
+     * traversed, since neither them nor their ancestors can be descendants of those common
+     * ancestors. Without generation numbers, the whole history reachable from both commits is
+     * traversed.
      * 
      * @param leftId the commit id of the left commit
      * @param rightId the commit id of the right commit
@@ -116,17 +122,23 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
         rightQueue.add(rightNode);
 
         List<GraphNode> potentialCommonAncestors = new LinkedList<GraphNode>();
+        // commits with a generation lower than this one are not traversed, -1 means no pruning
+        int pruneBelow = -1;
         while (!leftQueue.isEmpty() || !rightQueue.isEmpty()) {
             if (!leftQueue.isEmpty()) {
                 GraphNode commit = leftQueue.poll();
-                if (processCommit(commit, leftQueue, leftSet, rightQueue, rightSet)) {
+                if (!isPruned(commit, pruneBelow)
+                        && processCommit(commit, leftQueue, leftSet, rightQueue, rightSet)) {
                     potentialCommonAncestors.add(commit);
+                    pruneBelow = pruneBelow(commit, pruneBelow, potentialCommonAncestors);
                 }
             }
             if (!rightQueue.isEmpty()) {
                 GraphNode commit = rightQueue.poll();
-                if (processCommit(commit, rightQueue, rightSet, leftQueue, leftSet)) {
+                if (!isPruned(commit, pruneBelow)
+                        && processCommit(commit, rightQueue, rightSet, leftQueue, leftSet)) {
                     potentialCommonAncestors.add(commit);
+                    pruneBelow = pruneBelow(commit, pruneBelow, potentialCommonAncestors);
                 }
             }
         }
@@ -139,6 +151,28 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
         return ancestor;
     }
 
+    private boolean isPruned(GraphNode commit, int pruneBelow) {
+        if (pruneBelow <= 0) {
+            return false;
+        }
+        Optional<Integer> generation = commit.getGeneration();
+        return generation.isPresent() && generation.get().intValue() < pruneBelow;
+    }
+
+    /**
+     * @return the lowest generation of the potential common ancestors, or {@code -1} if any of
+     *         them has an unknown generation
+     */
+    private int pruneBelow(GraphNode potentialAncestor, int pruneBelow,
+            List<GraphNode> potentialCommonAncestors) {
+        final int generation = potentialAncestor.getGeneration().or(Integer.valueOf(-1))
+                .intValue();
+        if (potentialCommonAncestors.size() == 1) {
+            return generation;
+        }
+        return pruneBelow == -1 ? -1 : Math.min(pruneBelow, generation);
+    }
+
     /**
      * Process a commit to see if it has already been seen. If it has, prevent unnecessary work from
      * continuing on the other traversal queue. If it hasn't, add it's parents to the traversal
@@ -28,6 +28,11 @@ import com.google.common.collect.ImmutableList;
 /**
  * Rebuilds the {@link GraphDatabase} and returns a list of {@link ObjectId}s that were found to be
  * missing or incomplete.
+ * <p>
+ * Since every commit reachable from a branch is put again, this also serves as the one-time
+ * migration of graph databases created before commit depth and generation numbers were stored:
+ * once the root commits are put, the graph database propagates the numbers to all of their
+ * descendants.
  */
 public class RebuildGraphOp extends AbstractGeoGigOp<ImmutableList<ObjectId>> {
 
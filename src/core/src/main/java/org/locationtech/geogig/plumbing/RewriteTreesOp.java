@@ -0,0 +1,130 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTag;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.AbstractGeoGigOp;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.repository.impl.DeduplicationService;
+import org.locationtech.geogig.repository.impl.Deduplicator;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.datastream.SerializationFactoryProxy;
+
+/**
+ * Rewrites the trees reachable from any ref with the serialization format the object database is
+ * configured to write, as set by the {@link SerializationFactoryProxy#FORMAT_CONFIG_KEY
+ * storage.serialization} config key, in order to migrate an existing repository to a different
+ * format (e.g. the lazily parsed 2.3 tree format) after changing that setting. Rewritten trees
+ * are also compressed with the {@link SerializationFactoryProxy#CODEC_CONFIG_KEY configured codec},
+ * while other objects keep the codec they were written with.
+ * <p>
+ * Only trees are rewritten, as they're the only objects whose encoding differs among the
+ * {@link SerializationFactoryProxy#WRITABLE_FORMATS writable formats}. Trees are replaced in
+ * place through {@link ObjectDatabase#overwriteAll}, so they're never missing from the database,
+ * and an interrupted run leaves each tree in either its former or its new encoding, hence it can
+ * just be run again. Fails with {@link UnsupportedOperationException} if the object database
+ * doesn't support replacing objects.
+ */
+public class RewriteTreesOp extends AbstractGeoGigOp<Long> {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    /**
+     * @return the number of trees rewritten
+     */
+    @Override
+    protected Long _call() {
+        final ObjectDatabase db = objectDatabase();
+        final ProgressListener progress = getProgressListener();
+        progress.started();
+        progress.setDescription("Rewriting trees...");
+
+        final Deque<ObjectId> trees = new ArrayDeque<>();
+        final Deque<ObjectId> commits = new ArrayDeque<>();
+        for (Ref ref : command(ForEachRef.class).call()) {
+            push(db.getIfPresent(ref.getObjectId()), commits, trees);
+        }
+
+        final DeduplicationService deduplicationService = command(CreateDeduplicator.class)
+                .call();
+        final Deduplicator deduplicator = deduplicationService.createDeduplicator();
+        final Set<ObjectId> visitedCommits = new HashSet<>();
+        final List<RevTree> batch = new ArrayList<>(BATCH_SIZE);
+        long count = 0;
+        try {
+            while (!(commits.isEmpty() && trees.isEmpty()) && !progress.isCanceled()) {
+                if (trees.isEmpty()) {
+                    ObjectId commitId = commits.pop();
+                    if (visitedCommits.add(commitId)) {
+                        RevCommit commit = db.getCommit(commitId);
+                        trees.push(commit.getTreeId());
+                        commits.addAll(commit.getParentIds());
+                    }
+                    continue;
+                }
+                final ObjectId treeId = trees.pop();
+                if (RevTree.EMPTY_TREE_ID.equals(treeId) || deduplicator.visit(treeId)) {
+                    continue;
+                }
+                final RevTree tree = db.getTree(treeId);
+                for (Node node : tree.trees()) {
+                    trees.push(node.getObjectId());
+                }
+                for (Bucket bucket : tree.buckets().values()) {
+                    trees.push(bucket.getObjectId());
+                }
+                batch.add(tree);
+                if (batch.size() == BATCH_SIZE) {
+                    count += rewrite(db, batch);
+                    progress.setProgress(count);
+                }
+            }
+            count += rewrite(db, batch);
+        } finally {
+            deduplicator.release();
+        }
+        progress.setProgress(count);
+        progress.complete();
+        return Long.valueOf(count);
+    }
+
+    private void push(RevObject object, Deque<ObjectId> commits, Deque<ObjectId> trees) {
+        if (object instanceof RevCommit) {
+            commits.push(object.getId());
+        } else if (object instanceof RevTree) {
+            trees.push(object.getId());
+        } else if (object instanceof RevTag) {
+            commits.push(((RevTag) object).getCommitId());
+        }
+    }
+
+    private int rewrite(ObjectDatabase db, List<RevTree> batch) {
+        final int size = batch.size();
+        if (size > 0) {
+            db.overwriteAll(batch.iterator());
+            batch.clear();
+        }
+        return size;
+    }
+}
@@ -148,6 +148,14 @@ public class PreOrderDiffWalk {
             return indexPath.length - 1;
         }
 
+        /**
+         * @return a copy of the bucket indexes from the root tree down to this bucket, one per
+         *         depth level
+         */
+        public int[] getIndexPath() {
+            return indexPath.clone();
+        }
+
         /**
          * @return the bucket index at the last depth level
          */
@@ -1282,6 +1290,43 @@ public class PreOrderDiffWalk {
         }
     }
 
+    /**
+     * Skips the buckets whose {@link BucketIndex} doesn't pass the given predicate, for tree
+     * structures where the index path of a bucket tells about its contents (e.g. attribute index
+     * trees).
+     * <p>
+     * Note the bucket indexes are only guaranteed to match the tree structure if one of the trees
+     * is empty, since the nodes of a leaf tree compared against a bucket tree are split into
+     * buckets in canonical order.
+     */
+    public static class BucketIndexFilteringConsumer extends ForwardingConsumer {
+
+        private final Predicate<BucketIndex> predicate;
+
+        public BucketIndexFilteringConsumer(final Consumer delegate,
+                final Predicate<BucketIndex> predicate) {
+            super(delegate);
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean bucket(NodeRef leftParent, NodeRef rightParent, BucketIndex bucketIndex,
+                Bucket left, Bucket right) {
+            if (predicate.apply(bucketIndex)) {
+                return super.bucket(leftParent, rightParent, bucketIndex, left, right);
+            }
+            return false;
+        }
+
+        @Override
+        public void endBucket(NodeRef leftParent, NodeRef rightParent, BucketIndex bucketIndex,
+                Bucket left, Bucket right) {
+            if (predicate.apply(bucketIndex)) {
+                super.endBucket(leftParent, rightParent, bucketIndex, left, right);
+            }
+        }
+    }
+
     private static final class CancellableConsumer extends ForwardingConsumer {
 
         private final AtomicBoolean cancel = new AtomicBoolean();
@@ -12,8 +12,19 @@ package org.locationtech.geogig.plumbing.index;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
-import java.util.Iterator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.NodeRef;
@@ -22,26 +33,59 @@ import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.FindTreeChild;
-import org.locationtech.geogig.plumbing.ResolveTreeish;
 import org.locationtech.geogig.porcelain.BranchListOp;
-import org.locationtech.geogig.porcelain.LogOp;
 import org.locationtech.geogig.porcelain.index.IndexUtils;
 import org.locationtech.geogig.repository.AbstractGeoGigOp;
 import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.storage.ObjectDatabase;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Builds an index for every commit a given type tree is present at. Returns the number of trees
  * that were built.
+ * <p>
+ * The distinct versions of the type tree across the history of all branches are indexed once
+ * each, parents first, so that every tree is indexed as the difference with the tree at its
+ * parent commit. Trees whose parent tree is already indexed are built in parallel.
+ * <p>
+ * The index is cleared before the first run, and the {@link #MD_HISTORY_INDEX_IN_PROGRESS} flag
+ * is set on its metadata until the whole history is indexed. If a run is interrupted, the next one
+ * keeps the trees that were already indexed and only builds the missing ones.
  */
 public class BuildFullHistoryIndexOp extends AbstractGeoGigOp<Integer> {
 
+    /**
+     * Key of the index {@link IndexInfo#getMetadata() metadata} flag set while its full history
+     * is being indexed
+     */
+    public static final String MD_HISTORY_INDEX_IN_PROGRESS = "@historyIndexInProgress";
+
     private String treeRefSpec;
 
     private @Nullable String attributeName;
 
+    /**
+     * A version of the type tree, and the version at the parent of the first commit it was found
+     * at, if any
+     */
+    private static class TreePair {
+
+        final NodeRef tree;
+
+        final @Nullable ObjectId baseTreeId;
+
+        TreePair(NodeRef tree, @Nullable ObjectId baseTreeId) {
+            this.tree = tree;
+            this.baseTreeId = baseTreeId;
+        }
+    }
+
     /**
      * @param treeRefSpec the tree refspec of the index to be built
      * @return {@code this}
@@ -80,11 +124,31 @@ public class BuildFullHistoryIndexOp extends AbstractGeoGigOp<Integer> {
 
         IndexInfo index = indexInfos.get(0);
 
-        indexDatabase().clearIndex(index);
+        if (!isInProgress(index)) {
+            indexDatabase().clearIndex(index);
+            index = setInProgress(index, true);
+        }
         int builtTrees = indexHistory(index);
+        if (!getProgressListener().isCanceled()) {
+            setInProgress(index, false);
+        }
         return builtTrees;
     }
 
+    private boolean isInProgress(IndexInfo index) {
+        return Boolean.TRUE.equals(index.getMetadata().get(MD_HISTORY_INDEX_IN_PROGRESS));
+    }
+
+    private IndexInfo setInProgress(IndexInfo index, boolean inProgress) {
+        Map<String, Object> metadata = new HashMap<>(index.getMetadata());
+        if (inProgress) {
+            metadata.put(MD_HISTORY_INDEX_IN_PROGRESS, Boolean.TRUE);
+        } else {
+            metadata.remove(MD_HISTORY_INDEX_IN_PROGRESS);
+        }
+        return indexDatabase().updateIndexInfo(index.getTreeName(), index.getAttributeName(),
+                index.getIndexType(), metadata);
+    }
 
     /**
      * Builds an index on every reachable commit in the history.
@@ -92,58 +156,140 @@ public class BuildFullHistoryIndexOp extends AbstractGeoGigOp<Integer> {
      * @param index the {@link IndexInfo} to use
      * @return the number of trees that were built
      */
-    private int indexHistory(IndexInfo index) {
-        ImmutableList<Ref> branches = command(BranchListOp.class).setLocal(true).setRemotes(true)
-                .call();
-        int builtTrees = 0;
+    private int indexHistory(final IndexInfo index) {
+        final ProgressListener progress = getProgressListener();
+        final IndexDatabase indexDatabase = indexDatabase();
+        final List<TreePair> trees = resolveTreePairs(index);
+
+        final int nThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("geogig-history-index-%d").build();
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads, threadFactory);
+
+        final AtomicInteger builtTrees = new AtomicInteger();
+        final Map<ObjectId, CompletableFuture<Void>> builds = new HashMap<>();
+        final CompletableFuture<Void> done = CompletableFuture.completedFuture(null);
+        try {
+            for (TreePair pair : trees) {
+                final ObjectId treeId = pair.tree.getObjectId();
+                if (indexDatabase.resolveIndexedTree(index, treeId).isPresent()) {
+                    builds.put(treeId, done);
+                    continue;
+                }
+                CompletableFuture<Void> base = pair.baseTreeId == null ? done
+                        : builds.get(pair.baseTreeId);
+                checkState(base != null, "Base tree %s not scheduled", pair.baseTreeId);
+                builds.put(treeId, base.thenRunAsync(() -> {
+                    if (!progress.isCanceled()) {
+                        indexTree(index, pair);
+                        int count = builtTrees.incrementAndGet();
+                        progress.setDescription(String.format("Indexed %,d of %,d trees", count,
+                                trees.size()));
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(builds.values().toArray(new CompletableFuture[builds.size()]))
+                    .join();
+        } catch (CompletionException e) {
+            throw Throwables.propagate(Throwables.getRootCause(e));
+        } finally {
+            executor.shutdownNow();
+        }
+        return builtTrees.get();
+    }
+
+    /**
+     * Walks the commits of all branches, parents first, and collects the distinct versions of the
+     * index type tree in that order
+     */
+    private List<TreePair> resolveTreePairs(IndexInfo index) {
+        final ObjectDatabase objectDatabase = objectDatabase();
+        final ImmutableList<Ref> branches = command(BranchListOp.class).setLocal(true)
+                .setRemotes(true).call();
+
+        // the type tree at each visited commit
+        final Map<ObjectId, Optional<NodeRef>> commitTrees = new HashMap<>();
+        final Map<ObjectId, TreePair> pairs = new LinkedHashMap<>();
+
+        // commits whose parents are being visited, with their existing parents
+        final Map<ObjectId, RevCommit> expanded = new HashMap<>();
+        final Map<ObjectId, List<ObjectId>> expandedParents = new HashMap<>();
+        final Deque<ObjectId> stack = new ArrayDeque<>();
         for (Ref ref : branches) {
-            Iterator<RevCommit> commits = command(LogOp.class).setUntil(ref.getObjectId()).call();
-            while (commits.hasNext()) {
-                RevCommit next = commits.next();
-                if (indexCommit(index, next)) {
-                    builtTrees++;
+            if (!ref.getObjectId().isNull()) {
+                stack.push(ref.getObjectId());
+            }
+        }
+        while (!stack.isEmpty()) {
+            final ObjectId commitId = stack.peek();
+            if (commitTrees.containsKey(commitId)) {
+                stack.pop();
+                continue;
+            }
+            if (!expanded.containsKey(commitId)) {
+                final RevCommit commit = objectDatabase.getCommit(commitId);
+                final List<ObjectId> parents = new ArrayList<>();
+                for (ObjectId parentId : commit.getParentIds()) {
+                    // parents may be missing in shallow clones
+                    if (objectDatabase.exists(parentId)) {
+                        parents.add(parentId);
+                        if (!commitTrees.containsKey(parentId)) {
+                            stack.push(parentId);
+                        }
+                    }
                 }
+                expanded.put(commitId, commit);
+                expandedParents.put(commitId, parents);
+                continue;
             }
+            stack.pop();
+            final RevCommit commit = expanded.remove(commitId);
+            final List<ObjectId> parents = expandedParents.remove(commitId);
+
+            final Optional<NodeRef> tree = findTypeTree(index, commit);
+            commitTrees.put(commitId, tree);
+            if (!tree.isPresent() || pairs.containsKey(tree.get().getObjectId())) {
+                continue;
+            }
+            ObjectId baseTreeId = null;
+            for (ObjectId parentId : parents) {
+                Optional<NodeRef> parentTree = commitTrees.get(parentId);
+                if (parentTree.isPresent()) {
+                    baseTreeId = parentTree.get().getObjectId();
+                    break;
+                }
+            }
+            pairs.put(tree.get().getObjectId(), new TreePair(tree.get(), baseTreeId));
         }
-        return builtTrees;
+        return new ArrayList<>(pairs.values());
+    }
+
+    private Optional<NodeRef> findTypeTree(IndexInfo index, RevCommit commit) {
+        RevTree commitTree = objectDatabase().getTree(commit.getTreeId());
+        return command(FindTreeChild.class).setChildPath(index.getTreeName())
+                .setParent(commitTree).call();
     }
 
     /**
-     * Builds an index for a single commit.
+     * Builds the index for a single version of the type tree.
      * 
      * @param index the {@link IndexInfo} to use
-     * @param commit the commit to build the index for
-     * @return {@code true} if an index tree was built, {@code false} otherwise
+     * @param pair the tree to build the index for, and the already indexed tree to build it upon
      */
-    private boolean indexCommit(IndexInfo index, RevCommit commit) {
-        RevTree commitTree = objectDatabase().getTree(commit.getTreeId());
-        Optional<NodeRef> treeNode = command(FindTreeChild.class).setChildPath(index.getTreeName())
-                .setParent(commitTree).call();
-        if (!treeNode.isPresent()) {
-            return false;
-        }
-        if (indexDatabase().resolveIndexedTree(index, treeNode.get().getObjectId()).isPresent()) {
-            return false;
-        }
-        RevTree newCanonicalTree = objectDatabase().getTree(treeNode.get().getObjectId());
-        ImmutableList<ObjectId> oldCommits = graphDatabase().getChildren(commit.getId());
+    private void indexTree(IndexInfo index, TreePair pair) {
+        final ObjectDatabase objectDatabase = objectDatabase();
+        RevTree newCanonicalTree = objectDatabase.getTree(pair.tree.getObjectId());
         RevTree oldCanonicalTree = RevTree.EMPTY;
-        for (ObjectId oldCommitId : oldCommits) {
-            Optional<ObjectId> oldTreeId = command(ResolveTreeish.class)
-                    .setTreeish(oldCommitId.toString() + ":" + index.getTreeName()).call();
-            if (oldTreeId.isPresent()
-                    && indexDatabase().resolveIndexedTree(index, oldTreeId.get()).isPresent()) {
-                oldCanonicalTree = objectDatabase().getTree(oldTreeId.get());
-                break;
-            }
+        if (pair.baseTreeId != null
+                && indexDatabase().resolveIndexedTree(index, pair.baseTreeId).isPresent()) {
+            oldCanonicalTree = objectDatabase.getTree(pair.baseTreeId);
         }
         command(BuildIndexOp.class)//
                 .setIndex(index)//
-                .setRevFeatureTypeId(treeNode.get().getMetadataId())//
+                .setRevFeatureTypeId(pair.tree.getMetadataId())//
                 .setOldCanonicalTree(oldCanonicalTree)//
                 .setNewCanonicalTree(newCanonicalTree)//
                 .setProgressListener(getProgressListener())//
                 .call();
-        return true;
     }
 }
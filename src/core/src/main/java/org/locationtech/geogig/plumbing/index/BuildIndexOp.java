@@ -18,6 +18,7 @@ import java.util.Set;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
 import org.locationtech.geogig.model.impl.QuadTreeBuilder;
 import org.locationtech.geogig.model.impl.RevTreeBuilder;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
@@ -39,6 +40,11 @@ import com.vividsolutions.jts.geom.Envelope;
 
 /**
  * Builds an index tree for the given canonical tree.
+ * <p>
+ * By default the differences between the old and new canonical trees are walked in parallel and
+ * fed to the index tree builder concurrently, since the resulting index tree doesn't depend on the
+ * order its nodes are added. Use {@link #setParallel(boolean) setParallel(false)} to build the
+ * index in the calling thread.
  */
 public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
 
@@ -50,6 +56,8 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
 
     private ObjectId revFeatureTypeId;
 
+    private boolean parallel = true;
+
     /**
      * @param index the {@link IndexInfo} to use
      * @return {@code this}
@@ -87,6 +95,16 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
         return this;
     }
 
+    /**
+     * @param parallel whether to walk the canonical trees and build the index tree using multiple
+     *        threads, defaults to {@code true}
+     * @return {@code this}
+     */
+    public BuildIndexOp setParallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
     /**
      * Performs the operation.
      * 
@@ -102,7 +120,8 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
         final RevTreeBuilder builder = resolveTreeBuilder();
         final PreOrderDiffWalk.Consumer builderConsumer = resolveConsumer(builder);
 
-        boolean preserveIterationOrder = true;
+        // the index tree builders are thread safe and insertion order independent
+        final boolean preserveIterationOrder = !parallel;
         final ObjectDatabase canonicalStore = objectDatabase();
         PreOrderDiffWalk walk = new PreOrderDiffWalk(oldCanonicalTree, newCanonicalTree,
                 canonicalStore, canonicalStore, preserveIterationOrder);
@@ -137,8 +156,8 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
                 indexTree.getId());
 
         indexDatabase().addIndexedTree(index, newCanonicalTree.getId(), indexTree.getId());
-        progress.setDescription(String.format("QuadTree created. Size: %,d, time: %s",
-                indexTree.size(), revTreeTime));
+        progress.setDescription(String.format("%s index created. Size: %,d, time: %s",
+                index.getIndexType(), indexTree.size(), revTreeTime));
 
         progress.complete();
 
@@ -157,7 +176,7 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
             Map<String, Integer> extraDataProperties = attributeIndexMapping(attNames);
 
             consumer = new MaterializedBuilderConsumer(builder, objectDatabase(),
-                    extraDataProperties, progressListener);
+                    extraDataProperties, progressListener, parallel);
         } else {
             consumer = new SimpleTreeBuilderConsumer(builder, progressListener);
         }
@@ -217,6 +236,10 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
             ObjectStore target = source;
             builder = QuadTreeBuilder.create(source, target, oldIndexTree, maxBounds);
             break;
+        case ATTRIBUTE:
+            builder = AttributeTreeBuilder.create(indexDatabase, indexDatabase, oldIndexTree,
+                    index.getAttributeName());
+            break;
         default:
             throw new UnsupportedOperationException("Uknown index type: " + indexType);
         }
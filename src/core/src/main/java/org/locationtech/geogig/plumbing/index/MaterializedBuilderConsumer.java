@@ -12,13 +12,18 @@ package org.locationtech.geogig.plumbing.index;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Iterators.singletonIterator;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -38,14 +43,46 @@ import org.locationtech.geogig.storage.ObjectStore;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.vividsolutions.jts.geom.Envelope;
 
+/**
+ * Adds the changed nodes to the index tree builder with the values of the materialized attributes
+ * in their extra data.
+ * <p>
+ * Nodes are collected in batches, and the features of each batch fetched and applied to the
+ * builder by the {@link #MATERIALIZE_POOL}, so the walk isn't held back by feature lookups, unless
+ * created in sequential mode, in which case batches are processed by the thread that fills them.
+ * In either case this consumer is thread safe, and the builder needs to be thread safe in parallel
+ * mode.
+ */
 class MaterializedBuilderConsumer extends AbstractConsumer {
 
     private final int batchSize = 1000;
 
+    /**
+     * Fetches and applies the node batches of all the consumers created in parallel mode
+     */
+    private static final ExecutorService MATERIALIZE_POOL;
+
+    /**
+     * Max number of batches waiting to be processed by a consumer, bounds memory usage when the
+     * walk is faster than the feature lookups
+     */
+    private static final int MAX_PENDING_BATCHES;
+
+    static {
+        final int nThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("geogig-index-materialize-%d").build();
+        MATERIALIZE_POOL = Executors.newFixedThreadPool(nThreads, threadFactory);
+        MAX_PENDING_BATCHES = 2 * nThreads;
+    }
+
     private static class Tuple implements Iterable<Node> {
         final Node left, right;
 
@@ -61,8 +98,17 @@ class MaterializedBuilderConsumer extends AbstractConsumer {
         }
     }
 
-    private BlockingQueue<MaterializedBuilderConsumer.Tuple> nodes = new ArrayBlockingQueue<>(
-            batchSize);
+    private final ExecutorService executor;
+
+    /**
+     * The batch being filled, guarded by {@code this}
+     */
+    private List<MaterializedBuilderConsumer.Tuple> nodes = new ArrayList<>(batchSize);
+
+    /**
+     * Batches submitted to the {@link #executor}, oldest first, guarded by itself
+     */
+    private final Deque<Future<?>> pending = new ArrayDeque<>();
 
     final AtomicLong count = new AtomicLong();
 
@@ -76,10 +122,21 @@ class MaterializedBuilderConsumer extends AbstractConsumer {
 
     MaterializedBuilderConsumer(RevTreeBuilder builder, ObjectStore featureSource,
             Map<String, Integer> extraDataProperties, ProgressListener listener) {
+        this(builder, featureSource, extraDataProperties, listener, false);
+    }
+
+    /**
+     * @param parallel whether to process the node batches in the background, in which case
+     *        {@code builder} must be thread safe
+     */
+    MaterializedBuilderConsumer(RevTreeBuilder builder, ObjectStore featureSource,
+            Map<String, Integer> extraDataProperties, ProgressListener listener,
+            boolean parallel) {
         this.builder = builder;
         this.featureSource = featureSource;
         this.extraDataProperties = extraDataProperties;
         this.progress = listener;
+        this.executor = parallel ? MATERIALIZE_POOL : MoreExecutors.newDirectExecutorService();
     }
 
     @Override
@@ -96,14 +153,28 @@ class MaterializedBuilderConsumer extends AbstractConsumer {
     @Override
     public void endTree(@Nullable NodeRef left, @Nullable NodeRef right) {
         if (NodeRef.ROOT.equals(right.name())) {
-            addAll();
+            final List<MaterializedBuilderConsumer.Tuple> last;
+            synchronized (this) {
+                last = nodes;
+                nodes = new ArrayList<>(batchSize);
+            }
+            submit(last);
+            awaitPending();
         }
     }
 
     @Override
     public boolean feature(final @Nullable NodeRef left, final NodeRef right) {
-        while (!nodes.offer(new Tuple(left, right))) {
-            addAll();
+        List<MaterializedBuilderConsumer.Tuple> full = null;
+        synchronized (this) {
+            nodes.add(new Tuple(left, right));
+            if (nodes.size() == batchSize) {
+                full = nodes;
+                nodes = new ArrayList<>(batchSize);
+            }
+        }
+        if (full != null) {
+            submit(full);
         }
         progress.setProgress(count.incrementAndGet());
 
@@ -111,9 +182,48 @@ class MaterializedBuilderConsumer extends AbstractConsumer {
         return keepGoing;
     }
 
-    private void addAll() {
-        List<MaterializedBuilderConsumer.Tuple> list = new ArrayList<>(batchSize);
-        nodes.drainTo(list);
+    private void submit(List<MaterializedBuilderConsumer.Tuple> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Future<?> oldest = null;
+        synchronized (pending) {
+            pending.add(executor.submit(() -> addAll(batch)));
+            if (pending.size() > MAX_PENDING_BATCHES) {
+                oldest = pending.removeFirst();
+            }
+        }
+        if (oldest != null) {
+            get(oldest);
+        }
+    }
+
+    private void awaitPending() {
+        Future<?> next;
+        while (true) {
+            synchronized (pending) {
+                next = pending.pollFirst();
+            }
+            if (next == null) {
+                break;
+            }
+            get(next);
+        }
+    }
+
+    private void get(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            synchronized (pending) {
+                pending.forEach((f) -> f.cancel(false));
+                pending.clear();
+            }
+            throw Throwables.propagate(Throwables.getRootCause(e));
+        }
+    }
+
+    private void addAll(List<MaterializedBuilderConsumer.Tuple> list) {
 
         final Map<ObjectId, RevFeature> objects = new HashMap<>();
         {
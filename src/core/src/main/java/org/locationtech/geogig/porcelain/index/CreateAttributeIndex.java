@@ -0,0 +1,145 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.porcelain.index;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
+import org.locationtech.geogig.repository.AbstractGeoGigOp;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.feature.type.PropertyDescriptor;
+
+/**
+ * Creates a {@link RevTree} where the nodes of an existing canonical {@link RevTree} are clustered
+ * by the value of a non geometry attribute.
+ *
+ * @see AttributeTreeBuilder
+ */
+public class CreateAttributeIndex extends AbstractGeoGigOp<Index> {
+
+    /**
+     * Either typeTreeRef or treeRefSpec must be provided
+     */
+    private @Nullable NodeRef typeTreeRef;
+
+    /**
+     * Either typeTreeRef or treeRefSpec must be provided
+     */
+    private @Nullable String treeRefSpec;
+
+    private String attributeName;
+
+    private @Nullable List<String> extraAttributes;
+
+    private boolean indexHistory;
+
+    /**
+     * @param typeTreeRef the {@link NodeRef} of the canonical tree to build the index from
+     * @return {@code this}
+     */
+    public CreateAttributeIndex setTypeTreeRef(NodeRef typeTreeRef) {
+        this.typeTreeRef = typeTreeRef;
+        return this;
+    }
+
+    /**
+     * @param treeRefSpec the refspec of the tree to build the index from
+     * @return {@code this}
+     */
+    public CreateAttributeIndex setTreeRefSpec(String treeRefSpec) {
+        this.treeRefSpec = treeRefSpec;
+        return this;
+    }
+
+    /**
+     * @param attributeName the name of the attribute to create the index for
+     * @return {@code this}
+     */
+    public CreateAttributeIndex setAttributeName(String attributeName) {
+        this.attributeName = attributeName;
+        return this;
+    }
+
+    /**
+     * @param extraAttributes extra attributes to keep track of in the indexed tree, besides the
+     *        indexed attribute
+     * @return {@code this}
+     */
+    public CreateAttributeIndex setExtraAttributes(@Nullable List<String> extraAttributes) {
+        this.extraAttributes = extraAttributes;
+        return this;
+    }
+
+    /**
+     * Build the indexes for the full history of the feature tree.
+     *
+     * @param indexHistory if {@code true}, the full history of the feature tree will be built
+     * @return {@code this}
+     */
+    public CreateAttributeIndex setIndexHistory(boolean indexHistory) {
+        this.indexHistory = indexHistory;
+        return this;
+    }
+
+    /**
+     * Performs the operation.
+     *
+     * @return an {@link Index} that represents the newly created index
+     */
+    @Override
+    protected Index _call() {
+        checkArgument(typeTreeRef != null || treeRefSpec != null, "No tree was provided.");
+        checkArgument(attributeName != null, "No attribute was provided.");
+
+        final NodeRef typeTreeRef = this.typeTreeRef != null ? this.typeTreeRef
+                : IndexUtils.resolveTypeTreeRef(context(), treeRefSpec);
+        checkArgument(typeTreeRef != null, "Can't find feature tree '%s'", treeRefSpec);
+        final RevTree canonicalTypeTree = objectDatabase().getTree(typeTreeRef.getObjectId());
+        final RevFeatureType featureType = objectDatabase()
+                .getFeatureType(typeTreeRef.getMetadataId());
+
+        final PropertyDescriptor descriptor = featureType.type().getDescriptor(attributeName);
+        checkArgument(descriptor != null, "property %s does not exist", attributeName);
+        checkArgument(!(descriptor instanceof GeometryDescriptor),
+                "property %s is a geometry attribute, create a spatial index instead",
+                attributeName);
+
+        final @Nullable String[] extraAttributes = IndexUtils
+                .resolveMaterializedAttributeNames(featureType, this.extraAttributes);
+
+        Map<String, Object> metadata = new HashMap<>();
+        if (extraAttributes != null) {
+            metadata.put(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, extraAttributes);
+        }
+
+        Index index = command(CreateIndexOp.class)//
+                .setTreeName(typeTreeRef.path())//
+                .setAttributeName(attributeName)//
+                .setCanonicalTypeTree(canonicalTypeTree)//
+                .setFeatureTypeId(featureType.getId())//
+                .setIndexType(IndexType.ATTRIBUTE)//
+                .setMetadata(metadata)//
+                .setIndexHistory(indexHistory)//
+                .setProgressListener(getProgressListener())//
+                .call();
+
+        return index;
+    }
+}
@@ -198,6 +198,9 @@ public class UpdateIndexOp extends AbstractGeoGigOp<Index> {
 
         checkState(updated, "Nothing to update...");
 
+        // the history indexed so far by an interrupted rebuild no longer matches the index
+        newMetadata.remove(BuildFullHistoryIndexOp.MD_HISTORY_INDEX_IN_PROGRESS);
+
         final RevTree canonicalTree = objectDatabase.getTree(typeTreeRef.getObjectId());
 
         newIndexInfo = indexDatabase.updateIndexInfo(treeName, oldIndexInfo.getAttributeName(),
@@ -15,16 +15,32 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.ObjectIdArray;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTag;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.diff.PostOrderDiffWalk;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.repository.impl.Deduplicator;
 import org.locationtech.geogig.repository.impl.PostOrderIterator;
 import org.locationtech.geogig.storage.BulkOpListener;
@@ -43,12 +59,31 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public final class BinaryPackedObjects {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BinaryPackedObjects.class);
 
+    /**
+     * Number of objects fetched at once from the database by
+     * {@link #writeIncremental(ObjectFunnel, List, List, Callback, Deduplicator)}
+     */
+    private static final int FETCH_BATCH_SIZE = 1_000;
+
+    /**
+     * Number of decoded objects handed over to the database at once by {@link #ingest}
+     */
+    private static final int INGEST_BATCH_SIZE = 10_000;
+
+    /**
+     * Max number of decoded batches waiting to be stored by {@link #ingest}, bounds the memory used
+     * when decoding is faster than storing
+     */
+    private static final int INGEST_QUEUE_CAPACITY = 4;
+
     private final ObjectSerializingFactory marshaller;
 
     private final ObjectStore database;
@@ -91,7 +126,7 @@ public final class BinaryPackedObjects {
         deduplicator.reset();
 
         sw.reset().start();
-        ImmutableList<ObjectId> previsitResults = reachableContentIds(needsPrevisit, deduplicator);
+        ObjectIdArray previsitResults = reachableContentIds(needsPrevisit, deduplicator);
         LOGGER.info(String.format("reachableContentIds took %s for %,d ids", sw.stop(),
                 previsitResults.size()));
 
@@ -100,8 +135,8 @@ public final class BinaryPackedObjects {
         LOGGER.info("obtaining post order iterator on range...");
         sw.reset().start();
 
-        Iterator<RevObject> objects = PostOrderIterator.range(want,
-                new ArrayList<ObjectId>(previsitResults), database, traverseCommits, deduplicator);
+        Iterator<RevObject> objects = PostOrderIterator.range(want, previsitResults, database,
+                traverseCommits, deduplicator);
         long objectCount = 0;
         LOGGER.info("PostOrderIterator.range took {}", sw.stop());
 
@@ -122,6 +157,228 @@ public final class BinaryPackedObjects {
         return objectCount;
     }
 
+    /**
+     * @return the number of objects written
+     * @see #writeIncremental(ObjectFunnel, List, List, Callback, Deduplicator)
+     */
+    public long writeIncremental(ObjectFunnel funnel, List<ObjectId> want, List<ObjectId> have,
+            Deduplicator deduplicator) throws IOException {
+        return writeIncremental(funnel, want, have, DEFAULT_CALLBACK, deduplicator);
+    }
+
+    /**
+     * Writes the wanted commits (or tags) and the objects reachable from them the receiving end
+     * doesn't have, without walking the contents of the {@code have} commits.
+     * <p>
+     * The wanted ids are processed in the order given, which shall be oldest first. The tree of
+     * each commit is diffed against the tree of its first parent known to the receiving end (that
+     * is, either in {@code have} or already written by this method), and only the objects on the
+     * new side of the diff are written, in depth-first post order, followed by the commit itself.
+     * This makes the cost of sending a commit proportional to the size of its changes instead of
+     * to the size of the repository. A commit none of whose parents is known is sent in full.
+     * <p>
+     * The objects written are a subset of the ones {@link #write(ObjectFunnel, List, List, boolean,
+     * Deduplicator) write} sends with {@code traverseCommits == false}, and the stream format is
+     * the same, so the receiving end can {@link #ingest} it regardless of how it was produced. It
+     * relies on the receiving end having all the objects reachable from the {@code have} commits.
+     * <p>
+     * Objects already {@link Deduplicator#visit visited} by the {@code deduplicator}, whether
+     * written earlier by this call or by a previous one sharing it, are not written again. Objects
+     * reachable from them are still written if they're on the new side of a diff.
+     * 
+     * @return the number of objects written
+     */
+    public long writeIncremental(ObjectFunnel funnel, List<ObjectId> want, List<ObjectId> have,
+            Callback callback, Deduplicator deduplicator) throws IOException {
+
+        // the callback may modify the list
+        final List<ObjectId> wanted = ImmutableList.copyOf(want);
+        for (ObjectId i : wanted) {
+            if (!database.exists(i)) {
+                throw new NoSuchElementException(format("Wanted commit: '%s' is not known", i));
+            }
+        }
+
+        final Set<ObjectId> known = new HashSet<>(have);
+        long objectCount = 0;
+
+        Stopwatch sw = Stopwatch.createStarted();
+        try {
+            for (ObjectId id : wanted) {
+                final RevObject object = database.get(id);
+                if (object instanceof RevTag) {
+                    RevTag tag = (RevTag) object;
+                    ObjectId commitId = tag.getCommitId();
+                    if (!known.contains(commitId)) {
+                        RevCommit commit = database.getCommit(commitId);
+                        objectCount += writeCommit(funnel, commit, known, callback,
+                                deduplicator);
+                    }
+                    objectCount += write(funnel, tag, callback, deduplicator);
+                } else {
+                    RevCommit commit = (RevCommit) object;
+                    objectCount += writeCommit(funnel, commit, known, callback, deduplicator);
+                }
+                known.add(id);
+            }
+        } catch (IOException e) {
+            String causeMessage = Throwables.getRootCause(e).getMessage();
+            LOGGER.info(String.format("writing of objects failed after %,d objects. Cause: '%s'",
+                    objectCount, causeMessage));
+            throw e;
+        }
+        LOGGER.info(String.format("Incrementally written %,d objects for %,d commits in %s",
+                objectCount, wanted.size(), sw.stop()));
+        return objectCount;
+    }
+
+    private long writeCommit(ObjectFunnel funnel, RevCommit commit, Set<ObjectId> known,
+            Callback callback, Deduplicator deduplicator) throws IOException {
+
+        RevTree oldTree = null;
+        for (ObjectId parentId : commit.getParentIds()) {
+            if (known.contains(parentId)) {
+                oldTree = database.getTree(database.getCommit(parentId).getTreeId());
+                break;
+            }
+        }
+        final RevTree newTree = database.getTree(commit.getTreeId());
+
+        long count = 0;
+        if (oldTree == null || !oldTree.equals(newTree)) {
+            List<ObjectId> ids = changedObjects(oldTree == null ? RevTree.EMPTY : oldTree,
+                    newTree);
+            count += writeAll(funnel, ids, callback, deduplicator);
+            count += write(funnel, newTree, callback, deduplicator);
+        }
+        count += write(funnel, commit, callback, deduplicator);
+        known.add(commit.getId());
+        return count;
+    }
+
+    /**
+     * @return the ids of the objects at the right side of the diff between the two trees, in
+     *         depth-first post order, excluding the root tree itself
+     */
+    private List<ObjectId> changedObjects(RevTree oldTree, RevTree newTree) {
+
+        final List<ObjectId> ids = Collections.synchronizedList(new ArrayList<>());
+
+        // the walk may call the consumer from several threads, but always calls it for the
+        // children of a tree or bucket before the tree or bucket itself
+        PostOrderDiffWalk walk = new PostOrderDiffWalk(oldTree, newTree, database, database);
+        walk.walk(new PostOrderDiffWalk.Consumer() {
+
+            @Override
+            public void feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+                add(right);
+            }
+
+            @Override
+            public void tree(@Nullable NodeRef left, @Nullable NodeRef right) {
+                if (right != null) {
+                    addUnreportedBuckets(left == null ? null : left.getObjectId(),
+                            right.getObjectId());
+                    if (!NodeRef.ROOT.equals(right.path())) {
+                        add(right);
+                    }
+                }
+            }
+
+            @Override
+            public void bucket(@Nullable NodeRef leftParent, @Nullable NodeRef rightParent,
+                    BucketIndex bucketIndex, @Nullable Bucket left, @Nullable Bucket right) {
+                if (right != null) {
+                    addUnreportedBuckets(left == null ? null : left.getObjectId(),
+                            right.getObjectId());
+                    ids.add(right.getObjectId());
+                }
+            }
+
+            /**
+             * The walk compares the nodes of a leaf tree against a bucket tree without calling
+             * {@link #bucket} for the buckets of the latter, so if the tree went from a non empty
+             * leaf tree to a bucket tree, adds all its bucket trees, children first. Their nodes
+             * have been reported already.
+             */
+            private void addUnreportedBuckets(@Nullable ObjectId leftId, ObjectId rightId) {
+                final RevTree right = database.getTree(rightId);
+                if (right.buckets().isEmpty() || leftId == null
+                        || RevTree.EMPTY_TREE_ID.equals(leftId)) {
+                    return;
+                }
+                final RevTree left = database.getTree(leftId);
+                if (left.buckets().isEmpty()) {
+                    addBuckets(right);
+                }
+            }
+
+            private void addBuckets(RevTree tree) {
+                for (Bucket bucket : tree.buckets().values()) {
+                    addBuckets(database.getTree(bucket.getObjectId()));
+                    ids.add(bucket.getObjectId());
+                }
+            }
+
+            private void add(@Nullable NodeRef node) {
+                if (node == null) {
+                    return;
+                }
+                ObjectId metadataId = node.getNode().getMetadataId().or(ObjectId.NULL);
+                if (!metadataId.isNull()) {
+                    ids.add(metadataId);
+                }
+                ids.add(node.getObjectId());
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Writes the objects in the order given, except the ones already visited by the deduplicator,
+     * fetching them from the database in batches
+     */
+    private long writeAll(ObjectFunnel funnel, List<ObjectId> ids, Callback callback,
+            Deduplicator deduplicator) throws IOException {
+        long count = 0;
+        List<ObjectId> unvisited = new ArrayList<>(ids);
+        deduplicator.removeDuplicates(unvisited);
+        for (List<ObjectId> batch : Iterables.partition(unvisited, FETCH_BATCH_SIZE)) {
+            Map<ObjectId, RevObject> objects = new HashMap<>();
+            Iterator<RevObject> fetched = database.getAll(batch);
+            while (fetched.hasNext()) {
+                RevObject object = fetched.next();
+                objects.put(object.getId(), object);
+            }
+            for (ObjectId id : batch) {
+                RevObject object = objects.get(id);
+                if (object == null) {
+                    if (!RevTree.EMPTY_TREE_ID.equals(id)) {
+                        throw new NoSuchElementException(format("Object '%s' not found", id));
+                    }
+                    object = RevTree.EMPTY;
+                }
+                count += write(funnel, object, callback, deduplicator);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes the object unless it was already visited by the deduplicator
+     * 
+     * @return the number of objects written, {@code 0} or {@code 1}
+     */
+    private long write(ObjectFunnel funnel, RevObject object, Callback callback,
+            Deduplicator deduplicator) throws IOException {
+        if (deduplicator.visit(object.getId())) {
+            return 0;
+        }
+        funnel.funnel(object);
+        callback.callback(Suppliers.ofInstance(object));
+        return 1;
+    }
+
     /**
      * Find commits which should be previsited to avoid resending objects that are already on the
      * receiving end. A commit should be previsited if:
@@ -153,7 +410,11 @@ public final class BinaryPackedObjects {
         return ImmutableList.copyOf(builder.build());
     }
 
-    private ImmutableList<ObjectId> reachableContentIds(ImmutableList<ObjectId> needsPrevisit,
+    /**
+     * @return the ids of the objects reachable from {@code needsPrevisit}, packed in a sorted
+     *         {@link ObjectIdArray} as they may be millions
+     */
+    private ObjectIdArray reachableContentIds(ImmutableList<ObjectId> needsPrevisit,
             Deduplicator deduplicator) {
 
         Function<RevObject, ObjectId> getIdTransformer = (obj) -> obj == null ? null : obj.getId();
@@ -161,7 +422,7 @@ public final class BinaryPackedObjects {
         Iterator<ObjectId> reachable = Iterators.transform( //
                 PostOrderIterator.contentsOf(needsPrevisit, database, deduplicator), //
                 getIdTransformer);
-        return ImmutableList.copyOf(reachable);
+        return ObjectIdArray.sortedOf(reachable);
     }
 
     public static class IngestResults {
@@ -202,10 +463,15 @@ public final class BinaryPackedObjects {
     }
 
     /**
+     * Parses the objects from the input stream and stores them in the database.
+     * <p>
+     * Decoding happens on a separate thread than storing, and the decoded objects are handed over
+     * to {@link ObjectStore#putAll} in batches, so that reading from the stream (usually the
+     * network) does not stall while the database is being written to and vice versa.
+     * 
      * @return the number of objects parsed from the input stream
      */
     public IngestResults ingest(final InputStream in, final Callback callback) {
-        Iterator<RevObject> objects = streamToObjects(in);
 
         BulkOpListener listener = new BulkOpListener() {
             @Override
@@ -221,7 +487,39 @@ public final class BinaryPackedObjects {
 
         CountingListener countingListener = BulkOpListener.newCountingListener();
         listener = BulkOpListener.composite(countingListener, listener);
-        database.putAll(objects, listener);
+
+        final BlockingQueue<List<RevObject>> decoded = new ArrayBlockingQueue<>(
+                INGEST_QUEUE_CAPACITY);
+        final List<RevObject> endOfStream = ImmutableList.of();
+
+        ExecutorService decoder = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("geogig-ingest-decoder-%d").setDaemon(true).build());
+        try {
+            Future<?> decoding = decoder.submit(() -> {
+                Iterator<List<RevObject>> batches = Iterators.partition(streamToObjects(in),
+                        INGEST_BATCH_SIZE);
+                try {
+                    while (batches.hasNext()) {
+                        decoded.put(batches.next());
+                    }
+                } finally {
+                    decoded.put(endOfStream);
+                }
+                return null;
+            });
+            List<RevObject> batch;
+            while ((batch = decoded.take()) != endOfStream) {
+                database.putAll(batch.iterator(), listener);
+            }
+            decoding.get();
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            throw Throwables.propagate(e);
+        } finally {
+            // interrupts the decoder if storing failed while it's blocked on a full queue
+            decoder.shutdownNow();
+        }
         return new IngestResults(countingListener.inserted(), countingListener.found());
     }
 
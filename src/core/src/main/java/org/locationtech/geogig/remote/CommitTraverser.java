@@ -9,9 +9,11 @@
  */
 package org.locationtech.geogig.remote;
 
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Stack;
 
@@ -31,6 +33,11 @@ abstract class CommitTraverser {
 
     public List<ObjectId> have;
 
+    /**
+     * The parents of each of the {@link #commits}, as found during the traversal
+     */
+    public Map<ObjectId, ImmutableList<ObjectId>> parents;
+
     private Hashtable<ObjectId, ImmutableList<ObjectId>> commitParents;
 
     /**
@@ -104,6 +111,7 @@ abstract class CommitTraverser {
     public CommitTraverser() {
         commits = new Stack<ObjectId>();
         have = new LinkedList<ObjectId>();
+        parents = new HashMap<ObjectId, ImmutableList<ObjectId>>();
         commitParents = new Hashtable<ObjectId, ImmutableList<ObjectId>>();
     }
 
@@ -127,6 +135,7 @@ abstract class CommitTraverser {
         }
 
         commits.add(commitNode.getObjectId());
+        this.parents.put(commitNode.getObjectId(), parents);
     }
 
     /**
@@ -10,7 +10,7 @@
 package org.locationtech.geogig.remote;
 
 import java.io.BufferedReader;
-import java.io.FilterOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -20,11 +20,22 @@ import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
@@ -51,6 +62,10 @@ import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.FileBackedOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
@@ -69,6 +84,33 @@ class HttpRemoteRepo extends AbstractRemoteRepo {
     /** Default limit in bytes for push to split the sent objects */
     private static final int DEFAULT_PUSH_BATCH_LIMIT = 4 * 1024 * 1024;
 
+    /**
+     * Config key to disable incremental packing of objects for fetch and push, see
+     * {@link BinaryPackedObjects#writeIncremental}
+     */
+    private static final String INCREMENTAL_CONFIG_KEY = "transfer.incremental";
+
+    /** Default number of batchobjects requests in flight during fetch */
+    private static final int DEFAULT_FETCH_PARALLEL_REQUESTS = 4;
+
+    /** Default number of commits requested by each batchobjects request during fetch */
+    private static final int DEFAULT_FETCH_BATCH_SIZE = 100;
+
+    /**
+     * Default limit in bytes for the fetch responses held in memory while waiting to be ingested,
+     * spilling to disk beyond it
+     */
+    private static final int DEFAULT_FETCH_BUFFER_LIMIT = 64 * 1024 * 1024;
+
+    /**
+     * Default number of sendobject requests in flight during push. The remote ingests each request
+     * as it arrives, so more than one could store a commit before the objects it depends on are
+     * sent by a previous request, leaving the remote inconsistent if the push fails midway. Hence
+     * it's only increased through the {@code push.parallel.requests} config key, while with the
+     * default the next batch is still encoded while the previous one is being uploaded.
+     */
+    private static final int DEFAULT_PUSH_PARALLEL_REQUESTS = 1;
+
     private URL repositoryURL;
 
     final private DeduplicationService deduplicationService;
@@ -203,6 +245,16 @@ class HttpRemoteRepo extends AbstractRemoteRepo {
             Collections.reverse(want);
             Set<ObjectId> have = new HashSet<ObjectId>();
             have.addAll(traverser.have);
+
+            final int parallelRequests = parseIntConfig("fetch.parallel.requests",
+                    DEFAULT_FETCH_PARALLEL_REQUESTS, 1);
+            final int batchSize = parseIntConfig("fetch.batch.size", DEFAULT_FETCH_BATCH_SIZE, 1);
+            if (parallelRequests > 1 && want.size() > batchSize) {
+                progress.setProgress(0);
+                fetchPipelined(want, have, traverser.parents, parallelRequests, batchSize,
+                        progress);
+            }
+            // fetch anything the pipelined fetch didn't get, one request at a time
             while (!want.isEmpty()) {
                 progress.setProgress(0);
                 fetchMoreData(want, have, progress);
@@ -254,7 +306,7 @@ class HttpRemoteRepo extends AbstractRemoteRepo {
         endPush(nameToSet, ref.getObjectId(), originalRemoteRefValue.toString());
     }
 
-    private void sendPackedObjects(final List<ObjectId> toSend, final Set<ObjectId> roots,
+    void sendPackedObjects(final List<ObjectId> toSend, final Set<ObjectId> roots,
             Deduplicator deduplicator, final ProgressListener progress) {
         Set<ObjectId> sent = new HashSet<ObjectId>();
         while (!toSend.isEmpty()) {
@@ -283,16 +335,30 @@ class HttpRemoteRepo extends AbstractRemoteRepo {
                 SendObjectsConnectionFactory outFactory;
                 ObjectFunnel objectFunnel;
 
-                outFactory = new SendObjectsConnectionFactory(repositoryURL);
-                int pushBytesLimit = parsePushLimit();
-                objectFunnel = ObjectFunnels.newFunnel(outFactory, serializer, pushBytesLimit);
-                final long writtenObjectsCount = packer.write(objectFunnel, toSend, have, sent,
-                        callback, traverseCommits, deduplicator);
-                objectFunnel.close();
+                int parallelRequests = parseIntConfig("push.parallel.requests",
+                        DEFAULT_PUSH_PARALLEL_REQUESTS, 1);
+                outFactory = new SendObjectsConnectionFactory(repositoryURL, parallelRequests);
+                final long writtenObjectsCount;
+                try {
+                    int pushBytesLimit = parsePushLimit();
+                    objectFunnel = ObjectFunnels.newFunnel(outFactory, serializer,
+                            pushBytesLimit);
+                    if (isIncremental()) {
+                        writtenObjectsCount = packer.writeIncremental(objectFunnel, toSend, have,
+                                callback, deduplicator);
+                    } else {
+                        writtenObjectsCount = packer.write(objectFunnel, toSend, have, sent,
+                                callback, traverseCommits, deduplicator);
+                    }
+                    objectFunnel.close();
+                    outFactory.awaitUploads();
+                } finally {
+                    outFactory.dispose();
+                }
                 sw.stop();
 
-                long compressedSize = outFactory.compressedSize;
-                long uncompressedSize = outFactory.uncompressedSize;
+                long compressedSize = outFactory.compressedSize.get();
+                long uncompressedSize = outFactory.uncompressedSize.get();
                 LOGGER.info(String.format(
                         "HttpRemoteRepo: Written %,d objects." + " Time to process: %s."
                                 + " Compressed size: %,d bytes. Uncompressed size: %,d bytes.",
@@ -303,6 +369,36 @@ class HttpRemoteRepo extends AbstractRemoteRepo {
         }
     }
 
+    /**
+     * @return whether to only transfer the objects that changed between each commit and its known
+     *         parent, {@code true} unless disabled through the {@code transfer.incremental} config
+     *         key
+     */
+    private boolean isIncremental() {
+        Optional<String> configValue = localRepository.command(ConfigGet.class)
+                .setName(INCREMENTAL_CONFIG_KEY).call();
+        return !configValue.isPresent() || Boolean.parseBoolean(configValue.get());
+    }
+
+    private int parseIntConfig(final String confKey, final int defaultValue, final int minValue) {
+        Optional<String> configValue = localRepository.command(ConfigGet.class).setName(confKey)
+                .call();
+        if (configValue.isPresent()) {
+            try {
+                int value = Integer.parseInt(configValue.get());
+                if (value >= minValue) {
+                    return value;
+                }
+                LOGGER.warn("Value for {} is too low ({}), using the default of {}", confKey,
+                        value, defaultValue);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Invalid config value for {}, using the default of {}", confKey,
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
     private int parsePushLimit() {
         final String confKey = "push.chunk.limit";
         Optional<String> configLimit = localRepository.command(ConfigGet.class).setName(confKey)
@@ -333,44 +429,117 @@ class HttpRemoteRepo extends AbstractRemoteRepo {
         return limit;
     }
 
+    /**
+     * Provides the output streams for the batches of objects to push. Each batch is buffered in
+     * memory and uploaded by a background thread when the stream is closed, so that the next batch
+     * is encoded while the previous one is being sent. Up to {@code parallelRequests} uploads run
+     * at the same time, and the producer blocks if that many are already pending, which bounds the
+     * memory used to {@code parallelRequests + 1} batches.
+     */
     private static class SendObjectsConnectionFactory implements Supplier<OutputStream> {
         private URL repositoryURL;
 
-        public SendObjectsConnectionFactory(URL repositoryURL) {
+        private final AtomicLong compressedSize = new AtomicLong(),
+                uncompressedSize = new AtomicLong();
+
+        private final ExecutorService uploads;
+
+        private final Semaphore uploadPermits;
+
+        private final List<Future<?>> pending = new LinkedList<>();
+
+        public SendObjectsConnectionFactory(URL repositoryURL, int parallelRequests) {
             this.repositoryURL = repositoryURL;
+            this.uploadPermits = new Semaphore(parallelRequests);
+            this.uploads = Executors.newFixedThreadPool(parallelRequests, new ThreadFactoryBuilder()
+                    .setNameFormat("geogig-push-%d").setDaemon(true).build());
         }
 
-        private long compressedSize, uncompressedSize;
-
         @Override
         public OutputStream get() {
-            String expanded = repositoryURL.toString() + "/repo/sendobject";
             try {
-                HttpURLConnection connection = (HttpURLConnection) new URL(expanded)
-                        .openConnection();
-                connection.setDoOutput(true);
-                connection.setDoInput(true);
-                connection.setUseCaches(false);
-                connection.setRequestMethod("POST");
-                connection.setChunkedStreamingMode(4096);
-                connection.setRequestProperty("content-length", "-1");
-                connection.setRequestProperty("content-encoding", "gzip");
-                OutputStream out = connection.getOutputStream();
-                final ReportingOutputStream rout = HttpUtils.newReportingOutputStream(connection,
-                        out, true);
-                return new FilterOutputStream(rout) {
-                    @Override
-                    public void close() throws IOException {
-                        super.close();
-                        compressedSize += ((ReportingOutputStream) super.out).compressedSize();
-                        uncompressedSize += ((ReportingOutputStream) super.out).unCompressedSize();
-                    }
-                };
-            } catch (Exception e) {
+                checkUploads(false);
+            } catch (IOException e) {
                 throw Throwables.propagate(e);
             }
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    final byte[] batch = toByteArray();
+                    try {
+                        uploadPermits.acquire();
+                    } catch (InterruptedException e) {
+                        throw Throwables.propagate(e);
+                    }
+                    try {
+                        pending.add(uploads.submit(() -> {
+                            try {
+                                upload(batch);
+                            } finally {
+                                uploadPermits.release();
+                            }
+                            return null;
+                        }));
+                    } catch (RuntimeException e) {
+                        uploadPermits.release();
+                        throw e;
+                    }
+                }
+            };
+        }
+
+        private void upload(byte[] batch) throws IOException {
+            String expanded = repositoryURL.toString() + "/repo/sendobject";
+            HttpURLConnection connection = (HttpURLConnection) new URL(expanded).openConnection();
+            connection.setDoOutput(true);
+            connection.setDoInput(true);
+            connection.setUseCaches(false);
+            connection.setRequestMethod("POST");
+            connection.setChunkedStreamingMode(4096);
+            connection.setRequestProperty("content-length", "-1");
+            connection.setRequestProperty("content-encoding", "gzip");
+            OutputStream out = connection.getOutputStream();
+            final ReportingOutputStream rout = HttpUtils.newReportingOutputStream(connection, out,
+                    true);
+            try {
+                rout.write(batch);
+            } finally {
+                rout.close();
+            }
+            compressedSize.addAndGet(rout.compressedSize());
+            uncompressedSize.addAndGet(rout.unCompressedSize());
+        }
+
+        /**
+         * Waits for all the batches to be uploaded, throwing the first upload error if any
+         */
+        public void awaitUploads() throws IOException {
+            checkUploads(true);
         }
-    };
+
+        private void checkUploads(boolean wait) throws IOException {
+            for (Iterator<Future<?>> it = pending.iterator(); it.hasNext();) {
+                Future<?> upload = it.next();
+                if (!wait && !upload.isDone()) {
+                    continue;
+                }
+                try {
+                    upload.get();
+                } catch (InterruptedException e) {
+                    throw Throwables.propagate(e);
+                } catch (ExecutionException e) {
+                    Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+                    throw Throwables.propagate(e.getCause());
+                }
+                it.remove();
+            }
+        }
+
+        public void dispose() {
+            uploads.shutdownNow();
+        }
+    }
 
     /**
      * Delete a {@link Ref} from the remote repository.
@@ -405,6 +574,165 @@ class HttpRemoteRepo extends AbstractRemoteRepo {
     private void fetchMoreData(final List<ObjectId> want, final Set<ObjectId> have,
             final ProgressListener progress) {
         final JsonObject message = createFetchMessage(want, have);
+        final HttpURLConnection connection = openFetchConnection(message);
+        final HttpUtils.ReportingInputStream in = HttpUtils.getResponseStream(connection);
+        ingest(in, want, have, progress);
+    }
+
+    /**
+     * Fetches the wanted commits in batches of {@code batchSize} commits, keeping up to
+     * {@code parallelRequests} batchobjects requests in flight.
+     * <p>
+     * Each request asks for its batch of commits as if the client already had the ones requested
+     * before it, with the have list {@link #addFetched pruned} of their parents. The responses are
+     * buffered as they arrive, in memory up to the {@code fetch.buffer.limit} config value split
+     * among the requests in flight, and on a temporary file beyond that. They're ingested one at a
+     * time in the order they were requested, so that the objects of a commit are never stored
+     * before the ones of its ancestors. The want/have lists are updated the same way
+     * {@link #fetchMoreData} does.
+     * <p>
+     * If a request fails the responses still in flight are discarded, including the ones being
+     * downloaded, which discard their buffer as soon as they complete.
+     */
+    void fetchPipelined(final List<ObjectId> want, final Set<ObjectId> have,
+            final Map<ObjectId, ImmutableList<ObjectId>> parents, final int parallelRequests,
+            final int batchSize, final ProgressListener progress) {
+
+        final int bufferLimit = parseIntConfig("fetch.buffer.limit", DEFAULT_FETCH_BUFFER_LIMIT,
+                1024);
+        final int responseMemoryLimit = Math.max(1024, bufferLimit / parallelRequests);
+
+        final Iterator<List<ObjectId>> batches = Lists
+                .partition(ImmutableList.copyOf(want), batchSize).iterator();
+        final Set<ObjectId> requestHave = new HashSet<>(have);
+        final Deque<Future<BufferedResponse>> inFlight = new ArrayDeque<>();
+        // the buffers of the responses not ingested yet, guarded by itself
+        final Set<FileBackedOutputStream> buffers = new HashSet<>();
+
+        ExecutorService downloads = Executors.newFixedThreadPool(parallelRequests,
+                new ThreadFactoryBuilder().setNameFormat("geogig-fetch-%d").setDaemon(true)
+                        .build());
+        try {
+            while (inFlight.size() < parallelRequests && batches.hasNext()) {
+                inFlight.add(submitFetch(downloads, batches.next(), requestHave, parents,
+                        responseMemoryLimit, buffers));
+            }
+            while (!inFlight.isEmpty()) {
+                BufferedResponse response = inFlight.remove().get();
+                if (batches.hasNext()) {
+                    inFlight.add(submitFetch(downloads, batches.next(), requestHave,
+                            parents, responseMemoryLimit, buffers));
+                }
+                try {
+                    InputStream buffered = response.buffer.asByteSource().openBufferedStream();
+                    ingest(HttpUtils.newReportingInputStream(buffered, response.gzip), want, have,
+                            progress);
+                } finally {
+                    synchronized (buffers) {
+                        buffers.remove(response.buffer);
+                    }
+                    discard(response.buffer);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (InterruptedException | IOException e) {
+            throw Throwables.propagate(e);
+        } finally {
+            downloads.shutdownNow();
+            synchronized (buffers) {
+                buffers.forEach((buffer) -> discard(buffer));
+                buffers.clear();
+            }
+        }
+    }
+
+    private static void discard(FileBackedOutputStream buffer) {
+        try {
+            buffer.reset();
+        } catch (IOException e) {
+            LOGGER.warn("Error discarding fetch response buffer", e);
+        }
+    }
+
+    /**
+     * A batchobjects response as received, before decompressing
+     */
+    private static class BufferedResponse {
+
+        private final FileBackedOutputStream buffer;
+
+        private final boolean gzip;
+
+        BufferedResponse(FileBackedOutputStream buffer, boolean gzip) {
+            this.buffer = buffer;
+            this.gzip = gzip;
+        }
+    }
+
+    private Future<BufferedResponse> submitFetch(final ExecutorService downloads,
+            List<ObjectId> batch, Set<ObjectId> requestHave,
+            Map<ObjectId, ImmutableList<ObjectId>> parents, final int memoryLimit,
+            final Set<FileBackedOutputStream> buffers) {
+
+        final JsonObject message = createFetchMessage(batch, requestHave);
+        // the next batches are requested as if these commits were already fetched
+        addFetched(requestHave, batch, parents);
+
+        return downloads.submit(() -> {
+            final FileBackedOutputStream buffer = new FileBackedOutputStream(memoryLimit, true);
+            synchronized (buffers) {
+                if (downloads.isShutdown()) {
+                    throw new CancellationException();
+                }
+                buffers.add(buffer);
+            }
+            final boolean gzip;
+            HttpURLConnection connection = null;
+            try {
+                connection = openFetchConnection(message);
+                String contentEncoding = connection.getHeaderField("Content-Encoding");
+                gzip = "gzip".equalsIgnoreCase(contentEncoding);
+                try (InputStream in = connection.getInputStream()) {
+                    ByteStreams.copy(in, buffer);
+                }
+                buffer.close();
+            } catch (IOException | RuntimeException e) {
+                discard(buffer);
+                throw e;
+            } finally {
+                HttpUtils.consumeErrStreamAndCloseConnection(connection);
+            }
+            synchronized (buffers) {
+                // the fetch was aborted while downloading, and may have discarded the buffer
+                // before it was complete
+                if (downloads.isShutdown()) {
+                    discard(buffer);
+                    throw new CancellationException();
+                }
+            }
+            return new BufferedResponse(buffer, gzip);
+        });
+    }
+
+    /**
+     * Updates the have list as if the given commits, oldest first, were already fetched, the same
+     * way {@link #ingest} does once they are. That is, each commit replaces its parents in the
+     * list, so that it only holds the most recent common commits and doesn't grow with every batch
+     * requested.
+     */
+    static void addFetched(Set<ObjectId> have, List<ObjectId> fetched,
+            Map<ObjectId, ImmutableList<ObjectId>> parents) {
+        for (ObjectId id : fetched) {
+            List<ObjectId> commitParents = parents.get(id);
+            if (commitParents != null) {
+                have.removeAll(commitParents);
+            }
+            have.add(id);
+        }
+    }
+
+    private HttpURLConnection openFetchConnection(final JsonObject message) {
         final URL resourceURL;
         try {
             resourceURL = new URL(repositoryURL.toString() + "/repo/batchobjects");
@@ -429,8 +757,11 @@ class HttpRemoteRepo extends AbstractRemoteRepo {
         } catch (IOException e) {
             throw Throwables.propagate(e);
         }
+        return connection;
+    }
 
-        final HttpUtils.ReportingInputStream in = HttpUtils.getResponseStream(connection);
+    private void ingest(final HttpUtils.ReportingInputStream in, final List<ObjectId> want,
+            final Set<ObjectId> have, final ProgressListener progress) {
 
         BinaryPackedObjects unpacker = new BinaryPackedObjects(localRepository.objectDatabase());
         BinaryPackedObjects.Callback callback = new BinaryPackedObjects.Callback() {
@@ -476,6 +807,9 @@ class HttpRemoteRepo extends AbstractRemoteRepo {
         }
         message.add("want", wantArray);
         message.add("have", haveArray);
+        // servers not supporting it ignore the flag and send the full contents of the wanted
+        // commits, in the same stream format
+        message.addProperty("incremental", isIncremental());
         return message;
     }
 
@@ -436,7 +436,7 @@ class LocalRemoteRepo extends AbstractRemoteRepo {
                 progress.setProgress(progress.getProgress() + 1);
             }
         };
-        to.putAll(from.getAll(ids), countingListener);
+        ObjectStore.copyAll(ids, from, to, countingListener);
     }
 
     /**
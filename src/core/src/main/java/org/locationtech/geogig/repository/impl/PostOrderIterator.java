@@ -9,16 +9,22 @@
  */
 package org.locationtech.geogig.repository.impl;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.Bucket;
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.ObjectIdArray;
+import org.locationtech.geogig.model.ObjectIdMap;
+import org.locationtech.geogig.model.ObjectIdSet;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevTag;
@@ -41,6 +47,13 @@ import com.google.common.collect.AbstractIterator;
  * being traversed to the oldest commit being traversed and through the tree structure at that
  * commit to the features.) Some traversals use additional memory to avoid re-visiting objects that
  * are reachable via multiple paths (eg, features that are part of multiple commits.)
+ * <p>
+ * Each object is read from the database once, the same instance is used to find out its successors
+ * and then returned by the iterator. The successors of a tree (its buckets, subtrees, features and
+ * their feature types) are fetched all at once through {@link ObjectStore#getAll(Iterable)} when
+ * the tree is expanded, instead of with a point lookup per object. Commits and tags are the
+ * exception, as holding all the commits in the history being traversed until they're visited would
+ * require unbounded memory, they're read again when visited.
  */
 public class PostOrderIterator extends AbstractIterator<RevObject> {
 
@@ -94,10 +107,10 @@ public class PostOrderIterator extends AbstractIterator<RevObject> {
     private final ObjectStore database;
 
     /**
-     * The collection of ObjectIds that must be visited. It is organized as a list of lists - the
-     * first entry is always the deepest set of ObjectIds that needs to be processed.
+     * The collection of ObjectIds that must be visited. It is organized as a stack of levels - the
+     * top entry is always the deepest set of ObjectIds that needs to be processed.
      */
-    private List<List<ObjectId>> toVisit;
+    private Deque<Level> toVisit;
 
     /**
      * A flag tracking the state of the traversal. When true, we are building up a queue of objects
@@ -125,37 +138,41 @@ public class PostOrderIterator extends AbstractIterator<RevObject> {
         this.database = database;
         this.enqueue = true;
         this.successors = successors;
-        toVisit = new ArrayList<List<ObjectId>>();
-        toVisit.add(new ArrayList<ObjectId>());
-        toVisit.get(0).addAll(start);
+        toVisit = new ArrayDeque<Level>();
+        toVisit.push(new Level(start));
     }
 
     @Override
     protected RevObject computeNext() {
         while (!toVisit.isEmpty()) {
-            List<ObjectId> currentList = toVisit.get(0);
-            if (currentList.isEmpty()) {
+            final Level current = toVisit.peek();
+            if (current.isEmpty()) {
                 // No more ids at this depth - pop a level off of the stack and switch to "visiting"
                 // mode
                 enqueue = false;
-                toVisit.remove(0);
+                toVisit.pop();
             } else {
                 if (enqueue) {
                     // We're building up a list of objects to visit, so add all the reachable
-                    // objects from here to the front of the toVisit stack
-                    final ObjectId id = currentList.get(0);
-                    final RevObject object = database.get(id);
+                    // objects from here to the top of the toVisit stack
+                    final ObjectId id = current.peek();
+                    final RevObject object = current.get(id);
                     final List<ObjectId> next = new ArrayList<ObjectId>();
                     successors.findSuccessors(object, next);
-                    toVisit.add(0, next);
+                    Level level = new Level(next);
+                    if (object instanceof RevTree) {
+                        level.prefetch();
+                    }
+                    toVisit.push(level);
                 } else {
                     // We just visited a node, so switch back to enqueuing mode in order to make
                     // sure the successors of the next one at this depth are visited.
                     enqueue = true;
-                    final ObjectId id = currentList.remove(0);
+                    final ObjectId id = current.peek();
+                    final RevObject cached = current.pop();
 
                     if (successors.previsit(id)) {
-                        return database.get(id);
+                        return cached == null ? database.get(id) : cached;
                     }
                 }
             }
@@ -164,6 +181,64 @@ public class PostOrderIterator extends AbstractIterator<RevObject> {
         return endOfData();
     }
 
+    /**
+     * The ids at one depth of the traversal, and the objects already read for them, which are kept
+     * until the ids are popped
+     */
+    private class Level {
+
+        private final ArrayDeque<ObjectId> ids;
+
+        private final Map<ObjectId, RevObject> objects = new ObjectIdMap<>();
+
+        Level(List<ObjectId> ids) {
+            this.ids = new ArrayDeque<>(ids);
+        }
+
+        boolean isEmpty() {
+            return ids.isEmpty();
+        }
+
+        ObjectId peek() {
+            return ids.peekFirst();
+        }
+
+        /**
+         * Removes the first id and returns its object if it was already read, {@code null}
+         * otherwise
+         */
+        @Nullable
+        RevObject pop() {
+            ObjectId id = ids.pollFirst();
+            return objects.remove(id);
+        }
+
+        /**
+         * Fetches all the objects at this level with a single {@link ObjectStore#getAll} call
+         */
+        void prefetch() {
+            if (ids.size() < 2) {
+                return;
+            }
+            Iterator<RevObject> all = database.getAll(ids);
+            while (all.hasNext()) {
+                RevObject object = all.next();
+                objects.put(object.getId(), object);
+            }
+        }
+
+        RevObject get(ObjectId id) {
+            RevObject object = objects.get(id);
+            if (object == null) {
+                object = database.get(id);
+                if (!(object instanceof RevCommit || object instanceof RevTag)) {
+                    objects.put(id, object);
+                }
+            }
+            return object;
+        }
+    }
+
     /**
      * The Successors interface defines a pluggable strategy for finding successors of (nodes
      * reachable from) a GeoGig history object. We follow a combinatorial approach in defining
@@ -246,7 +321,7 @@ public class PostOrderIterator extends AbstractIterator<RevObject> {
             if (object instanceof RevTree) {
                 final RevTree tree = (RevTree) object;
                 if (!tree.features().isEmpty()) {
-                    final Set<ObjectId> seen = new HashSet<ObjectId>();
+                    final Set<ObjectId> seen = new ObjectIdSet(tree.features().size());
                     for (Node n : tree.features()) {
                         if (n.getMetadataId().isPresent()) {
                             if (seen.add(n.getMetadataId().get())) {
@@ -275,7 +350,7 @@ public class PostOrderIterator extends AbstractIterator<RevObject> {
             if (object instanceof RevTree) {
                 final RevTree tree = (RevTree) object;
                 if (!tree.trees().isEmpty()) {
-                    final Set<ObjectId> seen = new HashSet<ObjectId>();
+                    final Set<ObjectId> seen = new ObjectIdSet(tree.trees().size());
                     for (Node n : tree.trees()) {
                         if (n.getMetadataId().isPresent()) {
                             if (seen.add(n.getMetadataId().get())) {
@@ -386,7 +461,9 @@ public class PostOrderIterator extends AbstractIterator<RevObject> {
      */
     private final static Successors blacklist(final Successors delegate,
             final List<ObjectId> base) {
-        final Set<ObjectId> baseSet = new HashSet<ObjectId>(base);
+        // a sorted ObjectIdArray already provides fast lookups, otherwise use a compact set
+        final Collection<ObjectId> baseSet = base instanceof ObjectIdArray ? base
+                : new ObjectIdSet(base);
         return new Successors() {
             public void findSuccessors(final RevObject object, final List<ObjectId> successors) {
                 if (!baseSet.contains(object.getId())) {
@@ -14,12 +14,19 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static org.locationtech.geogig.model.RevTree.EMPTY;
 import static org.locationtech.geogig.model.RevTree.EMPTY_TREE_ID;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -56,11 +63,10 @@ import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.opengis.feature.type.FeatureType;
 
-import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Predicates;
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -91,6 +97,12 @@ import com.vividsolutions.jts.geom.Envelope;
  */
 public class WorkingTreeImpl implements WorkingTree {
 
+    /**
+     * Number of features per batch in {@link #insert(Iterator, ProgressListener)}, inputs that fit
+     * in a single batch are inserted by the calling thread
+     */
+    private static final int INSERT_BATCH_SIZE = 1_000;
+
     private ObjectDatabase indexDatabase;
 
     private Context context;
@@ -321,6 +333,20 @@ public class WorkingTreeImpl implements WorkingTree {
         return insert(Iterators.singletonIterator(featureInfo), DefaultProgressListener.NULL);
     }
 
+    /**
+     * Inserts the features through a staged pipeline with a bounded number of batches in flight:
+     * <ul>
+     * <li>the calling thread reads the {@link FeatureInfo}s in batches of
+     * {@link #INSERT_BATCH_SIZE};
+     * <li>a pool of worker threads, created for this call only, builds (and hence hashes) each batch's {@link RevFeature}s if
+     * they weren't already, computes their bounds, and saves them to the object database in one
+     * {@link ObjectDatabase#putAll bulk insert} per batch;
+     * <li>the calling thread applies the batches to the feature tree builders in the same order
+     * they were read, so the outcome is the same as inserting and deleting the features one at a
+     * time, and reports progress.
+     * </ul>
+     * If all the features fit in a single batch, they're inserted by the calling thread alone.
+     */
     @Override
     public ObjectId insert(Iterator<FeatureInfo> featureInfos, ProgressListener progress) {
         checkArgument(featureInfos != null);
@@ -334,7 +360,102 @@ public class WorkingTreeImpl implements WorkingTree {
 
         progress.setProgress(0);
         final AtomicLong p = new AtomicLong();
-        Function<FeatureInfo, RevFeature> treeBuildingTransformer = (fi) -> {
+
+        final Iterator<List<FeatureInfo>> batches = Iterators.partition(featureInfos,
+                INSERT_BATCH_SIZE);
+
+        Stopwatch insertTime = Stopwatch.createStarted();
+        if (batches.hasNext()) {
+            final InsertBatch first = new InsertBatch(batches.next());
+            if (batches.hasNext()) {
+                insertPipelined(first, batches, currentTrees, parentBuilders, progress, p);
+            } else {
+                buildTrees(first.call(), currentTrees, parentBuilders, progress, p);
+            }
+        }
+        insertTime.stop();
+        if (progress.isCanceled()) {
+            return currentWorkHead.getId();
+        }
+
+        progress.setDescription(String.format("%,d features inserted in %s", p.get(), insertTime));
+
+        UpdateTree updateTree = context.command(UpdateTree.class).setRoot(currentWorkHead);
+        parentBuilders.forEach((path, builder) -> {
+
+            final NodeRef oldTreeRef = currentTrees.get(path);
+            progress.setDescription(String.format("Building final tree %s...", oldTreeRef.name()));
+            Stopwatch treeTime = Stopwatch.createStarted();
+            final RevTree newFeatureTree = builder.build();
+            treeTime.stop();
+            progress.setDescription(String.format("%,d features tree built in %s",
+                    newFeatureTree.size(), treeTime));
+            final NodeRef newTreeRef = oldTreeRef.update(newFeatureTree.getId(),
+                    SpatialOps.boundsOf(newFeatureTree));
+            updateTree.setChild(newTreeRef);
+        });
+
+        final RevTree newWorkHead = updateTree.call();
+        return updateWorkHead(newWorkHead.getId());
+    }
+
+    /**
+     * Runs the insert pipeline on a pool of worker threads owned by this call, and shut down
+     * before returning
+     */
+    private void insertPipelined(final InsertBatch first,
+            final Iterator<List<FeatureInfo>> batches, final Map<String, NodeRef> currentTrees,
+            final Map<String, CanonicalTreeBuilder> parentBuilders, final ProgressListener progress,
+            final AtomicLong p) {
+
+        final int nThreads = Math.max(2, context.platform().availableProcessors());
+        // bounds memory usage when the features are read faster than they can be processed
+        final int maxPendingBatches = 2 * nThreads;
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("geogig-worktree-insert-%d").build();
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads, threadFactory);
+        final Deque<Future<InsertBatch>> pending = new ArrayDeque<>();
+        try {
+            pending.add(executor.submit(first));
+            while (!progress.isCanceled() && batches.hasNext()) {
+                pending.add(executor.submit(new InsertBatch(batches.next())));
+                if (pending.size() == maxPendingBatches) {
+                    InsertBatch batch = get(pending.removeFirst());
+                    buildTrees(batch, currentTrees, parentBuilders, progress, p);
+                }
+            }
+            while (!progress.isCanceled() && !pending.isEmpty()) {
+                InsertBatch batch = get(pending.removeFirst());
+                buildTrees(batch, currentTrees, parentBuilders, progress, p);
+            }
+        } finally {
+            // only reached with pending batches if cancelled or failed
+            pending.forEach((f) -> f.cancel(false));
+            executor.shutdown();
+        }
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Applies an already stored batch of features to their feature tree builders, in order
+     */
+    private void buildTrees(final InsertBatch batch, final Map<String, NodeRef> currentTrees,
+            final Map<String, CanonicalTreeBuilder> parentBuilders, final ProgressListener progress,
+            final AtomicLong p) {
+
+        final List<FeatureInfo> features = batch.features;
+        for (int i = 0; i < features.size() && !progress.isCanceled(); i++) {
+            final FeatureInfo fi = features.get(i);
             final String parentPath = NodeRef.parentPath(fi.getPath());
             final String fid = NodeRef.nodeFromPath(fi.getPath());
             @Nullable
@@ -346,7 +467,7 @@ public class WorkingTreeImpl implements WorkingTree {
                 if (parentBuilder != null) {
                     parentBuilder.remove(fid);
                 }
-                return null;
+                continue;
             }
 
             Preconditions.checkState(parentBuilder != null);
@@ -358,45 +479,48 @@ public class WorkingTreeImpl implements WorkingTree {
             }
 
             ObjectId oid = feature.getId();
-            Envelope bounds = SpatialOps.boundsOf(feature);
+            Envelope bounds = batch.bounds.get(i);
             Node featureNode = Node.create(fid, oid, metadataId, TYPE.FEATURE, bounds);
 
             parentBuilder.put(featureNode);
 
             progress.setProgress(p.incrementAndGet());
-            return feature;
-        };
-
-        Iterator<RevFeature> features = Iterators.transform(featureInfos, treeBuildingTransformer);
-        features = Iterators.filter(features, Predicates.notNull());
-        features = Iterators.filter(features, (f) -> !progress.isCanceled());
-
-        Stopwatch insertTime = Stopwatch.createStarted();
-        indexDatabase.putAll(features);
-        insertTime.stop();
-        if (progress.isCanceled()) {
-            return currentWorkHead.getId();
         }
+    }
 
-        progress.setDescription(String.format("%,d features inserted in %s", p.get(), insertTime));
+    /**
+     * A batch of features being inserted, {@link #call() called} by an insert worker thread to
+     * build, hash, compute the bounds of, and store the batch's features
+     */
+    private class InsertBatch implements Callable<InsertBatch> {
 
-        UpdateTree updateTree = context.command(UpdateTree.class).setRoot(currentWorkHead);
-        parentBuilders.forEach((path, builder) -> {
+        final List<FeatureInfo> features;
 
-            final NodeRef oldTreeRef = currentTrees.get(path);
-            progress.setDescription(String.format("Building final tree %s...", oldTreeRef.name()));
-            Stopwatch treeTime = Stopwatch.createStarted();
-            final RevTree newFeatureTree = builder.build();
-            treeTime.stop();
-            progress.setDescription(String.format("%,d features tree built in %s",
-                    newFeatureTree.size(), treeTime));
-            final NodeRef newTreeRef = oldTreeRef.update(newFeatureTree.getId(),
-                    SpatialOps.boundsOf(newFeatureTree));
-            updateTree.setChild(newTreeRef);
-        });
+        /**
+         * The bounds of each feature, in the same order, {@code null} for deletes
+         */
+        final List<Envelope> bounds;
 
-        final RevTree newWorkHead = updateTree.call();
-        return updateWorkHead(newWorkHead.getId());
+        InsertBatch(List<FeatureInfo> features) {
+            this.features = features;
+            this.bounds = new ArrayList<>(features.size());
+        }
+
+        @Override
+        public InsertBatch call() {
+            List<RevFeature> revFeatures = new ArrayList<>(features.size());
+            for (FeatureInfo fi : features) {
+                if (fi.isDelete()) {
+                    bounds.add(null);
+                } else {
+                    RevFeature feature = fi.getFeature();
+                    revFeatures.add(feature);
+                    bounds.add(SpatialOps.boundsOf(feature));
+                }
+            }
+            indexDatabase.putAll(revFeatures.iterator());
+            return this;
+        }
     }
 
     @Nullable
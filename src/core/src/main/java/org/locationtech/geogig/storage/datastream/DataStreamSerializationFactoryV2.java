@@ -81,6 +81,10 @@ public class DataStreamSerializationFactoryV2 implements ObjectSerializingFactor
     @Override
     public RevObject read(@Nullable ObjectId id, byte[] data, int offset, int length)
             throws IOException {
+        if ((data[offset] & 0xFF) == TYPE.FEATURE.value()) {
+            // features may be read lazily straight out of the array
+            return format.readFeature(id, data, offset + 1, length - 1);
+        }
         return readInternal(id, ByteStreams.newDataInput(data, offset));
     }
 
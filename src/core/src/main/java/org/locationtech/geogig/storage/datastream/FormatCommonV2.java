@@ -76,6 +76,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.io.ByteStreams;
 import com.google.common.math.DoubleMath;
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
@@ -334,6 +335,15 @@ public class FormatCommonV2 {
         return built;
     }
 
+    /**
+     * Reads a feature out of a byte array region, subclasses may override to avoid copying the
+     * encoded attribute values.
+     */
+    public RevFeature readFeature(@Nullable ObjectId id, byte[] data, int offset, int length)
+            throws IOException {
+        return readFeature(id, ByteStreams.newDataInput(data, offset));
+    }
+
     public void writeHeader(DataOutput data, RevObject.TYPE header) throws IOException {
         data.writeByte(header.value());
     }
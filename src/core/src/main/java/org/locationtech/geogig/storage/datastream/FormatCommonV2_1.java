@@ -9,11 +9,14 @@
  */
 package org.locationtech.geogig.storage.datastream;
 
+import static com.google.common.base.Preconditions.checkState;
 import static org.locationtech.geogig.storage.datastream.Varint.readUnsignedVarInt;
 import static org.locationtech.geogig.storage.datastream.Varint.writeUnsignedVarInt;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -124,7 +127,7 @@ public class FormatCommonV2_1 extends FormatCommonV2 {
         writeUnsignedVarInt(attrCount, target);
 
         // - unsigned varint: size of <DATA>
-        final int dataSize = data.length;
+        final int dataSize = feature.dataSize;
         writeUnsignedVarInt(dataSize, target);
 
         // - unsigned varint[number of attributes]: attribute offsets (starting form zero at
@@ -134,7 +137,7 @@ public class FormatCommonV2_1 extends FormatCommonV2 {
         }
 
         // <DATA>
-        target.write(data);
+        target.write(data, feature.base, dataSize);
     }
 
     @Override
@@ -157,7 +160,37 @@ public class FormatCommonV2_1 extends FormatCommonV2 {
         byte[] data = new byte[dataSize];
         in.readFully(data);
 
-        LazyRevFeature f = new LazyRevFeature(id, dataOffsets, data, valueEncoder);
+        return newFeature(id, dataOffsets, data, 0, dataSize);
+    }
+
+    /**
+     * Zero-copy version of {@link #readFeature(ObjectId, DataInput)}, the returned feature
+     * references the {@code data} array instead of copying its {@code <DATA>} section, and decodes
+     * each attribute value out of it on demand. Hence callers must not modify the array after
+     * calling this method.
+     */
+    @Override
+    public RevFeature readFeature(@Nullable ObjectId id, byte[] data, int offset, int length)
+            throws IOException {
+        ByteArrayInputStream bin = new ByteArrayInputStream(data, offset, length);
+        DataInput in = new DataInputStream(bin);
+        // <HEADER>
+        final int attrCount = readUnsignedVarInt(in);
+        final int dataSize = readUnsignedVarInt(in);
+        final int[] dataOffsets = new int[attrCount];
+        for (int i = 0; i < attrCount; i++) {
+            dataOffsets[i] = readUnsignedVarInt(in);
+        }
+        // <DATA>
+        final int base = offset + length - bin.available();
+        checkState(bin.available() >= dataSize, "Expected %s bytes of feature data, got %s",
+                dataSize, bin.available());
+        return newFeature(id, dataOffsets, data, base, dataSize);
+    }
+
+    private RevFeature newFeature(@Nullable ObjectId id, int[] dataOffsets, byte[] data, int base,
+            int dataSize) {
+        LazyRevFeature f = new LazyRevFeature(id, dataOffsets, data, base, dataSize, valueEncoder);
         if (id == null) {
             id = HashObject.hashFeature(f.values());
             f.id = id;
@@ -173,12 +206,23 @@ public class FormatCommonV2_1 extends FormatCommonV2 {
 
         private final byte[] data;
 
+        /**
+         * Where the {@code <DATA>} section starts in {@link #data}, {@link #offsets} are relative
+         * to it
+         */
+        private final int base;
+
+        private final int dataSize;
+
         private ObjectId id;
 
-        LazyRevFeature(ObjectId id, int[] offsets, byte[] data, final ValueSerializer valueParser) {
+        LazyRevFeature(ObjectId id, int[] offsets, byte[] data, int base, int dataSize,
+                final ValueSerializer valueParser) {
             this.id = id;
             this.offsets = offsets;
             this.data = data;
+            this.base = base;
+            this.dataSize = dataSize;
             this.valueParser = valueParser;
         }
 
@@ -223,21 +267,33 @@ public class FormatCommonV2_1 extends FormatCommonV2 {
 
         @Override
         public Optional<Geometry> get(int index, GeometryFactory gf) {
-            final int offset = offsets[index];
+            final int offset = base + offsets[index];
             final int tagValue = data[offset] & 0xFF;
             final FieldType type = FieldType.valueOf(tagValue);
             if (FieldType.NULL.equals(type)) {
                 return Optional.absent();
             }
-            DataInput in = ByteStreams.newDataInput(data, offset + 1);
+            checkState(isGeometry(type),
+                    "Attribute %s is not a geometry: %s", index, type);
+            return Optional.of(decodeGeometry(offset, gf));
+        }
 
-            Geometry value;
-            try {
-                value = valueParser.readGeometry(in, gf);
-            } catch (IOException e) {
-                throw Throwables.propagate(e);
+        private static boolean isGeometry(FieldType type) {
+            Class<?> binding = type.getBinding();
+            return binding != null && Geometry.class.isAssignableFrom(binding);
+        }
+
+        /**
+         * Decodes the geometry whose field tag is at {@code offset} straight from {@link #data},
+         * skipping the unsigned varint WKB length that precedes the WKB bytes
+         */
+        private Geometry decodeGeometry(final int offset, GeometryFactory gf) {
+            int wkbOffset = offset + 1;
+            while ((data[wkbOffset] & 0x80) != 0) {
+                wkbOffset++;
             }
-            return Optional.of(value);
+            wkbOffset++;
+            return WKBGeometryDecoder.decode(data, wkbOffset, gf);
         }
 
         @Override
@@ -250,12 +306,15 @@ public class FormatCommonV2_1 extends FormatCommonV2 {
         }
 
         private @Nullable Object parse(int index) {
-            final int offset = offsets[index];
+            final int offset = base + offsets[index];
             final int tagValue = data[offset] & 0xFF;
             if (tagValue > 100) {
                 throw new IllegalStateException();
             }
             final FieldType type = FieldType.valueOf(tagValue);
+            if (isGeometry(type)) {
+                return decodeGeometry(offset, DataStreamValueSerializerV1.DEFAULT_GEOMETRY_FACT);
+            }
             final DataInput in = ByteStreams.newDataInput(data, offset + 1);
             @Nullable
             Object value;
@@ -9,11 +9,12 @@
  */
 package org.locationtech.geogig.storage.datastream;
 
-import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.zip.Checksum;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
@@ -21,16 +22,19 @@ import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.storage.impl.ObjectSerializingFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.primitives.Ints;
 
-import net.jpountz.lz4.LZ4BlockInputStream;
-import net.jpountz.lz4.LZ4BlockOutputStream;
 import net.jpountz.lz4.LZ4Compressor;
 import net.jpountz.lz4.LZ4Factory;
 import net.jpountz.lz4.LZ4FastDecompressor;
-import net.jpountz.xxhash.XXHashFactory;
 
 /**
  * Wrapper Factory that deflates/inflates data written to/read from streams using LZ4 compression.
+ * <p>
+ * Objects are compressed as a single LZ4 block, preceded by the uncompressed and compressed sizes
+ * as two 32-bit integers. Unlike the LZ4 block streams, this doesn't allocate per object buffers
+ * sized for the maximum block size, which dominate the cost for the typically small revision
+ * objects, and allows to decompress straight out of a byte array.
  */
 public class LZ4SerializationFactory implements ObjectSerializingFactory {
 
@@ -38,11 +42,7 @@ public class LZ4SerializationFactory implements ObjectSerializingFactory {
     // lib synchronized blocks
     private static final LZ4Factory lz4factory = LZ4Factory.fastestInstance();
 
-    // cache factory to avoid thread contention when looking up for the fastest instance on some LZ4
-    // lib synchronized blocks
-    private static final XXHashFactory hashFactory = XXHashFactory.fastestInstance();
-
-    private static final int DEFAULT_SEED = 0x9747b28c;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
 
     private final ObjectSerializingFactory factory;
 
@@ -53,33 +53,57 @@ public class LZ4SerializationFactory implements ObjectSerializingFactory {
 
     @Override
     public RevObject read(ObjectId id, InputStream in) throws IOException {
-        LZ4FastDecompressor decompressor = lz4factory.fastDecompressor();
-        Checksum checksum = newChecksum();
-        try (LZ4BlockInputStream cin = new LZ4BlockInputStream(in, decompressor, checksum)) {
-            return factory.read(id, cin);
-        }
-    }
-
-    private Checksum newChecksum() {
-        Checksum checksum = hashFactory.newStreamingHash32(DEFAULT_SEED).asChecksum();
-        return checksum;
+        DataInputStream din = new DataInputStream(in);
+        final int rawSize = din.readInt();
+        final int compressedSize = din.readInt();
+        byte[] compressed = new byte[compressedSize];
+        din.readFully(compressed);
+        return decompress(id, compressed, 0, rawSize);
     }
 
     @Override
     public RevObject read(@Nullable ObjectId id, byte[] data, int offset, int length)
             throws IOException {
-        ByteArrayInputStream in = new ByteArrayInputStream(data, offset, length);
-        return read(id, in);
+        Preconditions.checkArgument(length >= HEADER_SIZE, "Invalid LZ4 object length: %s",
+                length);
+        final int rawSize = Ints.fromBytes(data[offset], data[offset + 1], data[offset + 2],
+                data[offset + 3]);
+        return decompress(id, data, offset + HEADER_SIZE, rawSize);
+    }
+
+    private RevObject decompress(@Nullable ObjectId id, byte[] compressed, int offset,
+            final int rawSize) throws IOException {
+        LZ4FastDecompressor decompressor = lz4factory.fastDecompressor();
+        byte[] raw = new byte[rawSize];
+        decompressor.decompress(compressed, offset, raw, 0, rawSize);
+        return factory.read(id, raw, 0, rawSize);
     }
 
     @Override
     public void write(RevObject o, OutputStream out) throws IOException {
-        final int blockSize = 1 << 16;
+        InternalByteArrayOutputStream raw = new InternalByteArrayOutputStream();
+        factory.write(o, raw);
+        final int rawSize = raw.size();
+
         LZ4Compressor compressor = lz4factory.fastCompressor();
-        Checksum checksum = newChecksum();
-        try (LZ4BlockOutputStream cout = new LZ4BlockOutputStream(out, blockSize, compressor,
-                checksum, false)) {
-            factory.write(o, cout);
+        byte[] compressed = new byte[compressor.maxCompressedLength(rawSize)];
+        final int compressedSize = compressor.compress(raw.internal(), 0, rawSize, compressed, 0,
+                compressed.length);
+
+        DataOutputStream dout = new DataOutputStream(out);
+        dout.writeInt(rawSize);
+        dout.writeInt(compressedSize);
+        dout.write(compressed, 0, compressedSize);
+        dout.flush();
+    }
+
+    private static final class InternalByteArrayOutputStream extends ByteArrayOutputStream {
+        InternalByteArrayOutputStream() {
+            super(1024);
+        }
+
+        byte[] internal() {
+            return super.buf;
         }
     }
 
@@ -9,6 +9,8 @@
  */
 package org.locationtech.geogig.storage.datastream;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -17,8 +19,13 @@ import java.io.OutputStream;
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.locationtech.geogig.storage.datastream.v2_3.DataStreamSerializationFactoryV2_3;
 import org.locationtech.geogig.storage.impl.ObjectSerializingFactory;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableBiMap;
+
 /**
  * An encoder for {@link RevObject} instances that delegates the the best available
  * {@link ObjectSerializingFactory} while maintaining backwards compatibility.
@@ -35,37 +42,180 @@ import org.locationtech.geogig.storage.impl.ObjectSerializingFactory;
  * encoded with, and delegate to the proper serializer. This way, there can be objects of mixed
  * serialization formats in the same database transparently, so upgrading the serialization format
  * requires no extra maintenance.
+ * <p>
+ * Objects are written with the {@link #DEFAULT_FORMAT default format} unless another
+ * {@link #WRITABLE_FORMATS writable format} is given, which object stores take from the
+ * repository's {@link #FORMAT_CONFIG_KEY storage.serialization} config key.
+ * <p>
+ * The encoded format is compressed with one of the {@link #CODECS supported codecs}, as set by the
+ * {@link #CODEC_CONFIG_KEY storage.compression} config key, {@link #DEFAULT_CODEC LZF} by default.
+ * The header's lower four bits hold the format code and the upper four bits the codec id, LZF
+ * being codec {@code 0} so that objects written before codecs were selectable keep their header.
  */
 public class SerializationFactoryProxy implements ObjectSerializingFactory {
     /**
-     * The serialized object is added a header that's one unsigned byte with the index of the
-     * corresponding factory in this array
+     * The uncompressed formats, indexed by format code
      */
     private static final ObjectSerializingFactory[] SUPPORTED_FORMATS = { //
-            new LZFSerializationFactory(DataStreamSerializationFactoryV1.INSTANCE), //
-            new LZFSerializationFactory(DataStreamSerializationFactoryV2.INSTANCE), //
-            new LZFSerializationFactory(DataStreamSerializationFactoryV2_1.INSTANCE), //
-            new LZFSerializationFactory(DataStreamSerializationFactoryV2_2.INSTANCE)//
+            DataStreamSerializationFactoryV1.INSTANCE, //
+            DataStreamSerializationFactoryV2.INSTANCE, //
+            DataStreamSerializationFactoryV2_1.INSTANCE, //
+            DataStreamSerializationFactoryV2_2.INSTANCE, //
+            DataStreamSerializationFactoryV2_3.INSTANCE//
     };
 
     private static final int MAX_FORMAT_CODE = SUPPORTED_FORMATS.length - 1;
 
+    private static final int CODEC_LZF = 0, CODEC_NONE = 1, CODEC_LZ4 = 2;
+
+    private static final int MAX_CODEC_ID = CODEC_LZ4;
+
+    /**
+     * The serialized object is added a header that's one unsigned byte with
+     * {@code codecId << 4 | formatCode}, the factory for which is at
+     * {@code FACTORIES[codecId][formatCode]}
+     */
+    private static final ObjectSerializingFactory[][] FACTORIES;
+    static {
+        FACTORIES = new ObjectSerializingFactory[MAX_CODEC_ID + 1][SUPPORTED_FORMATS.length];
+        for (int f = 0; f < SUPPORTED_FORMATS.length; f++) {
+            ObjectSerializingFactory format = SUPPORTED_FORMATS[f];
+            FACTORIES[CODEC_LZF][f] = new LZFSerializationFactory(format);
+            FACTORIES[CODEC_NONE][f] = format;
+            FACTORIES[CODEC_LZ4][f] = new LZ4SerializationFactory(format);
+        }
+    }
+
+    /**
+     * Repository config key to select the {@link #WRITABLE_FORMATS format} new objects are written
+     * with
+     */
+    public static final String FORMAT_CONFIG_KEY = "storage.serialization";
+
+    /**
+     * The names of the formats objects can be written with, mapped to their format code
+     */
+    public static final ImmutableBiMap<String, Integer> WRITABLE_FORMATS = ImmutableBiMap.of(//
+            "2.2", 3, //
+            "2.3", 4);
+
+    /**
+     * The format used for writing if not otherwise specified. Version 2.3 is readable only by
+     * geogig versions that know about it, so it has to be explicitly chosen.
+     */
+    public static final String DEFAULT_FORMAT = "2.2";
+
+    /**
+     * Repository config key to select the {@link #CODECS codec} new objects are compressed with
+     */
+    public static final String CODEC_CONFIG_KEY = "storage.compression";
+
+    /**
+     * The names of the compression codecs objects can be written with, mapped to their codec id.
+     * {@code none} is a good choice on storage backends that already compress their data blocks,
+     * like RocksDB.
+     */
+    public static final ImmutableBiMap<String, Integer> CODECS = ImmutableBiMap.of(//
+            "lzf", CODEC_LZF, //
+            "none", CODEC_NONE, //
+            "lz4", CODEC_LZ4);
+
+    /**
+     * The codec used for writing if not otherwise specified. Objects written with any other codec
+     * are readable only by geogig versions that know about codecs, so it has to be explicitly
+     * chosen.
+     */
+    public static final String DEFAULT_CODEC = "lzf";
+
+    private final int writerFormatCode;
+
+    private final int writerCodecId;
+
     /**
-     * The serialization factory used for writing is the highest supported version one
+     * The serialization factory used for writing
      */
-    private static final ObjectSerializingFactory WRITER = SUPPORTED_FORMATS[MAX_FORMAT_CODE];
+    private final ObjectSerializingFactory writer;
+
+    /**
+     * Creates a proxy that writes objects in the {@link #DEFAULT_FORMAT default format}
+     */
+    public SerializationFactoryProxy() {
+        this(DEFAULT_FORMAT);
+    }
+
+    /**
+     * Creates a proxy that writes objects in the given format
+     * 
+     * @param format one of the {@link #WRITABLE_FORMATS writable format} names
+     */
+    public SerializationFactoryProxy(final String format) {
+        this(format, DEFAULT_CODEC);
+    }
+
+    /**
+     * Creates a proxy that writes objects in the given format, compressed with the given codec
+     * 
+     * @param format one of the {@link #WRITABLE_FORMATS writable format} names
+     * @param codec one of the {@link #CODECS codec} names
+     */
+    public SerializationFactoryProxy(final String format, final String codec) {
+        Integer code = WRITABLE_FORMATS.get(format);
+        checkArgument(code != null, "Unsupported serialization format '%s', expected one of %s",
+                format, WRITABLE_FORMATS.keySet());
+        Integer codecId = CODECS.get(codec);
+        checkArgument(codecId != null, "Unsupported compression codec '%s', expected one of %s",
+                codec, CODECS.keySet());
+        this.writerFormatCode = code.intValue();
+        this.writerCodecId = codecId.intValue();
+        this.writer = FACTORIES[writerCodecId][writerFormatCode];
+    }
+
+    /**
+     * Creates a proxy that writes objects in the format and codec set by the
+     * {@link #FORMAT_CONFIG_KEY} and {@link #CODEC_CONFIG_KEY} config keys, or the
+     * {@link #DEFAULT_FORMAT default format} and {@link #DEFAULT_CODEC default codec} if not set
+     */
+    public static SerializationFactoryProxy fromConfig(@Nullable ConfigDatabase configdb) {
+        Optional<String> format = configdb == null ? Optional.absent()
+                : configdb.get(FORMAT_CONFIG_KEY);
+        Optional<String> codec = configdb == null ? Optional.absent()
+                : configdb.get(CODEC_CONFIG_KEY);
+        return new SerializationFactoryProxy(format.or(DEFAULT_FORMAT), codec.or(DEFAULT_CODEC));
+    }
+
+    /**
+     * @return the name of the format objects are written with
+     */
+    public String getWriteFormat() {
+        return WRITABLE_FORMATS.inverse().get(writerFormatCode);
+    }
+
+    /**
+     * @return the name of the codec objects are compressed with
+     */
+    public String getCodec() {
+        return CODECS.inverse().get(writerCodecId);
+    }
+
+    /**
+     * @return the {@link #getWriteFormat() format} and {@link #getCodec() codec} objects are
+     *         written with, as {@code <format>/<codec>} (e.g. {@code 2.2/lzf}), which identifies
+     *         the raw encoding of the objects stored through this proxy
+     */
+    public String getRawFormat() {
+        return getWriteFormat() + "/" + getCodec();
+    }
 
     @Override
     public void write(RevObject o, OutputStream out) throws IOException {
-        final int storageVersionHeader = MAX_FORMAT_CODE;
+        final int storageVersionHeader = writerCodecId << 4 | writerFormatCode;
         out.write(storageVersionHeader);
-        WRITER.write(o, out);
+        writer.write(o, out);
     }
 
     @Override
     public RevObject read(ObjectId id, InputStream in) throws IOException {
         final int serialVersionHeader = in.read();
-        assert serialVersionHeader >= 0 && serialVersionHeader <= MAX_FORMAT_CODE;
         final ObjectSerializingFactory serializer = serializer(id, serialVersionHeader);
         RevObject revObject = serializer.read(id, in);
         return revObject;
@@ -74,7 +224,6 @@ public class SerializationFactoryProxy implements ObjectSerializingFactory {
     @Override
     public RevObject read(@Nullable ObjectId id, byte[] data, int offset, int length) {
         final int serialVersionHeader = data[offset] & 0xFF;
-        assert serialVersionHeader >= 0 && serialVersionHeader <= MAX_FORMAT_CODE;
         final ObjectSerializingFactory serializer = serializer(id, serialVersionHeader);
         RevObject revObject;
         try {
@@ -85,13 +234,13 @@ public class SerializationFactoryProxy implements ObjectSerializingFactory {
         return revObject;
     }
 
-    private ObjectSerializingFactory serializer(final @Nullable ObjectId id,
-            final int serializerIndex) {
-        if (serializerIndex < 0) {
-            throw new RuntimeException(
-                    String.format("Serializer header shall be between 0 and %d, got %d",
-                            MAX_FORMAT_CODE, serializerIndex));
+    private ObjectSerializingFactory serializer(final @Nullable ObjectId id, final int header) {
+        if (header < 0) {
+            throw new RuntimeException(String.format(
+                    "Serializer header shall be between 0 and %d, got %d", 0xFF, header));
         }
+        final int serializerIndex = header & 0x0F;
+        final int codecId = header >>> 4;
         if (serializerIndex > MAX_FORMAT_CODE) {
             throw new RuntimeException(String.format(
                     "Object %s was created with serial format %d, which is unsupported by "
@@ -100,7 +249,15 @@ public class SerializationFactoryProxy implements ObjectSerializingFactory {
                     serializerIndex, //
                     MAX_FORMAT_CODE));
         }
-        return SUPPORTED_FORMATS[serializerIndex];
+        if (codecId > MAX_CODEC_ID) {
+            throw new RuntimeException(String.format(
+                    "Object %s was compressed with codec %d, which is unsupported by "
+                            + "this geogig version (max codec supported: %d)", //
+                    (id == null ? "" : id.toString()), //
+                    codecId, //
+                    MAX_CODEC_ID));
+        }
+        return FACTORIES[codecId][serializerIndex];
     }
 
     /**
@@ -123,8 +280,10 @@ public class SerializationFactoryProxy implements ObjectSerializingFactory {
     @Override
     public String getDisplayName() {
         StringBuilder sb = new StringBuilder("Proxy[");
-        for (ObjectSerializingFactory f : SUPPORTED_FORMATS) {
-            sb.append(f.getDisplayName()).append(", ");
+        for (ObjectSerializingFactory[] codecFactories : FACTORIES) {
+            for (ObjectSerializingFactory f : codecFactories) {
+                sb.append(f.getDisplayName()).append(", ");
+            }
         }
         if (sb.length() > 2) {
             sb.setLength(sb.length() - 2);
@@ -0,0 +1,215 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.datastream;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.geom.PrecisionModel;
+import com.vividsolutions.jts.io.WKBConstants;
+import com.vividsolutions.jts.io.WKBReader;
+
+/**
+ * Decodes a WKB encoded geometry straight out of a byte array region, creating the
+ * {@link CoordinateSequence coordinate sequences} with the {@link GeometryFactory}'s
+ * {@link CoordinateSequenceFactory} and filling them directly from the encoded ordinates.
+ * <p>
+ * Produces the same geometries than {@link WKBReader} (supports both byte orders, and the Z and
+ * SRID flags of the extended WKB format), but does not go through an {@code InStream} nor copies
+ * the ordinates to intermediate buffers, which makes a difference when reading geometries for
+ * {@link FormatCommonV2_1.LazyRevFeature lazy features} in bulk.
+ */
+final class WKBGeometryDecoder {
+
+    private static final int FLAG_Z = 0x80000000;
+
+    private static final int FLAG_SRID = 0x20000000;
+
+    private final byte[] data;
+
+    private int pos;
+
+    private boolean bigEndian;
+
+    private final GeometryFactory factory;
+
+    private final CoordinateSequenceFactory csFactory;
+
+    private final PrecisionModel precisionModel;
+
+    private WKBGeometryDecoder(byte[] data, int offset, GeometryFactory factory) {
+        this.data = data;
+        this.pos = offset;
+        this.factory = factory;
+        this.csFactory = factory.getCoordinateSequenceFactory();
+        this.precisionModel = factory.getPrecisionModel();
+    }
+
+    /**
+     * @param data the array containing the WKB encoded geometry
+     * @param offset where in {@code data} the WKB encoded geometry starts
+     * @param factory the geometry factory used to build the geometry
+     * @return the decoded geometry
+     */
+    public static Geometry decode(byte[] data, int offset, GeometryFactory factory) {
+        return new WKBGeometryDecoder(data, offset, factory).readGeometry();
+    }
+
+    private Geometry readGeometry() {
+        final byte byteOrder = data[pos++];
+        if (byteOrder != WKBConstants.wkbXDR && byteOrder != WKBConstants.wkbNDR) {
+            throw new IllegalArgumentException("Unknown WKB byte order: " + byteOrder);
+        }
+        bigEndian = byteOrder == WKBConstants.wkbXDR;
+
+        final int typeInt = readInt();
+        final int geometryType = typeInt & 0xff;
+        final int dimension = (typeInt & FLAG_Z) != 0 ? 3 : 2;
+        final boolean hasSRID = (typeInt & FLAG_SRID) != 0;
+        final int srid = hasSRID ? readInt() : 0;
+
+        Geometry geom;
+        switch (geometryType) {
+        case WKBConstants.wkbPoint:
+            geom = factory.createPoint(readCoordinates(1, dimension));
+            break;
+        case WKBConstants.wkbLineString:
+            geom = readLineString(dimension);
+            break;
+        case WKBConstants.wkbPolygon:
+            geom = readPolygon(dimension);
+            break;
+        case WKBConstants.wkbMultiPoint: {
+            Point[] points = new Point[readInt()];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = (Point) readGeometry(Point.class);
+            }
+            geom = factory.createMultiPoint(points);
+            break;
+        }
+        case WKBConstants.wkbMultiLineString: {
+            LineString[] lines = new LineString[readInt()];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = (LineString) readGeometry(LineString.class);
+            }
+            geom = factory.createMultiLineString(lines);
+            break;
+        }
+        case WKBConstants.wkbMultiPolygon: {
+            Polygon[] polygons = new Polygon[readInt()];
+            for (int i = 0; i < polygons.length; i++) {
+                polygons[i] = (Polygon) readGeometry(Polygon.class);
+            }
+            geom = factory.createMultiPolygon(polygons);
+            break;
+        }
+        case WKBConstants.wkbGeometryCollection: {
+            Geometry[] geoms = new Geometry[readInt()];
+            for (int i = 0; i < geoms.length; i++) {
+                geoms[i] = readGeometry();
+            }
+            geom = factory.createGeometryCollection(geoms);
+            break;
+        }
+        default:
+            throw new IllegalArgumentException("Unknown WKB geometry type: " + geometryType);
+        }
+        if (hasSRID) {
+            geom.setSRID(srid);
+        }
+        return geom;
+    }
+
+    /**
+     * Reads a member of a multi geometry, each member carries its own byte order and type header
+     */
+    private Geometry readGeometry(Class<? extends Geometry> expected) {
+        Geometry geom = readGeometry();
+        if (!expected.isInstance(geom)) {
+            throw new IllegalArgumentException(String.format("Expected %s, got %s",
+                    expected.getSimpleName(), geom.getGeometryType()));
+        }
+        return geom;
+    }
+
+    private LineString readLineString(int dimension) {
+        int size = readInt();
+        return factory.createLineString(readCoordinates(size, dimension));
+    }
+
+    private LinearRing readLinearRing(int dimension) {
+        int size = readInt();
+        return factory.createLinearRing(readCoordinates(size, dimension));
+    }
+
+    private Polygon readPolygon(int dimension) {
+        final int numRings = readInt();
+        if (numRings == 0) {
+            return factory.createPolygon(null, null);
+        }
+        LinearRing shell = readLinearRing(dimension);
+        LinearRing[] holes = new LinearRing[numRings - 1];
+        for (int i = 0; i < holes.length; i++) {
+            holes[i] = readLinearRing(dimension);
+        }
+        return factory.createPolygon(shell, holes);
+    }
+
+    private CoordinateSequence readCoordinates(final int size, final int dimension) {
+        CoordinateSequence seq = csFactory.create(size, dimension);
+        final int targetDim = Math.min(dimension, seq.getDimension());
+        for (int i = 0; i < size; i++) {
+            for (int d = 0; d < dimension; d++) {
+                double ordinate = readDouble();
+                if (d < targetDim) {
+                    if (d <= 1) {
+                        ordinate = precisionModel.makePrecise(ordinate);
+                    }
+                    seq.setOrdinate(i, d, ordinate);
+                }
+            }
+        }
+        return seq;
+    }
+
+    private int readInt() {
+        final byte[] b = data;
+        final int p = pos;
+        pos += 4;
+        if (bigEndian) {
+            return ((b[p] & 0xff) << 24) | ((b[p + 1] & 0xff) << 16) | ((b[p + 2] & 0xff) << 8)
+                    | (b[p + 3] & 0xff);
+        }
+        return ((b[p + 3] & 0xff) << 24) | ((b[p + 2] & 0xff) << 16) | ((b[p + 1] & 0xff) << 8)
+                | (b[p] & 0xff);
+    }
+
+    private double readDouble() {
+        final byte[] b = data;
+        final int p = pos;
+        pos += 8;
+        long bits = 0;
+        if (bigEndian) {
+            for (int i = 0; i < 8; i++) {
+                bits = (bits << 8) | (b[p + i] & 0xff);
+            }
+        } else {
+            for (int i = 7; i >= 0; i--) {
+                bits = (bits << 8) | (b[p + i] & 0xff);
+            }
+        }
+        return Double.longBitsToDouble(bits);
+    }
+}
@@ -9,7 +9,6 @@
  */
 package org.locationtech.geogig.storage.datastream.v2_3;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -45,7 +44,7 @@ public class DataStreamSerializationFactoryV2_3 extends DataStreamSerializationF
             Preconditions.checkState(size == length, "expected %s, got %s", size, length);
             return FormatCommonV2_3.INSTANCE.readTree(id, data, offset, length);
         }
-        return super.read(id, new ByteArrayInputStream(data, offset, length));
+        return super.read(id, data, offset, length);
     }
 
     @Override
@@ -13,29 +13,37 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.sql.SQLException;
+import java.io.RandomAccessFile;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.Predicate;
-import java.util.stream.Stream;
+import java.util.TreeMap;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.repository.Conflict;
 import org.locationtech.geogig.storage.ConflictsDatabase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
@@ -44,27 +52,53 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
+import com.google.common.io.CountingInputStream;
 import com.google.common.io.Files;
-import com.google.common.io.LineProcessor;
 
 /**
- * 
+ * A {@link ConflictsDatabase} that keeps the conflicts of each namespace in a binary append only
+ * file, and a path sorted in-memory index of the file offset of each conflict, built the first
+ * time the namespace is accessed.
+ * <p>
+ * Lookups are O(log n) on the index plus a single random read. Additions are appended in batches.
+ * Removals append tombstone records, and the file is compacted, rewriting the live conflicts in
+ * path order, once it holds more stale than live records.
+ * <p>
+ * The conflicts of the default namespace are kept in the {@code conflicts.db} file inside the
+ * repository directory, and the ones of transaction namespaces in
+ * {@code txconflicts/<namespace>.db}. Conflicts in the former text format files (
+ * {@code conflicts} and {@code txconflicts/<namespace>}) are imported the first time their
+ * namespace is accessed, and the text file deleted.
  */
 public class FileConflictsDatabase implements ConflictsDatabase {
 
+    private static final Logger LOG = LoggerFactory.getLogger(FileConflictsDatabase.class);
+
     private static final int DEFAULT_LINE_PROCESSING_BATCH_SIZE = 10_000;
 
+    private static final int MAGIC = 0x47474346;// GGCF
+
+    private static final byte VERSION = 1;
+
+    private static final byte OP_PUT = 1;
+
+    private static final byte OP_REMOVE = 0;
+
+    /**
+     * Minimum number of stale records before considering to compact a file
+     */
+    private static final int MIN_COMPACTION_GARBAGE = 10_000;
+
     private File repositoryDirectory;
 
     /**
-     * How many lines to load at once
+     * How many conflicts to load at once
      */
     private final int lineProcessingBatchSize;
 
+    private final Map<String, ConflictsFile> files = new HashMap<>();
+
     public FileConflictsDatabase(final File repositoryDirectory) {
         this(repositoryDirectory, DEFAULT_LINE_PROCESSING_BATCH_SIZE);
     }
@@ -83,191 +117,456 @@ public class FileConflictsDatabase implements ConflictsDatabase {
 
     public void close() {
         repositoryDirectory = null;
+        synchronized (files) {
+            files.clear();
+        }
     }
 
     public boolean isOpen() {
         return repositoryDirectory != null;
     }
 
-    // TODO:
-    // *****************************************************************************************
-    // The following methods are a temporary implementation of conflict storage that relies on a
-    // conflict file in the index folder
-    // *****************************************************************************************
+    /**
+     * The conflicts of a namespace: the data file and its index
+     */
+    private static class ConflictsFile {
 
-    @Override
-    public boolean hasConflicts(String namespace) {
-        final Object monitor = resolveConflictsMonitor(namespace);
-        if (monitor == null) {
-            return false;
-        }
-        synchronized (monitor) {
-            final File file = resolveConflictsFile(namespace);
-            return file.exists() && file.length() > 0;
+        final File file;
+
+        final File legacyFile;
+
+        /**
+         * Offset of the live record of each conflict path, {@code null} until loaded
+         */
+        TreeMap<String, Long> index;
+
+        /**
+         * Number of records in the file, including tombstones and overwritten conflicts
+         */
+        int records;
+
+        /**
+         * Length and last modification time of the file as of the last time this instance read or
+         * wrote it, to reload the index if the file was changed by another instance
+         */
+        long knownLength, knownModified;
+
+        ConflictsFile(File file, File legacyFile) {
+            this.file = file;
+            this.legacyFile = legacyFile;
         }
     }
 
     /**
-     * Gets all conflicts that match the specified path filter.
-     * 
-     * @param namespace the namespace of the conflict
-     * @param pathFilter the path filter, if this is not defined, all conflicts will be returned
-     * @return the list of conflicts
+     * @return the object to synchronize on, or null if not inside a geogig repository
      */
-    @Deprecated
-    @Override
-    public List<Conflict> getConflicts(@Nullable String namespace,
-            @Nullable final String pathFilter) {
-        final Object monitor = resolveConflictsMonitor(namespace);
-        if (null == monitor) {
-            return ImmutableList.of();
-        }
-        synchronized (monitor) {
-            final File file = resolveConflictsFile(namespace);
-            if (null == file || !file.exists() || file.length() == 0) {
-                return ImmutableList.of();
-            }
-            List<Conflict> conflicts;
+    @Nullable
+    private Object resolveConflictsMonitor(@Nullable final String namespace) {
+        final File file = resolveLegacyConflictsFile(namespace);
+        Object monitor = null;
+        if (file != null) {
             try {
-                conflicts = Files.readLines(file, Charsets.UTF_8,
-                        new LineProcessor<List<Conflict>>() {
-                            List<Conflict> conflicts = Lists.newArrayList();
-
-                            @Override
-                            public List<Conflict> getResult() {
-                                return conflicts;
-                            }
-
-                            @Override
-                            public boolean processLine(String s) throws IOException {
-                                Conflict c = FileConflictsDatabase.valueOf(s);
-                                if (pathFilter == null) {
-                                    conflicts.add(c);
-                                } else if (c.getPath().startsWith(pathFilter)) {
-                                    conflicts.add(c);
-                                }
-                                return true;
-                            }
-                        });
+                monitor = file.getCanonicalPath().intern();
             } catch (IOException e) {
                 throw Throwables.propagate(e);
             }
-            return conflicts;
         }
+        return monitor;
     }
 
-    @Override
-    public Iterator<Conflict> getByPrefix(@Nullable String namespace, @Nullable String treePath) {
-
-        return new ConflictsIterator(this, namespace, treePath);
+    private Object monitor(@Nullable final String namespace) {
+        final Object monitor = resolveConflictsMonitor(namespace);
+        checkState(monitor != null,
+                "Either not inside a repository directory or the staging area is closed");
+        return monitor;
     }
 
+    /**
+     * @return {@code null} if the database is closed or its location cannot be determined, the
+     *         former text format conflicts file of the given namespace otherwise, which may or
+     *         may not exist
+     */
     @Nullable
-    private Queue<Conflict> getBatch(@Nullable String namespace, @Nullable String treePath,
-            int offset, int limit) throws SQLException {
+    private File resolveLegacyConflictsFile(@Nullable String namespace) {
+        if (!isOpen()) {
+            return null;
+        }
+        File conflictsFile;
+        if (namespace == null) {
+            conflictsFile = new File(repositoryDirectory, "conflicts");
+        } else {
+            conflictsFile = new File(new File(repositoryDirectory, "txconflicts"), namespace);
+        }
+        return conflictsFile;
+    }
 
-        checkArgument(offset >= 0);
-        checkArgument(limit > 0);
+    /**
+     * Must be called while holding the namespace monitor
+     *
+     * @return the namespace conflicts file with its index loaded
+     */
+    private ConflictsFile resolve(@Nullable String namespace) {
+        final File legacyFile = resolveLegacyConflictsFile(namespace);
+        checkState(legacyFile != null, "Database is closed");
+        final File dataFile = new File(legacyFile.getParentFile(), legacyFile.getName() + ".db");
+        ConflictsFile cf;
+        synchronized (files) {
+            final String key = dataFile.getAbsolutePath();
+            cf = files.get(key);
+            if (cf == null) {
+                cf = new ConflictsFile(dataFile, legacyFile);
+                files.put(key, cf);
+            }
+        }
+        if (cf.index != null
+                && (cf.file.length() != cf.knownLength || cf.file.lastModified() != cf.knownModified)) {
+            cf.index = null;
+        }
+        if (cf.index == null) {
+            load(cf);
+        }
+        return cf;
+    }
 
-        synchronized (resolveConflictsMonitor(namespace)) {
-            final File file = resolveConflictsFile(namespace);
+    private void load(ConflictsFile cf) {
+        cf.index = new TreeMap<>();
+        cf.records = 0;
+        if (cf.file.exists()) {
+            try {
+                loadIndex(cf);
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+        if (cf.legacyFile.isFile()) {
+            migrate(cf);
+        }
+        updateKnownState(cf);
+    }
 
-            if (null == file || file.length() == 0L) {
-                return null;
+    private void loadIndex(ConflictsFile cf) throws IOException {
+        long validLength = 0;
+        try (CountingInputStream counting = new CountingInputStream(
+                new BufferedInputStream(new FileInputStream(cf.file), 64 * 1024));
+                DataInputStream in = new DataInputStream(counting)) {
+
+            checkState(in.readInt() == MAGIC, "%s is not a conflicts file", cf.file);
+            final byte version = in.readByte();
+            checkState(version == VERSION, "Unsupported conflicts file version: %s", version);
+            validLength = counting.getCount();
+            while (true) {
+                final long offset = counting.getCount();
+                final byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException eof) {
+                    break;
+                }
+                final String path = in.readUTF();
+                if (OP_PUT == op) {
+                    skipIds(in);
+                    cf.index.put(path, Long.valueOf(offset));
+                } else {
+                    cf.index.remove(path);
+                }
+                cf.records++;
+                validLength = counting.getCount();
+            }
+        } catch (EOFException truncated) {
+            LOG.warn("Conflicts file {} is truncated at {}, ignoring the last partial record",
+                    cf.file, validLength);
+            try (RandomAccessFile raf = new RandomAccessFile(cf.file, "rw")) {
+                raf.setLength(validLength);
             }
+        }
+    }
 
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(new FileInputStream(file), Charsets.UTF_8))) {
+    private static void skipIds(DataInput in) throws IOException {
+        final int len = 3 * ObjectId.NUM_BYTES;
+        checkState(in.skipBytes(len) == len);
+    }
 
-                Stream<String> stream = reader.lines().parallel();
-                if (null != treePath) {
-                    stream = stream.filter(new ConflictPathFilter(treePath));
+    /**
+     * Imports the conflicts in the former text format file and deletes it
+     */
+    private void migrate(ConflictsFile cf) {
+        LOG.info("Importing conflicts from {}", cf.legacyFile);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(cf.legacyFile), Charsets.UTF_8))) {
+            List<Conflict> batch = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                batch.add(valueOf(line));
+                if (batch.size() == lineProcessingBatchSize) {
+                    append(cf, batch);
+                    batch.clear();
                 }
-                stream = stream.skip(offset).limit(limit);
-
-                // used as a concurrent list
-                ConcurrentLinkedQueue<Conflict> list = new ConcurrentLinkedQueue<>();
-                stream.forEach((line) -> list.offer(FileConflictsDatabase.valueOf(line)));
-                return list;
-            } catch (IOException e) {
-                throw Throwables.propagate(e);
             }
+            append(cf, batch);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
         }
+        checkState(cf.legacyFile.delete(), "Unable to delete conflicts file %s", cf.legacyFile);
     }
 
-    @Override
-    public long getCountByPrefix(@Nullable String namespace, final @Nullable String treePath) {
-
-        final Object monitor = resolveConflictsMonitor(namespace);
+    private void updateKnownState(ConflictsFile cf) {
+        cf.knownLength = cf.file.length();
+        cf.knownModified = cf.file.lastModified();
+    }
 
-        synchronized (monitor) {
-            final File file = resolveConflictsFile(namespace);
+    /**
+     * Appends the conflicts in a single write and updates the index
+     */
+    private void append(ConflictsFile cf, List<Conflict> conflicts) {
+        if (conflicts.isEmpty()) {
+            return;
+        }
+        final List<Long> offsets = new ArrayList<>(conflicts.size());
+        write(cf, (out, base) -> {
+            for (Conflict c : conflicts) {
+                offsets.add(Long.valueOf(base + out.size()));
+                out.writeByte(OP_PUT);
+                out.writeUTF(c.getPath());
+                c.getAncestor().writeTo(out);
+                c.getOurs().writeTo(out);
+                c.getTheirs().writeTo(out);
+            }
+        });
+        for (int i = 0; i < conflicts.size(); i++) {
+            cf.index.put(conflicts.get(i).getPath(), offsets.get(i));
+        }
+        cf.records += conflicts.size();
+    }
 
-            if (null == file || !file.exists() || file.length() == 0) {
-                return 0L;
+    /**
+     * Appends tombstones for the given paths, which shall all be present, and compacts the file if
+     * it's got more stale than live records
+     */
+    private void remove(ConflictsFile cf, Set<String> paths) {
+        if (paths.isEmpty()) {
+            return;
+        }
+        if (paths.size() == cf.index.size()) {
+            clear(cf);
+            return;
+        }
+        write(cf, (out, base) -> {
+            for (String path : paths) {
+                out.writeByte(OP_REMOVE);
+                out.writeUTF(path);
             }
+        });
+        cf.index.keySet().removeAll(paths);
+        cf.records += paths.size();
+        final int garbage = cf.records - cf.index.size();
+        if (garbage >= MIN_COMPACTION_GARBAGE && garbage > cf.index.size()) {
+            compact(cf);
+        }
+    }
 
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(new FileInputStream(file), Charsets.UTF_8))) {
+    private void clear(ConflictsFile cf) {
+        if (cf.file.exists()) {
+            checkState(cf.file.delete(), "Unable to delete conflicts file %s", cf.file);
+        }
+        cf.index.clear();
+        cf.records = 0;
+        updateKnownState(cf);
+    }
 
-                Stream<String> stream = reader.lines().parallel();
+    private static interface RecordWriter {
+        void write(DataOutputStream out, long base) throws IOException;
+    }
 
-                if (null != treePath) {
-                    stream = stream.filter(new ConflictPathFilter(treePath));
+    private void write(ConflictsFile cf, RecordWriter writer) {
+        try {
+            if (!cf.file.exists()) {
+                Files.createParentDirs(cf.file);
+            }
+            final long base = cf.file.length();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(cf.file, true), 64 * 1024))) {
+                if (base == 0L) {
+                    out.writeInt(MAGIC);
+                    out.writeByte(VERSION);
                 }
-
-                AtomicLong counter = new AtomicLong();
-                stream.forEach((l) -> counter.incrementAndGet());
-                return counter.get();
-            } catch (IOException e) {
-                throw Throwables.propagate(e);
+                // out.size() counts the header bytes, if written
+                writer.write(out, base);
             }
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
         }
+        updateKnownState(cf);
     }
 
     /**
-     * Expects a String representing the {@link FileConflictsDatabase#valueOf(String) serialized
-     * form} of a conflict, parses it's path and evaluates it for matching against the filter
-     * prefix.
-     *
+     * Rewrites the file with only the live conflicts, in path order, and swaps it with the current
+     * one
      */
-    private static class ConflictPathFilter implements Predicate<String> {
+    private void compact(ConflictsFile cf) {
+        LOG.debug("Compacting conflicts file {}, {} live records out of {}", cf.file,
+                cf.index.size(), cf.records);
+        final File tmp = new File(cf.file.getParentFile(), cf.file.getName() + ".tmp");
+        final TreeMap<String, Long> newIndex = new TreeMap<>();
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(cf.file, "r");
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                            new FileOutputStream(tmp), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                for (Map.Entry<String, Long> e : cf.index.entrySet()) {
+                    Conflict c = read(raf, e.getValue().longValue());
+                    newIndex.put(c.getPath(), Long.valueOf(out.size()));
+                    out.writeByte(OP_PUT);
+                    out.writeUTF(c.getPath());
+                    c.getAncestor().writeTo(out);
+                    c.getOurs().writeTo(out);
+                    c.getTheirs().writeTo(out);
+                }
+            }
+            java.nio.file.Files.move(tmp.toPath(), cf.file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            tmp.delete();
+            throw Throwables.propagate(e);
+        }
+        cf.index = newIndex;
+        cf.records = newIndex.size();
+        updateKnownState(cf);
+    }
 
-        private final PathFilter pathFilter;
+    private static Conflict read(RandomAccessFile raf, long offset) throws IOException {
+        raf.seek(offset);
+        final byte op = raf.readByte();
+        checkState(OP_PUT == op, "Expected a conflict record at offset %s", offset);
+        final String path = raf.readUTF();
+        ObjectId ancestor = ObjectId.readFrom(raf);
+        ObjectId ours = ObjectId.readFrom(raf);
+        ObjectId theirs = ObjectId.readFrom(raf);
+        return new Conflict(path, ancestor, ours, theirs);
+    }
 
-        ConflictPathFilter(final String treePath) {
-            this.pathFilter = new PathFilter(treePath);
+    /**
+     * Reads the conflicts at the given offsets, in order
+     */
+    private static List<Conflict> read(ConflictsFile cf, Iterable<Long> offsets) {
+        List<Conflict> conflicts = new ArrayList<>();
+        if (cf.index.isEmpty()) {
+            return conflicts;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(cf.file, "r")) {
+            for (Long offset : offsets) {
+                conflicts.add(read(raf, offset.longValue()));
+            }
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
         }
+        return conflicts;
+    }
 
-        @Override
-        public boolean test(String line) {
-            return pathFilter.test(readPath(line));
+    /**
+     * @return the index entries of {@code treePath} itself and all its children, or the whole
+     *         index if {@code treePath} is {@code null}
+     */
+    private static NavigableMap<String, Long> byPrefix(ConflictsFile cf,
+            @Nullable String treePath) {
+        if (treePath == null) {
+            return cf.index;
+        }
+        // '0' is the character that follows '/'
+        NavigableMap<String, Long> children = cf.index.subMap(treePath + "/", true,
+                treePath + "0", false);
+        Long self = cf.index.get(treePath);
+        if (self == null) {
+            return children;
+        }
+        TreeMap<String, Long> matches = new TreeMap<>(children);
+        matches.put(treePath, self);
+        return matches;
+    }
+
+    @Override
+    public boolean hasConflicts(String namespace) {
+        final Object monitor = resolveConflictsMonitor(namespace);
+        if (monitor == null) {
+            return false;
+        }
+        synchronized (monitor) {
+            return !resolve(namespace).index.isEmpty();
         }
     }
 
     /**
-     * Expects only the path portion of a conflict and evaluates it against the tree path prefix
-     * filter.
+     * Gets all conflicts that match the specified path filter.
      *
+     * @param namespace the namespace of the conflict
+     * @param pathFilter the path filter, if this is not defined, all conflicts will be returned
+     * @return the list of conflicts
      */
-    private static class PathFilter implements Predicate<String> {
+    @Deprecated
+    @Override
+    public List<Conflict> getConflicts(@Nullable String namespace,
+            @Nullable final String pathFilter) {
+        final Object monitor = resolveConflictsMonitor(namespace);
+        if (null == monitor) {
+            return ImmutableList.of();
+        }
+        synchronized (monitor) {
+            final ConflictsFile cf = resolve(namespace);
+            if (pathFilter == null) {
+                return read(cf, cf.index.values());
+            }
+            List<Long> offsets = new ArrayList<>();
+            for (Map.Entry<String, Long> e : cf.index.tailMap(pathFilter, true).entrySet()) {
+                if (!e.getKey().startsWith(pathFilter)) {
+                    break;
+                }
+                offsets.add(e.getValue());
+            }
+            return read(cf, offsets);
+        }
+    }
 
-        private String prefix;
+    @Override
+    public Iterator<Conflict> getByPrefix(@Nullable String namespace, @Nullable String treePath) {
 
-        private String treePath;
+        return new ConflictsIterator(this, namespace, treePath);
+    }
 
-        PathFilter(final String treePath) {
-            checkNotNull(treePath);
-            this.prefix = treePath + "/";
-            this.treePath = treePath;
-        }
+    /**
+     * @return the next batch of conflicts matching {@code treePath} whose path is greater than
+     *         {@code after}, in path order
+     */
+    private List<Conflict> getBatch(@Nullable String namespace, @Nullable String treePath,
+            @Nullable String after, int limit) {
 
-        @Override
-        public boolean test(String path) {
-            boolean matches = treePath.equals(path) || path.startsWith(prefix);
-            return matches;
+        checkArgument(limit > 0);
+        final Object monitor = resolveConflictsMonitor(namespace);
+        if (null == monitor) {
+            return ImmutableList.of();
+        }
+        synchronized (monitor) {
+            final ConflictsFile cf = resolve(namespace);
+            NavigableMap<String, Long> matches = byPrefix(cf, treePath);
+            if (after != null) {
+                matches = matches.tailMap(after, false);
+            }
+            Iterable<Long> offsets = Iterables.limit(matches.values(), limit);
+            return read(cf, offsets);
         }
+    }
 
+    @Override
+    public long getCountByPrefix(@Nullable String namespace, final @Nullable String treePath) {
+        final Object monitor = resolveConflictsMonitor(namespace);
+        if (null == monitor) {
+            return 0L;
+        }
+        synchronized (monitor) {
+            return byPrefix(resolve(namespace), treePath).size();
+        }
     }
 
     private static class ConflictsIterator extends AbstractIterator<Conflict> {
@@ -280,11 +579,11 @@ public class FileConflictsDatabase implements ConflictsDatabase {
 
         private final int pageSize;
 
-        private int offset = 0;
+        private String lastPath;
 
-        private int currentPageSize;
+        private boolean lastPage;
 
-        private Iterator<Conflict> page;
+        private Iterator<Conflict> page = Collections.emptyIterator();
 
         public ConflictsIterator(FileConflictsDatabase db, @Nullable String namespace,
                 @Nullable String treePath) {
@@ -292,104 +591,51 @@ public class FileConflictsDatabase implements ConflictsDatabase {
             this.pageSize = db.lineProcessingBatchSize;
             this.namespace = namespace;
             this.treePath = treePath;
-            this.page = nextPage();
         }
 
         @Override
         protected Conflict computeNext() {
             if (page.hasNext()) {
-                return page.next();
+                Conflict next = page.next();
+                lastPath = next.getPath();
+                return next;
             }
-            if (currentPageSize == 0) {
+            if (lastPage) {
                 return endOfData();
             }
-            page = nextPage();
-            return computeNext();
-        }
-
-        private Iterator<Conflict> nextPage() {
-            @Nullable
-            Queue<Conflict> batch;
-            try {
-                batch = db.getBatch(namespace, treePath, offset, pageSize);
-            } catch (SQLException e) {
-                throw Throwables.propagate(e);
-            }
-            if (batch == null) {
-                this.currentPageSize = 0;
-                this.offset = 0;
-                return Collections.emptyIterator();
-            }
-            this.offset += pageSize;
-            this.currentPageSize = batch.size();
-            return batch.iterator();
-
+            List<Conflict> batch = db.getBatch(namespace, treePath, lastPath, pageSize);
+            lastPage = batch.size() < pageSize;
+            page = batch.iterator();
+            return page.hasNext() ? computeNext() : endOfData();
         }
     }
 
     /**
      * Adds a conflict to the database.
-     * 
+     *
      * @param namespace the namespace of the conflict
      * @param conflict the conflict to add
      */
     @Override
     public void addConflict(@Nullable String namespace, Conflict conflict) {
-        final Object monitor = resolveConflictsMonitor(namespace);
-        checkState(monitor != null,
-                "Either not inside a repository directory or the staging area is closed");
-        synchronized (monitor) {
-            Optional<File> fileOp = findOrCreateConflictsFile(namespace);
-            checkState(fileOp.isPresent());
-            try {
-                final File file = fileOp.get();
-                Files.append(encode(conflict).append('\n').toString(), file, Charsets.UTF_8);
-            } catch (IOException e) {
-                throw Throwables.propagate(e);
-            }
-        }
+        checkNotNull(conflict, "conflict is null");
+        addConflicts(namespace, ImmutableList.of(conflict));
     }
 
     @Override
     public void addConflicts(@Nullable String namespace, Iterable<Conflict> conflicts) {
-        final Object monitor = resolveConflictsMonitor(namespace);
-        checkState(monitor != null,
-                "Either not inside a repository directory or the staging area is closed");
-        synchronized (monitor) {
-            Optional<File> fileOp = findOrCreateConflictsFile(namespace);
-            checkState(fileOp.isPresent());
-            final File file = fileOp.get();
-            try (OutputStreamWriter writer = new OutputStreamWriter(
-                    new FileOutputStream(file, true), Charsets.UTF_8)) {
-                for (Conflict conflict : conflicts) {
-                    writer.write(encode(conflict).append('\n').toString());
-                }
-            } catch (IOException e) {
-                throw Throwables.propagate(e);
-            }
-        }
-    }
-
-    /**
-     * @return the object to synchronize on, or null if not inside a geogig repository
-     */
-    @Nullable
-    private Object resolveConflictsMonitor(@Nullable final String namespace) {
-        final File file = resolveConflictsFile(namespace);
-        Object monitor = null;
-        if (file != null) {
-            try {
-                monitor = file.getCanonicalPath().intern();
-            } catch (IOException e) {
-                throw Throwables.propagate(e);
+        checkNotNull(conflicts, "conflicts is null");
+        synchronized (monitor(namespace)) {
+            final ConflictsFile cf = resolve(namespace);
+            for (List<Conflict> batch : Iterables.partition(conflicts, lineProcessingBatchSize)) {
+                append(cf, batch);
             }
         }
-        return monitor;
     }
 
     /**
      * Removes a conflict from the database.
-     * 
+     *
      * @param namespace the namespace of the conflict
      * @param path the path of feature whose conflict should be removed
      */
@@ -401,201 +647,63 @@ public class FileConflictsDatabase implements ConflictsDatabase {
             return;
         }
         synchronized (monitor) {
-            final File conflictsFile = resolveConflictsFile(namespace);
-            if (conflictsFile == null || conflictsFile.length() == 0L) {
-                return;
-            }
-
-            final Set<String> paths = ImmutableSet.of(path);
-            if (findPresent(conflictsFile, paths).isEmpty()) {
-                return;
-            }
-
-            removeInternal(conflictsFile, paths);
-        }
-    }
-
-    private void removeInternal(final File conflictsFile, final Set<String> paths) {
-        removeInternal(conflictsFile, (path) -> paths.contains(path));
-    }
-
-    /**
-     * @param pathMatcher a filter that's given conflict paths and must return true for each path
-     *        that shall be removed, and false if the conflict shall be kept
-     */
-    private void removeInternal(final File conflictsFile, final Predicate<String> pathMatcher) {
-        final File tmpFile;
-        try {
-            tmpFile = File.createTempFile(conflictsFile.getName(), ".tmp",
-                    conflictsFile.getParentFile());
-
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(new FileInputStream(conflictsFile), Charsets.UTF_8))) {
-
-                try (BufferedWriter writer = new BufferedWriter(
-                        new OutputStreamWriter(new FileOutputStream(tmpFile), Charsets.UTF_8))) {
-
-                    Stream<String> stream;
-                    stream = reader.lines().sequential()
-                            .filter((line) -> pathMatcher.negate().test(readPath(line)));
-
-                    stream.forEach((l) -> {
-                        try {
-                            writer.append(l);
-                            writer.append('\n');
-                        } catch (Exception e) {
-                            throw Throwables.propagate(e);
-                        }
-                    });
-                }
-            } catch (Exception e) {
-                tmpFile.delete();
-                throw Throwables.propagate(e);
-            }
-        } catch (Exception e) {
-            throw Throwables.propagate(e);
-        }
-
-        File backup = new File(conflictsFile.getParentFile(), conflictsFile.getName() + ".bak");
-        if (backup.exists()) {
-            backup.delete();
-        }
-        try {
-            Files.move(conflictsFile, backup);
-            Files.move(tmpFile, conflictsFile);
-            backup.delete();
-        } catch (IOException cantMove) {
-            try {
-                Files.move(backup, conflictsFile);
-            } catch (IOException e) {
-                throw Throwables.propagate(e);
+            final ConflictsFile cf = resolve(namespace);
+            if (cf.index.containsKey(path)) {
+                remove(cf, Collections.singleton(path));
             }
-            throw Throwables.propagate(cantMove);
         }
     }
 
     /**
      * Gets the specified conflict from the database.
-     * 
+     *
      * @param namespace the namespace of the conflict
      * @param path the conflict to retrieve
      * @return the conflict, or {@link Optional#absent()} if it was not found
      */
     @Override
     public Optional<Conflict> getConflict(@Nullable String namespace, final String path) {
+        checkNotNull(path, "path is null");
         final Object monitor = resolveConflictsMonitor(namespace);
         if (null == monitor) {
             return Optional.absent();
         }
         synchronized (monitor) {
-            File file = resolveConflictsFile(namespace);
-            if (file == null || !file.exists()) {
+            final ConflictsFile cf = resolve(namespace);
+            final Long offset = cf.index.get(path);
+            if (offset == null) {
                 return Optional.absent();
             }
-            Conflict conflict = null;
-            try {
-                conflict = Files.readLines(file, Charsets.UTF_8, new LineProcessor<Conflict>() {
-                    Conflict conflict = null;
-
-                    @Override
-                    public Conflict getResult() {
-                        return conflict;
-                    }
-
-                    @Override
-                    public boolean processLine(String s) throws IOException {
-                        Conflict c = FileConflictsDatabase.valueOf(s);
-                        if (c.getPath().equals(path)) {
-                            conflict = c;
-                            return false;
-                        } else {
-                            return true;
-                        }
-                    }
-                });
-            } catch (IOException e) {
-                throw Throwables.propagate(e);
-            }
-            return Optional.fromNullable(conflict);
+            return Optional.of(read(cf, ImmutableList.of(offset)).get(0));
         }
     }
 
-    private Optional<File> findOrCreateConflictsFile(@Nullable String namespace) {
-        final Object monitor = resolveConflictsMonitor(namespace);
-        checkState(Thread.holdsLock(monitor));
-
-        final File file = resolveConflictsFile(namespace);
-        if (null == file) {
-            return Optional.absent();
-        }
-
-        if (!file.exists()) {
-            try {
-                Files.createParentDirs(file);
-                file.createNewFile();
-            } catch (IOException e) {
-                throw Throwables.propagate(e);
-            }
-        }
-
-        return Optional.of(file);
-    }
-
-    /**
-     * @return {@code null} if the database is closed or its location cannot be determined, the
-     *         conflicts file that belongs to the given namespace otherwise, which may or may not
-     *         exist
-     */
-    @Nullable
-    private File resolveConflictsFile(@Nullable String namespace) {
-        if (!isOpen()) {
-            return null;
-        }
-        File conflictsFile;
-        if (namespace == null) {
-            conflictsFile = new File(repositoryDirectory, "conflicts");
-        } else {
-            conflictsFile = new File(new File(repositoryDirectory, "txconflicts"), namespace);
-        }
-        return conflictsFile;
-    }
-
     /**
      * Removes all conflicts from the database.
-     * 
+     *
      * @param namespace the namespace of the conflicts to remove
      */
     @Override
     public void removeConflicts(@Nullable String namespace) {
-        final Object monitor = resolveConflictsMonitor(namespace);
-        checkState(monitor != null,
-                "Either not inside a repository directory or the staging area is closed");
-        synchronized (monitor) {
-            File file = resolveConflictsFile(namespace);
-            if (file != null && file.exists()) {
-                checkState(file.delete(), "Unable to delete conflicts file %s", file);
-            }
+        synchronized (monitor(namespace)) {
+            final ConflictsFile cf = resolve(namespace);
+            clear(cf);
         }
     }
 
     @Override
     public void removeConflicts(@Nullable String namespace, Iterable<String> paths) {
         checkNotNull(paths, "paths is null");
-        final Object monitor = resolveConflictsMonitor(namespace);
-        checkState(monitor != null,
-                "Either not inside a repository directory or the staging area is closed");
-        synchronized (monitor) {
-            final File conflictsFile = resolveConflictsFile(namespace);
-            if (conflictsFile == null || conflictsFile.length() == 0L) {
-                return;
-            }
-            final int batchSize = 100_000;
-            Iterable<List<String>> partitions = Iterables.partition(paths, batchSize);
-            for (List<String> p : partitions) {
-                Set<String> matches = findPresent(conflictsFile, Sets.newHashSet(p));
-                if (!matches.isEmpty()) {
-                    removeInternal(conflictsFile, matches);
+        synchronized (monitor(namespace)) {
+            final ConflictsFile cf = resolve(namespace);
+            for (List<String> batch : Iterables.partition(paths, lineProcessingBatchSize)) {
+                Set<String> present = new HashSet<>();
+                for (String path : batch) {
+                    if (cf.index.containsKey(path)) {
+                        present.add(path);
+                    }
                 }
+                remove(cf, present);
             }
         }
     }
@@ -603,82 +711,43 @@ public class FileConflictsDatabase implements ConflictsDatabase {
     @Override
     public Set<String> findConflicts(@Nullable String namespace, Set<String> paths) {
         checkNotNull(paths, "paths is null");
-        final Object monitor = resolveConflictsMonitor(namespace);
-        checkState(monitor != null,
-                "Either not inside a repository directory or the staging area is closed");
-        synchronized (monitor) {
-            final File conflictsFile = resolveConflictsFile(namespace);
-            if (conflictsFile == null || conflictsFile.length() == 0L) {
+        synchronized (monitor(namespace)) {
+            final ConflictsFile cf = resolve(namespace);
+            if (cf.index.isEmpty()) {
                 return Collections.emptySet();
             }
-
-            Set<String> matches = findPresent(conflictsFile, paths);
+            Set<String> matches = new HashSet<>();
+            for (String path : paths) {
+                if (cf.index.containsKey(path)) {
+                    matches.add(path);
+                }
+            }
             return matches;
         }
     }
 
-    private Set<String> findPresent(final File conflictsFile, final Set<String> queryPaths) {
-
-        Set<String> present = Sets.newConcurrentHashSet();
-
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(conflictsFile), Charsets.UTF_8))) {
-
-            Stream<String> stream = reader.lines().parallel().map((line) -> readPath(line))
-                    .filter((path) -> queryPaths.contains(path));
-
-            stream.forEach((presentPath) -> present.add(presentPath));
-
-        } catch (IOException e) {
-            throw Throwables.propagate(e);
+    @Override
+    public void removeByPrefix(@Nullable String namespace, @Nullable String pathPrefix) {
+        synchronized (monitor(namespace)) {
+            final ConflictsFile cf = resolve(namespace);
+            if (pathPrefix == null) {
+                clear(cf);
+            } else {
+                remove(cf, new HashSet<>(byPrefix(cf, pathPrefix).keySet()));
+            }
         }
-        return present;
-    }
-
-    private static StringBuilder encode(Conflict c) {
-        return new StringBuilder(c.getPath()).append('\t').append(c.getAncestor().toString())
-                .append('\t').append(c.getOurs().toString()).append('\t')
-                .append(c.getTheirs().toString());
-    }
-
-    private static String readPath(String line) {
-        StringBuilder b = new StringBuilder();
-        int index = line.indexOf('\t');
-        Preconditions.checkArgument(index > -1, "wrong conflict definitions: %s", line);
-        String path = line.substring(0, index);
-        return path;
     }
 
+    /**
+     * Parses a conflict in the former text format
+     */
     private static Conflict valueOf(String line) {
         String[] tokens = line.split("\t");
-        try {
-            Preconditions.checkArgument(tokens.length == 4, "wrong conflict definitions: %s", line);
-        } catch (IllegalArgumentException e) {
-            e.printStackTrace();
-            throw e;
-        }
+        Preconditions.checkArgument(tokens.length == 4, "wrong conflict definitions: %s", line);
         String path = tokens[0];
         ObjectId ancestor = ObjectId.valueOf(tokens[1]);
         ObjectId ours = ObjectId.valueOf(tokens[2]);
         ObjectId theirs = ObjectId.valueOf(tokens[3]);
         return new Conflict(path, ancestor, ours, theirs);
     }
-
-    @Override
-    public void removeByPrefix(@Nullable String namespace, @Nullable String pathPrefix) {
-
-        final Object monitor = resolveConflictsMonitor(namespace);
-        checkState(monitor != null,
-                "Either not inside a repository directory or the staging area is closed");
-        synchronized (monitor) {
-            final File conflictsFile = resolveConflictsFile(namespace);
-            if (conflictsFile == null || conflictsFile.length() == 0L) {
-                return;
-            }
-            Predicate<String> pathFilter = pathPrefix == null ? (p) -> true
-                    : new PathFilter(pathPrefix);
-
-            removeInternal(conflictsFile, pathFilter);
-        }
-    }
 }
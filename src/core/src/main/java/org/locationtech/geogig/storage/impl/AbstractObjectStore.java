@@ -31,9 +31,12 @@ import org.locationtech.geogig.model.RevTag;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.RawObject;
 import org.locationtech.geogig.storage.datastream.SerializationFactoryProxy;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Closeables;
 
 /**
@@ -271,6 +274,83 @@ public abstract class AbstractObjectStore implements ObjectStore {
      */
     protected abstract boolean putInternal(ObjectId id, byte[] rawData);
 
+    /**
+     * @return the {@link SerializationFactoryProxy#getRawFormat() format and codec} objects are
+     *         written with if the {@link #serializer() serializer} is a
+     *         {@link SerializationFactoryProxy}, or the serializer's
+     *         {@link ObjectSerializingFactory#getDisplayName() name} otherwise, as the raw objects
+     *         are the bytes stored by {@link #putInternal}
+     */
+    @Override
+    public String getRawFormat() {
+        final ObjectSerializingFactory serializer = serializer();
+        if (serializer instanceof SerializationFactoryProxy) {
+            return ((SerializationFactoryProxy) serializer).getRawFormat();
+        }
+        return serializer.getDisplayName();
+    }
+
+    /**
+     * This default implementation calls {@link #getRawInternal(ObjectId, boolean)} for each id;
+     * subclasses may override if appropriate.
+     */
+    @Override
+    public Iterator<RawObject> getAllRaw(final Iterable<ObjectId> ids,
+            final BulkOpListener listener) {
+        checkNotNull(ids, "ids is null");
+        checkNotNull(listener, "listener is null");
+        checkState(isOpen(), "db is closed");
+
+        final Iterator<ObjectId> iterator = ids.iterator();
+        return new AbstractIterator<RawObject>() {
+            @Override
+            protected RawObject computeNext() {
+                while (iterator.hasNext()) {
+                    final ObjectId id = iterator.next();
+                    final InputStream raw = getRaw(id, false);
+                    if (raw == null) {
+                        listener.notFound(id);
+                        continue;
+                    }
+                    final byte[] bytes;
+                    try {
+                        bytes = ByteStreams.toByteArray(raw);
+                    } catch (IOException e) {
+                        throw Throwables.propagate(e);
+                    } finally {
+                        Closeables.closeQuietly(raw);
+                    }
+                    listener.found(id, Integer.valueOf(bytes.length));
+                    return RawObject.of(id, null, bytes);
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    /**
+     * This default implementation calls {@link #putInternal(ObjectId, byte[])} for each object;
+     * subclasses may override if appropriate.
+     */
+    @Override
+    public void putAllRaw(Iterator<RawObject> objects, final BulkOpListener listener) {
+        checkNotNull(objects, "objects is null");
+        checkNotNull(listener, "listener is null");
+        checkState(isOpen(), "db is closed");
+
+        while (objects.hasNext()) {
+            final RawObject object = objects.next();
+            final ObjectId id = object.id();
+            final byte[] rawData = object.bytes();
+            final boolean added = putInternal(id, rawData);
+            if (added) {
+                listener.inserted(id, rawData.length);
+            } else {
+                listener.found(id, null);
+            }
+        }
+    }
+
     @Override
     public Iterator<RevObject> getAll(final Iterable<ObjectId> ids) {
         checkState(isOpen(), "db is closed");
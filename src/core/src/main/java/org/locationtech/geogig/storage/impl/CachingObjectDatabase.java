@@ -0,0 +1,262 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTag;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.ObjectInfo;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.inject.Provider;
+
+/**
+ * An {@link ObjectDatabase} decorator that keeps decoded objects in an {@link ObjectCache}, so
+ * frequently accessed trees, feature types, and commits are not fetched and parsed over and over.
+ * <p>
+ * Objects are cached when they're read, objects that are written are not. Deleted objects are
+ * evicted.
+ */
+public class CachingObjectDatabase extends ForwardingObjectDatabase {
+
+    private static final int GET_ALL_PARTITION_SIZE = 1_000;
+
+    private final ObjectCache cache;
+
+    public CachingObjectDatabase(Provider<? extends ObjectDatabase> odb, ObjectCache cache) {
+        super(odb);
+        this.cache = cache;
+    }
+
+    public ObjectCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public void close() {
+        cache.invalidateAll();
+        super.close();
+    }
+
+    @Override
+    public boolean exists(ObjectId id) {
+        checkNotNull(id, "id is null");
+        return cache.getIfPresent(id) != null || super.exists(id);
+    }
+
+    @Override
+    public RevObject get(ObjectId id) throws IllegalArgumentException {
+        checkNotNull(id, "id is null");
+        RevObject o = cache.getIfPresent(id);
+        if (o == null) {
+            o = cached(super.get(id));
+        }
+        return o;
+    }
+
+    @Override
+    public <T extends RevObject> T get(ObjectId id, Class<T> type)
+            throws IllegalArgumentException {
+        checkNotNull(id, "id is null");
+        checkNotNull(type, "type is null");
+        T o = cache.getIfPresent(id, type);
+        if (o == null) {
+            o = cached(super.get(id, type));
+        }
+        return o;
+    }
+
+    @Override
+    public @Nullable RevObject getIfPresent(ObjectId id) {
+        checkNotNull(id, "id is null");
+        RevObject o = cache.getIfPresent(id);
+        if (o == null) {
+            o = cached(super.getIfPresent(id));
+        }
+        return o;
+    }
+
+    @Override
+    public @Nullable <T extends RevObject> T getIfPresent(ObjectId id, Class<T> type)
+            throws IllegalArgumentException {
+        checkNotNull(id, "id is null");
+        checkNotNull(type, "type is null");
+        T o = cache.getIfPresent(id, type);
+        if (o == null) {
+            o = cached(super.getIfPresent(id, type));
+        }
+        return o;
+    }
+
+    @Override
+    public RevTree getTree(ObjectId id) {
+        return get(id, RevTree.class);
+    }
+
+    @Override
+    public RevFeature getFeature(ObjectId id) {
+        return get(id, RevFeature.class);
+    }
+
+    @Override
+    public RevFeatureType getFeatureType(ObjectId id) {
+        return get(id, RevFeatureType.class);
+    }
+
+    @Override
+    public RevCommit getCommit(ObjectId id) {
+        return get(id, RevCommit.class);
+    }
+
+    @Override
+    public RevTag getTag(ObjectId id) {
+        return get(id, RevTag.class);
+    }
+
+    @Override
+    public Iterator<RevObject> getAll(Iterable<ObjectId> ids) {
+        return getAll(ids, BulkOpListener.NOOP_LISTENER);
+    }
+
+    @Override
+    public Iterator<RevObject> getAll(Iterable<ObjectId> ids, BulkOpListener listener) {
+        return getAll(ids, listener, RevObject.class);
+    }
+
+    /**
+     * Resolves cache hits directly and delegates the misses to the decorated database, in
+     * partitions so that the ids iterator is still consumed lazily. Objects are not necessarily
+     * returned in the order of the ids.
+     */
+    @Override
+    public <T extends RevObject> Iterator<T> getAll(final Iterable<ObjectId> ids,
+            final BulkOpListener listener, final Class<T> type) {
+        checkNotNull(ids, "ids is null");
+        checkNotNull(listener, "listener is null");
+        checkNotNull(type, "type is null");
+        checkState(isOpen(), "db is closed");
+
+        if (!cache.isCached(type)) {
+            return super.getAll(ids, listener, type);
+        }
+        final Iterator<List<ObjectId>> partitions = Iterators.partition(ids.iterator(),
+                GET_ALL_PARTITION_SIZE);
+
+        return new AbstractIterator<T>() {
+
+            private Iterator<T> batch = Iterators.emptyIterator();
+
+            @Override
+            protected T computeNext() {
+                while (!batch.hasNext()) {
+                    if (!partitions.hasNext()) {
+                        return endOfData();
+                    }
+                    batch = nextBatch(partitions.next());
+                }
+                return batch.next();
+            }
+
+            private Iterator<T> nextBatch(List<ObjectId> partition) {
+                List<T> hits = new ArrayList<>();
+                List<ObjectId> misses = new ArrayList<>();
+                for (ObjectId id : partition) {
+                    T o = cache.getIfPresent(id, type);
+                    if (o == null) {
+                        misses.add(id);
+                    } else {
+                        listener.found(id, null);
+                        hits.add(o);
+                    }
+                }
+                if (misses.isEmpty()) {
+                    return hits.iterator();
+                }
+                Iterator<T> fetched = CachingObjectDatabase.super.getAll(misses, listener, type);
+                return Iterators.concat(hits.iterator(),
+                        Iterators.transform(fetched, (o) -> cached(o)));
+            }
+        };
+    }
+
+    @Override
+    public <T extends RevObject> AutoCloseableIterator<ObjectInfo<T>> getObjects(
+            Iterator<NodeRef> refs, BulkOpListener listener, Class<T> type) {
+
+        AutoCloseableIterator<ObjectInfo<T>> objects = super.getObjects(refs, listener, type);
+        if (!cache.isCached(type)) {
+            return objects;
+        }
+        return AutoCloseableIterator.transform(objects, (info) -> {
+            cached(info.object());
+            return info;
+        });
+    }
+
+    @Override
+    public void delete(ObjectId objectId) {
+        checkNotNull(objectId, "objectId is null");
+        cache.invalidate(objectId);
+        super.delete(objectId);
+    }
+
+    @Override
+    public void deleteAll(Iterator<ObjectId> ids) {
+        deleteAll(ids, BulkOpListener.NOOP_LISTENER);
+    }
+
+    @Override
+    public void deleteAll(Iterator<ObjectId> ids, BulkOpListener listener) {
+        checkNotNull(ids, "ids is null");
+        checkNotNull(listener, "listener is null");
+        super.deleteAll(Iterators.transform(ids, (id) -> {
+            cache.invalidate(id);
+            return id;
+        }), listener);
+    }
+
+    @Override
+    public void overwriteAll(Iterator<? extends RevObject> objects) {
+        checkNotNull(objects, "objects is null");
+        super.overwriteAll(Iterators.transform(objects, (object) -> {
+            cache.invalidate(object.getId());
+            return object;
+        }));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s, %s]", getClass().getSimpleName(), subject.get(), cache);
+    }
+
+    private @Nullable <T extends RevObject> T cached(@Nullable T object) {
+        if (object != null) {
+            cache.put(object);
+        }
+        return object;
+    }
+}
@@ -27,6 +27,7 @@ import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ConflictsDatabase;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.locationtech.geogig.storage.ObjectInfo;
+import org.locationtech.geogig.storage.RawObject;
 
 import com.google.inject.Provider;
 
@@ -167,7 +168,7 @@ public class ForwardingObjectDatabase implements ObjectDatabase {
 
     @Override
     public void deleteAll(Iterator<ObjectId> ids) {
-        deleteAll(ids);
+        subject.get().deleteAll(ids);
     }
 
     @Override
@@ -190,4 +191,24 @@ public class ForwardingObjectDatabase implements ObjectDatabase {
             Iterator<NodeRef> refs, BulkOpListener listener, Class<T> type) {
         return subject.get().getObjects(refs, listener, type);
     }
+
+    @Override
+    public String getRawFormat() {
+        return subject.get().getRawFormat();
+    }
+
+    @Override
+    public Iterator<RawObject> getAllRaw(Iterable<ObjectId> ids, BulkOpListener listener) {
+        return subject.get().getAllRaw(ids, listener);
+    }
+
+    @Override
+    public void putAllRaw(Iterator<RawObject> objects, BulkOpListener listener) {
+        subject.get().putAllRaw(objects, listener);
+    }
+
+    @Override
+    public void overwriteAll(Iterator<? extends RevObject> objects) {
+        subject.get().overwriteAll(objects);
+    }
 }
@@ -24,6 +24,7 @@ import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ObjectInfo;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.RawObject;
 
 import com.google.common.base.Preconditions;
 import com.google.inject.Provider;
@@ -186,4 +187,25 @@ public class ForwardingObjectStore implements ObjectStore {
             Iterator<NodeRef> refs, BulkOpListener listener, Class<T> type) {
         return subject.get().getObjects(refs, listener, type);
     }
+
+    @Override
+    public String getRawFormat() {
+        return subject.get().getRawFormat();
+    }
+
+    @Override
+    public Iterator<RawObject> getAllRaw(Iterable<ObjectId> ids, BulkOpListener listener) {
+        return subject.get().getAllRaw(ids, listener);
+    }
+
+    @Override
+    public void putAllRaw(Iterator<RawObject> objects, BulkOpListener listener) {
+        subject.get().putAllRaw(objects, listener);
+    }
+
+    @Override
+    public void overwriteAll(Iterator<? extends RevObject> objects) {
+        checkWritable();
+        subject.get().overwriteAll(objects);
+    }
 }
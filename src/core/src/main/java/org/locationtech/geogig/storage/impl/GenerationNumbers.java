@@ -0,0 +1,173 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.storage.GraphDatabase;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+/**
+ * Maintains the depth and generation numbers of the nodes of a {@link GraphDatabase}, independently
+ * of how they're stored.
+ * <p>
+ * The <b>depth</b> of a commit is its shortest distance to a commit with no parents, as returned by
+ * {@link GraphDatabase#getDepth(ObjectId)}. The <b>generation</b> of a commit is its longest
+ * distance to a commit with no parents, hence a commit's generation is always greater than the
+ * generation of any of its ancestors, which allows graph traversals to be pruned.
+ * <p>
+ * Both numbers are only known for commits whose whole ancestry is in the graph. The numbers of a
+ * commit are computed when it's {@link #update(ObjectId) updated} and all its parents are known,
+ * and are then propagated to its descendants whose parents became all known. That way each node is
+ * computed only once, regardless of the order in which commits are added to the graph. Nodes that
+ * are only known as the parent of some other node (e.g. the boundary of a shallow clone, or entries
+ * that predate generation numbers) are unknown, and {@link #depth(ObjectId)} falls back to
+ * traversing the graph for them.
+ */
+public abstract class GenerationNumbers {
+
+    /**
+     * Value of depth and generation numbers that have not been computed
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * @return the parents of the node, empty if the node doesn't exist
+     */
+    protected abstract List<ObjectId> parents(ObjectId id);
+
+    /**
+     * @return the children of the node, empty if the node doesn't exist
+     */
+    protected abstract List<ObjectId> children(ObjectId id);
+
+    /**
+     * @return a two element array with the stored depth and generation numbers of the node, or
+     *         {@link #UNKNOWN} for the ones that have not been computed; {@code null} if the node
+     *         doesn't exist
+     */
+    protected abstract @Nullable int[] get(ObjectId id);
+
+    /**
+     * Stores the depth and generation numbers of an existing node
+     */
+    protected abstract void set(ObjectId id, int depth, int generation);
+
+    /**
+     * Computes the depth and generation of the given node if they're not known yet and all its
+     * parents are known, and propagates them to its descendants.
+     *
+     * @param id the id of a node that has been added to the graph, along with its parents
+     */
+    public void update(final ObjectId id) {
+        int[] numbers = get(id);
+        if (numbers == null || isKnown(numbers) || !compute(id)) {
+            return;
+        }
+        Queue<ObjectId> queue = new LinkedList<>(children(id));
+        while (!queue.isEmpty()) {
+            ObjectId child = queue.poll();
+            numbers = get(child);
+            if (numbers != null && !isKnown(numbers) && compute(child)) {
+                queue.addAll(children(child));
+            }
+        }
+    }
+
+    /**
+     * Computes and stores the numbers of the given node out of its parent's numbers.
+     *
+     * @return {@code true} if the numbers were computed, {@code false} if some parent is unknown
+     */
+    private boolean compute(final ObjectId id) {
+        final List<ObjectId> parents = parents(id);
+        int depth = 0;
+        int generation = 0;
+        if (!parents.isEmpty()) {
+            depth = Integer.MAX_VALUE;
+            for (ObjectId parent : parents) {
+                int[] parentNumbers = get(parent);
+                if (parentNumbers == null || !isKnown(parentNumbers)) {
+                    return false;
+                }
+                depth = Math.min(depth, 1 + parentNumbers[0]);
+                generation = Math.max(generation, 1 + parentNumbers[1]);
+            }
+        }
+        set(id, depth, generation);
+        return true;
+    }
+
+    /**
+     * @return the stored generation number of the node, or {@link Optional#absent() absent} if it's
+     *         not known
+     */
+    public Optional<Integer> generation(final ObjectId id) {
+        int[] numbers = get(id);
+        if (numbers == null || !isKnown(numbers)) {
+            return Optional.absent();
+        }
+        return Optional.of(Integer.valueOf(numbers[1]));
+    }
+
+    /**
+     * Returns the shortest distance from the given node to a node with no parents.
+     * <p>
+     * This is a single lookup if the node's depth is known. Otherwise the graph is traversed breadth
+     * first, visiting each node at most once and stopping as soon as no shorter path can be found,
+     * and nodes with unknown depth and no parents are considered roots.
+     *
+     * @throws IllegalArgumentException if the node doesn't exist
+     */
+    public int depth(final ObjectId id) {
+        int[] numbers = get(id);
+        Preconditions.checkArgument(numbers != null, "Graph Object does not exist: %s", id);
+        if (isKnown(numbers)) {
+            return numbers[0];
+        }
+        int depth = Integer.MAX_VALUE;
+        Set<ObjectId> visited = new HashSet<>();
+        List<ObjectId> level = new ArrayList<>(parents(id));
+        for (int distance = 1; !level.isEmpty() && distance < depth; distance++) {
+            List<ObjectId> next = new ArrayList<>();
+            for (ObjectId node : level) {
+                if (!visited.add(node)) {
+                    continue;
+                }
+                numbers = get(node);
+                if (numbers != null && isKnown(numbers)) {
+                    depth = Math.min(depth, distance + numbers[0]);
+                    continue;
+                }
+                List<ObjectId> parents = parents(node);
+                if (parents.isEmpty()) {
+                    depth = Math.min(depth, distance);
+                } else {
+                    next.addAll(parents);
+                }
+            }
+            level = next;
+        }
+        return depth == Integer.MAX_VALUE ? 0 : depth;
+    }
+
+    private static boolean isKnown(int[] numbers) {
+        return numbers[0] != UNKNOWN && numbers[1] != UNKNOWN;
+    }
+}
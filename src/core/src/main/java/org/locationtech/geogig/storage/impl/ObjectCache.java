@@ -0,0 +1,406 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTag;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.locationtech.geogig.storage.ConfigException;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * A cache of decoded {@link RevObject}s, with a separate heap budget for each kind of object.
+ * <p>
+ * Unlike caches of serialized objects, hits return the very same immutable instance that was
+ * cached, so there's no decoding cost. Entries are weighed by an approximation of the heap space
+ * taken by the decoded object. A budget of zero bytes disables caching for that object type.
+ * <p>
+ * Several caches may share the same budget through {@link #view()}: each view only sees its own
+ * entries, but they all compete for the space of the cache they were created from. By default all
+ * repositories in the process draw from a single shared cache, so the heap used for caching does
+ * not grow with the number of repositories open.
+ * <p>
+ * The budgets are set through the following config keys, in bytes:
+ * <ul>
+ * <li>{@code objectcache.trees.maxSize}: defaults to 5% of the max heap size
+ * <li>{@code objectcache.featureTypes.maxSize}: defaults to 1% of the max heap size
+ * <li>{@code objectcache.commits.maxSize}: defaults to 1% of the max heap size
+ * <li>{@code objectcache.features.maxSize}: defaults to zero (disabled)
+ * <li>{@code objectcache.tags.maxSize}: defaults to zero (disabled)
+ * </ul>
+ * The shared cache is sized out of the global config, the first time it's used. A repository
+ * that sets any of these keys in its own config gets a cache of its own instead, with the
+ * remaining budgets taken from the global config or the defaults.
+ *
+ * @see CachingObjectDatabase
+ */
+public class ObjectCache {
+
+    public static final String KEY_TREES_MAX_SIZE = "objectcache.trees.maxSize";
+
+    public static final String KEY_FEATURETYPES_MAX_SIZE = "objectcache.featureTypes.maxSize";
+
+    public static final String KEY_COMMITS_MAX_SIZE = "objectcache.commits.maxSize";
+
+    public static final String KEY_FEATURES_MAX_SIZE = "objectcache.features.maxSize";
+
+    public static final String KEY_TAGS_MAX_SIZE = "objectcache.tags.maxSize";
+
+    /**
+     * Estimated heap size of an {@link ObjectId} plus the object header and fields of the cached
+     * object itself
+     */
+    private static final int BASE_OBJECT_SIZE = 56 + 32;
+
+    private static final int NODE_SIZE = 120;
+
+    private static final int BUCKET_SIZE = 80;
+
+    private static final Weigher<Key, RevObject> WEIGHER = (k, o) -> sizeOf(o);
+
+    private static ObjectCache SHARED;
+
+    private final Map<TYPE, Cache<Key, RevObject>> caches;
+
+    private final Map<TYPE, Long> budgets;
+
+    /**
+     * Whether {@link #caches} are used by other views too
+     */
+    private volatile boolean shared;
+
+    /**
+     * Creates a cache with the given per type budgets in bytes. Types with no budget or a zero
+     * budget are not cached.
+     */
+    public ObjectCache(Map<TYPE, Long> maxSizeBytes) {
+        this.caches = new EnumMap<>(TYPE.class);
+        this.budgets = new EnumMap<>(TYPE.class);
+        this.shared = false;
+        for (Map.Entry<TYPE, Long> e : maxSizeBytes.entrySet()) {
+            final TYPE type = e.getKey();
+            final long maxWeight = e.getValue().longValue();
+            Preconditions.checkArgument(maxWeight >= 0, "Invalid cache size for %s: %s", type,
+                    maxWeight);
+            if (maxWeight > 0) {
+                Cache<Key, RevObject> cache = CacheBuilder.newBuilder()//
+                        .maximumWeight(maxWeight)//
+                        .weigher(WEIGHER)//
+                        .concurrencyLevel(16)//
+                        .recordStats()//
+                        .build();
+                caches.put(type, cache);
+                budgets.put(type, Long.valueOf(maxWeight));
+            }
+        }
+    }
+
+    private ObjectCache(ObjectCache source) {
+        this.caches = source.caches;
+        this.budgets = source.budgets;
+        this.shared = true;
+    }
+
+    /**
+     * Creates a cache that shares the budgets of this one, but whose entries are only visible to
+     * itself.
+     */
+    public ObjectCache view() {
+        this.shared = true;
+        return new ObjectCache(this);
+    }
+
+    /**
+     * Creates a cache with the budgets defined in the {@code objectcache.*} config keys: a
+     * {@link #view() view} of the process wide cache, or a cache of its own if the repository
+     * config sets any of the budgets.
+     */
+    public static ObjectCache build(ConfigDatabase configdb) {
+        Map<TYPE, Long> repoBudgets = new EnumMap<>(TYPE.class);
+        for (TYPE type : TYPE.values()) {
+            Optional<Long> budget = getLocal(configdb, configKey(type));
+            if (budget.isPresent()) {
+                repoBudgets.put(type, budget.get());
+            }
+        }
+        if (repoBudgets.isEmpty()) {
+            return shared(configdb).view();
+        }
+        Map<TYPE, Long> budgets = globalBudgets(configdb);
+        budgets.putAll(repoBudgets);
+        return new ObjectCache(budgets);
+    }
+
+    private static synchronized ObjectCache shared(ConfigDatabase configdb) {
+        if (SHARED == null) {
+            SHARED = new ObjectCache(globalBudgets(configdb));
+        }
+        return SHARED;
+    }
+
+    private static Map<TYPE, Long> globalBudgets(ConfigDatabase configdb) {
+        final long maxMemory = Runtime.getRuntime().maxMemory();
+        Map<TYPE, Long> budgets = new EnumMap<>(TYPE.class);
+        budgets.put(TYPE.TREE, getGlobal(configdb, TYPE.TREE, (long) (maxMemory * 0.05)));
+        budgets.put(TYPE.FEATURETYPE,
+                getGlobal(configdb, TYPE.FEATURETYPE, (long) (maxMemory * 0.01)));
+        budgets.put(TYPE.COMMIT, getGlobal(configdb, TYPE.COMMIT, (long) (maxMemory * 0.01)));
+        budgets.put(TYPE.FEATURE, getGlobal(configdb, TYPE.FEATURE, 0L));
+        budgets.put(TYPE.TAG, getGlobal(configdb, TYPE.TAG, 0L));
+        return budgets;
+    }
+
+    private static String configKey(TYPE type) {
+        switch (type) {
+        case TREE:
+            return KEY_TREES_MAX_SIZE;
+        case FEATURETYPE:
+            return KEY_FEATURETYPES_MAX_SIZE;
+        case COMMIT:
+            return KEY_COMMITS_MAX_SIZE;
+        case FEATURE:
+            return KEY_FEATURES_MAX_SIZE;
+        case TAG:
+            return KEY_TAGS_MAX_SIZE;
+        default:
+            throw new IllegalArgumentException(type.toString());
+        }
+    }
+
+    private static Optional<Long> getLocal(ConfigDatabase configdb, String key) {
+        try {
+            return configdb.get(key, Long.class);
+        } catch (ConfigException e) {
+            // the repository may not exist yet (e.g. during init), go with the default
+            return Optional.absent();
+        }
+    }
+
+    private static Long getGlobal(ConfigDatabase configdb, TYPE type, long defaultValue) {
+        Optional<Long> value = Optional.absent();
+        try {
+            value = configdb.getGlobal(configKey(type), Long.class);
+        } catch (ConfigException e) {
+            // no global config, go with the default
+        }
+        return value.or(Long.valueOf(defaultValue));
+    }
+
+    /**
+     * @return {@code true} if objects of the given type are cached
+     */
+    public boolean isCached(TYPE type) {
+        return caches.containsKey(type);
+    }
+
+    /**
+     * @return {@code true} if objects of the given class may be cached; for {@link RevObject}
+     *         itself that's the case if any type is cached
+     */
+    public boolean isCached(Class<? extends RevObject> type) {
+        if (RevObject.class.equals(type)) {
+            return !caches.isEmpty();
+        }
+        return isCached(TYPE.valueOf(type));
+    }
+
+    public @Nullable RevObject getIfPresent(ObjectId id) {
+        final Key key = new Key(this, id);
+        for (Cache<Key, RevObject> cache : caches.values()) {
+            RevObject o = cache.getIfPresent(key);
+            if (o != null) {
+                return o;
+            }
+        }
+        return null;
+    }
+
+    public @Nullable <T extends RevObject> T getIfPresent(ObjectId id, Class<T> type) {
+        RevObject o;
+        if (RevObject.class.equals(type)) {
+            o = getIfPresent(id);
+        } else {
+            Cache<Key, RevObject> cache = caches.get(TYPE.valueOf(type));
+            o = cache == null ? null : cache.getIfPresent(new Key(this, id));
+        }
+        return type.isInstance(o) ? type.cast(o) : null;
+    }
+
+    public void put(RevObject o) {
+        Cache<Key, RevObject> cache = caches.get(o.getType());
+        if (cache != null) {
+            cache.asMap().putIfAbsent(new Key(this, o.getId()), o);
+        }
+    }
+
+    public void invalidate(ObjectId id) {
+        final Key key = new Key(this, id);
+        caches.values().forEach((c) -> c.invalidate(key));
+    }
+
+    /**
+     * Evicts all the entries of this cache, leaving alone the ones of other views of the same
+     * budget
+     */
+    public void invalidateAll() {
+        if (shared) {
+            caches.values().forEach((c) -> c.asMap().keySet().removeIf((k) -> k.owner == this));
+        } else {
+            caches.values().forEach((c) -> c.invalidateAll());
+        }
+    }
+
+    /**
+     * @return the hit/miss/eviction stats for the given object type, or {@code null} if the type is
+     *         not cached; for views these are the stats of the shared cache
+     */
+    public @Nullable CacheStats stats(TYPE type) {
+        Cache<Key, RevObject> cache = caches.get(type);
+        return cache == null ? null : cache.stats();
+    }
+
+    /**
+     * @return the number of objects of the given type currently in the cache
+     */
+    public long size(TYPE type) {
+        Cache<Key, RevObject> cache = caches.get(type);
+        if (cache == null) {
+            return 0L;
+        }
+        if (shared) {
+            return cache.asMap().keySet().stream().filter((k) -> k.owner == this).count();
+        }
+        return cache.size();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(getClass().getSimpleName()).append('[');
+        for (Map.Entry<TYPE, Cache<Key, RevObject>> e : caches.entrySet()) {
+            TYPE type = e.getKey();
+            Cache<Key, RevObject> cache = e.getValue();
+            CacheStats stats = cache.stats();
+            sb.append(String.format(
+                    "%s: {size: %,d, budget: %,d bytes, hits: %,d, misses: %,d, evictions: %,d}, ",
+                    type, size(type), budgets.get(type), stats.hitCount(), stats.missCount(),
+                    stats.evictionCount()));
+        }
+        if (!caches.isEmpty()) {
+            sb.setLength(sb.length() - 2);
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Cache key, tells apart the entries of the different views of a shared cache, since an
+     * object being cached for one repository doesn't mean it exists in another one
+     */
+    private static final class Key {
+
+        private final ObjectCache owner;
+
+        private final ObjectId id;
+
+        Key(ObjectCache owner, ObjectId id) {
+            this.owner = owner;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return owner == k.owner && id.equals(k.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(owner) + id.hashCode();
+        }
+    }
+
+    /**
+     * Approximates the heap size taken by a decoded object. It doesn't need to be accurate, but to
+     * scale with the amount of data the object holds.
+     */
+    static int sizeOf(RevObject o) {
+        long size = BASE_OBJECT_SIZE;
+        switch (o.getType()) {
+        case TREE: {
+            RevTree tree = (RevTree) o;
+            for (Node n : tree.trees()) {
+                size += NODE_SIZE + 2 * n.getName().length();
+            }
+            for (Node n : tree.features()) {
+                size += NODE_SIZE + 2 * n.getName().length();
+            }
+            size += BUCKET_SIZE * tree.buckets().size();
+            break;
+        }
+        case FEATURETYPE:
+            // property descriptors are heavy weight objects, including the CRS
+            size += 1024 * ((RevFeatureType) o).descriptors().size();
+            break;
+        case COMMIT: {
+            RevCommit c = (RevCommit) o;
+            size += 2 * c.getMessage().length() + 56 * (1 + c.getParentIds().size()) + 256;
+            break;
+        }
+        case FEATURE: {
+            final long[] valuesSize = { 0 };
+            ((RevFeature) o).forEach((v) -> valuesSize[0] += sizeOfValue(v));
+            size += valuesSize[0];
+            break;
+        }
+        case TAG:
+            size += 2 * ((RevTag) o).getMessage().length() + 256;
+            break;
+        default:
+            break;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    private static long sizeOfValue(@Nullable Object v) {
+        if (v == null) {
+            return 8;
+        }
+        if (v instanceof String) {
+            return 40 + 2 * ((String) v).length();
+        }
+        if (v instanceof Geometry) {
+            return 64 + 48 * ((Geometry) v).getNumPoints();
+        }
+        if (v instanceof byte[]) {
+            return 16 + ((byte[]) v).length;
+        }
+        return 24;
+    }
+}
@@ -0,0 +1,46 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import org.locationtech.geogig.repository.impl.DeduplicationService;
+import org.locationtech.geogig.repository.impl.Deduplicator;
+
+/**
+ * A {@link DeduplicationService} that creates {@link SpillingDeduplicator}s sharing a single
+ * memory budget, so that the memory used for visited ids stays bounded however many traversals run
+ * concurrently.
+ */
+public class SpillingDeduplicationService implements DeduplicationService {
+
+    private final long maxMemory;
+
+    private final SpillingDeduplicator.Budget budget;
+
+    /**
+     * @param maxMemory the approximate heap, in bytes, all the deduplicators created by this
+     *        service may use together before spilling visited ids to disk
+     */
+    public SpillingDeduplicationService(final long maxMemory) {
+        checkArgument(maxMemory > 0, "maxMemory must be > 0: %s", maxMemory);
+        this.maxMemory = maxMemory;
+        this.budget = new SpillingDeduplicator.Budget(maxMemory);
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    @Override
+    public Deduplicator createDeduplicator() {
+        return new SpillingDeduplicator(budget);
+    }
+}
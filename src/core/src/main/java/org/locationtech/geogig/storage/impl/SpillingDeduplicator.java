@@ -0,0 +1,384 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.ObjectIdSet;
+import org.locationtech.geogig.repository.impl.Deduplicator;
+import org.rocksdb.CompressionType;
+import org.rocksdb.Options;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+
+/**
+ * A {@link Deduplicator} for traversals too large to keep every visited id in memory.
+ * <p>
+ * Visited ids are first kept in memory, in a number of {@link ObjectIdSet} buffers selected by the
+ * first bits of each id. Buffers grow by reserving room from a {@link Budget}, which may be shared
+ * by several deduplicators, so that concurrent traversals don't multiply the memory used. When a
+ * buffer can't get more room its ids are spilled to a temporary RocksDB database, which keeps them
+ * sorted on disk, its reservation is given back, and the ids are added to the {@link BloomFilter}s
+ * for that buffer, so that only ids the filters report as possibly spilled need a disk lookup. The
+ * bloom filters are not part of the budget, they grow with the number of spilled ids, at about
+ * 1.2 bytes per id.
+ * <p>
+ * The temporary database is only created if the buffers ever spill, and is deleted on
+ * {@link #reset()} and {@link #release()}.
+ * <p>
+ * {@link #visit} and {@link #isDuplicate} are safe to call concurrently; calls for ids in
+ * different buffers don't compete for the same lock.
+ */
+public class SpillingDeduplicator implements Deduplicator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillingDeduplicator.class);
+
+    private static final int STRIPES = 16;
+
+    /**
+     * Estimated heap bytes per id in an {@link ObjectIdSet}, accounting for its load factor and
+     * growth
+     */
+    private static final int BUFFERED_ID_SIZE = 48;
+
+    /**
+     * Number of ids a buffer reserves from the budget at a time
+     */
+    private static final int RESERVATION_SIZE = 64;
+
+    /**
+     * Number of ids a buffer may hold without a reservation, so that it doesn't spill on every
+     * visit when the budget is exhausted
+     */
+    private static final int UNRESERVED_IDS = 64;
+
+    private static final double BLOOM_FPP = 0.01;
+
+    private static final int MIN_BLOOM_CAPACITY = 10_000;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final Funnel<ObjectId> FUNNEL = (id, into) -> into.putInt(id.h1())
+            .putLong(id.h2()).putLong(id.h3());
+
+    /**
+     * The number of ids that can be buffered in memory, shared by all the deduplicators created
+     * with it
+     */
+    public static final class Budget {
+
+        private final AtomicLong available;
+
+        /**
+         * @param maxMemory the approximate heap, in bytes, the buffers of all the deduplicators
+         *        sharing this budget may use
+         */
+        public Budget(final long maxMemory) {
+            checkArgument(maxMemory > 0, "maxMemory must be > 0: %s", maxMemory);
+            this.available = new AtomicLong(maxMemory / BUFFERED_ID_SIZE);
+        }
+
+        boolean tryAcquire(final int ids) {
+            long current;
+            do {
+                current = available.get();
+                if (current < ids) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - ids));
+            return true;
+        }
+
+        void release(final long ids) {
+            available.addAndGet(ids);
+        }
+
+        /**
+         * @return the number of ids that can still be buffered
+         */
+        public long available() {
+            return available.get();
+        }
+    }
+
+    private static final class Stripe {
+
+        /**
+         * Replaced by an empty set instead of cleared when spilled or reset, as the set doesn't
+         * shrink and would otherwise keep the room it grew to after giving its reservation back
+         */
+        ObjectIdSet buffer = new ObjectIdSet();
+
+        /**
+         * Number of ids reserved from the budget
+         */
+        int reserved;
+
+        @Nullable
+        List<BloomFilter<ObjectId>> spilled;
+
+        /**
+         * Ids put in the last bloom filter and its capacity
+         */
+        int lastBloomSize, lastBloomCapacity;
+    }
+
+    private final Budget budget;
+
+    private Stripe[] stripes;
+
+    private Path dbDir;
+
+    private Options dbOptions;
+
+    private RocksDB db;
+
+    private WriteOptions writeOptions;
+
+    private ReadOptions readOptions;
+
+    /**
+     * @param maxMemory the approximate heap, in bytes, this deduplicator may use before spilling
+     *        visited ids to disk
+     */
+    public SpillingDeduplicator(final long maxMemory) {
+        this(new Budget(maxMemory));
+    }
+
+    /**
+     * @param budget the budget to reserve memory for visited ids from, possibly shared with other
+     *        deduplicators
+     */
+    public SpillingDeduplicator(final Budget budget) {
+        checkArgument(budget != null, "budget is null");
+        this.budget = budget;
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private Stripe stripe(ObjectId id) {
+        checkState(stripes != null, "Deduplicator has been released");
+        return stripes[id.h1() >>> 28];
+    }
+
+    @Override
+    public boolean visit(ObjectId id) {
+        final Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            if (isSpilled(stripe, id)) {
+                return true;
+            }
+            final boolean added = stripe.buffer.add(id);
+            if (added && stripe.buffer.size() > stripe.reserved + UNRESERVED_IDS) {
+                if (budget.tryAcquire(RESERVATION_SIZE)) {
+                    stripe.reserved += RESERVATION_SIZE;
+                } else {
+                    spill(stripe);
+                }
+            }
+            return !added;
+        }
+    }
+
+    @Override
+    public boolean isDuplicate(ObjectId id) {
+        final Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            return stripe.buffer.contains(id) || isSpilled(stripe, id);
+        }
+    }
+
+    @Override
+    public void removeDuplicates(List<ObjectId> ids) {
+        ids.removeIf((id) -> isDuplicate(id));
+    }
+
+    private boolean isSpilled(Stripe stripe, ObjectId id) {
+        if (stripe.spilled == null || !mightContain(stripe.spilled, id)) {
+            return false;
+        }
+        try {
+            return db.get(readOptions, id.getRawValue()) != null;
+        } catch (RocksDBException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static boolean mightContain(List<BloomFilter<ObjectId>> filters, ObjectId id) {
+        for (int i = filters.size() - 1; i >= 0; i--) {
+            if (filters.get(i).mightContain(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void spill(Stripe stripe) {
+        final RocksDB db = db();
+        if (stripe.spilled == null) {
+            stripe.spilled = new ArrayList<>(2);
+        }
+        try (WriteBatch batch = new WriteBatch()) {
+            for (ObjectId id : stripe.buffer) {
+                batch.put(id.getRawValue(), EMPTY);
+                bloomFilter(stripe).put(id);
+                stripe.lastBloomSize++;
+            }
+            db.write(writeOptions, batch);
+        } catch (RocksDBException e) {
+            throw Throwables.propagate(e);
+        }
+        stripe.buffer = new ObjectIdSet();
+        budget.release(stripe.reserved);
+        stripe.reserved = 0;
+    }
+
+    /**
+     * @return the bloom filter to add spilled ids to, adding one twice as big as the last one if
+     *         it's full, so that the false positive rate holds however many ids are spilled
+     */
+    private BloomFilter<ObjectId> bloomFilter(Stripe stripe) {
+        final List<BloomFilter<ObjectId>> filters = stripe.spilled;
+        if (filters.isEmpty() || stripe.lastBloomSize >= stripe.lastBloomCapacity) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE / 2,
+                    Math.max(MIN_BLOOM_CAPACITY, 2L * stripe.lastBloomCapacity));
+            filters.add(BloomFilter.create(FUNNEL, capacity, BLOOM_FPP));
+            stripe.lastBloomCapacity = capacity;
+            stripe.lastBloomSize = 0;
+        }
+        return filters.get(filters.size() - 1);
+    }
+
+    private synchronized RocksDB db() {
+        if (db == null) {
+            RocksDB.loadLibrary();
+            try {
+                dbDir = Files.createTempDirectory("geogig-deduplicator");
+                LOG.debug("Spilling visited ids to temporary rocksdb {}", dbDir);
+                dbOptions = new Options();
+                dbOptions.setCreateIfMissing(true)//
+                        .setWriteBufferSize(16 * 1024 * 1024)//
+                        .setMaxWriteBufferNumber(4)//
+                        .setCompressionType(CompressionType.NO_COMPRESSION);
+                db = RocksDB.open(dbOptions, dbDir.toAbsolutePath().toString());
+            } catch (IOException | RocksDBException e) {
+                closeDb();
+                throw Throwables.propagate(e);
+            }
+            writeOptions = new WriteOptions();
+            writeOptions.setDisableWAL(true);
+            writeOptions.setSync(false);
+            readOptions = new ReadOptions();
+            readOptions.setFillCache(true).setVerifyChecksums(false);
+        }
+        return db;
+    }
+
+    private synchronized void closeDb() {
+        for (AutoCloseable nativeObject : new AutoCloseable[] { readOptions, writeOptions, db,
+                dbOptions }) {
+            if (nativeObject != null) {
+                try {
+                    nativeObject.close();
+                } catch (Exception e) {
+                    LOG.warn("Error closing temporary rocksdb", e);
+                }
+            }
+        }
+        readOptions = null;
+        writeOptions = null;
+        db = null;
+        dbOptions = null;
+        if (dbDir != null) {
+            delete(dbDir.toFile());
+            dbDir = null;
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File f : children) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * @return whether any visited id has been spilled to disk
+     */
+    boolean hasSpilled() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                if (stripe.spilled != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the in-memory buffer of the ids that fall in the same stripe than {@code id}
+     */
+    ObjectIdSet buffer(ObjectId id) {
+        final Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            return stripe.buffer;
+        }
+    }
+
+    @Override
+    public void reset() {
+        checkState(stripes != null, "Deduplicator has been released");
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.buffer = new ObjectIdSet();
+                stripe.spilled = null;
+                stripe.lastBloomSize = 0;
+                stripe.lastBloomCapacity = 0;
+                budget.release(stripe.reserved);
+                stripe.reserved = 0;
+            }
+        }
+        closeDb();
+    }
+
+    @Override
+    public void release() {
+        if (stripes != null) {
+            reset();
+            stripes = null;
+        }
+    }
+}
@@ -10,34 +10,61 @@
 package org.locationtech.geogig.storage.memory;
 
 import java.util.List;
-import java.util.Set;
 
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.ObjectIdSet;
 import org.locationtech.geogig.repository.impl.Deduplicator;
 
-import com.google.common.collect.Sets;
-
+/**
+ * A {@link Deduplicator} that keeps the visited ids in memory, in a number of {@link ObjectIdSet}s
+ * selected by the first bits of each id, so that concurrent visits of different ids seldom compete
+ * for the same lock.
+ */
 public class HeapDeduplicator implements Deduplicator {
-    private Set<ObjectId> seen = Sets.newConcurrentHashSet();
+
+    private static final int STRIPES = 16;
+
+    private ObjectIdSet[] seen;
+
+    public HeapDeduplicator() {
+        seen = new ObjectIdSet[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            seen[i] = new ObjectIdSet();
+        }
+    }
+
+    private ObjectIdSet stripe(ObjectId id) {
+        return seen[id.h1() >>> 28];
+    }
 
     @Override
     public boolean visit(ObjectId id) {
-        return !seen.add(id);
+        final ObjectIdSet stripe = stripe(id);
+        synchronized (stripe) {
+            return !stripe.add(id);
+        }
     }
 
     @Override
     public boolean isDuplicate(ObjectId id) {
-        return seen.contains(id);
+        final ObjectIdSet stripe = stripe(id);
+        synchronized (stripe) {
+            return stripe.contains(id);
+        }
     }
 
     @Override
     public void removeDuplicates(List<ObjectId> ids) {
-        ids.removeAll(seen);
+        ids.removeIf((id) -> isDuplicate(id));
     }
 
     @Override
     public void reset() {
-        seen.clear();
+        for (ObjectIdSet stripe : seen) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
     }
 
     @Override
@@ -22,6 +22,7 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.plumbing.ResolveGeogigURI;
 import org.locationtech.geogig.repository.Platform;
 import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.impl.GenerationNumbers;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
@@ -46,6 +47,33 @@ public class HeapGraphDatabase implements GraphDatabase {
 
     Graph graph;
 
+    private final GenerationNumbers generations = new GenerationNumbers() {
+
+        @Override
+        protected List<ObjectId> parents(ObjectId id) {
+            return getParents(id);
+        }
+
+        @Override
+        protected List<ObjectId> children(ObjectId id) {
+            return getChildren(id);
+        }
+
+        @Override
+        protected int[] get(ObjectId id) {
+            Optional<Node> node = graph.get(id);
+            return node.isPresent() ? new int[] { node.get().depth, node.get().generation }
+                    : null;
+        }
+
+        @Override
+        protected void set(ObjectId id, int depth, int generation) {
+            Node node = graph.get(id).get();
+            node.depth = depth;
+            node.generation = generation;
+        }
+    };
+
     @Inject
     public HeapGraphDatabase(Platform platform) {
         this.platform = platform;
@@ -138,6 +166,12 @@ public class HeapGraphDatabase implements GraphDatabase {
 
     @Override
     public boolean put(ObjectId commitId, ImmutableList<ObjectId> parentIds) {
+        boolean updated = attach(commitId, parentIds);
+        generations.update(commitId);
+        return updated;
+    }
+
+    private boolean attach(ObjectId commitId, ImmutableList<ObjectId> parentIds) {
         Node n = graph.getOrAdd(commitId);
 
         if (parentIds.isEmpty()) {
@@ -176,21 +210,9 @@ public class HeapGraphDatabase implements GraphDatabase {
     @Override
     public int getDepth(ObjectId commitId) {
         Preconditions.checkNotNull(commitId);
-        Optional<Node> nodeOpt = graph.get(commitId);
-        Preconditions.checkArgument(nodeOpt.isPresent(), "No graph entry for commit %s on %s",
-                commitId, this.toString());
-        Node node = nodeOpt.get();
-        PathToRootWalker walker = new PathToRootWalker(node);
-        int depth = 0;
-        O: while (walker.hasNext()) {
-            for (Node n : walker.next()) {
-                if (Iterables.size(n.to()) == 0) {
-                    break O;
-                }
-            }
-            depth++;
-        }
-        return depth;
+        Preconditions.checkArgument(graph.get(commitId).isPresent(),
+                "No graph entry for commit %s on %s", commitId, this.toString());
+        return generations.depth(commitId);
     }
 
     @Override
@@ -269,6 +291,12 @@ public class HeapGraphDatabase implements GraphDatabase {
             return node.props != null && node.props.containsKey(SPARSE_FLAG)
                     && Boolean.valueOf(node.props.get(SPARSE_FLAG));
         }
+
+        @Override
+        public Optional<Integer> getGeneration() {
+            return node.generation == GenerationNumbers.UNKNOWN ? Optional.absent()
+                    : Optional.of(Integer.valueOf(node.generation));
+        }
     }
 
     @Override
@@ -14,6 +14,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Iterators.getNext;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Iterator;
@@ -29,6 +30,7 @@ import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ObjectInfo;
 import org.locationtech.geogig.storage.datastream.SerializationFactoryProxy;
 import org.locationtech.geogig.storage.impl.AbstractObjectStore;
+import org.locationtech.geogig.storage.impl.ObjectSerializingFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
@@ -50,6 +52,13 @@ public class HeapObjectStore extends AbstractObjectStore {
         super(new SerializationFactoryProxy());
     }
 
+    /**
+     * @param serializer the encoder for the objects kept in memory
+     */
+    public HeapObjectStore(ObjectSerializingFactory serializer) {
+        super(serializer);
+    }
+
     /**
      * Closes the database.
      * 
@@ -154,6 +163,20 @@ public class HeapObjectStore extends AbstractObjectStore {
         return previousValue == null;
     }
 
+    @Override
+    public void overwriteAll(Iterator<? extends RevObject> objects) {
+        checkNotNull(objects, "objects is null");
+        checkState(isOpen(), "db is closed");
+
+        ByteArrayOutputStream rawOut = new ByteArrayOutputStream();
+        while (objects.hasNext()) {
+            RevObject object = objects.next();
+            rawOut.reset();
+            writeObject(object, rawOut);
+            this.objects.put(object.getId(), rawOut.toByteArray());
+        }
+    }
+
     @Override
     public void deleteAll(Iterator<ObjectId> ids, final BulkOpListener listener) {
         checkNotNull(ids, "ids is null");
@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.storage.impl.GenerationNumbers;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.Iterables;
@@ -38,6 +39,10 @@ class Node {
 
     boolean root = false;
 
+    int depth = GenerationNumbers.UNKNOWN;
+
+    int generation = GenerationNumbers.UNKNOWN;
+
     Map<String, String> props;
 
     /**
@@ -0,0 +1,188 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.Test;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.repository.IndexInfo;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.vividsolutions.jts.geom.Envelope;
+
+public class AttributeTreeBuilderTest extends RevTreeBuilderTest {
+
+    private static final String ATTRIBUTE = "value";
+
+    private static final ObjectId FAKE_ID = RevObjectTestSupport.hashString("fake");
+
+    @Override
+    protected RevTreeBuilder createBuiler() {
+        return createBuiler(RevTree.EMPTY);
+    }
+
+    @Override
+    protected RevTreeBuilder createBuiler(RevTree original) {
+        return AttributeTreeBuilder.create(objectStore, objectStore, original, ATTRIBUTE);
+    }
+
+    @Override
+    protected Node createNode(int i) {
+        Integer value = i % 10 == 0 ? null : Integer.valueOf(i % 997);
+        return createNode("Feature." + i, value, new Envelope(i, i + 1, i, i + 1));
+    }
+
+    private Node createNode(String name, @Nullable Object value, @Nullable Envelope bounds) {
+        Map<String, Object> atts = new HashMap<>();
+        atts.put(ATTRIBUTE, value);
+        return Node.create(name, FAKE_ID, FAKE_ID, TYPE.FEATURE, bounds,
+                ImmutableMap.of(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, atts));
+    }
+
+    @Test
+    public void testNumberKeysOrder() {
+        List<Double> values = Lists.newArrayList(Double.NEGATIVE_INFINITY, -Double.MAX_VALUE,
+                -1e10, -1.5, -1d, -Double.MIN_VALUE, 0d, Double.MIN_VALUE, 0.5, 1d, 2d, 1e10,
+                Double.MAX_VALUE, Double.POSITIVE_INFINITY);
+        for (int i = 1; i < values.size(); i++) {
+            String k1 = AttributeTreeBuilder.key(values.get(i - 1));
+            String k2 = AttributeTreeBuilder.key(values.get(i));
+            assertTrue(values.get(i - 1) + " < " + values.get(i), k1.compareTo(k2) < 0);
+        }
+        assertEquals(AttributeTreeBuilder.key(0d), AttributeTreeBuilder.key(-0d));
+        assertEquals(AttributeTreeBuilder.key(1), AttributeTreeBuilder.key(1d));
+        assertEquals(AttributeTreeBuilder.key(1L), AttributeTreeBuilder.key(1f));
+        assertEquals(AttributeTreeBuilder.key(1000L), AttributeTreeBuilder.key(new Date(1000)));
+        assertTrue(AttributeTreeBuilder.key(Boolean.FALSE)
+                .compareTo(AttributeTreeBuilder.key(Boolean.TRUE)) < 0);
+    }
+
+    @Test
+    public void testStringKeysOrder() {
+        List<String> values = Lists.newArrayList("", "A", "AB", "ABC", "B", "a", "ab", "b",
+                "á", "￿");
+        for (int i = 1; i < values.size(); i++) {
+            String k1 = AttributeTreeBuilder.key(values.get(i - 1));
+            String k2 = AttributeTreeBuilder.key(values.get(i));
+            assertTrue(values.get(i - 1) + " < " + values.get(i), k1.compareTo(k2) < 0);
+        }
+        // only a prefix of long values is used
+        assertEquals(AttributeTreeBuilder.key("StringProperty1"),
+                AttributeTreeBuilder.key("StringProperty2"));
+    }
+
+    @Test
+    public void testNullAndTypeKeysOrder() {
+        String nullKey = AttributeTreeBuilder.key(null);
+        String numberKey = AttributeTreeBuilder.key(Double.NEGATIVE_INFINITY);
+        String stringKey = AttributeTreeBuilder.key("");
+        assertTrue(nullKey.compareTo(numberKey) < 0);
+        assertTrue(numberKey.compareTo(stringKey) < 0);
+    }
+
+    @Test
+    public void testBucketMayContain() {
+        final String key = "1a3";
+        // prefix of the key
+        assertTrue(AttributeTreeBuilder.bucketMayContain(new int[] { 1, 10 }, key, key));
+        // key exhausted
+        assertTrue(AttributeTreeBuilder.bucketMayContain(new int[] { 1, 10, 3, 16, 5 }, key,
+                key));
+        assertTrue(!AttributeTreeBuilder.bucketMayContain(new int[] { 1, 10, 16 }, key, key));
+        // keys longer than the key
+        assertTrue(!AttributeTreeBuilder.bucketMayContain(new int[] { 1, 10, 3, 0 }, key, key));
+        assertTrue(AttributeTreeBuilder.bucketMayContain(new int[] { 1, 10, 3, 0 }, key, null));
+        // unbounded
+        assertTrue(AttributeTreeBuilder.bucketMayContain(new int[] { 15, 15 }, null, null));
+        assertTrue(AttributeTreeBuilder.bucketMayContain(new int[] { 0 }, null, key));
+        assertTrue(!AttributeTreeBuilder.bucketMayContain(new int[] { 2 }, null, key));
+        assertTrue(!AttributeTreeBuilder.bucketMayContain(new int[] { 0 }, key, null));
+    }
+
+    @Test
+    public void testRangeQuery() {
+        final int numNodes = 20_000;
+        final Random random = new Random(1);
+        final RevTreeBuilder builder = createBuiler();
+        final List<Node> nodes = new ArrayList<>(numNodes);
+        for (int i = 0; i < numNodes; i++) {
+            Double value = random.nextInt(50) == 0 ? null : random.nextGaussian() * 1000;
+            Node node = createNode("Feature." + i, value, null);
+            nodes.add(node);
+            builder.put(node);
+        }
+        final RevTree tree = builder.build();
+        assertEquals(numNodes, tree.size());
+
+        for (double[] range : Arrays.asList(new double[] { -1, 1 }, new double[] { 100, 200 },
+                new double[] { 2000, 10_000 }, new double[] { -5, -5 })) {
+            final String minKey = AttributeTreeBuilder.key(range[0]);
+            final String maxKey = AttributeTreeBuilder.key(range[1]);
+            Set<String> expected = new HashSet<>();
+            for (Node n : nodes) {
+                Double v = (Double) IndexInfo.getMaterializedAttribute(ATTRIBUTE, n);
+                if (v != null && v.doubleValue() >= range[0] && v.doubleValue() <= range[1]) {
+                    expected.add(n.getName());
+                }
+            }
+
+            final Set<String> found = new HashSet<>();
+            final AtomicInteger visited = new AtomicInteger();
+            PreOrderDiffWalk.Consumer consumer = new PreOrderDiffWalk.AbstractConsumer() {
+                @Override
+                public boolean feature(@Nullable NodeRef left, NodeRef right) {
+                    visited.incrementAndGet();
+                    String key = AttributeTreeBuilder.key(ATTRIBUTE, right.getNode());
+                    if (key.compareTo(minKey) >= 0 && key.compareTo(maxKey) <= 0) {
+                        synchronized (found) {
+                            found.add(right.name());
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean bucket(NodeRef leftParent, NodeRef rightParent,
+                        BucketIndex bucketIndex, @Nullable Bucket left, @Nullable Bucket right) {
+                    return true;
+                }
+            };
+            consumer = new PreOrderDiffWalk.BucketIndexFilteringConsumer(consumer,
+                    (b) -> AttributeTreeBuilder.bucketMayContain(b.getIndexPath(), minKey,
+                            maxKey));
+            new PreOrderDiffWalk(RevTree.EMPTY, tree, objectStore, objectStore).walk(consumer);
+
+            assertEquals(expected, found);
+            assertTrue("visited " + visited + " nodes", visited.get() < numNodes / 2);
+        }
+    }
+}
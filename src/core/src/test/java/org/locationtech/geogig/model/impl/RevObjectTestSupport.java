@@ -17,11 +17,14 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.Bucket;
 import org.locationtech.geogig.model.CanonicalNodeOrder;
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevObjects;
 import org.locationtech.geogig.model.RevTree;
@@ -114,6 +117,83 @@ public class RevObjectTestSupport {
         return tree;
     }
 
+    /**
+     * Creates and saves a tree of {@code size} features named {@code <name>.<index>}, whose
+     * contents are the tree name, the index, and a version number, {@code version} for the first
+     * {@code changed} features and {@code 0} for the rest. Meant to create histories where the
+     * same feature tree changes from commit to commit, along with {@link #createTypesTree} and
+     * {@link #createCommit}.
+     */
+    public static RevTree createVersionedFeaturesTree(ObjectStore source, final String name,
+            final int size, final int changed, final int version) {
+        return createVersionedFeaturesTree(source, name, size, changed, version, size);
+    }
+
+    /**
+     * Same as {@link #createVersionedFeaturesTree(ObjectStore, String, int, int, int)}, but the
+     * index of the feature contents wraps around at {@code distinct}, so that features share their
+     * contents, and hence their ids, with earlier ones at the same version
+     */
+    public static RevTree createVersionedFeaturesTree(ObjectStore source, final String name,
+            final int size, final int changed, final int version, final int distinct) {
+
+        RevTreeBuilder builder = CanonicalTreeBuilder.create(source);
+        for (int i = 0; i < size; i++) {
+            RevFeature feature = feature(name, i % distinct, i < changed ? version : 0);
+            source.put(feature);
+            builder.put(Node.create(name + "." + i, feature.getId(), ObjectId.NULL, TYPE.FEATURE,
+                    null));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates and saves a tree with {@code points} and {@code lines} tree nodes pointing to the
+     * given feature trees
+     */
+    public static RevTree createTypesTree(ObjectStore source, RevTree points, RevTree lines) {
+        return createTypesTree(source, points, lines, null);
+    }
+
+    /**
+     * Creates and saves a tree with {@code points}, {@code lines}, and {@code polygons} tree nodes
+     * pointing to the given feature trees, skipping the {@code null} ones
+     */
+    public static RevTree createTypesTree(ObjectStore source, @Nullable RevTree points,
+            @Nullable RevTree lines, @Nullable RevTree polygons) {
+
+        final String[] names = { "points", "lines", "polygons" };
+        final RevTree[] trees = { points, lines, polygons };
+        RevTreeBuilder builder = CanonicalTreeBuilder.create(source);
+        for (int i = 0; i < names.length; i++) {
+            if (trees[i] != null) {
+                builder.put(Node.tree(names[i], trees[i].getId(), ObjectId.NULL));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates and saves a commit of {@code tree} with the given parents, and a fixed author,
+     * message, and timestamps
+     */
+    public static RevCommit createCommit(ObjectStore source, RevTree tree,
+            List<ObjectId> parents) {
+        RevCommit commit = new CommitBuilder().setTreeId(tree.getId()).setParentIds(parents)
+                .setAuthor("groldan").setMessage("commit").setAuthorTimestamp(1000L)
+                .setCommitterTimestamp(1000L).build();
+        source.put(commit);
+        return commit;
+    }
+
+    public static List<ObjectId> ids(RevObject... objects) {
+        List<ObjectId> ids = new ArrayList<>(objects.length);
+        for (RevObject o : objects) {
+            ids.add(o.getId());
+        }
+        return ids;
+    }
+
     public static List<Node> featureNodes(int fromIndexInclussive, int toIndexExclussive,
             boolean randomIds) {
 
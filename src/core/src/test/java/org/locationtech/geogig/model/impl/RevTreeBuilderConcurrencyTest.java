@@ -0,0 +1,257 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Verifies that feeding a {@link RevTreeBuilder} from several threads at once builds exactly the
+ * same tree as feeding it the same changes from a single thread.
+ */
+public class RevTreeBuilderConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private static final Envelope MAX_BOUNDS = new Envelope(-180, 180, -90, 90);
+
+    private ObjectStore store;
+
+    private ExecutorService executor;
+
+    private Random random;
+
+    @Before
+    public void before() {
+        store = new HeapObjectStore();
+        store.open();
+        executor = Executors.newFixedThreadPool(THREADS);
+        random = new Random(1);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+        store.close();
+    }
+
+    private Function<RevTree, RevTreeBuilder> canonical() {
+        return (original) -> CanonicalTreeBuilder.create(store, original);
+    }
+
+    private Function<RevTree, RevTreeBuilder> quadTree() {
+        return (original) -> QuadTreeBuilder.create(store, store, original, MAX_BOUNDS);
+    }
+
+    private Function<RevTree, RevTreeBuilder> attribute() {
+        return (original) -> AttributeTreeBuilder.create(store, store, original, "value");
+    }
+
+    @Test
+    public void testCanonicalSingleLeaf() {
+        assertSameTree(canonical(), RevTree.EMPTY, nodes(0, 500, 0), Collections.emptyList());
+    }
+
+    @Test
+    public void testCanonicalBucketSplits() {
+        // more than CachingDAGStorageProvider's threshold to move nodes to disk, and enough for
+        // buckets to be promoted at several depths
+        assertSameTree(canonical(), RevTree.EMPTY, nodes(0, 150_000, 0),
+                Collections.emptyList());
+    }
+
+    @Test
+    public void testCanonicalUpdate() {
+        RevTree original = build(canonical(), RevTree.EMPTY, nodes(0, 20_000, 0),
+                Collections.emptyList(), 1);
+        List<Node> puts = new ArrayList<>();
+        // updated nodes
+        puts.addAll(nodes(0, 5_000, 1));
+        // new nodes
+        puts.addAll(nodes(20_000, 30_000, 0));
+        List<Node> removes = nodes(15_000, 20_000, 0);
+        assertSameTree(canonical(), original, puts, removes);
+    }
+
+    @Test
+    public void testCanonicalShrinkToLeaf() {
+        RevTree original = build(canonical(), RevTree.EMPTY, nodes(0, 10_000, 0),
+                Collections.emptyList(), 1);
+        RevTree tree = assertSameTree(canonical(), original, Collections.emptyList(),
+                nodes(100, 10_000, 0));
+        assertEquals(100, tree.size());
+        assertEquals(0, tree.buckets().size());
+    }
+
+    @Test
+    public void testQuadTree() {
+        assertSameTree(quadTree(), RevTree.EMPTY, spatialNodes(0, 50_000, 0),
+                Collections.emptyList());
+    }
+
+    @Test
+    public void testQuadTreeUpdate() {
+        RevTree original = build(quadTree(), RevTree.EMPTY, spatialNodes(0, 20_000, 0),
+                Collections.emptyList(), 1);
+        List<Node> puts = new ArrayList<>();
+        puts.addAll(spatialNodes(0, 5_000, 1));
+        puts.addAll(spatialNodes(20_000, 30_000, 0));
+        List<Node> removes = spatialNodes(15_000, 20_000, 0);
+        assertSameTree(quadTree(), original, puts, removes);
+    }
+
+    @Test
+    public void testAttributeTree() {
+        RevTree original = build(attribute(), RevTree.EMPTY, attributeNodes(0, 20_000, 0),
+                Collections.emptyList(), 1);
+        List<Node> puts = new ArrayList<>();
+        puts.addAll(attributeNodes(0, 5_000, 1));
+        puts.addAll(attributeNodes(20_000, 40_000, 0));
+        List<Node> removes = attributeNodes(15_000, 20_000, 0);
+        assertSameTree(attribute(), original, puts, removes);
+    }
+
+    private RevTree assertSameTree(Function<RevTree, RevTreeBuilder> builderFactory,
+            RevTree original, List<Node> puts, List<Node> removes) {
+
+        RevTree expected = build(builderFactory, original, puts, removes, 1);
+        for (int i = 0; i < 3; i++) {
+            RevTree actual = build(builderFactory, original, puts, removes, THREADS);
+            assertEquals(expected.size(), actual.size());
+            assertEquals(expected.numTrees(), actual.numTrees());
+            assertEquals(expected.getId(), actual.getId());
+        }
+        return expected;
+    }
+
+    private RevTree build(Function<RevTree, RevTreeBuilder> builderFactory, RevTree original,
+            List<Node> puts, List<Node> removes, final int nThreads) {
+
+        final RevTreeBuilder builder = builderFactory.apply(original);
+        List<Node> shuffledPuts = new ArrayList<>(puts);
+        Collections.shuffle(shuffledPuts, random);
+        if (nThreads == 1) {
+            shuffledPuts.forEach((n) -> builder.put(n));
+            removes.forEach((n) -> builder.remove(n));
+        } else {
+            List<Future<?>> tasks = new ArrayList<>(nThreads);
+            for (int t = 0; t < nThreads; t++) {
+                final int offset = t;
+                tasks.add(executor.submit(() -> {
+                    for (int i = offset; i < shuffledPuts.size(); i += nThreads) {
+                        builder.put(shuffledPuts.get(i));
+                    }
+                    for (int i = offset; i < removes.size(); i += nThreads) {
+                        builder.remove(removes.get(i));
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    throw Throwables.propagate(e);
+                }
+            }
+        }
+        RevTree tree = builder.build();
+        assertEquals(tree, store.getTree(tree.getId()));
+        return tree;
+    }
+
+    /**
+     * @param version changes the object id of the nodes, so that they can be used as updates
+     */
+    private List<Node> nodes(int from, int to, int version) {
+        List<Node> nodes = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            nodes.add(node(i, version, null, null));
+        }
+        return nodes;
+    }
+
+    /**
+     * Creates nodes with small bounds spread over the world, a fifth of them clustered in a tiny
+     * area to force deep quadrant promotions, and some spanning several quadrants so that they
+     * can't be promoted past the root.
+     * <p>
+     * The bounds don't depend on {@code version}, since a plain {@code put} can't move a node to
+     * another quadrant, that's what {@link RevTreeBuilder#update} is for.
+     */
+    private List<Node> spatialNodes(int from, int to, int version) {
+        Random random = new Random(from);
+        List<Node> nodes = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            Envelope bounds;
+            if (i % 5 == 0) {
+                double x = 10 + random.nextDouble() / 1000;
+                double y = 10 + random.nextDouble() / 1000;
+                bounds = new Envelope(x, x, y, y);
+            } else if (i % 97 == 0) {
+                bounds = new Envelope(-10, 10, -10, 10);
+            } else {
+                double x = -180 + random.nextDouble() * 359;
+                double y = -90 + random.nextDouble() * 179;
+                bounds = new Envelope(x, x + random.nextDouble(), y, y + random.nextDouble());
+            }
+            nodes.add(node(i, version, bounds, null));
+        }
+        return nodes;
+    }
+
+    /**
+     * Creates nodes with a materialized "value" attribute with plenty of repeated and null values,
+     * which don't depend on {@code version} for the same reason as in {@link #spatialNodes}
+     */
+    private List<Node> attributeNodes(int from, int to, int version) {
+        List<Node> nodes = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            Map<String, Object> atts = new HashMap<>();
+            atts.put("value", i % 10 == 0 ? null : Integer.valueOf(i % 1000));
+            Map<String, Object> extraData = ImmutableMap
+                    .of(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, atts);
+            nodes.add(node(i, version, null, extraData));
+        }
+        return nodes;
+    }
+
+    private Node node(int i, int version, @Nullable Envelope bounds,
+            @Nullable Map<String, Object> extraData) {
+        return Node.create("Feature." + i,
+                RevObjectTestSupport.hashString("Feature." + i + "/" + version),
+                RevObjectTestSupport.hashString("metadata"), TYPE.FEATURE, bounds, extraData);
+    }
+}
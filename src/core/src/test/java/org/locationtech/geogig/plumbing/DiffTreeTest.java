@@ -12,7 +12,9 @@ package org.locationtech.geogig.plumbing;
 import static com.google.common.collect.Lists.newArrayList;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.geotools.data.DataUtilities;
 import org.geotools.geometry.jts.ReferencedEnvelope;
@@ -50,7 +52,9 @@ import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Sets;
 import com.google.inject.Guice;
 import com.google.inject.util.Modules;
 import com.vividsolutions.jts.geom.Envelope;
@@ -109,6 +113,21 @@ public class DiffTreeTest extends Assert {
         diffTree.setOldVersion(Ref.HEAD).call();
     }
 
+    @Test
+    public void testNoNewVersionSetOldTreeId() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("new version");
+        diffTree.setOldTree(ObjectId.NULL).call();
+    }
+
+    @Test
+    public void testForEachNoNewVersionSet() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("new version");
+        diffTree.setOldTree(ObjectId.NULL).forEach((e) -> {
+        });
+    }
+
     @Test
     public void testInvalidOldVersion() {
         exception.expect(IllegalArgumentException.class);
@@ -292,6 +311,50 @@ public class DiffTreeTest extends Assert {
         assertChangeTypeFilter(rootId2, rootId1, 2, 0, 0);
     }
 
+    @Test
+    public void testSmallBuffer() {
+        ObjectDatabase db = geogig.getContext().objectDatabase();
+        RevTree tree1 = tree(1000, db);
+        RevTree tree2 = tree(50, db);
+        RevTree root = createRoot(db, tree1, tree2);
+
+        diffTree.setOldTree(ObjectId.NULL).setNewTree(root.getId()).setBufferSize(1);
+        assertEquals(tree1.size() + tree2.size(), Iterators.size(diffTree.call()));
+
+        diffTree.setBufferSize(100);
+        assertEquals(tree1.size() + tree2.size(), Iterators.size(diffTree.call()));
+    }
+
+    @Test
+    public void testInvalidBufferSize() {
+        exception.expect(IllegalArgumentException.class);
+        diffTree.setBufferSize(0);
+    }
+
+    @Test
+    public void testForEach() {
+        ObjectDatabase db = geogig.getContext().objectDatabase();
+        RevTree tree1 = tree(1000, db);
+        RevTree tree2 = tree(50, db);
+        RevTree root = createRoot(db, tree1, tree2);
+
+        diffTree.setOldTree(ObjectId.NULL).setNewTree(root.getId());
+        Set<DiffEntry> expected = ImmutableSet.copyOf(diffTree.call());
+        assertEquals(tree1.size() + tree2.size(), expected.size());
+
+        Set<DiffEntry> actual = Sets.newConcurrentHashSet();
+        diffTree.forEach((e) -> actual.add(e));
+        assertEquals(expected, actual);
+
+        List<DiffEntry> ordered = new ArrayList<>();
+        diffTree.setPreserveIterationOrder(true).forEach((e) -> ordered.add(e));
+        assertEquals(ImmutableList.copyOf(diffTree.call()), ordered);
+
+        actual.clear();
+        diffTree.setPathFilter("tree2").forEach((e) -> actual.add(e));
+        assertEquals(tree2.size(), actual.size());
+    }
+
     private void assertChangeTypeFilter(final ObjectId leftTree, final ObjectId rightTree,
             final int expectedAdds, final int expectedRemoves, final int expectedChanges) {
 
@@ -0,0 +1,227 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createCommit;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createTypesTree;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createVersionedFeaturesTree;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.ids;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTag;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.model.impl.RevPersonBuilder;
+import org.locationtech.geogig.model.impl.RevTagBuilder;
+import org.locationtech.geogig.repository.AbstractGeoGigOp;
+import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.impl.PostOrderIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.RawObject;
+import org.locationtech.geogig.storage.datastream.SerializationFactoryProxy;
+import org.locationtech.geogig.storage.memory.HeapDeduplicator;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+import org.locationtech.geogig.storage.memory.HeapRefDatabase;
+import org.mockito.AdditionalAnswers;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+public class RewriteTreesOpTest {
+
+    /**
+     * Where the history is built, in the default format
+     */
+    private ObjectStore source;
+
+    /**
+     * The repository's store, configured to write the 2.3 format but holding a verbatim copy of
+     * the {@link #source} objects
+     */
+    private HeapObjectStore target;
+
+    private HeapRefDatabase refs;
+
+    private Context context;
+
+    private RevCommit c1, c2, c3, c4;
+
+    private RevTree orphan;
+
+    @Before
+    public void before() {
+        source = new HeapObjectStore();
+        source.open();
+
+        RevTree points1 = createVersionedFeaturesTree(source, "points", 1_000, 0, 0);
+        RevTree lines1 = createVersionedFeaturesTree(source, "lines", 100, 0, 0);
+        c1 = createCommit(source, createTypesTree(source, points1, lines1), ids());
+
+        RevTree points2 = createVersionedFeaturesTree(source, "points", 1_000, 100, 1);
+        c2 = createCommit(source, createTypesTree(source, points2, lines1), ids(c1));
+
+        RevTree lines3 = createVersionedFeaturesTree(source, "lines", 1_000, 0, 0);
+        c3 = createCommit(source, createTypesTree(source, points1, lines3), ids(c1));
+
+        c4 = createCommit(source, createTypesTree(source, points2, lines3), ids(c2, c3));
+        RevTag tag = RevTagBuilder.build(RevObjectTestSupport.hashString("tag"), "v1",
+                c4.getId(), "version 1",
+                RevPersonBuilder.build("groldan", "groldan@test.com", 1000L, 0));
+        source.put(tag);
+
+        orphan = createVersionedFeaturesTree(source, "orphan", 10, 0, 0);
+
+        assertFalse(points1.buckets().isEmpty());
+        assertTrue(lines1.buckets().isEmpty());
+        assertFalse(lines3.buckets().isEmpty());
+
+        target = new HeapObjectStore(new SerializationFactoryProxy("2.3"));
+        target.open();
+        List<ObjectId> all = new ArrayList<>(reachable().keySet());
+        all.add(tag.getId());
+        all.add(orphan.getId());
+        target.putAllRaw(source.getAllRaw(all, BulkOpListener.NOOP_LISTENER),
+                BulkOpListener.NOOP_LISTENER);
+
+        refs = new HeapRefDatabase();
+        refs.create();
+        refs.putRef("refs/heads/master", c2.getId().toString());
+        refs.putRef("refs/heads/branch1", c3.getId().toString());
+        refs.putRef("refs/tags/v1", tag.getId().toString());
+
+        context = context(mock(ObjectDatabase.class, AdditionalAnswers.delegatesTo(target)));
+    }
+
+    @After
+    public void after() {
+        source.close();
+        target.close();
+        refs.close();
+    }
+
+    @Test
+    public void testRewriteTrees() {
+        final Map<ObjectId, RevObject> reachable = reachable();
+        final Map<ObjectId, byte[]> before = raw(reachable.keySet());
+        final int format = SerializationFactoryProxy.WRITABLE_FORMATS.get("2.3").intValue();
+
+        Long count = rewrite();
+
+        int trees = 0;
+        final Map<ObjectId, byte[]> after = raw(reachable.keySet());
+        for (RevObject original : reachable.values()) {
+            final ObjectId id = original.getId();
+            if (original instanceof RevTree) {
+                trees++;
+                assertEquals(format, after.get(id)[0] & 0xFF);
+                assertTree((RevTree) original, target.getTree(id));
+            } else {
+                assertArrayEquals(before.get(id), after.get(id));
+            }
+        }
+        assertEquals(trees, count.intValue());
+
+        // trees that aren't reachable from any ref are left alone
+        byte[] orphanBytes = raw(ImmutableList.of(orphan.getId())).get(orphan.getId());
+        assertFalse(format == (orphanBytes[0] & 0xFF));
+        assertTree(orphan, target.getTree(orphan.getId()));
+    }
+
+    @Test
+    public void testRewriteTreesTwice() {
+        rewrite();
+        final Map<ObjectId, byte[]> before = raw(reachable().keySet());
+
+        // as if the first run had been interrupted, running it again just rewrites the same bytes
+        Long count = rewrite();
+        final Map<ObjectId, byte[]> after = raw(reachable().keySet());
+
+        assertTrue(count.longValue() > 0);
+        assertEquals(before.keySet(), after.keySet());
+        for (ObjectId id : before.keySet()) {
+            assertArrayEquals(before.get(id), after.get(id));
+        }
+    }
+
+    private Long rewrite() {
+        RewriteTreesOp op = new RewriteTreesOp();
+        op.setContext(context);
+        return op.call();
+    }
+
+    private void assertTree(RevTree expected, RevTree actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.numTrees(), actual.numTrees());
+        assertEquals(expected.trees(), actual.trees());
+        assertEquals(expected.features(), actual.features());
+        assertEquals(expected.buckets(), actual.buckets());
+    }
+
+    /**
+     * @return the objects reachable from the history of {@link #c4}, which covers all the refs,
+     *         as built in the {@link #source} store
+     */
+    private Map<ObjectId, RevObject> reachable() {
+        Map<ObjectId, RevObject> reachable = new HashMap<>();
+        Iterator<RevObject> all = PostOrderIterator.all(c4.getId(), source,
+                new HeapDeduplicator());
+        all.forEachRemaining((o) -> reachable.put(o.getId(), o));
+        return reachable;
+    }
+
+    private Map<ObjectId, byte[]> raw(Iterable<ObjectId> ids) {
+        Map<ObjectId, byte[]> raw = new HashMap<>();
+        Iterator<RawObject> objects = target.getAllRaw(ids, BulkOpListener.NOOP_LISTENER);
+        objects.forEachRemaining((o) -> raw.put(o.id(), o.bytes()));
+        return raw;
+    }
+
+    private Context context(ObjectDatabase db) {
+        ConfigDatabase config = mock(ConfigDatabase.class);
+        when(config.get(anyString(), eq(Long.class))).thenReturn(Optional.absent());
+        when(config.getGlobal(anyString(), eq(Long.class))).thenReturn(Optional.absent());
+
+        Context context = mock(Context.class);
+        when(context.objectDatabase()).thenReturn(db);
+        when(context.refDatabase()).thenReturn(refs);
+        when(context.configDatabase()).thenReturn(config);
+        when(context.command(any(Class.class))).thenAnswer((invocation) -> {
+            Class<?> type = (Class<?>) invocation.getArguments()[0];
+            AbstractGeoGigOp<?> command = (AbstractGeoGigOp<?>) type.newInstance();
+            command.setContext(context);
+            return command;
+        });
+        return context;
+    }
+}
@@ -173,6 +173,52 @@ public class BuildFullHistoryIndexOpTest extends RepositoryTestCase {
                 "xystr");
     }
 
+    @Test
+    public void testResumeInterruptedBuild() {
+        indexInfo = createIndex();
+        ObjectId headTreeId = geogig.command(ResolveTreeish.class)
+                .setTreeish("HEAD:" + worldPointsLayer.getName()).call().get();
+        ObjectId branchTreeId = geogig.command(ResolveTreeish.class)
+                .setTreeish("branch1:" + worldPointsLayer.getName()).call().get();
+
+        assertEquals(4, buildFullHistory());
+        assertFalse(indexdb.getIndexInfo(indexInfo.getTreeName(), indexInfo.getAttributeName())
+                .get().getMetadata()
+                .containsKey(BuildFullHistoryIndexOp.MD_HISTORY_INDEX_IN_PROGRESS));
+
+        // a complete build starts over
+        assertEquals(4, buildFullHistory());
+
+        // an interrupted one only builds the missing trees
+        Map<String, Object> metadata = new HashMap<>(indexInfo.getMetadata());
+        metadata.put(BuildFullHistoryIndexOp.MD_HISTORY_INDEX_IN_PROGRESS, Boolean.TRUE);
+        indexdb.updateIndexInfo(indexInfo.getTreeName(), indexInfo.getAttributeName(),
+                indexInfo.getIndexType(), metadata);
+        indexdb.clearIndex(indexInfo);
+        ObjectId headIndexTreeId = geogig.command(BuildIndexOp.class)//
+                .setIndex(indexInfo)//
+                .setRevFeatureTypeId(worldPointsLayer.getMetadataId().get())//
+                .setOldCanonicalTree(RevTree.EMPTY)//
+                .setNewCanonicalTree(getRepository().getTree(headTreeId))//
+                .call().getId();
+
+        assertEquals(3, buildFullHistory());
+        assertEquals(headIndexTreeId, indexdb.resolveIndexedTree(indexInfo, headTreeId).get());
+        Optional<ObjectId> indexedTreeId = indexdb.resolveIndexedTree(indexInfo, branchTreeId);
+        assertTrue(indexedTreeId.isPresent());
+        IndexTestSupport.verifyIndex(geogig, indexedTreeId.get(), branchTreeId);
+        assertEquals(indexInfo,
+                indexdb.getIndexInfo(indexInfo.getTreeName(), indexInfo.getAttributeName())
+                        .get());
+    }
+
+    private int buildFullHistory() {
+        return geogig.command(BuildFullHistoryIndexOp.class)//
+                .setTreeRefSpec(indexInfo.getTreeName())//
+                .setAttributeName(indexInfo.getAttributeName())//
+                .call().intValue();
+    }
+
     @Test
     public void testBuildFullHistoryNoTreeName() {
         indexInfo = createIndex();
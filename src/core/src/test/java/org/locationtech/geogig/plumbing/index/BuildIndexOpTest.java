@@ -108,6 +108,54 @@ public class BuildIndexOpTest extends RepositoryTestCase {
                 "xystr");
     }
 
+    @Test
+    public void testCreatesAttributeIndex() {
+        indexInfo = indexdb.createIndexInfo(worldPointsLayer.getName(), "xystr",
+                IndexType.ATTRIBUTE, null);
+        final RevTree newCanonicalTree = worldPointsTree;
+
+        RevTree indexTree = updateIndex(RevTree.EMPTY, newCanonicalTree);
+
+        assertNotEquals(RevTree.EMPTY, indexTree);
+        assertEquals(newCanonicalTree.size(), indexTree.size());
+
+        // the indexed attribute is materialized even if not given as an extra attribute
+        IndexTestSupport.verifyIndex(geogig, indexTree.getId(), newCanonicalTree.getId(),
+                "xystr");
+    }
+
+    @Test
+    public void testUpdatesAttributeIndexNodes() {
+        indexInfo = indexdb.createIndexInfo(worldPointsLayer.getName(), "x", IndexType.ATTRIBUTE,
+                null);
+        RevTree newCanonicalTree = checkUpdatesNodes();
+        Optional<ObjectId> indexId = indexdb.resolveIndexedTree(indexInfo,
+                newCanonicalTree.getId());
+        assertTrue(indexId.isPresent());
+        IndexTestSupport.verifyIndex(geogig, indexId.get(), newCanonicalTree.getId(), "x");
+    }
+
+    @Test
+    public void testSequentialAndParallelBuildsAreEqual() {
+        testSequentialAndParallelBuildsAreEqual((String[]) null);
+    }
+
+    @Test
+    public void testSequentialAndParallelMaterializedBuildsAreEqual() {
+        testSequentialAndParallelBuildsAreEqual("x", "y", "xystr");
+    }
+
+    private void testSequentialAndParallelBuildsAreEqual(@Nullable String... extraAttributes) {
+        indexInfo = createIndex(extraAttributes);
+        final ObjectId featureTypeId = worldPointsLayer.getMetadataId().get();
+
+        RevTree sequential = updateIndex(indexInfo, featureTypeId, RevTree.EMPTY,
+                worldPointsTree, false);
+        RevTree parallel = updateIndex(indexInfo, featureTypeId, RevTree.EMPTY, worldPointsTree,
+                true);
+        assertEquals(sequential, parallel);
+    }
+
     @Test
     public void testRemovesAllEntriesFromIndex() {
         indexInfo = createIndex();
@@ -354,9 +402,16 @@ public class BuildIndexOpTest extends RepositoryTestCase {
 
     private RevTree updateIndex(IndexInfo indexInfo, ObjectId featureTypeId,
             final RevTree oldCanonicalTree, final RevTree newCanonicalTree) {
+        return updateIndex(indexInfo, featureTypeId, oldCanonicalTree, newCanonicalTree, true);
+    }
+
+    private RevTree updateIndex(IndexInfo indexInfo, ObjectId featureTypeId,
+            final RevTree oldCanonicalTree, final RevTree newCanonicalTree,
+            final boolean parallel) {
 
         Repository repo = getRepository();
         BuildIndexOp command = repo.command(BuildIndexOp.class);
+        command.setParallel(parallel);
         command.setIndex(indexInfo);
         command.setOldCanonicalTree(oldCanonicalTree);
         command.setNewCanonicalTree(newCanonicalTree);
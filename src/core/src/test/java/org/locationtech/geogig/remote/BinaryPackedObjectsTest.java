@@ -0,0 +1,179 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createCommit;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createTypesTree;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createVersionedFeaturesTree;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.ids;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.remote.BinaryPackedObjects.IngestResults;
+import org.locationtech.geogig.repository.impl.Deduplicator;
+import org.locationtech.geogig.repository.impl.PostOrderIterator;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
+import org.locationtech.geogig.storage.memory.HeapDeduplicator;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+
+import com.google.common.collect.ImmutableList;
+
+public class BinaryPackedObjectsTest {
+
+    private ObjectStore source;
+
+    private ObjectStore target;
+
+    private RevCommit c1, c2, c3, c4;
+
+    /**
+     * Creates a linear history where the {@code lines} tree flips between a leaf and a bucket tree
+     * on every commit, and {@code c3} reverts the changes {@code c2} made to {@code points}
+     */
+    @Before
+    public void before() {
+        source = new HeapObjectStore();
+        source.open();
+        target = new HeapObjectStore();
+        target.open();
+
+        RevTree points1 = createVersionedFeaturesTree(source, "points", 1_000, 0, 0);
+        RevTree lines1 = createVersionedFeaturesTree(source, "lines", 100, 0, 0);
+        c1 = createCommit(source, createTypesTree(source, points1, lines1), ids());
+
+        RevTree points2 = createVersionedFeaturesTree(source, "points", 1_000, 100, 1);
+        RevTree lines2 = createVersionedFeaturesTree(source, "lines", 1_000, 0, 0);
+        c2 = createCommit(source, createTypesTree(source, points2, lines2), ids(c1));
+
+        RevTree lines3 = createVersionedFeaturesTree(source, "lines", 50, 10, 1);
+        c3 = createCommit(source, createTypesTree(source, points1, lines3), ids(c2));
+
+        RevTree lines4 = createVersionedFeaturesTree(source, "lines", 600, 0, 0);
+        RevTree polygons4 = createVersionedFeaturesTree(source, "polygons", 10, 0, 0);
+        c4 = createCommit(source, createTypesTree(source, points1, lines4, polygons4), ids(c3));
+
+        assertFalse(points1.buckets().isEmpty());
+        assertTrue(lines1.buckets().isEmpty());
+        assertFalse(lines2.buckets().isEmpty());
+        assertTrue(lines3.buckets().isEmpty());
+        assertFalse(lines4.buckets().isEmpty());
+    }
+
+    @After
+    public void after() {
+        source.close();
+        target.close();
+    }
+
+    @Test
+    public void testWriteIncrementalToEmptyRepository() throws IOException {
+        List<ObjectId> want = ids(c1, c2, c3, c4);
+        IngestResults results = transfer(want, ImmutableList.of(), new HeapDeduplicator());
+
+        assertAllReachablePresent(want);
+        // no object is sent twice, even if it's on the new side of the diff of several commits
+        assertEquals(0, results.getExisting());
+        assertEquals(reachable(want).size(), results.getInserted());
+    }
+
+    @Test
+    public void testWriteIncrementalToPartiallyFetchedRepository() throws IOException {
+        transfer(ids(c1), ImmutableList.of(), new HeapDeduplicator());
+        assertAllReachablePresent(ids(c1));
+        assertFalse(target.exists(c2.getId()));
+
+        List<ObjectId> want = ids(c2, c3, c4);
+        IngestResults results = transfer(want, ids(c1), new HeapDeduplicator());
+        assertAllReachablePresent(want);
+
+        // the contents of c1 are not sent again
+        Set<ObjectId> missing = reachable(want);
+        missing.removeAll(reachable(ids(c1)));
+        assertEquals(missing.size(), results.getInserted());
+    }
+
+    @Test
+    public void testWriteIncrementalFromEachParent() throws IOException {
+        // fetching one commit at a time diffs each commit against a parent the target already has
+        transfer(ids(c1), ImmutableList.of(), new HeapDeduplicator());
+        transfer(ids(c2), ids(c1), new HeapDeduplicator());
+        transfer(ids(c3), ids(c2), new HeapDeduplicator());
+        transfer(ids(c4), ids(c3), new HeapDeduplicator());
+        assertAllReachablePresent(ids(c1, c2, c3, c4));
+    }
+
+    @Test
+    public void testWriteIncrementalSkipsDeduplicatedObjects() throws IOException {
+        Deduplicator deduplicator = new HeapDeduplicator();
+        transfer(ids(c1, c2), ImmutableList.of(), deduplicator);
+
+        // the objects already sent with the same deduplicator are skipped even if c2 isn't
+        // known to be on the receiving end
+        IngestResults results = transfer(ids(c3, c4), ImmutableList.of(), deduplicator);
+        assertEquals(0, results.getExisting());
+        Set<ObjectId> expected = reachable(ids(c3, c4));
+        expected.removeAll(reachable(ids(c1, c2)));
+        assertEquals(expected.size(), results.getInserted());
+        assertAllReachablePresent(ids(c4));
+    }
+
+    private IngestResults transfer(List<ObjectId> want, List<ObjectId> have,
+            Deduplicator deduplicator) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObjectFunnel funnel = ObjectFunnels.newFunnel(out,
+                DataStreamSerializationFactoryV1.INSTANCE);
+        long written = new BinaryPackedObjects(source).writeIncremental(funnel, want, have,
+                deduplicator);
+        funnel.close();
+
+        IngestResults results = new BinaryPackedObjects(target)
+                .ingest(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(written, results.total());
+        return results;
+    }
+
+    private void assertAllReachablePresent(List<ObjectId> commits) {
+        for (ObjectId id : reachable(commits)) {
+            assertTrue("missing " + source.get(id), target.exists(id));
+        }
+    }
+
+    /**
+     * @return the ids of all the objects reachable from the given commits, including their whole
+     *         history
+     */
+    private Set<ObjectId> reachable(List<ObjectId> commits) {
+        Set<ObjectId> reachable = new HashSet<>();
+        Deduplicator deduplicator = new HeapDeduplicator();
+        for (ObjectId commit : commits) {
+            Iterator<RevObject> all = PostOrderIterator.all(commit, source, deduplicator);
+            all.forEachRemaining((o) -> reachable.add(o.getId()));
+        }
+        return reachable;
+    }
+}
@@ -0,0 +1,511 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createCommit;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createTypesTree;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createVersionedFeaturesTree;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.ids;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.AbstractGeoGigOp;
+import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.DefaultProgressListener;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.repository.impl.Deduplicator;
+import org.locationtech.geogig.repository.impl.PostOrderIterator;
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
+import org.locationtech.geogig.storage.memory.HeapDeduplicator;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+import org.mockito.AdditionalAnswers;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the pipelined fetch and the size limited push against an in-process server that answers
+ * the batchobjects and sendobject requests the way the web API does, and checks all the objects
+ * make it to the receiving end, whether transferred incrementally or not, and that failed
+ * requests fail the transfer.
+ */
+public class HttpRemoteRepoTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    private ObjectStore source;
+
+    /**
+     * The commits of the history, oldest first, as the fetch and push traversals return them
+     */
+    private List<ObjectId> commits;
+
+    private Map<ObjectId, ImmutableList<ObjectId>> parents;
+
+    private List<ObjectStore> targets;
+
+    /**
+     * Stands for the remote repository, serving the objects of {@link #source}
+     */
+    private HttpServer server;
+
+    /**
+     * The local config of the repositories created by {@link #newRepo}
+     */
+    private Map<String, String> config;
+
+    private AtomicInteger requests;
+
+    private AtomicInteger uploads;
+
+    /**
+     * The store sendobject requests are ingested into
+     */
+    private volatile ObjectStore pushTarget;
+
+    /**
+     * The batchobjects request for the batch starting at this commit fails once
+     * {@link #failingBatchLatch} is released by the requests for the later batches
+     */
+    private volatile ObjectId failingBatch;
+
+    private volatile CountDownLatch failingBatchLatch;
+
+    /**
+     * The number of the sendobject request that fails
+     */
+    private volatile int failingUpload;
+
+    /**
+     * Creates a history of 12 commits on the main line, and a branch of 3 commits forked at the
+     * 4th one and merged at the 8th one, where the {@code lines} tree flips between a leaf and a
+     * bucket tree.
+     */
+    @Before
+    public void before() {
+        source = new HeapObjectStore();
+        source.open();
+        commits = new ArrayList<>();
+        parents = new HashMap<>();
+        targets = new ArrayList<>();
+        config = new ConcurrentHashMap<>();
+        requests = new AtomicInteger();
+        uploads = new AtomicInteger();
+
+        RevTree points = featuresTree("points", 1_000, 0);
+        RevCommit parent = null;
+        RevCommit fork = null;
+        for (int i = 1; i <= 12; i++) {
+            int size = i % 2 == 0 ? 10 * i : 100 * i;
+            RevTree tree = createTypesTree(source, points, featuresTree("lines", size, i));
+            List<ObjectId> commitParents = new ArrayList<>();
+            if (parent != null) {
+                commitParents.add(parent.getId());
+            }
+            if (i == 8) {
+                commitParents.add(fork.getId());
+            }
+            parent = commit(tree, commitParents);
+            if (i == 4) {
+                RevCommit branch = parent;
+                for (int b = 1; b <= 3; b++) {
+                    RevTree branchPoints = featuresTree("points", 1_000, b);
+                    RevTree branchTree = createTypesTree(source, branchPoints,
+                            featuresTree("lines", 40, 0));
+                    branch = commit(branchTree, ids(branch));
+                }
+                fork = branch;
+            }
+        }
+    }
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/repo/batchobjects", (exchange) -> handle(exchange,
+                this::batchObjects));
+        server.createContext("/repo/sendobject", (exchange) -> handle(exchange,
+                this::sendObject));
+        server.start();
+    }
+
+    @After
+    public void after() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+        source.close();
+        for (ObjectStore target : targets) {
+            target.close();
+        }
+    }
+
+    @Test
+    public void testAddFetchedPrunesParents() {
+        Set<ObjectId> have = new HashSet<>();
+        int maxHave = 0;
+        for (List<ObjectId> batch : Lists.partition(commits, BATCH_SIZE)) {
+            HttpRemoteRepo.addFetched(have, batch, parents);
+            maxHave = Math.max(maxHave, have.size());
+        }
+        // only the branch heads are kept
+        assertEquals(2, maxHave);
+        assertEquals(ImmutableList.of(last(commits)), ImmutableList.copyOf(have));
+    }
+
+    @Test
+    public void testFetchPipelinedLegacy() throws Exception {
+        assertFetchPipelined(false, 0);
+        assertFetchPipelined(false, 5);
+    }
+
+    @Test
+    public void testFetchPipelinedIncremental() throws Exception {
+        assertFetchPipelined(true, 0);
+        assertFetchPipelined(true, 5);
+    }
+
+    @Test
+    public void testFetchPipelinedFailure() throws Exception {
+        config.put("fetch.buffer.limit", "1024");
+        // the third batch fails once the two requested after it are buffered
+        failingBatch = commits.get(2 * BATCH_SIZE);
+        failingBatchLatch = new CountDownLatch(2);
+        final int tempFiles = tempFiles();
+
+        ObjectStore local = newTarget(ImmutableList.of());
+        HttpRemoteRepo repo = newRepo(local);
+        try {
+            repo.fetchPipelined(new LinkedList<>(commits), new HashSet<>(), parents, 3,
+                    BATCH_SIZE, new DefaultProgressListener());
+            fail("Expected RuntimeException");
+        } catch (RuntimeException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("500"));
+        }
+        assertEquals(0, failingBatchLatch.getCount());
+        assertTrue(local.exists(commits.get(2 * BATCH_SIZE - 1)));
+        assertFalse(local.exists(commits.get(2 * BATCH_SIZE)));
+
+        // the responses buffered past the failed one are discarded, along with their temp files
+        Stopwatch sw = Stopwatch.createStarted();
+        while (tempFiles() > tempFiles && sw.elapsed(TimeUnit.SECONDS) < 10) {
+            Thread.sleep(50);
+        }
+        assertEquals(tempFiles, tempFiles());
+    }
+
+    @Test
+    public void testPushLegacy() throws Exception {
+        assertPush(false, 1);
+        assertPush(false, 3);
+    }
+
+    @Test
+    public void testPushIncremental() throws Exception {
+        assertPush(true, 1);
+        assertPush(true, 3);
+    }
+
+    @Test
+    public void testPushFailure() throws Exception {
+        config.put("push.chunk.limit", "16384");
+        config.put("push.parallel.requests", "1");
+        failingUpload = 2;
+        pushTarget = newTarget(ImmutableList.of());
+        HttpRemoteRepo repo = newRepo(source);
+        try {
+            repo.sendPackedObjects(new LinkedList<>(commits), new HashSet<>(),
+                    new HeapDeduplicator(), new DefaultProgressListener());
+            fail("Expected RuntimeException");
+        } catch (RuntimeException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("500"));
+        }
+        assertFalse(local(pushTarget).contains(last(commits)));
+    }
+
+    /**
+     * Fetches the commits after the first {@code known} ones, which the local store already has,
+     * and checks all of them and their contents were fetched in batches of {@link #BATCH_SIZE}
+     */
+    private void assertFetchPipelined(boolean incremental, int known) throws Exception {
+        config.put("transfer.incremental", String.valueOf(incremental));
+        final List<ObjectId> want = new LinkedList<>(commits.subList(known, commits.size()));
+        final Set<ObjectId> have = new HashSet<>();
+        HttpRemoteRepo.addFetched(have, commits.subList(0, known), parents);
+
+        ObjectStore local = newTarget(commits.subList(0, known));
+        requests.set(0);
+        newRepo(local).fetchPipelined(want, have, parents, 3, BATCH_SIZE,
+                new DefaultProgressListener());
+
+        assertEquals((commits.size() - known + BATCH_SIZE - 1) / BATCH_SIZE, requests.get());
+        assertEquals(ImmutableList.of(), want);
+        assertTrue(have.contains(last(commits)));
+        assertAllReachablePresent(local);
+    }
+
+    /**
+     * Pushes all the commits to an empty remote in several size limited uploads, and checks they
+     * all made it
+     */
+    private void assertPush(boolean incremental, int parallelRequests) throws Exception {
+        config.put("transfer.incremental", String.valueOf(incremental));
+        config.put("push.chunk.limit", "16384");
+        config.put("push.parallel.requests", String.valueOf(parallelRequests));
+        pushTarget = newTarget(ImmutableList.of());
+        uploads.set(0);
+
+        newRepo(source).sendPackedObjects(new LinkedList<>(commits), new HashSet<>(),
+                new HeapDeduplicator(), new DefaultProgressListener());
+
+        assertTrue(uploads.get() > 1);
+        assertAllReachablePresent(pushTarget);
+    }
+
+    /**
+     * @return the commits of the history present in {@code store}
+     */
+    private Set<ObjectId> local(ObjectStore store) {
+        return commits.stream().filter((id) -> store.exists(id)).collect(Collectors.toSet());
+    }
+
+    /**
+     * @return a remote for the {@link #server}, for a local repository backed by {@code local}
+     *         and configured as set in {@link #config}
+     */
+    private HttpRemoteRepo newRepo(ObjectStore local) throws IOException {
+        ConfigDatabase configDb = mock(ConfigDatabase.class);
+        when(configDb.get(anyString())).thenAnswer(
+                (invocation) -> Optional.fromNullable(config.get(invocation.getArguments()[0])));
+        when(configDb.getGlobal(anyString())).thenReturn(Optional.absent());
+
+        Context context = mock(Context.class);
+        Answer<AbstractGeoGigOp<?>> newCommand = (invocation) -> {
+            Class<?> type = (Class<?>) invocation.getArguments()[0];
+            AbstractGeoGigOp<?> command = (AbstractGeoGigOp<?>) type.newInstance();
+            command.setContext(context);
+            return command;
+        };
+        when(context.configDatabase()).thenReturn(configDb);
+        when(context.command(any(Class.class))).thenAnswer(newCommand);
+
+        Repository repository = mock(Repository.class);
+        when(repository.objectDatabase())
+                .thenReturn(mock(ObjectDatabase.class, AdditionalAnswers.delegatesTo(local)));
+        when(repository.command(any(Class.class))).thenAnswer(newCommand);
+
+        URL url = new URL("http", "localhost", server.getAddress().getPort(), "/");
+        return new HttpRemoteRepo(url, repository, null);
+    }
+
+    /**
+     * Answers a batchobjects request the way the server does, packing the objects from
+     * {@link #source}
+     */
+    private void batchObjects(HttpExchange exchange) throws IOException {
+        JsonObject message;
+        try (Reader reader = new InputStreamReader(exchange.getRequestBody(), Charsets.UTF_8)) {
+            message = new Gson().fromJson(reader, JsonObject.class);
+        }
+        requests.incrementAndGet();
+        final List<ObjectId> want = parseIds(message.getAsJsonArray("want"));
+        final List<ObjectId> have = parseIds(message.getAsJsonArray("have"));
+        final boolean incremental = message.get("incremental").getAsBoolean();
+
+        if (want.contains(failingBatch)) {
+            try {
+                failingBatchLatch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw Throwables.propagate(e);
+            }
+            exchange.sendResponseHeaders(500, -1);
+            return;
+        }
+
+        final boolean gzip = "gzip"
+                .equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        if (gzip) {
+            out = new GZIPOutputStream(out);
+        }
+        write(ObjectFunnels.newFunnel(out, DataStreamSerializationFactoryV1.INSTANCE), want, have,
+                incremental);
+        if (failingBatch != null && commits.indexOf(want.get(0)) > commits.indexOf(failingBatch)) {
+            failingBatchLatch.countDown();
+        }
+    }
+
+    /**
+     * Answers a sendobject request the way the server does, ingesting the objects into
+     * {@link #pushTarget}
+     */
+    private void sendObject(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            in = new GZIPInputStream(in);
+        }
+        final int code;
+        if (uploads.incrementAndGet() == failingUpload) {
+            code = 500;
+        } else {
+            new BinaryPackedObjects(pushTarget).ingest(in);
+            code = 200;
+        }
+        // the gzip stream ends before the request does, consume the rest so that the connection
+        // can be reused
+        ByteStreams.copy(exchange.getRequestBody(), ByteStreams.nullOutputStream());
+        exchange.sendResponseHeaders(code, -1);
+    }
+
+    private static void handle(HttpExchange exchange, HttpHandler handler) throws IOException {
+        try {
+            handler.handle(exchange);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static List<ObjectId> parseIds(JsonArray array) {
+        List<ObjectId> ids = new ArrayList<>();
+        for (JsonElement id : array) {
+            ids.add(ObjectId.valueOf(id.getAsString()));
+        }
+        return ids;
+    }
+
+    /**
+     * @return the number of temporary files fetch response buffers overflow to
+     */
+    private static int tempFiles() {
+        File tmp = new File(System.getProperty("java.io.tmpdir"));
+        return tmp.list((dir, name) -> name.startsWith("FileBackedOutputStream")).length;
+    }
+
+    private void write(ObjectFunnel funnel, List<ObjectId> want, List<ObjectId> have,
+            boolean incremental) throws IOException {
+        BinaryPackedObjects packer = new BinaryPackedObjects(source);
+        Deduplicator deduplicator = new HeapDeduplicator();
+        if (incremental) {
+            packer.writeIncremental(funnel, want, have, deduplicator);
+        } else {
+            packer.write(funnel, want, have, false, deduplicator);
+        }
+        funnel.close();
+    }
+
+    /**
+     * @return a new store with all the objects reachable from {@code known}
+     */
+    private ObjectStore newTarget(List<ObjectId> known) {
+        ObjectStore target = new HeapObjectStore();
+        target.open();
+        targets.add(target);
+        for (ObjectId id : reachable(known)) {
+            target.put(source.get(id));
+        }
+        return target;
+    }
+
+    private void assertAllReachablePresent(ObjectStore target) {
+        Set<ObjectId> reachable = reachable(ImmutableList.of(last(commits)));
+        assertEquals(commits.size(), reachable.stream()
+                .filter((id) -> source.get(id) instanceof RevCommit).count());
+        for (ObjectId id : reachable) {
+            assertTrue("missing " + source.get(id), target.exists(id));
+        }
+    }
+
+    private Set<ObjectId> reachable(List<ObjectId> commits) {
+        Set<ObjectId> reachable = new HashSet<>();
+        Deduplicator deduplicator = new HeapDeduplicator();
+        for (ObjectId commit : commits) {
+            PostOrderIterator.all(commit, source, deduplicator)
+                    .forEachRemaining((o) -> reachable.add(o.getId()));
+        }
+        return reachable;
+    }
+
+    private static ObjectId last(List<ObjectId> ids) {
+        return ids.get(ids.size() - 1);
+    }
+
+    /**
+     * Creates and saves a tree of {@code size} features, the first half of which are at
+     * {@code version}, and the rest at version {@code 0}
+     */
+    private RevTree featuresTree(String name, int size, int version) {
+        return createVersionedFeaturesTree(source, name, size, size / 2, version);
+    }
+
+    private RevCommit commit(RevTree tree, List<ObjectId> commitParents) {
+        RevCommit commit = createCommit(source, tree, commitParents);
+        commits.add(commit.getId());
+        parents.put(commit.getId(), commit.getParentIds());
+        return commit;
+    }
+}
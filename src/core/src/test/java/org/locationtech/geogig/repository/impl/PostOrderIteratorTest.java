@@ -0,0 +1,261 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.repository.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createCommit;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createTypesTree;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createVersionedFeaturesTree;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.ids;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTag;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.model.impl.RevPersonBuilder;
+import org.locationtech.geogig.model.impl.RevTagBuilder;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.memory.HeapDeduplicator;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Checks the objects returned by {@link PostOrderIterator}, and their order, against a plain
+ * recursive depth first traversal that reads every object from the database, as the iterator did
+ * before it started reusing the objects it reads and prefetching the contents of trees.
+ */
+public class PostOrderIteratorTest {
+
+    private ObjectStore store;
+
+    private RevCommit c1, c2, c3, c4;
+
+    private RevTag tag;
+
+    /**
+     * Creates the following history, where {@code points} is a bucket tree in all the commits and
+     * {@code lines} a leaf tree that becomes a bucket tree at {@code c3}, and the branches share
+     * most of their features:
+     *
+     * <pre>
+     * c1 - c2 - c4 (tag)
+     *   \      /
+     *    - c3 -
+     * </pre>
+     */
+    @Before
+    public void before() {
+        store = new HeapObjectStore();
+        store.open();
+
+        // some features share their contents, and hence their ids
+        RevTree points1 = createVersionedFeaturesTree(store, "points", 1_000, 0, 0, 900);
+        RevTree lines1 = createVersionedFeaturesTree(store, "lines", 100, 0, 0, 900);
+        c1 = createCommit(store, createTypesTree(store, points1, lines1), ids());
+
+        // modifies a hundred features in points
+        RevTree points2 = createVersionedFeaturesTree(store, "points", 1_000, 100, 1, 900);
+        c2 = createCommit(store, createTypesTree(store, points2, lines1), ids(c1));
+
+        // lines becomes a bucket tree
+        RevTree lines3 = createVersionedFeaturesTree(store, "lines", 1_000, 0, 0, 900);
+        c3 = createCommit(store, createTypesTree(store, points1, lines3), ids(c1));
+
+        c4 = createCommit(store, createTypesTree(store, points2, lines3), ids(c2, c3));
+
+        tag = RevTagBuilder.build(RevObjectTestSupport.hashString("tag"), "v1", c4.getId(),
+                "version 1", RevPersonBuilder.build("groldan", "groldan@test.com", 1000L, 0));
+        store.put(tag);
+
+        assertFalse(points1.buckets().isEmpty());
+        assertTrue(lines1.buckets().isEmpty());
+        assertFalse(lines3.buckets().isEmpty());
+    }
+
+    @After
+    public void after() {
+        store.close();
+    }
+
+    @Test
+    public void testAll() {
+        List<ObjectId> expected = new Reference(true, true).traverse(ids(tag));
+        assertTraversal(expected,
+                PostOrderIterator.all(tag.getId(), store, new HeapDeduplicator()));
+
+        assertEquals(tag.getId(), expected.get(expected.size() - 1));
+        assertTrue(expected.containsAll(ids(c1, c2, c3, c4)));
+    }
+
+    @Test
+    public void testRange() {
+        List<ObjectId> expected = new Reference(true, true, c1.getId()).traverse(ids(c4));
+        assertTraversal(expected, PostOrderIterator.range(ids(c4), ids(c1), store, true,
+                new HeapDeduplicator()));
+        assertFalse(expected.contains(c1.getId()));
+        assertTrue(expected.contains(c2.getId()));
+        assertTrue(expected.contains(c3.getId()));
+    }
+
+    @Test
+    public void testRangeWithKnownParents() {
+        // both parents of c4 are already known, only c4 and its contents are traversed
+        List<ObjectId> base = ids(c2, c3);
+        List<ObjectId> expected = new Reference(true, true, c2.getId(), c3.getId())
+                .traverse(ids(c4));
+        assertTraversal(expected,
+                PostOrderIterator.range(ids(c4), base, store, true, new HeapDeduplicator()));
+        assertEquals(c4.getId(), expected.get(expected.size() - 1));
+        assertFalse(expected.contains(c1.getId()));
+        assertFalse(expected.contains(c2.getId()));
+        assertFalse(expected.contains(c3.getId()));
+
+        // the contents of c4 reachable from its parents are still traversed if the commits
+        // themselves aren't
+        expected = new Reference(false, true, c2.getId(), c3.getId()).traverse(ids(c4));
+        assertTraversal(expected,
+                PostOrderIterator.range(ids(c4), base, store, false, new HeapDeduplicator()));
+    }
+
+    @Test
+    public void testRangeWithSharedDeduplicator() {
+        // objects sent along with an earlier range are not traversed again
+        HeapDeduplicator deduplicator = new HeapDeduplicator();
+        Reference reference = new Reference(true, true);
+        assertTraversal(reference.traverse(ids(c2)),
+                PostOrderIterator.range(ids(c2), ids(), store, true, deduplicator));
+        List<ObjectId> expected = reference.traverse(ids(c4));
+        assertTraversal(expected,
+                PostOrderIterator.range(ids(c4), ids(), store, true, deduplicator));
+        assertFalse(expected.contains(c1.getId()));
+        assertFalse(expected.contains(c1.getTreeId()));
+    }
+
+    @Test
+    public void testRangeOfCommits() {
+        List<ObjectId> expected = new Reference(true, false, c1.getId()).traverse(ids(c4));
+        assertTraversal(expected, PostOrderIterator.rangeOfCommits(ids(c4), ids(c1), store,
+                new HeapDeduplicator()));
+        assertEquals(3, expected.size());
+    }
+
+    @Test
+    public void testContentsOf() {
+        List<ObjectId> expected = new Reference(false, true).traverse(ids(c3, c4));
+        assertTraversal(expected,
+                PostOrderIterator.contentsOf(ids(c3, c4), store, new HeapDeduplicator()));
+    }
+
+    private void assertTraversal(List<ObjectId> expected, Iterator<RevObject> actual) {
+        List<RevObject> objects = Lists.newArrayList(actual);
+        List<ObjectId> actualIds = Lists.transform(objects, (o) -> o.getId());
+        assertEquals(expected, actualIds);
+        assertEquals(expected.size(), new HashSet<>(actualIds).size());
+        for (RevObject o : objects) {
+            assertEquals(store.get(o.getId()), o);
+        }
+    }
+
+    /**
+     * The traversal as it was implemented before reusing the objects read and prefetching the
+     * contents of trees: a recursive depth first walk, with the same successors and deduplication
+     * rules, that reads each object with a point lookup whenever it's reached.
+     */
+    private class Reference {
+
+        private final boolean commitParents;
+
+        private final boolean commitContents;
+
+        private final Set<ObjectId> base;
+
+        private final Set<ObjectId> visited = new HashSet<>();
+
+        private List<ObjectId> result;
+
+        Reference(boolean commitParents, boolean commitContents, ObjectId... base) {
+            this.commitParents = commitParents;
+            this.commitContents = commitContents;
+            this.base = new HashSet<>(ImmutableList.copyOf(base));
+        }
+
+        List<ObjectId> traverse(List<ObjectId> start) {
+            result = new ArrayList<>();
+            start.forEach((id) -> walk(id));
+            return result;
+        }
+
+        private void walk(ObjectId id) {
+            final RevObject object = store.get(id);
+            if (!visited.contains(id) && !base.contains(id)) {
+                List<ObjectId> successors = successors(object);
+                successors.removeAll(base);
+                successors.removeAll(visited);
+                successors.forEach((s) -> walk(s));
+            }
+            if (visited.add(id) && !base.contains(id)) {
+                result.add(id);
+            }
+        }
+
+        private List<ObjectId> successors(RevObject object) {
+            List<ObjectId> successors = new ArrayList<>();
+            if (object instanceof RevTag && commitParents) {
+                successors.add(((RevTag) object).getCommitId());
+            } else if (object instanceof RevCommit) {
+                RevCommit commit = (RevCommit) object;
+                if (commitParents) {
+                    successors.addAll(commit.getParentIds());
+                }
+                if (commitContents) {
+                    successors.add(commit.getTreeId());
+                }
+            } else if (object instanceof RevTree) {
+                RevTree tree = (RevTree) object;
+                for (Map.Entry<Integer, Bucket> bucket : tree.buckets().entrySet()) {
+                    successors.add(bucket.getValue().getObjectId());
+                }
+                addNodes(tree.trees(), successors);
+                addNodes(tree.features(), successors);
+            }
+            return successors;
+        }
+
+        private void addNodes(List<Node> nodes, List<ObjectId> successors) {
+            Set<ObjectId> seen = new HashSet<>();
+            for (Node n : nodes) {
+                if (n.getMetadataId().isPresent() && seen.add(n.getMetadataId().get())) {
+                    successors.add(n.getMetadataId().get());
+                }
+                if (seen.add(n.getObjectId())) {
+                    successors.add(n.getObjectId());
+                }
+            }
+        }
+    }
+}
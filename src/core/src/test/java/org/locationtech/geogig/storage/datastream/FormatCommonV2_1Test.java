@@ -142,4 +142,31 @@ public class FormatCommonV2_1Test {
         decoded.forEach((v) -> values.add(v));
         assertEquals(this.values, values);
     }
+
+    @Test
+    public void testReadFeatureFromByteArrayRegion() throws IOException {
+        ByteArrayDataOutput target = ByteStreams.newDataOutput();
+        target.write(new byte[] { 1, 2, 3 });
+        encoder.writeFeature(feature, target);
+        final int length = target.toByteArray().length - 3;
+        target.write(new byte[] { 4, 5 });
+        byte[] encoded = target.toByteArray();
+
+        LazyRevFeature decoded = (LazyRevFeature) encoder.readFeature(null, encoded, 3, length);
+        assertEquals(feature, decoded);
+        assertEquals(feature.getValues(), decoded.getValues());
+
+        GeometryFactory provided = new GeometryFactory();
+        Geometry g = decoded.get(geomIndex, provided).orNull();
+        assertEquals(geom, g);
+        assertSame(provided, g.getFactory());
+
+        target = ByteStreams.newDataOutput();
+        encoder.fastEncode(decoded, target);
+        byte[] reencoded = target.toByteArray();
+        assertEquals(length, reencoded.length);
+        RevFeature decoded2 = encoder.readFeature(null, ByteStreams.newDataInput(reencoded));
+        assertEquals(feature, decoded2);
+        assertEquals(feature.getValues(), decoded2.getValues());
+    }
 }
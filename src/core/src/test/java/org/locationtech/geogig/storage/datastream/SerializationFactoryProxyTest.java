@@ -0,0 +1,136 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.datastream;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+
+public class SerializationFactoryProxyTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testDefaultFormat() {
+        SerializationFactoryProxy proxy = new SerializationFactoryProxy();
+        assertEquals(SerializationFactoryProxy.DEFAULT_FORMAT, proxy.getWriteFormat());
+        assertEquals("2.2", SerializationFactoryProxy.fromConfig(null).getWriteFormat());
+    }
+
+    @Test
+    public void testUnsupportedFormat() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Unsupported serialization format '1.0'");
+        new SerializationFactoryProxy("1.0");
+    }
+
+    @Test
+    public void testDefaultCodec() {
+        SerializationFactoryProxy proxy = new SerializationFactoryProxy("2.3");
+        assertEquals(SerializationFactoryProxy.DEFAULT_CODEC, proxy.getCodec());
+        assertEquals("lzf", SerializationFactoryProxy.fromConfig(null).getCodec());
+    }
+
+    @Test
+    public void testUnsupportedCodec() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Unsupported compression codec 'gzip'");
+        new SerializationFactoryProxy("2.2", "gzip");
+    }
+
+    @Test
+    public void testCodecs() throws IOException {
+        HeapObjectStore store = new HeapObjectStore();
+        store.open();
+        RevTree tree = RevObjectTestSupport.createFeaturesTree(store, "f", 1000);
+        RevFeature feature = RevObjectTestSupport.feature("a string", Integer.valueOf(1),
+                Boolean.TRUE);
+
+        for (String format : SerializationFactoryProxy.WRITABLE_FORMATS.keySet()) {
+            for (String codec : SerializationFactoryProxy.CODECS.keySet()) {
+                SerializationFactoryProxy writer = new SerializationFactoryProxy(format, codec);
+                byte[] encoded = writer.encode(tree);
+                final int header = encoded[0] & 0xFF;
+                assertEquals(SerializationFactoryProxy.WRITABLE_FORMATS.get(format).intValue(),
+                        header & 0x0F);
+                assertEquals(SerializationFactoryProxy.CODECS.get(codec).intValue(),
+                        header >>> 4);
+
+                // any proxy reads objects written with any codec
+                SerializationFactoryProxy reader = new SerializationFactoryProxy();
+                RevTree decoded = (RevTree) reader.decode(tree.getId(), encoded);
+                assertEquals(tree.features(), decoded.features());
+                decoded = (RevTree) reader.read(tree.getId(), new ByteArrayInputStream(encoded));
+                assertEquals(tree.features(), decoded.features());
+
+                encoded = writer.encode(feature);
+                RevFeature decodedFeature = (RevFeature) reader.decode(feature.getId(), encoded);
+                assertEquals(feature.getValues(), decodedFeature.getValues());
+            }
+        }
+    }
+
+    /**
+     * Objects written before codecs were selectable have the bare format code as header, and are
+     * LZF compressed
+     */
+    @Test
+    public void testLegacyHeader() {
+        RevFeature feature = RevObjectTestSupport.feature("a string", Integer.valueOf(1));
+        byte[] encoded = new SerializationFactoryProxy("2.2", "lzf").encode(feature);
+        assertEquals(3, encoded[0]);
+        RevFeature decoded = (RevFeature) new SerializationFactoryProxy("2.3", "lz4")
+                .decode(feature.getId(), encoded);
+        assertEquals(feature.getValues(), decoded.getValues());
+    }
+
+    @Test
+    public void testWriteV2_2ReadV2_3() {
+        testCrossFormat("2.2", "2.3");
+    }
+
+    @Test
+    public void testWriteV2_3ReadV2_2() {
+        testCrossFormat("2.3", "2.2");
+    }
+
+    /**
+     * Objects written in any format are readable regardless of the format a proxy writes
+     */
+    private void testCrossFormat(String writeFormat, String readFormat) {
+        HeapObjectStore store = new HeapObjectStore();
+        store.open();
+        RevTree tree = RevObjectTestSupport.createFeaturesTree(store, "f", 1000);
+
+        SerializationFactoryProxy writer = new SerializationFactoryProxy(writeFormat);
+        SerializationFactoryProxy reader = new SerializationFactoryProxy(readFormat);
+
+        byte[] encoded = writer.encode(tree);
+        assertEquals(SerializationFactoryProxy.WRITABLE_FORMATS.get(writeFormat).intValue(),
+                encoded[0] & 0xFF);
+
+        RevTree decoded = (RevTree) reader.decode(tree.getId(), encoded);
+        assertEquals(tree.getId(), decoded.getId());
+        assertEquals(tree.size(), decoded.size());
+        assertEquals(tree.features(), decoded.features());
+        assertEquals(tree.trees(), decoded.trees());
+        assertEquals(tree.buckets(), decoded.buckets());
+    }
+}
@@ -0,0 +1,100 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.datastream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.PrecisionModel;
+import com.vividsolutions.jts.io.ByteOrderValues;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class WKBGeometryDecoderTest {
+
+    private GeometryFactory gf = new GeometryFactory();
+
+    @Test
+    public void testPoint() throws Exception {
+        test("POINT(1 2)");
+        test("POINT(1 2 3)");
+    }
+
+    @Test
+    public void testLineString() throws Exception {
+        test("LINESTRING(1 2, 3 4, 5 6)");
+        test("LINESTRING(1 2 1, 3 4 2, 5 6 3)");
+        test("LINESTRING EMPTY");
+    }
+
+    @Test
+    public void testPolygon() throws Exception {
+        test("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0))");
+        test("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), (1 1, 2 1, 2 2, 1 2, 1 1), (5 5, 6 5, 6 6, 5 6, 5 5))");
+        test("POLYGON((0 0 1, 10 0 1, 10 10 1, 0 10 1, 0 0 1))");
+    }
+
+    @Test
+    public void testMultiGeometries() throws Exception {
+        test("MULTIPOINT((1 2), (3 4))");
+        test("MULTILINESTRING((1 2, 3 4), (5 6, 7 8, 9 10))");
+        test("MULTIPOLYGON(((0 0, 10 0, 10 10, 0 10, 0 0)), ((20 20, 30 20, 30 30, 20 20)))");
+        test("GEOMETRYCOLLECTION(POINT(1 2), LINESTRING(1 2, 3 4), POLYGON((0 0, 10 0, 10 10, 0 0)))");
+        test("GEOMETRYCOLLECTION EMPTY");
+    }
+
+    @Test
+    public void testSRID() throws Exception {
+        Geometry geom = new WKTReader().read("LINESTRING(1 2, 3 4)");
+        geom.setSRID(4326);
+        WKBWriter writer = new WKBWriter(2, ByteOrderValues.BIG_ENDIAN, true);
+        byte[] wkb = writer.write(geom);
+        Geometry decoded = WKBGeometryDecoder.decode(wkb, 0, gf);
+        assertEquals(geom, decoded);
+        assertEquals(4326, decoded.getSRID());
+    }
+
+    @Test
+    public void testOffsetAndFactory() throws Exception {
+        Geometry geom = new WKTReader().read("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0))");
+        byte[] wkb = new WKBWriter().write(geom);
+        byte[] data = new byte[wkb.length + 10];
+        System.arraycopy(wkb, 0, data, 7, wkb.length);
+
+        GeometryFactory provided = new GeometryFactory(new PrecisionModel(1));
+        Geometry decoded = WKBGeometryDecoder.decode(data, 7, provided);
+        assertEquals(geom, decoded);
+        assertSame(provided, decoded.getFactory());
+    }
+
+    private void test(String wkt) throws Exception {
+        Geometry geom = new WKTReader(gf).read(wkt);
+        final int dimension = Double.isNaN(geom.getCoordinate() == null ? Double.NaN
+                : geom.getCoordinate().z) ? 2 : 3;
+        for (int byteOrder : new int[] { ByteOrderValues.BIG_ENDIAN,
+                ByteOrderValues.LITTLE_ENDIAN }) {
+            byte[] wkb = new WKBWriter(dimension, byteOrder).write(geom);
+            Geometry expected = new WKBReader(gf).read(wkb);
+            Geometry actual = WKBGeometryDecoder.decode(wkb, 0, gf);
+            assertEquals(expected.getClass(), actual.getClass());
+            assertTrue(expected.equalsExact(actual));
+            assertTrue(expected.getCoordinates().length == actual.getCoordinates().length);
+            for (int i = 0; i < expected.getCoordinates().length; i++) {
+                assertTrue(expected.getCoordinates()[i].equals3D(actual.getCoordinates()[i]));
+            }
+        }
+    }
+}
@@ -9,12 +9,27 @@
  */
 package org.locationtech.geogig.storage.fs;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Rule;
+import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.repository.Conflict;
 import org.locationtech.geogig.storage.impl.ConflictsDatabaseConformanceTest;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
 public class FileConflictsDatabaseConformanceTest
         extends ConflictsDatabaseConformanceTest<FileConflictsDatabase> {
 
@@ -23,9 +38,11 @@ public class FileConflictsDatabaseConformanceTest
 
     final int batchSizeOverride = 100;
 
+    private File repositoryDirectory;
+
     @Override
     protected FileConflictsDatabase createConflictsDatabase() throws Exception {
-        File repositoryDirectory = tmp.newFolder(".geogig");
+        repositoryDirectory = tmp.newFolder(".geogig");
         FileConflictsDatabase db;
         db = new FileConflictsDatabase(repositoryDirectory, batchSizeOverride);
         return db;
@@ -36,4 +53,71 @@ public class FileConflictsDatabaseConformanceTest
         // not needed, TemporaryFolder takes care
     }
 
+    private static String toLegacyFormat(Conflict c) {
+        return c.getPath() + "\t" + c.getAncestor() + "\t" + c.getOurs() + "\t" + c.getTheirs();
+    }
+
+    @Test
+    public void testImportLegacyConflicts() throws Exception {
+        File legacyFile = new File(repositoryDirectory, "conflicts");
+        File legacyTxFile = new File(new File(repositoryDirectory, "txconflicts"), "tx1");
+        legacyTxFile.getParentFile().mkdirs();
+
+        StringBuilder sb = new StringBuilder();
+        for (Conflict c : ImmutableList.of(c1, c2, c3)) {
+            sb.append(toLegacyFormat(c)).append('\n');
+        }
+        Files.write(sb, legacyFile, Charsets.UTF_8);
+        Files.write(toLegacyFormat(b1) + "\n", legacyTxFile, Charsets.UTF_8);
+
+        assertEquals(3, conflicts.getCountByPrefix(null, null));
+        assertEquals(ImmutableList.of(c1, c2, c3),
+                Lists.newArrayList(conflicts.getByPrefix(null, null)));
+        assertFalse(legacyFile.exists());
+        assertTrue(new File(repositoryDirectory, "conflicts.db").exists());
+
+        assertEquals(Optional.of(b1), conflicts.getConflict("tx1", b1.getPath()));
+        assertFalse(legacyTxFile.exists());
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        conflicts.addConflicts(null, ImmutableList.of(c1, c2, c3, b1));
+        conflicts.removeConflict(null, c2.getPath());
+        conflicts.close();
+
+        FileConflictsDatabase reopened = new FileConflictsDatabase(repositoryDirectory,
+                batchSizeOverride);
+        assertEquals(ImmutableList.of(c1, c3, b1),
+                Lists.newArrayList(reopened.getByPrefix(null, null)));
+        assertEquals(ImmutableSet.of(c1.getPath()),
+                reopened.findConflicts(null, ImmutableSet.of(c1.getPath(), c2.getPath())));
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        final int count = 25_000;
+        List<Conflict> all = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            all.add(createTestConflict(String.format("Rivers/%05d", i)));
+        }
+        conflicts.addConflicts(null, all);
+        final File dataFile = new File(repositoryDirectory, "conflicts.db");
+        final long fullLength = dataFile.length();
+
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < count - 1_000; i++) {
+            removed.add(all.get(i).getPath());
+        }
+        conflicts.removeConflicts(null, removed);
+
+        assertTrue(dataFile.length() < fullLength / 10);
+        assertEquals(1_000, conflicts.getCountByPrefix(null, "Rivers"));
+        assertEquals(all.subList(count - 1_000, count),
+                Lists.newArrayList(conflicts.getByPrefix(null, "Rivers")));
+
+        conflicts.removeConflicts(null, Lists.transform(all, (c) -> c.getPath()));
+        assertFalse(conflicts.hasConflicts(null));
+        assertFalse(dataFile.exists());
+    }
 }
@@ -0,0 +1,99 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.Hints;
+import org.locationtech.geogig.repository.Platform;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.memory.HeapObjectDatabase;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.inject.util.Providers;
+
+public class CachingObjectDatabaseConformanceTest extends ObjectStoreConformanceTest {
+
+    @Override
+    protected ObjectStore createOpen(Platform platform, Hints hints) {
+        HeapObjectDatabase subject = new HeapObjectDatabase(platform, hints);
+        Map<TYPE, Long> budgets = new EnumMap<>(TYPE.class);
+        budgets.put(TYPE.TREE, 1024L * 1024);
+        budgets.put(TYPE.FEATURE, 1024L * 1024);
+        CachingObjectDatabase db = new CachingObjectDatabase(Providers.of(subject),
+                new ObjectCache(budgets));
+        db.open();
+        return db;
+    }
+
+    @Test
+    public void testCachesDecodedObjects() {
+        CachingObjectDatabase cachingDb = (CachingObjectDatabase) db;
+        ObjectCache cache = cachingDb.getCache();
+        assertTrue(db.put(RevTree.EMPTY));
+        assertEquals(0, cache.size(TYPE.TREE));
+
+        RevTree tree = db.getTree(RevTree.EMPTY_TREE_ID);
+        assertEquals(1, cache.size(TYPE.TREE));
+        assertSame(tree, db.getTree(RevTree.EMPTY_TREE_ID));
+        assertSame(tree, Iterators.getOnlyElement(
+                db.getAll(ImmutableList.of(RevTree.EMPTY_TREE_ID))));
+        assertEquals(2, cache.stats(TYPE.TREE).hitCount());
+
+        db.delete(RevTree.EMPTY_TREE_ID);
+        assertEquals(0, cache.size(TYPE.TREE));
+        assertFalse(db.exists(RevTree.EMPTY_TREE_ID));
+    }
+
+    @Test
+    public void testSharedCacheViews() {
+        Map<TYPE, Long> budgets = new EnumMap<>(TYPE.class);
+        budgets.put(TYPE.TREE, 1024L * 1024);
+        ObjectCache shared = new ObjectCache(budgets);
+        ObjectCache view1 = shared.view();
+        ObjectCache view2 = shared.view();
+
+        RevTree tree1 = RevObjectTestSupport.createFeaturesTree(db, "f", 10);
+        RevTree tree2 = RevObjectTestSupport.createFeaturesTree(db, "f", 20);
+        view1.put(tree1);
+        view2.put(tree2);
+
+        // entries are only visible to the view that cached them
+        assertSame(tree1, view1.getIfPresent(tree1.getId()));
+        assertNull(view1.getIfPresent(tree2.getId()));
+        assertSame(tree2, view2.getIfPresent(tree2.getId(), RevTree.class));
+        assertNull(view2.getIfPresent(tree1.getId(), RevTree.class));
+        assertEquals(1, view1.size(TYPE.TREE));
+        assertEquals(1, view2.size(TYPE.TREE));
+        assertEquals(0, shared.size(TYPE.TREE));
+
+        // but they share the budget
+        view2.put(tree1);
+        assertEquals(2, view2.size(TYPE.TREE));
+        assertEquals(view1.stats(TYPE.TREE), view2.stats(TYPE.TREE));
+
+        view1.invalidateAll();
+        assertNull(view1.getIfPresent(tree1.getId()));
+        assertSame(tree1, view2.getIfPresent(tree1.getId()));
+        assertSame(tree2, view2.getIfPresent(tree2.getId()));
+    }
+}
@@ -38,6 +38,7 @@ import org.locationtech.geogig.storage.GraphDatabase.GraphEdge;
 import org.locationtech.geogig.storage.GraphDatabase.GraphNode;
 import org.locationtech.geogig.test.TestPlatform;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 
 /**
@@ -194,6 +195,78 @@ public abstract class GraphDatabaseTest {
         assertEquals(1, database.getDepth(commit11));
     }
 
+    @Test
+    public void testGeneration() throws IOException {
+        // root - c1 - c2 - c3 - c5 - c6
+        // |                \       /
+        // |                 c4 ---
+        // c7
+        ObjectId root = RevObjectTestSupport.hashString("root commit");
+        ObjectId c1 = RevObjectTestSupport.hashString("commit1");
+        ObjectId c2 = RevObjectTestSupport.hashString("commit2");
+        ObjectId c3 = RevObjectTestSupport.hashString("commit3");
+        ObjectId c4 = RevObjectTestSupport.hashString("commit4");
+        ObjectId c5 = RevObjectTestSupport.hashString("commit5");
+        ObjectId c6 = RevObjectTestSupport.hashString("commit6");
+        ObjectId c7 = RevObjectTestSupport.hashString("commit7");
+        database.put(root, ImmutableList.of());
+        database.put(c1, ImmutableList.of(root));
+        database.put(c2, ImmutableList.of(c1));
+        database.put(c3, ImmutableList.of(c2));
+        database.put(c4, ImmutableList.of(c2));
+        database.put(c5, ImmutableList.of(c3));
+        database.put(c6, ImmutableList.of(c5, c4));
+        database.put(c7, ImmutableList.of(root));
+
+        assertEquals(Optional.of(0), database.getNode(root).getGeneration());
+        assertEquals(Optional.of(1), database.getNode(c1).getGeneration());
+        assertEquals(Optional.of(3), database.getNode(c4).getGeneration());
+        assertEquals(Optional.of(4), database.getNode(c5).getGeneration());
+        assertEquals(Optional.of(5), database.getNode(c6).getGeneration());
+        assertEquals(Optional.of(1), database.getNode(c7).getGeneration());
+
+        assertEquals(4, database.getDepth(c6));
+        assertEquals(1, database.getDepth(c7));
+    }
+
+    @Test
+    public void testGenerationNewestFirst() throws IOException {
+        // commits put in the order a log traversal returns them, like RebuildGraphOp does
+        ObjectId root = RevObjectTestSupport.hashString("root commit");
+        ObjectId c1 = RevObjectTestSupport.hashString("commit1");
+        ObjectId c2 = RevObjectTestSupport.hashString("commit2");
+        ObjectId c3 = RevObjectTestSupport.hashString("commit3");
+        database.put(c3, ImmutableList.of(c2, c1));
+        database.put(c2, ImmutableList.of(c1));
+        database.put(c1, ImmutableList.of(root));
+
+        assertFalse(database.getNode(c3).getGeneration().isPresent());
+        assertFalse(database.getNode(c1).getGeneration().isPresent());
+        assertEquals(2, database.getDepth(c3));
+
+        database.put(root, ImmutableList.of());
+
+        assertEquals(Optional.of(0), database.getNode(root).getGeneration());
+        assertEquals(Optional.of(1), database.getNode(c1).getGeneration());
+        assertEquals(Optional.of(2), database.getNode(c2).getGeneration());
+        assertEquals(Optional.of(3), database.getNode(c3).getGeneration());
+        assertEquals(2, database.getDepth(c3));
+    }
+
+    @Test
+    public void testDepthMissingAncestors() throws IOException {
+        // like in a shallow clone, the parent of c1 is not in the graph
+        ObjectId c0 = RevObjectTestSupport.hashString("commit0");
+        ObjectId c1 = RevObjectTestSupport.hashString("commit1");
+        ObjectId c2 = RevObjectTestSupport.hashString("commit2");
+        database.put(c1, ImmutableList.of(c0));
+        database.put(c2, ImmutableList.of(c1));
+
+        assertFalse(database.getNode(c2).getGeneration().isPresent());
+        assertEquals(2, database.getDepth(c2));
+        assertEquals(1, database.getDepth(c1));
+    }
+
     @Test
     public void testProperties() throws IOException {
         ObjectId rootId = RevObjectTestSupport.hashString("root");
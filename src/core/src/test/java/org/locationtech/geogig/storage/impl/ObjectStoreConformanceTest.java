@@ -37,6 +37,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -57,6 +58,7 @@ import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.BulkOpListener.CountingListener;
 import org.locationtech.geogig.storage.ObjectInfo;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.RawObject;
 import org.locationtech.geogig.test.TestPlatform;
 
 import com.google.common.base.Function;
@@ -605,6 +607,48 @@ public abstract class ObjectStoreConformanceTest {
         assertEquals(Sets.newHashSet(ids), Sets.newHashSet(found));
     }
 
+    @Test
+    public void testGetAllRawPutAllRaw() {
+        Assume.assumeNotNull(db.getRawFormat());
+
+        ImmutableList<RevObject> expected = ImmutableList.of(feature(0, null, "some value"),
+                feature(1, "value", new Integer(111)), feature(2, (Object) null), RevTree.EMPTY,
+                createFeaturesTree(db, "t", 100));
+
+        db.putAll(expected.iterator());
+        assertTrue(db.put(feature(5, "not queried 1")));
+
+        Function<RevObject, ObjectId> toId = p -> p.getId();
+        final List<ObjectId> ids = Lists.newArrayList(Iterables.transform(expected, toId));
+        Iterable<ObjectId> notFound = ImmutableList.of(RevObjectTestSupport.hashString("notfound1"),
+                RevObjectTestSupport.hashString("notfound2"));
+
+        CountingListener listener = BulkOpListener.newCountingListener();
+        List<RawObject> raw = Lists.newArrayList(db.getAllRaw(Iterables.concat(notFound, ids),
+                listener));
+        assertEquals(expected.size(), listener.found());
+        assertEquals(2, listener.notFound());
+        assertEquals(Sets.newHashSet(ids),
+                Sets.newHashSet(Iterables.transform(raw, (r) -> r.id())));
+
+        db.deleteAll(ids.iterator());
+        for (ObjectId id : ids) {
+            assertFalse(db.exists(id));
+        }
+
+        listener = BulkOpListener.newCountingListener();
+        db.putAllRaw(raw.iterator(), listener);
+        assertEquals(expected.size(), listener.inserted());
+        for (RevObject o : expected) {
+            assertEquals(o, db.get(o.getId()));
+        }
+
+        listener = BulkOpListener.newCountingListener();
+        db.putAllRaw(raw.iterator(), listener);
+        assertEquals(0, listener.inserted());
+        assertEquals(expected.size(), listener.found());
+    }
+
     @Test
     public void testGetObjects() throws Exception {
         final int numSubTrees = 512;
@@ -0,0 +1,192 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.ObjectIdSet;
+
+public class SpillingDeduplicatorTest {
+
+    private SpillingDeduplicator dedup;
+
+    private static List<ObjectId> randomIds(int count, long seed) {
+        Random random = new Random(seed);
+        List<ObjectId> ids = new ArrayList<>(count);
+        byte[] raw = new byte[ObjectId.NUM_BYTES];
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(raw);
+            ids.add(new ObjectId(raw));
+        }
+        return ids;
+    }
+
+    @After
+    public void after() {
+        if (dedup != null) {
+            dedup.release();
+        }
+    }
+
+    @Test
+    public void testInMemory() {
+        dedup = new SpillingDeduplicator(64 * 1024 * 1024);
+        List<ObjectId> ids = randomIds(10_000, 1);
+        for (ObjectId id : ids) {
+            assertFalse(dedup.isDuplicate(id));
+            assertFalse(dedup.visit(id));
+            assertTrue(dedup.isDuplicate(id));
+            assertTrue(dedup.visit(id));
+        }
+        assertFalse(dedup.hasSpilled());
+    }
+
+    @Test
+    public void testSpill() {
+        // about 100 ids per buffer
+        dedup = new SpillingDeduplicator(2 * 16 * 100 * 48);
+        List<ObjectId> ids = randomIds(50_000, 2);
+        for (ObjectId id : ids) {
+            assertFalse(dedup.visit(id));
+        }
+        assertTrue(dedup.hasSpilled());
+        for (ObjectId id : ids) {
+            assertTrue(dedup.isDuplicate(id));
+            assertTrue(dedup.visit(id));
+        }
+        for (ObjectId id : randomIds(50_000, 3)) {
+            assertFalse(dedup.isDuplicate(id));
+        }
+    }
+
+    @Test
+    public void testRemoveDuplicates() {
+        dedup = new SpillingDeduplicator(2 * 16 * 100 * 48);
+        List<ObjectId> ids = randomIds(10_000, 4);
+        for (int i = 0; i < ids.size(); i += 2) {
+            dedup.visit(ids.get(i));
+        }
+        List<ObjectId> filtered = new ArrayList<>(ids);
+        dedup.removeDuplicates(filtered);
+        assertEquals(ids.size() / 2, filtered.size());
+        for (ObjectId id : filtered) {
+            assertEquals(1, ids.indexOf(id) % 2);
+        }
+    }
+
+    @Test
+    public void testReset() {
+        dedup = new SpillingDeduplicator(2 * 16 * 100 * 48);
+        List<ObjectId> ids = randomIds(10_000, 5);
+        ids.forEach((id) -> dedup.visit(id));
+        assertTrue(dedup.hasSpilled());
+        dedup.reset();
+        assertFalse(dedup.hasSpilled());
+        for (ObjectId id : ids) {
+            assertFalse(dedup.isDuplicate(id));
+            assertFalse(dedup.visit(id));
+        }
+    }
+
+    @Test
+    public void testSpillDropsBuffers() {
+        SpillingDeduplicator.Budget budget = new SpillingDeduplicator.Budget(2 * 16 * 100 * 48);
+        final long available = budget.available();
+        dedup = new SpillingDeduplicator(budget);
+        List<ObjectId> ids = randomIds(10_000, 10);
+        int spills = 0;
+        for (ObjectId id : ids) {
+            ObjectIdSet buffer = dedup.buffer(id);
+            dedup.visit(id);
+            if (dedup.buffer(id).isEmpty()) {
+                spills++;
+                // the grown buffer is dropped, not cleared, so its room goes back to the heap
+                // along with its reservation to the budget
+                assertNotSame(buffer, dedup.buffer(id));
+                assertFalse(buffer.isEmpty());
+            }
+        }
+        assertTrue(spills > 0);
+        assertTrue(dedup.hasSpilled());
+
+        List<ObjectIdSet> buffers = new ArrayList<>();
+        ids.forEach((id) -> buffers.add(dedup.buffer(id)));
+        dedup.reset();
+        assertEquals(available, budget.available());
+        for (int i = 0; i < ids.size(); i++) {
+            ObjectIdSet buffer = dedup.buffer(ids.get(i));
+            assertTrue(buffer.isEmpty());
+            assertNotSame(buffers.get(i), buffer);
+        }
+    }
+
+    @Test
+    public void testConcurrentVisits() throws Exception {
+        dedup = new SpillingDeduplicator(2 * 16 * 100 * 48);
+        final List<ObjectId> ids = randomIds(20_000, 6);
+        final AtomicInteger firstVisits = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try {
+            // every id is visited four times from different threads, only one may see it first
+            pool.submit(() -> IntStream.range(0, 4 * ids.size()).parallel().forEach((i) -> {
+                if (!dedup.visit(ids.get(i % ids.size()))) {
+                    firstVisits.incrementAndGet();
+                }
+            })).get();
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        assertEquals(ids.size(), firstVisits.get());
+        assertTrue(dedup.hasSpilled());
+    }
+
+    @Test
+    public void testSharedBudget() {
+        // room for 10k ids among all the deduplicators
+        SpillingDeduplicator.Budget budget = new SpillingDeduplicator.Budget(10_000 * 48);
+        SpillingDeduplicator dedup1 = new SpillingDeduplicator(budget);
+        SpillingDeduplicator dedup2 = new SpillingDeduplicator(budget);
+        try {
+            randomIds(8_000, 7).forEach((id) -> dedup1.visit(id));
+            assertFalse(dedup1.hasSpilled());
+            assertTrue(budget.available() < 3_000);
+
+            List<ObjectId> ids2 = randomIds(8_000, 8);
+            ids2.forEach((id) -> dedup2.visit(id));
+            assertTrue(dedup2.hasSpilled());
+            for (ObjectId id : ids2) {
+                assertTrue(dedup2.isDuplicate(id));
+            }
+        } finally {
+            dedup1.release();
+            dedup2.release();
+        }
+        assertEquals(10_000, budget.available());
+
+        dedup = new SpillingDeduplicator(budget);
+        randomIds(8_000, 9).forEach((id) -> dedup.visit(id));
+        assertFalse(dedup.hasSpilled());
+    }
+}
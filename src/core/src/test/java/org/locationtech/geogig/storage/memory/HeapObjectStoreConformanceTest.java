@@ -9,11 +9,29 @@
  */
 package org.locationtech.geogig.storage.memory;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.createFeaturesTree;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.feature;
+import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.repository.Hints;
 import org.locationtech.geogig.repository.Platform;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.RawObject;
+import org.locationtech.geogig.storage.datastream.SerializationFactoryProxy;
 import org.locationtech.geogig.storage.impl.ObjectStoreConformanceTest;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
 public class HeapObjectStoreConformanceTest extends ObjectStoreConformanceTest {
 
     @Override
@@ -23,4 +41,68 @@ public class HeapObjectStoreConformanceTest extends ObjectStoreConformanceTest {
         return heapObjectDatabase;
     }
 
+    @Test
+    public void testCopyAllReencodesToTargetSettings() {
+        HeapObjectStore from = new HeapObjectStore(new SerializationFactoryProxy("2.3", "lz4"));
+        HeapObjectStore to = new HeapObjectStore();
+        from.open();
+        to.open();
+        try {
+            assertEquals("2.3/lz4", from.getRawFormat());
+            assertEquals("2.2/lzf", to.getRawFormat());
+
+            List<RevObject> objects = objects(from);
+            List<ObjectId> ids = Lists.transform(objects, (o) -> o.getId());
+            ObjectStore.copyAll(ids, from, to, NOOP_LISTENER);
+
+            // objects are written as the target is configured to, not as the source had them
+            final int defaultHeader = SerializationFactoryProxy.WRITABLE_FORMATS.get("2.2");
+            Map<ObjectId, byte[]> raw = raw(to, ids);
+            for (RevObject o : objects) {
+                assertEquals(defaultHeader, raw.get(o.getId())[0] & 0xFF);
+                assertEquals(o, to.get(o.getId()));
+            }
+        } finally {
+            from.close();
+            to.close();
+        }
+    }
+
+    @Test
+    public void testCopyAllSameSettingsCopiesRaw() {
+        HeapObjectStore from = new HeapObjectStore(new SerializationFactoryProxy("2.3", "lz4"));
+        HeapObjectStore to = new HeapObjectStore(new SerializationFactoryProxy("2.3", "lz4"));
+        from.open();
+        to.open();
+        try {
+            List<RevObject> objects = objects(from);
+            List<ObjectId> ids = Lists.transform(objects, (o) -> o.getId());
+            ObjectStore.copyAll(ids, from, to, NOOP_LISTENER);
+
+            Map<ObjectId, byte[]> expected = raw(from, ids);
+            Map<ObjectId, byte[]> actual = raw(to, ids);
+            assertEquals(expected.keySet(), actual.keySet());
+            for (ObjectId id : ids) {
+                assertArrayEquals(expected.get(id), actual.get(id));
+            }
+        } finally {
+            from.close();
+            to.close();
+        }
+    }
+
+    private List<RevObject> objects(ObjectStore store) {
+        List<RevObject> objects = ImmutableList.of(feature(0, null, "some value"),
+                feature(1, "value", new Integer(111)), createFeaturesTree(store, "t", 100));
+        store.putAll(objects.iterator());
+        return objects;
+    }
+
+    private Map<ObjectId, byte[]> raw(ObjectStore store, List<ObjectId> ids) {
+        Map<ObjectId, byte[]> raw = new HashMap<>();
+        for (RawObject o : Lists.newArrayList(store.getAllRaw(ids, NOOP_LISTENER))) {
+            raw.put(o.id(), o.bytes());
+        }
+        return raw;
+    }
 }
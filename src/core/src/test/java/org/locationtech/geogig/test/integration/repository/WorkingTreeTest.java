@@ -11,9 +11,11 @@ package org.locationtech.geogig.test.integration.repository;
 
 import static org.locationtech.geogig.model.NodeRef.appendChild;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -21,8 +23,10 @@ import org.junit.rules.ExpectedException;
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.RevFeatureBuilder;
 import org.locationtech.geogig.model.impl.RevFeatureTypeBuilder;
 import org.locationtech.geogig.plumbing.FindTreeChild;
 import org.locationtech.geogig.repository.DefaultProgressListener;
@@ -176,6 +180,92 @@ public class WorkingTreeTest extends RepositoryTestCase {
 
     }
 
+    @Test
+    public void testInsertMultipleBatchesLastWriteWins() throws Exception {
+        final ObjectId featureTypeId = RevFeatureTypeBuilder.build(pointsType).getId();
+        // several batches worth of features, each path inserted three times and the first hundred
+        // paths deleted at the end
+        List<FeatureInfo> infos = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            infos.add(newFeatureInfo("f" + (i % 1_000), i, featureTypeId));
+        }
+        for (int i = 0; i < 100; i++) {
+            infos.add(FeatureInfo.delete(appendChild(pointsName, "f" + i)));
+        }
+        workTree.insert(infos.iterator(), LISTENER);
+
+        Node typeTree = findTreeChild(workTree.getTree(), pointsName).get();
+        assertEquals(900, repo.getTree(typeTree.getObjectId()).size());
+        for (int i = 0; i < 1_000; i++) {
+            Optional<Node> node = workTree.findUnstaged(appendChild(pointsName, "f" + i));
+            if (i < 100) {
+                assertFalse(node.isPresent());
+            } else {
+                ObjectId lastWrite = infos.get(2_000 + i).getFeature().getId();
+                assertEquals(lastWrite, node.get().getObjectId());
+                assertTrue(repo.objectDatabase().exists(lastWrite));
+            }
+        }
+    }
+
+    @Test
+    public void testInsertCancelledWithPendingBatches() throws Exception {
+        final ObjectId featureTypeId = RevFeatureTypeBuilder.build(pointsType).getId();
+        final ObjectId workHead = workTree.getTree().getId();
+        final int numFeatures = 50_000;
+        List<FeatureInfo> infos = new ArrayList<>();
+        for (int i = 0; i < numFeatures; i++) {
+            infos.add(newFeatureInfo("f" + i, i, featureTypeId));
+        }
+        final AtomicInteger read = new AtomicInteger();
+        Iterator<FeatureInfo> features = Iterators.transform(infos.iterator(), (fi) -> {
+            read.incrementAndGet();
+            return fi;
+        });
+        ProgressListener listener = new DefaultProgressListener() {
+            @Override
+            public void setProgress(float progress) {
+                super.setProgress(progress);
+                if (progress >= 1_500) {
+                    cancel();
+                }
+            }
+        };
+
+        assertEquals(workHead, workTree.insert(features, listener));
+        assertEquals(workHead, workTree.getTree().getId());
+        assertTrue(read.get() < numFeatures);
+        assertFalse(workTree.findUnstaged(appendChild(pointsName, "f0")).isPresent());
+    }
+
+    @Test
+    public void testInsertFailsInWorkerThread() throws Exception {
+        final ObjectId featureTypeId = RevFeatureTypeBuilder.build(pointsType).getId();
+        final ObjectId workHead = workTree.getTree().getId();
+        List<FeatureInfo> infos = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            infos.add(newFeatureInfo("f" + i, i, featureTypeId));
+        }
+        infos.set(2_500, FeatureInfo.insert(() -> {
+            throw new IllegalStateException("unable to build feature");
+        }, featureTypeId, appendChild(pointsName, "broken")));
+
+        try {
+            workTree.insert(infos.iterator(), LISTENER);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("unable to build feature", e.getMessage());
+        }
+        assertEquals(workHead, workTree.getTree().getId());
+        assertFalse(workTree.findUnstaged(appendChild(pointsName, "f0")).isPresent());
+    }
+
+    private FeatureInfo newFeatureInfo(String fid, int value, ObjectId featureTypeId) {
+        RevFeature feature = RevFeatureBuilder.builder().addValue("StringProp1_" + value)
+                .addValue(Integer.valueOf(value)).addValue(null).build();
+        return FeatureInfo.insert(feature, featureTypeId, appendChild(pointsName, fid));
+    }
+
     @Test
     public void testDeleteSingle() throws Exception {
         List<Feature> featureList = new LinkedList<Feature>();
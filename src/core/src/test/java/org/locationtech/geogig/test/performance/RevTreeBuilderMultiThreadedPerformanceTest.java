@@ -0,0 +1,163 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.test.performance;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runners.MethodSorters;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.model.impl.RevTreeBuilder;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Multi-threaded variant of {@link RevTreeBuilderPerformanceTest}, reports how node insertion
+ * throughput scales with the number of threads concurrently feeding the same
+ * {@link RevTreeBuilder}, from one thread up to the number of available processors.
+ * <p>
+ * The test is only run if the System property {@code geogig.runPerformanceTests} is set to
+ * {@code true}
+ * <p>
+ * It also needs to be run with a rather high Heap size (8GB recommended for the 50M nodes test)
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class RevTreeBuilderMultiThreadedPerformanceTest {
+
+    private static final ObjectId FAKE_ID = RevObjectTestSupport.hashString("fake");
+
+    private ObjectStore odb;
+
+    @Rule
+    public TestName testName = new TestName();
+
+    /**
+     * Enables this test only if the geogig.runPerformanceTests=true system property was provided
+     */
+    @ClassRule
+    public static EnablePerformanceTestRule performanceRule = new EnablePerformanceTestRule();
+
+    @Before
+    public void before() throws Exception {
+        odb = createObjectStore();
+        odb.open();
+    }
+
+    protected ObjectStore createObjectStore() throws Exception {
+        return new HeapObjectStore();
+    }
+
+    @After
+    public void after() throws Exception {
+        odb.close();
+        System.gc();
+        Thread.sleep(3000);
+        System.gc();
+        Thread.sleep(1000);
+    }
+
+    @Test
+    public void testBuildUnordered_01_1M() throws Exception {
+        testBuildUnordered(1000_000);
+    }
+
+    @Test
+    public void testBuildUnordered_02_10M() throws Exception {
+        testBuildUnordered(10_000_000);
+    }
+
+    @Test
+    public void testBuildUnordered_03_50M() throws Exception {
+        testBuildUnordered(50_000_000);
+    }
+
+    private void testBuildUnordered(final int size) throws Exception {
+        System.err.println(testName.getMethodName() + ":\n----------------------");
+        final int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int nThreads = 1; nThreads <= maxThreads; nThreads *= 2) {
+            testBuildUnordered(size, nThreads);
+            if (nThreads < maxThreads && 2 * nThreads > maxThreads) {
+                testBuildUnordered(size, maxThreads);
+            }
+        }
+    }
+
+    private void testBuildUnordered(final int size, final int nThreads) throws Exception {
+        RevTreeBuilder builder = CanonicalTreeBuilder.create(odb);
+
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads,
+                new ThreadFactoryBuilder().setNameFormat("tree-builder-test-%d").build());
+        Stopwatch sw = Stopwatch.createStarted();
+        try {
+            List<Future<?>> tasks = new ArrayList<>(nThreads);
+            for (int t = 0; t < nThreads; t++) {
+                final int offset = t;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 1 + offset; i <= size; i += nThreads) {
+                        builder.put(createNode(i));
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    throw Throwables.propagate(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        sw.stop();
+        final long insertMillis = Math.max(1, sw.elapsed(TimeUnit.MILLISECONDS));
+        System.err.printf("\t%d threads: %,d nodes inserted in %s (%,d nodes/s)\n", nThreads,
+                size, sw, (size * 1000L) / insertMillis);
+
+        sw.reset().start();
+        RevTree tree = builder.build();
+        sw.stop();
+        System.err.printf("\t%d threads: %,d features tree built in %s (%s)\n", nThreads,
+                tree.size(), sw, tree.getId());
+        assertEquals(size, tree.size());
+    }
+
+    private static Node createNode(int i) {
+        byte[] rawID = FAKE_ID.getRawValue();
+        String key = "Feature." + i;
+        ObjectId id = new ObjectId(rawID);
+        Envelope env = new Envelope(0, 0, i, i);
+        Node ref = Node.create(key, id, FAKE_ID, TYPE.FEATURE, env);
+        return ref;
+    }
+}
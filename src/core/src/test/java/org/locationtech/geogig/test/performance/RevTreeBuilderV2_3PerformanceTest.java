@@ -0,0 +1,26 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.test.performance;
+
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.SerializationFactoryProxy;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+
+/**
+ * Runs {@link RevTreeBuilderPerformanceTest} storing the trees in the lazily parsed 2.3 format, to
+ * compare time and allocations against the default format
+ */
+public class RevTreeBuilderV2_3PerformanceTest extends RevTreeBuilderPerformanceTest {
+
+    @Override
+    protected ObjectStore createObjectStore() throws Exception {
+        return new HeapObjectStore(new SerializationFactoryProxy("2.3"));
+    }
+}
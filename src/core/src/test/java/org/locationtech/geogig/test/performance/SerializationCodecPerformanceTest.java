@@ -0,0 +1,140 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.test.performance;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.storage.datastream.SerializationFactoryProxy;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+
+import com.google.common.base.Stopwatch;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKTReader;
+
+/**
+ * Reports encoding and decoding throughput and encoded size of representative features and trees
+ * for each of the {@link SerializationFactoryProxy#CODECS compression codecs} and
+ * {@link SerializationFactoryProxy#WRITABLE_FORMATS writable formats}
+ * <p>
+ * The test is only run if the System property {@code geogig.runPerformanceTests} is set to
+ * {@code true}
+ */
+public class SerializationCodecPerformanceTest {
+
+    private static final int NUM_FEATURES = 100_000;
+
+    private static final int NUM_TREES = 2_000;
+
+    private static final int RUNS = 3;
+
+    /**
+     * Enables this test only if the geogig.runPerformanceTests=true system property was provided
+     */
+    @ClassRule
+    public static EnablePerformanceTestRule performanceRule = new EnablePerformanceTestRule();
+
+    private static List<RevObject> features;
+
+    private static List<RevObject> trees;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        if (!Boolean.getBoolean("geogig.runPerformanceTests")) {
+            return;
+        }
+        Random random = new Random(1);
+        WKTReader wktReader = new WKTReader();
+        features = new ArrayList<>(NUM_FEATURES);
+        for (int i = 0; i < NUM_FEATURES; i++) {
+            double x = random.nextDouble() * 360 - 180;
+            double y = random.nextDouble() * 180 - 90;
+            Geometry geom = wktReader.read(String.format(
+                    "POLYGON((%1$f %2$f, %3$f %2$f, %3$f %4$f, %1$f %4$f, %1$f %2$f))", x, y,
+                    x + random.nextDouble(), y + random.nextDouble()));
+            features.add(RevObjectTestSupport.feature("Feature number " + i, //
+                    Integer.valueOf(i), //
+                    Double.valueOf(random.nextDouble()), //
+                    Boolean.valueOf(i % 2 == 0), //
+                    new java.util.Date(1264396155228L + i), //
+                    "residential", //
+                    geom));
+        }
+        HeapObjectStore store = new HeapObjectStore();
+        store.open();
+        trees = new ArrayList<>(NUM_TREES);
+        for (int i = 0; i < NUM_TREES; i++) {
+            int numFeatures = 1 + (i % 512);
+            trees.add(RevObjectTestSupport.createFeaturesTree(store, "f" + i + "_", numFeatures));
+        }
+        store.close();
+    }
+
+    @Test
+    public void testFeatures() {
+        run("features", features);
+    }
+
+    @Test
+    public void testTrees() {
+        run("trees", trees);
+    }
+
+    private void run(String name, List<RevObject> objects) {
+        System.err.printf("%,d %s:\n----------------------\n", objects.size(), name);
+        System.err.println("format\tcodec\tbytes\tencode (obj/s)\tdecode (obj/s)");
+        for (String format : SerializationFactoryProxy.WRITABLE_FORMATS.keySet()) {
+            for (String codec : SerializationFactoryProxy.CODECS.keySet()) {
+                run(new SerializationFactoryProxy(format, codec), objects);
+            }
+        }
+    }
+
+    private void run(SerializationFactoryProxy proxy, List<RevObject> objects) {
+        final int size = objects.size();
+        byte[][] encoded = new byte[size][];
+        long bytes = 0;
+        long encodeNanos = Long.MAX_VALUE;
+        long decodeNanos = Long.MAX_VALUE;
+        // keep the best of a few runs to leave the JIT warm up out
+        for (int run = 0; run < RUNS; run++) {
+            Stopwatch sw = Stopwatch.createStarted();
+            for (int i = 0; i < size; i++) {
+                encoded[i] = proxy.encode(objects.get(i));
+            }
+            encodeNanos = Math.min(encodeNanos, sw.stop().elapsed(TimeUnit.NANOSECONDS));
+
+            sw.reset().start();
+            for (int i = 0; i < size; i++) {
+                RevObject o = proxy.decode(objects.get(i).getId(), encoded[i]);
+                assertEquals(objects.get(i).getType(), o.getType());
+            }
+            decodeNanos = Math.min(decodeNanos, sw.stop().elapsed(TimeUnit.NANOSECONDS));
+        }
+        for (byte[] b : encoded) {
+            bytes += b.length;
+        }
+        System.err.printf("%s\t%s\t%,d\t%,d\t%,d\n", proxy.getWriteFormat(), proxy.getCodec(),
+                bytes, throughput(size, encodeNanos), throughput(size, decodeNanos));
+    }
+
+    private static long throughput(int count, long nanos) {
+        return nanos == 0 ? 0 : (long) (count * 1e9 / nanos);
+    }
+}
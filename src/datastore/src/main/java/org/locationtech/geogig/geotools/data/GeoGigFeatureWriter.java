@@ -10,8 +10,13 @@
 package org.locationtech.geogig.geotools.data;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.geotools.data.FeatureReader;
 import org.geotools.data.FeatureWriter;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
@@ -19,6 +24,7 @@ import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.model.impl.RevFeatureBuilder;
+import org.locationtech.geogig.repository.DefaultProgressListener;
 import org.locationtech.geogig.repository.FeatureInfo;
 import org.locationtech.geogig.repository.WorkingTree;
 import org.opengis.feature.simple.SimpleFeature;
@@ -27,10 +33,24 @@ import org.opengis.feature.simple.SimpleFeatureType;
 import com.google.common.base.Preconditions;
 
 /**
- *
+ * A {@link FeatureWriter} that accumulates the written and removed features and applies them to
+ * the {@link WorkingTree} in a single batched {@link WorkingTree#insert(java.util.Iterator,
+ * org.locationtech.geogig.repository.ProgressListener) insert} once {@link #BUFFER_SIZE} changes
+ * are pending, and at {@link #close()}.
+ * <p>
+ * Buffering only happens when the writer works inside a GeoTools transaction, in which case it's
+ * registered with the transaction's {@link GeogigTransactionState} so that any pending change is
+ * {@link #flush() flushed} before the transaction is committed or the feature type is read within
+ * the same transaction. On {@link org.geotools.data.Transaction#AUTO_COMMIT auto commit} mode each
+ * change is applied right away.
  */
 class GeoGigFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleFeature> {
 
+    /**
+     * Max number of changes to hold before applying them to the working tree
+     */
+    static final int BUFFER_SIZE = 10_000;
+
     private final FeatureReader<SimpleFeatureType, SimpleFeature> reader;
 
     private final WorkingTree workingTree;
@@ -39,26 +59,49 @@ class GeoGigFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleFeat
 
     private final ObjectId featureTypeId;
 
+    private final @Nullable GeogigTransactionState transactionState;
+
+    /**
+     * Pending changes by feature path, deletes are {@link FeatureInfo#delete(String) delete}
+     * infos; the last change to a given feature wins
+     */
+    private final Map<String, FeatureInfo> pending = new LinkedHashMap<>();
+
     private SimpleFeature last;
 
     private GeoGigFeatureWriter(final FeatureReader<SimpleFeatureType, SimpleFeature> reader,
-            final NodeRef typeRef, final WorkingTree workingTree) {
+            final NodeRef typeRef, final WorkingTree workingTree,
+            final @Nullable GeogigTransactionState transactionState) {
         this.reader = reader;
         this.typePath = typeRef.path();
         this.featureTypeId = typeRef.getMetadataId();
         this.workingTree = workingTree;
+        this.transactionState = transactionState;
+        if (transactionState != null) {
+            transactionState.register(this);
+        }
     }
 
+    /**
+     * @param transactionState the state of the GeoTools transaction the writer works on, or
+     *        {@code null} on auto commit mode
+     */
     public static GeoGigFeatureWriter create(
             final FeatureReader<SimpleFeatureType, SimpleFeature> reader, final NodeRef typeRef,
-            final WorkingTree workingTree) {
-        return new GeoGigFeatureWriter(reader, typeRef, workingTree);
+            final WorkingTree workingTree,
+            final @Nullable GeogigTransactionState transactionState) {
+        return new GeoGigFeatureWriter(reader, typeRef, workingTree, transactionState);
     }
 
+    /**
+     * @param transactionState the state of the GeoTools transaction the writer works on, or
+     *        {@code null} on auto commit mode
+     */
     public static GeoGigFeatureWriter createAppendable(
             FeatureReader<SimpleFeatureType, SimpleFeature> reader, NodeRef typeRef,
-            WorkingTree workingTree) {
-        return new GeoGigFeatureWriter(new InfiniteFeatureReader(reader), typeRef, workingTree);
+            WorkingTree workingTree, @Nullable GeogigTransactionState transactionState) {
+        return new GeoGigFeatureWriter(new InfiniteFeatureReader(reader), typeRef, workingTree,
+                transactionState);
     }
 
     @Override
@@ -80,9 +123,8 @@ class GeoGigFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleFeat
     @Override
     public void remove() throws IOException {
         Preconditions.checkState(last != null, "next() hasn't been called");
-        String path = typePath;
-        String featureId = last.getID();
-        workingTree.delete(path, featureId);
+        String path = NodeRef.appendChild(typePath, last.getID());
+        buffer(FeatureInfo.delete(path));
     }
 
     @Override
@@ -91,13 +133,58 @@ class GeoGigFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleFeat
         String parentTreePath = typePath;
         RevFeature feature = RevFeatureBuilder.build(last);
         String path = NodeRef.appendChild(parentTreePath, last.getID());
-        FeatureInfo fi = FeatureInfo.insert(feature, featureTypeId, path);
-        workingTree.insert(fi);
+        buffer(FeatureInfo.insert(feature, featureTypeId, path));
+    }
+
+    private void buffer(FeatureInfo change) throws IOException {
+        final int size;
+        synchronized (pending) {
+            pending.remove(change.getPath());
+            pending.put(change.getPath(), change);
+            size = pending.size();
+        }
+        if (transactionState == null || size >= BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Applies the pending changes to the working tree in a single batch
+     */
+    void flush() throws IOException {
+        final List<FeatureInfo> changes;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            changes = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        try {
+            workingTree.insert(changes.iterator(), DefaultProgressListener.NULL);
+        } catch (RuntimeException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Drops the pending changes, used when the transaction is rolled back
+     */
+    void discard() {
+        synchronized (pending) {
+            pending.clear();
+        }
     }
 
     @Override
     public void close() throws IOException {
-        //
+        try {
+            flush();
+        } finally {
+            if (transactionState != null) {
+                transactionState.unregister(this);
+            }
+        }
     }
 
     private static final class InfiniteFeatureReader
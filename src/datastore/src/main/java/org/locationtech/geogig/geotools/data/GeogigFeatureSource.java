@@ -47,6 +47,7 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.Name;
 import org.opengis.filter.Filter;
+import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.sort.SortBy;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
@@ -179,11 +180,33 @@ class GeogigFeatureSource extends ContentFeatureSource {
                 return false;
             }
 
+            /**
+             * @return {@code true} if all the sort criteria are either {@link SortBy#NATURAL_ORDER
+             *         natural} or {@link SortBy#REVERSE_ORDER reverse} order, or refer to an
+             *         attribute of the feature type, since {@link FeatureReaderBuilder} sorts
+             *         natively
+             */
+            @Override
+            public boolean supportsSorting(SortBy[] sortAttributes) {
+                if (sortAttributes == null) {
+                    return true;
+                }
+                final SimpleFeatureType schema = getSchema();
+                for (SortBy sortBy : sortAttributes) {
+                    PropertyName property = sortBy.getPropertyName();
+                    if (property != null && property.getPropertyName() != null
+                            && schema.getDescriptor(property.getPropertyName()) == null) {
+                        return false;
+                    }
+                }
+                return true;
+            }
         };
     }
 
     @Override
     protected ReferencedEnvelope getBoundsInternal(Query query) throws IOException {
+        flushPendingWrites();
         final Filter filter = (Filter) query.getFilter().accept(new SimplifyingFilterVisitor(),
                 null);
         final CoordinateReferenceSystem crs = getSchema().getCoordinateReferenceSystem();
@@ -200,20 +223,14 @@ class GeogigFeatureSource extends ContentFeatureSource {
 
         query = new Query(query);
         query.setPropertyNames(Query.NO_NAMES);
+        query.setSortBy(null);
 
-        ReferencedEnvelope bounds = new ReferencedEnvelope(crs);
-        try (FeatureReader<SimpleFeatureType, SimpleFeature> features = getNativeReader(query,
-                false)) {
-            while (features.hasNext()) {
-                bounds.expandToInclude((ReferencedEnvelope) features.next().getBounds());
-            }
-        }
-
-        return bounds;
+        return getNativeReaderBuilder(query, false).bounds();
     }
 
     @Override
     protected int getCountInternal(Query query) throws IOException {
+        flushPendingWrites();
         final Filter filter = (Filter) query.getFilter().accept(new SimplifyingFilterVisitor(),
                 null);
         if (Filter.EXCLUDE.equals(filter)) {
@@ -242,21 +259,14 @@ class GeogigFeatureSource extends ContentFeatureSource {
         query.setPropertyNames(Query.NO_NAMES);
         query.setSortBy(null);
 
-        int count = 0;
-        try (FeatureReader<SimpleFeatureType, SimpleFeature> features = getNativeReader(query,
-                false)) {
-            while (features.hasNext()) {
-                features.next();
-                count++;
-            }
-        }
-        return count;
+        return (int) getNativeReaderBuilder(query, false).count();
     }
 
     @Override
     protected FeatureReader<SimpleFeatureType, SimpleFeature> getReaderInternal(final Query query)
             throws IOException {
 
+        flushPendingWrites();
         FeatureReader<SimpleFeatureType, SimpleFeature> featureReader;
         featureReader = getNativeReader(query, true);
 
@@ -302,6 +312,18 @@ class GeogigFeatureSource extends ContentFeatureSource {
     private FeatureReader<SimpleFeatureType, SimpleFeature> getNativeReader(final Query query,
             final boolean retypeIfNeeded) throws IOException {
 
+        return getNativeReaderBuilder(query, retypeIfNeeded).build();
+    }
+
+    /**
+     * @return a {@link FeatureReaderBuilder} set up for the given query, so that it can either
+     *         {@link FeatureReaderBuilder#build() build} the native reader or compute the
+     *         {@link FeatureReaderBuilder#count() count} and {@link FeatureReaderBuilder#bounds()
+     *         bounds} of the query results
+     */
+    private FeatureReaderBuilder getNativeReaderBuilder(final Query query,
+            final boolean retypeIfNeeded) {
+
         final Context context = getCommandLocator();
 
         final Hints hints = query.getHints();
@@ -322,8 +344,7 @@ class GeogigFeatureSource extends ContentFeatureSource {
 
         FeatureReaderBuilder builder = FeatureReaderBuilder.builder(context, nativeType, typeRef);
 
-        FeatureReader<SimpleFeatureType, SimpleFeature> featureReader = builder//
-                .targetSchema(getSchema())//
+        builder.targetSchema(getSchema())//
                 .filter(filter)//
                 .headRef(getRootRef())//
                 .oldHeadRef(oldRoot())//
@@ -334,11 +355,9 @@ class GeogigFeatureSource extends ContentFeatureSource {
                 .propertyNames(propertyNames)//
                 .screenMap(screenMap)//
                 .sortBy(sortBy)//
-                .retypeIfNeeded(retypeIfNeeded)//
-                .build();
-
-        return featureReader;
+                .retypeIfNeeded(retypeIfNeeded);
 
+        return builder;
     }
 
     public void setChangeType(GeoGigDataStore.ChangeType changeType) {
@@ -429,6 +448,30 @@ class GeogigFeatureSource extends ContentFeatureSource {
         return dataStore.getRootRef(transaction);
     }
 
+    /**
+     * @return the geogig state of the current GeoTools transaction, or {@code null} on auto commit
+     *         mode
+     */
+    @Nullable
+    GeogigTransactionState getTransactionState() {
+        Transaction transaction = getTransaction();
+        if (transaction == null || Transaction.AUTO_COMMIT.equals(transaction)) {
+            return null;
+        }
+        return (GeogigTransactionState) transaction.getState(GeogigTransactionState.class);
+    }
+
+    /**
+     * Applies the changes buffered by the feature writers open on the current transaction, for
+     * them to be visible to readers of this transaction
+     */
+    void flushPendingWrites() throws IOException {
+        GeogigTransactionState state = getTransactionState();
+        if (state != null) {
+            state.flushPendingWrites();
+        }
+    }
+
     /**
      * @return
      */
@@ -223,12 +223,13 @@ class GeogigFeatureStore extends ContentFeatureStore {
 
         final NodeRef typeRef = delegate.getTypeRef();
         WorkingTree wtree = getFeatureSource().getWorkingTree();
+        GeogigTransactionState txState = delegate.getTransactionState();
 
         GeoGigFeatureWriter writer;
         if ((flags | WRITER_ADD) == WRITER_ADD) {
-            writer = GeoGigFeatureWriter.createAppendable(features, typeRef, wtree);
+            writer = GeoGigFeatureWriter.createAppendable(features, typeRef, wtree, txState);
         } else {
-            writer = GeoGigFeatureWriter.create(features, typeRef, wtree);
+            writer = GeoGigFeatureWriter.create(features, typeRef, wtree, txState);
         }
         return writer;
     }
@@ -240,6 +241,8 @@ class GeogigFeatureStore extends ContentFeatureStore {
 
         // Preconditions.checkState(getDataStore().isAllowTransactions(),
         // "Transactions not supported; head is not a local branch");
+        // apply any change still buffered by a writer first, to preserve the order of changes
+        delegate.flushPendingWrites();
         final WorkingTree workingTree = delegate.getWorkingTree();
 
         ProgressListener listener = new DefaultProgressListener();
@@ -335,6 +338,7 @@ class GeogigFeatureStore extends ContentFeatureStore {
         Preconditions.checkState(getDataStore().isAllowTransactions(),
                 "Transactions not supported; head is not a local branch");
 
+        delegate.flushPendingWrites();
         final WorkingTree workingTree = delegate.getWorkingTree();
         final SimpleFeatureType nativeSchema = (SimpleFeatureType) delegate.getNativeType().type();
         final NodeRef typeRef = delegate.getTypeRef();
@@ -398,6 +402,7 @@ class GeogigFeatureStore extends ContentFeatureStore {
     public void removeFeatures(Filter filter) throws IOException {
         Preconditions.checkState(getDataStore().isAllowTransactions(),
                 "Transactions not supported; head is not a local branch");
+        delegate.flushPendingWrites();
         final WorkingTree workingTree = delegate.getWorkingTree();
         final String typeTreePath = delegate.getTypeTreePath();
         filter = (Filter) filter.accept(new SimplifyingFilterVisitor(), null);
@@ -10,6 +10,8 @@
 package org.locationtech.geogig.geotools.data;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.geotools.data.Transaction;
@@ -32,6 +34,7 @@ import org.locationtech.geogig.storage.AutoCloseableIterator;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 
 /**
  *
@@ -50,6 +53,12 @@ class GeogigTransactionState implements State {
 
     private Transaction tx;
 
+    /**
+     * Open writers on this transaction, that may hold changes not yet applied to the transaction's
+     * working tree
+     */
+    private final List<GeoGigFeatureWriter> writers = new ArrayList<>(2);
+
     /**
      * @param entry
      */
@@ -94,6 +103,28 @@ class GeogigTransactionState implements State {
         }
     }
 
+    synchronized void register(GeoGigFeatureWriter writer) {
+        writers.add(writer);
+    }
+
+    synchronized void unregister(GeoGigFeatureWriter writer) {
+        writers.remove(writer);
+    }
+
+    /**
+     * Applies the changes buffered by the open writers to the transaction's working tree, so that
+     * they're visible to readers and committed
+     */
+    void flushPendingWrites() throws IOException {
+        for (GeoGigFeatureWriter writer : openWriters()) {
+            writer.flush();
+        }
+    }
+
+    private synchronized List<GeoGigFeatureWriter> openWriters() {
+        return writers.isEmpty() ? ImmutableList.of() : ImmutableList.copyOf(writers);
+    }
+
     @Override
     public void addAuthorization(String AuthID) throws IOException {
         // not required
@@ -106,6 +137,8 @@ class GeogigTransactionState implements State {
          * This follows suite with the hack set on GeoSever's
          * org.geoserver.wfs.Transaction.getDatastoreTransaction()
          */
+        flushPendingWrites();
+
         final Optional<String> txUserName = getTransactionProperty(VERSIONING_COMMIT_AUTHOR);
         final Optional<String> fullName = getTransactionProperty("fullname");
         final Optional<String> email = getTransactionProperty("email");
@@ -195,6 +228,7 @@ class GeogigTransactionState implements State {
     @Override
     public void rollback() throws IOException {
         Preconditions.checkState(this.geogigTx != null);
+        openWriters().forEach((w) -> w.discard());
         this.geogigTx.abort();
         this.geogigTx = null;
     }
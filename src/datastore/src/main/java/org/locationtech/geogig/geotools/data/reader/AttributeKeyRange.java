@@ -0,0 +1,239 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.geotools.util.Converters;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsNull;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+
+import com.google.common.base.Predicate;
+
+/**
+ * The range of {@link AttributeTreeBuilder#key keys} of an attribute index a filter can match,
+ * used to skip the buckets of the index tree that can't contain any matching node.
+ * <p>
+ * The range is a superset of the values the filter matches: exclusive bounds are taken as
+ * inclusive, and {@code OR}'ed ranges are merged into a single range. The nodes themselves still
+ * need to be evaluated against the filter.
+ */
+final class AttributeKeyRange {
+
+    final @Nullable String minKey;
+
+    final @Nullable String maxKey;
+
+    private AttributeKeyRange(@Nullable String minKey, @Nullable String maxKey) {
+        this.minKey = minKey;
+        this.maxKey = maxKey;
+    }
+
+    /**
+     * @return a predicate that evaluates to {@code false} for the buckets of an attribute index
+     *         tree that can't contain keys in this range
+     */
+    public Predicate<BucketIndex> bucketFilter() {
+        return (b) -> AttributeTreeBuilder.bucketMayContain(b.getIndexPath(), minKey, maxKey);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s, %s]", minKey, maxKey);
+    }
+
+    /**
+     * @param filter the filter to extract the range of keys from
+     * @param attributeName the indexed attribute
+     * @param binding the type of the indexed attribute
+     * @return the range of keys {@code filter} can match, or {@code null} if it doesn't constrain
+     *         the values of {@code attributeName}
+     */
+    public static @Nullable AttributeKeyRange of(Filter filter, String attributeName,
+            Class<?> binding) {
+        if (filter instanceof And) {
+            AttributeKeyRange range = null;
+            for (Filter child : ((And) filter).getChildren()) {
+                range = intersection(range, of(child, attributeName, binding));
+            }
+            return range;
+        }
+        if (filter instanceof Or) {
+            List<Filter> children = ((Or) filter).getChildren();
+            AttributeKeyRange range = null;
+            for (Filter child : children) {
+                AttributeKeyRange childRange = of(child, attributeName, binding);
+                if (childRange == null) {
+                    return null;
+                }
+                range = range == null ? childRange : union(range, childRange);
+            }
+            return range;
+        }
+        if (filter instanceof PropertyIsNull) {
+            if (isAttribute(((PropertyIsNull) filter).getExpression(), attributeName)) {
+                String nullKey = AttributeTreeBuilder.key(null);
+                return new AttributeKeyRange(nullKey, nullKey);
+            }
+            return null;
+        }
+        if (filter instanceof PropertyIsBetween) {
+            PropertyIsBetween between = (PropertyIsBetween) filter;
+            if (!isAttribute(between.getExpression(), attributeName)) {
+                return null;
+            }
+            String lower = key(between.getLowerBoundary(), binding);
+            String upper = key(between.getUpperBoundary(), binding);
+            if (lower == null || upper == null) {
+                return null;
+            }
+            return new AttributeKeyRange(lower, upper);
+        }
+        if (filter instanceof BinaryComparisonOperator) {
+            return of((BinaryComparisonOperator) filter, attributeName, binding);
+        }
+        return null;
+    }
+
+    private static @Nullable AttributeKeyRange of(BinaryComparisonOperator filter,
+            String attributeName, Class<?> binding) {
+
+        if (!filter.isMatchingCase() && !isCaseInsensitive(binding)) {
+            return null;
+        }
+        final Expression left = filter.getExpression1();
+        final Expression right = filter.getExpression2();
+        final boolean propertyFirst;
+        final String key;
+        if (isAttribute(left, attributeName)) {
+            propertyFirst = true;
+            key = key(right, binding);
+        } else if (isAttribute(right, attributeName)) {
+            propertyFirst = false;
+            key = key(left, binding);
+        } else {
+            return null;
+        }
+        if (key == null) {
+            return null;
+        }
+        if (filter instanceof PropertyIsEqualTo) {
+            return new AttributeKeyRange(key, key);
+        }
+        final boolean lessThan = filter instanceof PropertyIsLessThan
+                || filter instanceof PropertyIsLessThanOrEqualTo;
+        final boolean greaterThan = filter instanceof PropertyIsGreaterThan
+                || filter instanceof PropertyIsGreaterThanOrEqualTo;
+        if (!lessThan && !greaterThan) {
+            // e.g. PropertyIsNotEqualTo
+            return null;
+        }
+        // "literal < property" is "property > literal"
+        final boolean upperBound = lessThan == propertyFirst;
+        return upperBound ? new AttributeKeyRange(null, key) : new AttributeKeyRange(key, null);
+    }
+
+    /**
+     * Whether the values of {@code binding} compare the same regardless of the matching case flag
+     */
+    private static boolean isCaseInsensitive(Class<?> binding) {
+        return Number.class.isAssignableFrom(binding) || Date.class.isAssignableFrom(binding)
+                || Boolean.class.equals(binding);
+    }
+
+    private static boolean isAttribute(Expression expression, String attributeName) {
+        if (!(expression instanceof PropertyName)) {
+            return false;
+        }
+        String name = ((PropertyName) expression).getPropertyName();
+        int prefixIndex = name == null ? -1 : name.indexOf(':');
+        if (prefixIndex > -1) {
+            name = name.substring(prefixIndex + 1);
+        }
+        return attributeName.equals(name);
+    }
+
+    /**
+     * @return the key of the literal value converted to the attribute's type, or {@code null} if
+     *         {@code expression} is not a literal, or can't be converted
+     */
+    private static @Nullable String key(Expression expression, Class<?> binding) {
+        if (!(expression instanceof Literal)) {
+            return null;
+        }
+        final Object value = ((Literal) expression).getValue();
+        if (value == null) {
+            return null;
+        }
+        final Object converted;
+        if (Number.class.isAssignableFrom(binding)) {
+            // keys are computed out of double values, avoid losing precision converting to
+            // integral types
+            converted = value instanceof Number ? value : Converters.convert(value, Double.class);
+        } else if (Date.class.isAssignableFrom(binding) || Boolean.class.equals(binding)
+                || String.class.equals(binding)) {
+            converted = Converters.convert(value, binding);
+        } else {
+            // keys of other types don't preserve the order of the values
+            converted = null;
+        }
+        return converted == null ? null : AttributeTreeBuilder.key(converted);
+    }
+
+    private static @Nullable AttributeKeyRange intersection(@Nullable AttributeKeyRange r1,
+            @Nullable AttributeKeyRange r2) {
+        if (r1 == null || r2 == null) {
+            return r1 == null ? r2 : r1;
+        }
+        return new AttributeKeyRange(max(r1.minKey, r2.minKey), min(r1.maxKey, r2.maxKey));
+    }
+
+    private static AttributeKeyRange union(AttributeKeyRange r1, AttributeKeyRange r2) {
+        String minKey = r1.minKey == null || r2.minKey == null ? null : min(r1.minKey, r2.minKey);
+        String maxKey = r1.maxKey == null || r2.maxKey == null ? null : max(r1.maxKey, r2.maxKey);
+        return new AttributeKeyRange(minKey, maxKey);
+    }
+
+    /**
+     * @return the smallest of the two keys, where {@code null} stands for unbounded
+     */
+    private static @Nullable String min(@Nullable String k1, @Nullable String k2) {
+        if (k1 == null || k2 == null) {
+            return k1 == null ? k2 : k1;
+        }
+        return k1.compareTo(k2) <= 0 ? k1 : k2;
+    }
+
+    /**
+     * @return the largest of the two keys, where {@code null} stands for unbounded
+     */
+    private static @Nullable String max(@Nullable String k1, @Nullable String k2) {
+        if (k1 == null || k2 == null) {
+            return k1 == null ? k2 : k1;
+        }
+        return k1.compareTo(k2) >= 0 ? k1 : k2;
+    }
+}
@@ -0,0 +1,111 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Bounded;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.AbstractConsumer;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.storage.ObjectStore;
+
+import com.google.common.base.Predicate;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A {@link PreOrderDiffWalk} consumer that computes the number and bounds of the feature nodes
+ * that pass a {@link PreFilter}, out of the tree nodes and buckets alone, hence without fetching
+ * any {@link RevFeature}.
+ * <p>
+ * If a query envelope is provided, buckets whose bounds lie entirely inside it are accounted for
+ * as a whole instead of being traversed: their bounds are taken from the bucket and their size
+ * from the bucket's tree. This is only correct if the filter is a bounding box filter for that
+ * envelope and all the nodes in the tree have bounds, as it is the case for the spatial index
+ * quad-trees, which don't contain nodes with empty bounds.
+ * <p>
+ * This consumer is thread safe, so the walk can run in parallel.
+ */
+class CountAndBoundsConsumer extends AbstractConsumer {
+
+    private final ObjectStore treeSource;
+
+    private final Predicate<Bounded> filter;
+
+    private final @Nullable Envelope containingBounds;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final Envelope bounds = new Envelope();
+
+    /**
+     * @param treeSource where to get the bucket trees from in order to get their size
+     * @param filter the filter nodes and buckets shall pass
+     * @param containingBounds if provided, the buckets contained in it are not traversed
+     */
+    CountAndBoundsConsumer(ObjectStore treeSource, Predicate<Bounded> filter,
+            @Nullable Envelope containingBounds) {
+        checkNotNull(treeSource);
+        checkNotNull(filter);
+        this.treeSource = treeSource;
+        this.filter = filter;
+        this.containingBounds = containingBounds;
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public Envelope bounds() {
+        synchronized (bounds) {
+            return new Envelope(bounds);
+        }
+    }
+
+    @Override
+    public boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+        NodeRef node = right == null ? left : right;
+        if (filter.apply(node)) {
+            count.incrementAndGet();
+            synchronized (bounds) {
+                node.expand(bounds);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean bucket(NodeRef leftParent, NodeRef rightParent, BucketIndex bucketIndex,
+            @Nullable Bucket left, @Nullable Bucket right) {
+        final Bucket bucket = right == null ? left : right;
+        if (!filter.apply(bucket)) {
+            return false;
+        }
+        if (containingBounds != null) {
+            Envelope bucketBounds = bucket.bounds().orNull();
+            if (bucketBounds != null && containingBounds.contains(bucketBounds)) {
+                RevTree bucketTree = treeSource.getTree(bucket.getObjectId());
+                count.addAndGet(bucketTree.size());
+                synchronized (bounds) {
+                    bounds.expandToInclude(bucketBounds);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,273 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Sorts the elements of an iterator using a bounded amount of memory.
+ * <p>
+ * Up to {@code bufferSize} elements are sorted in memory at a time. If the source iterator has
+ * more elements than that, each sorted batch is spilled to a temporary file as a "run" and the
+ * runs are then merged, at most {@link #MAX_MERGE_FAN_IN} at a time, while the returned iterator
+ * is consumed. Temporary files are deleted when the returned iterator is closed.
+ * <p>
+ * The sort is stable, elements comparing equal are returned in the same order the source iterator
+ * provided them.
+ */
+class ExternalMergeSort<T> {
+
+    /**
+     * Default number of elements to sort in memory before spilling to disk
+     */
+    static final int DEFAULT_BUFFER_SIZE = 100_000;
+
+    /**
+     * Maximum number of runs merged at once, bounds the number of simultaneously open files
+     */
+    static final int MAX_MERGE_FAN_IN = 64;
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Encodes and decodes the elements to sort to and from the temporary files
+     */
+    static interface Codec<T> {
+
+        void write(T element, DataOutput out) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    private final Comparator<? super T> comparator;
+
+    private final Codec<T> codec;
+
+    private final int bufferSize;
+
+    ExternalMergeSort(Comparator<? super T> comparator, Codec<T> codec, int bufferSize) {
+        checkNotNull(comparator);
+        checkNotNull(codec);
+        checkArgument(bufferSize > 0, "bufferSize must be > 0");
+        this.comparator = comparator;
+        this.codec = codec;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Consumes and closes the {@code source} iterator and returns its elements sorted.
+     * <p>
+     * If all the elements fit in the buffer they're sorted in memory and no temporary files are
+     * created.
+     */
+    public AutoCloseableIterator<T> sort(AutoCloseableIterator<T> source) {
+        List<File> runs = new ArrayList<>();
+        List<T> buffer = new ArrayList<>();
+        try {
+            while (source.hasNext()) {
+                buffer.add(source.next());
+                if (buffer.size() == bufferSize) {
+                    runs.add(spill(buffer));
+                    buffer.clear();
+                }
+            }
+            if (runs.isEmpty()) {
+                Collections.sort(buffer, comparator);
+                return AutoCloseableIterator.fromIterator(buffer.iterator());
+            }
+            if (!buffer.isEmpty()) {
+                runs.add(spill(buffer));
+                buffer = null;
+            }
+            while (runs.size() > MAX_MERGE_FAN_IN) {
+                runs = mergePass(runs);
+            }
+            return new MergeIterator(runs);
+        } catch (IOException | RuntimeException e) {
+            delete(runs);
+            throw Throwables.propagate(e);
+        } finally {
+            source.close();
+        }
+    }
+
+    private File spill(List<T> buffer) throws IOException {
+        Collections.sort(buffer, comparator);
+        File run = File.createTempFile("geogig-sort-", ".run");
+        try (DataOutputStream out = newOutput(run)) {
+            for (T element : buffer) {
+                out.writeBoolean(true);
+                codec.write(element, out);
+            }
+            out.writeBoolean(false);
+        } catch (IOException | RuntimeException e) {
+            run.delete();
+            throw e;
+        }
+        return run;
+    }
+
+    /**
+     * Merges consecutive groups of up to {@link #MAX_MERGE_FAN_IN} runs into a single run each,
+     * keeping the runs in order so that the sort remains stable
+     */
+    private List<File> mergePass(List<File> runs) throws IOException {
+        List<File> merged = new ArrayList<>();
+        for (int i = 0; i < runs.size(); i += MAX_MERGE_FAN_IN) {
+            List<File> group = new ArrayList<>(
+                    runs.subList(i, Math.min(runs.size(), i + MAX_MERGE_FAN_IN)));
+            File run = File.createTempFile("geogig-sort-", ".run");
+            try (MergeIterator it = new MergeIterator(group);
+                    DataOutputStream out = newOutput(run)) {
+                while (it.hasNext()) {
+                    out.writeBoolean(true);
+                    codec.write(it.next(), out);
+                }
+                out.writeBoolean(false);
+            } catch (IOException | RuntimeException e) {
+                run.delete();
+                delete(runs.subList(i + group.size(), runs.size()));
+                delete(merged);
+                throw e;
+            }
+            merged.add(run);
+        }
+        return merged;
+    }
+
+    private static DataOutputStream newOutput(File file) throws IOException {
+        return new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), IO_BUFFER_SIZE));
+    }
+
+    private static void delete(List<File> files) {
+        for (File f : files) {
+            f.delete();
+        }
+    }
+
+    /**
+     * A sequential reader of a single run, holding the current head element
+     */
+    private class Run {
+
+        private final File file;
+
+        private final DataInputStream in;
+
+        private final int index;
+
+        private T head;
+
+        Run(File file, int index) throws IOException {
+            this.file = file;
+            this.index = index;
+            this.in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file), IO_BUFFER_SIZE));
+        }
+
+        boolean advance() throws IOException {
+            head = in.readBoolean() ? codec.read(in) : null;
+            return head != null;
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore, we're deleting the file anyway
+            }
+            file.delete();
+        }
+    }
+
+    /**
+     * K-way merge of sorted runs, ties are resolved in favor of the earliest run
+     */
+    private class MergeIterator implements AutoCloseableIterator<T> {
+
+        private final List<Run> runs = new ArrayList<>();
+
+        private final PriorityQueue<Run> queue;
+
+        MergeIterator(List<File> files) throws IOException {
+            this.queue = new PriorityQueue<>(Math.max(1, files.size()), (r1, r2) -> {
+                int c = comparator.compare(r1.head, r2.head);
+                return c == 0 ? Integer.compare(r1.index, r2.index) : c;
+            });
+            try {
+                for (int i = 0; i < files.size(); i++) {
+                    Run run = new Run(files.get(i), i);
+                    runs.add(run);
+                    if (run.advance()) {
+                        queue.add(run);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                delete(files);
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Run run = queue.poll();
+            if (run == null) {
+                throw new NoSuchElementException();
+            }
+            T next = run.head;
+            try {
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            } catch (IOException e) {
+                close();
+                throw Throwables.propagate(e);
+            }
+            return next;
+        }
+
+        @Override
+        public void close() {
+            queue.clear();
+            for (Run run : runs) {
+                run.close();
+            }
+        }
+    }
+}
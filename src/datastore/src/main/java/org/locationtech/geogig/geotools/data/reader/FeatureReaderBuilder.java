@@ -14,6 +14,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Predicates.notNull;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -37,24 +38,31 @@ import org.geotools.filter.visitor.SpatialFilterVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.crs.DefaultEngineeringCRS;
 import org.geotools.renderer.ScreenMap;
+import org.locationtech.geogig.data.FeatureBuilder;
 import org.locationtech.geogig.data.retrieve.BulkFeatureRetriever;
+import org.locationtech.geogig.data.retrieve.MultiFeatureTypeBuilder;
 import org.locationtech.geogig.geotools.data.GeoGigDataStore.ChangeType;
 import org.locationtech.geogig.model.Bounded;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.DiffTree;
 import org.locationtech.geogig.plumbing.FindTreeChild;
 import org.locationtech.geogig.plumbing.ResolveTreeish;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.porcelain.index.Index;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.DiffEntry;
 import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.storage.ObjectInfo;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -152,6 +160,8 @@ public class FeatureReaderBuilder {
 
     private boolean retypeIfNeeded = true;
 
+    private int sortBufferSize = ExternalMergeSort.DEFAULT_BUFFER_SIZE;
+
     public FeatureReaderBuilder(Context repo, RevFeatureType nativeType, NodeRef typeRef) {
         this.repo = repo;
         this.nativeType = nativeType;
@@ -224,11 +234,32 @@ public class FeatureReaderBuilder {
         return this;
     }
 
+    /**
+     * Sets the order in which features are returned.
+     * <p>
+     * {@link SortBy#NATURAL_ORDER} alone returns the features in the order of a canonical tree
+     * walk, any other sort criteria are applied by an external merge sort that holds at most
+     * {@link #sortBufferSize(int) sortBufferSize} features in memory and spills to disk otherwise.
+     * Whenever the spatial index materializes the sort attributes and fully evaluates the filter,
+     * only the index nodes are sorted and the features are fetched once sorted, offset and limit
+     * have been applied.
+     */
     public FeatureReaderBuilder sortBy(@Nullable SortBy... sortBy) {
         this.sortBy = sortBy;
         return this;
     }
 
+    /**
+     * Maximum number of features to sort in memory before spilling to disk, defaults to
+     * {@link ExternalMergeSort#DEFAULT_BUFFER_SIZE}
+     */
+    @VisibleForTesting
+    FeatureReaderBuilder sortBufferSize(int sortBufferSize) {
+        Preconditions.checkArgument(sortBufferSize > 0, "sortBufferSize must be > 0");
+        this.sortBufferSize = sortBufferSize;
+        return this;
+    }
+
     public FeatureReaderBuilder offset(@Nullable Integer offset) {
         this.offset = offset;
         return this;
@@ -241,35 +272,276 @@ public class FeatureReaderBuilder {
 
     public FeatureReader<SimpleFeatureType, SimpleFeature> build() {
         fullSchema = resolveFullSchema();
+        return build(new QueryPlan());
+    }
+
+    /**
+     * Computes the number of features the {@link #build() reader} would return.
+     * <p>
+     * If the filter can be fully evaluated against the tree nodes (e.g. a bounding box filter, an
+     * id filter, or a filter on attributes materialized in the spatial index) the nodes are
+     * counted without fetching any {@link RevFeature}, and if the filter is a bounding box filter
+     * and the spatial index is used, whole index buckets lying inside the bounding box are
+     * accounted for without traversing them. Otherwise only the part of the filter that can't be
+     * evaluated against the nodes is evaluated against the features.
+     */
+    public long count() {
+        fullSchema = resolveFullSchema();
+        final QueryPlan plan = new QueryPlan();
+        if (!plan.filterIsFullySupportedByIndex || screenMap != null) {
+            long count = 0;
+            try (FeatureReader<SimpleFeatureType, SimpleFeature> features = build(plan)) {
+                while (features.hasNext()) {
+                    features.next();
+                    count++;
+                }
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+            return count;
+        }
+        long count = countAndBounds(plan).count();
+        if (offset != null) {
+            count = Math.max(0, count - offset.intValue());
+        }
+        if (limit != null) {
+            count = Math.min(count, limit.intValue());
+        }
+        return count;
+    }
+
+    /**
+     * Computes the bounds of the features the {@link #build() reader} would return, in the native
+     * CRS.
+     * <p>
+     * Like {@link #count()}, uses the bounds of the tree nodes and buckets without fetching any
+     * {@link RevFeature} if the filter can be fully evaluated against the nodes and no
+     * {@link #offset} nor {@link #limit} are set.
+     */
+    public ReferencedEnvelope bounds() {
+        fullSchema = resolveFullSchema();
+        final CoordinateReferenceSystem crs = fullSchema.getCoordinateReferenceSystem();
+        final QueryPlan plan = new QueryPlan();
+        if (!plan.filterIsFullySupportedByIndex || screenMap != null || offset != null
+                || limit != null) {
+            ReferencedEnvelope bounds = new ReferencedEnvelope(crs);
+            try (FeatureReader<SimpleFeatureType, SimpleFeature> features = build(plan)) {
+                while (features.hasNext()) {
+                    bounds.include(features.next().getBounds());
+                }
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+            return bounds;
+        }
+        return new ReferencedEnvelope(countAndBounds(plan).bounds(), crs);
+    }
+
+    /**
+     * Walks the nodes matching a filter fully supported by the index, without building the
+     * features. If the features are the whole contents of the tree rather than the changes
+     * between two trees, the tree is walked directly so that whole buckets inside a bounding box
+     * filter can be skipped; otherwise the nodes returned by the diff are accounted for.
+     */
+    private CountAndBoundsConsumer countAndBounds(final QueryPlan plan) {
+        checkState(plan.filterIsFullySupportedByIndex);
+        final boolean walkTree = RevTree.EMPTY_TREE_ID.equals(plan.oldFeatureTypeTree)
+                && ChangeType.ADDED.equals(changeType) && !(plan.nativeFilter instanceof Id);
+
+        CountAndBoundsConsumer consumer;
+        if (walkTree) {
+            // index quad-trees contain no nodes with empty bounds, hence buckets inside a bbox
+            // filter's envelope can be taken as a whole
+            Envelope containingBounds = null;
+            if (plan.walksIndex && !plan.walksAttributeIndex && plan.preFilter instanceof BBOX) {
+                List<Envelope> bounds = ExtractBounds.getBounds(plan.preFilter);
+                if (bounds != null && bounds.size() == 1) {
+                    containingBounds = bounds.get(0);
+                }
+            }
+            Predicate<Bounded> preFilter = createIndexPreFilter(plan.preFilter, true);
+            consumer = new CountAndBoundsConsumer(plan.treeSource, preFilter, containingBounds);
+
+            PreOrderDiffWalk.Consumer walkConsumer = consumer;
+            if (plan.bucketFilter != null) {
+                walkConsumer = new PreOrderDiffWalk.BucketIndexFilteringConsumer(consumer,
+                        plan.bucketFilter);
+            }
+            RevTree tree = plan.treeSource.getTree(plan.newFeatureTypeTree);
+            new PreOrderDiffWalk(RevTree.EMPTY, tree, plan.treeSource, plan.treeSource)
+                    .walk(walkConsumer);
+        } else {
+            consumer = new CountAndBoundsConsumer(plan.treeSource, Predicates.alwaysTrue(), null);
+            try (AutoCloseableIterator<NodeRef> refs = resolveFeatureRefs(plan)) {
+                while (refs.hasNext()) {
+                    consumer.feature(null, refs.next());
+                }
+            }
+        }
+        return consumer;
+    }
+
+    private FeatureReader<SimpleFeatureType, SimpleFeature> build(final QueryPlan plan) {
+        final Filter postFilter = plan.postFilter;
+        final @Nullable Set<String> requiredProperties = plan.requiredProperties;
+        final boolean indexContainsAllRequiredProperties = plan.indexContainsAllRequiredProperties;
+        final boolean filterIsFullySupportedByIndex = plan.filterIsFullySupportedByIndex;
+        final @Nullable FeatureSort sort = plan.sort;
+        final boolean sortNodes = plan.sortNodes;
+        final ObjectId featureTypeId = plan.featureTypeId;
+
+        AutoCloseableIterator<NodeRef> featureRefs = resolveFeatureRefs(plan);
+
+        // post-processing
+        if (sortNodes) {
+            featureRefs = sortNodeRefs(sort, featureRefs, featureTypeId);
+        } else if (filterIsFullySupportedByIndex && sort == null) {
+            featureRefs = applyOffsetAndLimit(featureRefs);
+        }
+
+        final ObjectStore revFeatureSource = repo.objectDatabase();
+
+        AutoCloseableIterator<? extends SimpleFeature> features;
+
+        // contains only the attributes required to satisfy the output schema and the in-process
+        // filter
+        final SimpleFeatureType resultSchema;
+
+        if (indexContainsAllRequiredProperties && (sort == null || sortNodes)) {
+            resultSchema = resolveMinimalNativeSchema(requiredProperties);
+            CoordinateReferenceSystem nativeCrs = fullSchema.getCoordinateReferenceSystem();
+            features = MaterializedIndexFeatureIterator.create(resultSchema, featureRefs,
+                    geometryFactory, nativeCrs);
+        } else {
+            BulkFeatureRetriever retriever = new BulkFeatureRetriever(revFeatureSource);
+            Name typeNameOverride;
+            if (simpleNames(nativeSchema).equals(simpleNames(fullSchema))) {
+                resultSchema = fullSchema;
+                typeNameOverride = fullSchema.getName();
+            } else {
+                resultSchema = nativeSchema;
+                typeNameOverride = null;
+            }
+            if (sort == null) {
+                // using fullSchema here will build "normal" full-attribute lazy features
+                features = retriever.getGeoToolsFeatures(featureRefs, nativeType,
+                        typeNameOverride, geometryFactory);
+            } else {
+                FeatureBuilder featureBuilder = new FeatureBuilder(nativeType, typeNameOverride);
+                AutoCloseableIterator<ObjectInfo<RevFeature>> featureInfos;
+                if (sortNodes) {
+                    featureInfos = FeatureSort.fetchInOrder(revFeatureSource, featureRefs,
+                            FETCH_IN_ORDER_BATCH_SIZE);
+                } else {
+                    Predicate<SimpleFeature> postFilterPredicate = filterIsFullySupportedByIndex
+                            ? Predicates.alwaysTrue() : createPostFilter(postFilter);
+                    featureInfos = sortFeatures(sort, retriever.getGeoGIGFeatures(featureRefs),
+                            featureBuilder, postFilterPredicate, featureTypeId);
+                }
+                features = AutoCloseableIterator.transform(featureInfos,
+                        (info) -> MultiFeatureTypeBuilder.build(featureBuilder, info,
+                                geometryFactory));
+            }
+        }
+
+        if (!filterIsFullySupportedByIndex && sort == null) {
+            features = applyPostFilter(postFilter, features);
+            features = applyOffsetAndLimit(features);
+        }
+
+        if (screenMap != null) {
+            features = AutoCloseableIterator.transform(features,
+                    new ScreenMapGeometryReplacer(screenMap));
+        }
+
+        FeatureReader<SimpleFeatureType, SimpleFeature> featureReader;
+        featureReader = new FeatureReaderAdapter<SimpleFeatureType, SimpleFeature>(resultSchema,
+                features);
+
+        // we only want a sub-set of the attributes provided - we need to re-type
+        // the features (either from the index or the full-feature)
+        final boolean retypeRequired = isRetypeRequired(resultSchema);
+        if (retypeRequired) {
+            List<String> outputSchemaProperties;
+            if (this.outputSchemaPropertyNames == Query.ALL_NAMES) {
+                outputSchemaProperties = simpleNames(fullSchema);
+            } else {
+                outputSchemaProperties = Lists.newArrayList(this.outputSchemaPropertyNames);
+            }
+            SimpleFeatureType outputSchema;
+            outputSchema = SimpleFeatureTypeBuilder.retype(fullSchema, outputSchemaProperties);
+
+            boolean cloneValues = false;
+            featureReader = new ReTypeFeatureReader(featureReader, outputSchema, cloneValues);
+        }
+
+        return featureReader;
+    }
+
+    /**
+     * The query resolved against the repository: the filter split into what can be evaluated
+     * against the tree nodes and what needs the actual features, and the trees to walk, either
+     * canonical or index trees.
+     */
+    private class QueryPlan {
 
         // query filter in native CRS
-        final Filter nativeFilter = resolveNativeFilter();
+        final Filter nativeFilter;
+
         final Filter preFilter;
+
         final Filter postFilter;
 
         // properties needed by the output schema and the in-process filter, null means all
         // properties, empty list means no-properties needed
-        final @Nullable Set<String> requiredProperties = resolveRequiredProperties(nativeFilter);
+        final @Nullable Set<String> requiredProperties;
+
         // properties present in the RevTree nodes' extra data
         final Set<String> materializedIndexProperties;
 
         // whether the RevTree nodes contain all required properties (hence no need to fetch
         // RevFeatures from the database)
         final boolean indexContainsAllRequiredProperties;
+
         // whether the filter is fully supported by the NodeRef filtering (hence no need for
         // pos-processing filtering). This is the case if the filter is a simple BBOX, Id, or
         // INCLUDE, or all the required properties are present in the index Nodes
         final boolean filterIsFullySupportedByIndex;
 
-        final ObjectId featureTypeId = typeRef.getMetadataId();
+        // the sort stage, null if features are to be returned in tree walk order
+        final @Nullable FeatureSort sort;
+
+        // whether the sort keys can be taken from the RevTree nodes (either because they're
+        // materialized in the index or because the features are only sorted by id), hence only
+        // the nodes need to be sorted, as opposed to the RevFeatures
+        final boolean sortNodes;
+
+        final ObjectId featureTypeId;
 
         // the RevTree id at the left side of the diff
         final ObjectId oldFeatureTypeTree;
+
         // the RevTree id at the right side of the diff
         final ObjectId newFeatureTypeTree;
+
         // where to get RevTree instances from (either the object or the index database)
         final ObjectStore treeSource;
-        {
+
+        // whether the trees to walk are index trees instead of canonical trees
+        final boolean walksIndex;
+
+        // whether the trees to walk are attribute index trees
+        final boolean walksAttributeIndex;
+
+        // skips the buckets of an attribute index tree that can't contain nodes matching the
+        // filter, null if not walking an attribute index tree or it can't be used to skip buckets
+        final @Nullable Predicate<BucketIndex> bucketFilter;
+
+        QueryPlan() {
+            nativeFilter = resolveNativeFilter();
+            requiredProperties = resolveRequiredProperties(nativeFilter);
+            featureTypeId = typeRef.getMetadataId();
+
             final String nativeTypeName = nativeSchema.getTypeName();
 
             // TODO: resolve based on filter, in case the feature type has more than one geometry
@@ -295,14 +567,36 @@ public class FeatureReaderBuilder {
 
             // if native filter is a simple "fid filter" then force ignoring the index for a faster
             // look-up (looking up for a fid in the canonical tree is much faster)
-            final boolean ignoreIndex = geometryAttribute == null || this.ignoreIndex
+            final boolean ignoreIndex = FeatureReaderBuilder.this.ignoreIndex
                     || nativeFilter instanceof Id;
-            if (ignoreIndex) {
-                indexes = NO_INDEX;
-            } else {
+            indexes = NO_INDEX;
+            if (!ignoreIndex && geometryAttribute != null) {
                 indexes = resolveIndex(oldCanonicalTreeId, newCanonicalTreeId, nativeTypeName,
                         geometryAttribute.getLocalName());
             }
+            // prefer an attribute index constraining the filter over a spatial index the filter
+            // doesn't make use of
+            AttributeKeyRange keyRange = null;
+            if (!ignoreIndex && !(indexes[1].isPresent() && hasSpatialFilter(nativeFilter))) {
+                for (IndexInfo info : repo.indexDatabase().getIndexInfos(nativeTypeName)) {
+                    if (!IndexType.ATTRIBUTE.equals(info.getIndexType())) {
+                        continue;
+                    }
+                    final String attName = info.getAttributeName();
+                    final AttributeDescriptor descriptor = nativeSchema.getDescriptor(attName);
+                    keyRange = descriptor == null ? null
+                            : AttributeKeyRange.of(nativeFilter, attName,
+                                    descriptor.getType().getBinding());
+                    Optional<Index>[] attIndexes = keyRange == null ? NO_INDEX
+                            : resolveIndex(oldCanonicalTreeId, newCanonicalTreeId,
+                                    nativeTypeName, attName);
+                    if (attIndexes[1].isPresent()) {
+                        indexes = attIndexes;
+                        break;
+                    }
+                    keyRange = null;
+                }
+            }
             oldHeadIndex = indexes[0];
             headIndex = indexes[1];
             // neither is present or both have the same indexinfo
@@ -331,96 +625,49 @@ public class FeatureReaderBuilder {
             filterIsFullySupportedByIndex = Filter.INCLUDE.equals(postFilter);
 
             treeSource = headIndex.isPresent() ? repo.indexDatabase() : repo.objectDatabase();
+
+            walksIndex = headIndex.isPresent();
+
+            walksAttributeIndex = keyRange != null;
+
+            // bucket indexes only match the index tree structure when walking a single tree
+            bucketFilter = walksAttributeIndex && RevTree.EMPTY_TREE_ID.equals(oldFeatureTypeTree)
+                    ? keyRange.bucketFilter() : null;
+
+            sort = resolveSort(walksIndex);
+            sortNodes = sort != null && filterIsFullySupportedByIndex
+                    && materializedIndexProperties.containsAll(sort.attributeNames());
         }
+    }
 
-        // perform the diff op with the supported Bucket/NodeRef filtering that'll provide the
-        // NodeRef iterator to back the FeatureReader with
+    /**
+     * Performs the diff op with the supported Bucket/NodeRef filtering that'll provide the NodeRef
+     * iterator to back the FeatureReader with
+     */
+    private AutoCloseableIterator<NodeRef> resolveFeatureRefs(final QueryPlan plan) {
         DiffTree diffOp = repo.command(DiffTree.class);
         // TODO: for some reason setting the default metadata id is making several tests fail,
         // though it's not really needed here because we have the FeatureType already. Nonetheless
         // this is strange and needs to be revisited.
-        diffOp.setDefaultMetadataId(featureTypeId) //
+        diffOp.setDefaultMetadataId(plan.featureTypeId) //
                 .setPreserveIterationOrder(shallPreserveIterationOrder())//
-                .setPathFilter(createFidFilter(nativeFilter)) //
-                .setCustomFilter(createIndexPreFilter(preFilter, filterIsFullySupportedByIndex)) //
-                .setBoundsFilter(createBoundsFilter(nativeFilter, newFeatureTypeTree, treeSource)) //
+                .setPathFilter(createFidFilter(plan.nativeFilter)) //
+                .setCustomFilter(createIndexPreFilter(plan.preFilter,
+                        plan.filterIsFullySupportedByIndex)) //
+                .setBoundsFilter(createBoundsFilter(plan.nativeFilter, plan.newFeatureTypeTree,
+                        plan.treeSource)) //
+                .setBucketFilter(plan.bucketFilter) //
                 .setChangeTypeFilter(resolveChangeType()) //
-                .setOldTree(oldFeatureTypeTree) //
-                .setNewTree(newFeatureTypeTree) //
-                .setLeftSource(treeSource) //
-                .setRightSource(treeSource) //
+                .setOldTree(plan.oldFeatureTypeTree) //
+                .setNewTree(plan.newFeatureTypeTree) //
+                .setLeftSource(plan.treeSource) //
+                .setRightSource(plan.treeSource) //
                 .recordStats();
 
         AutoCloseableIterator<DiffEntry> diffs;
         diffs = diffOp.call();
 
-        AutoCloseableIterator<NodeRef> featureRefs = toFeatureRefs(diffs, changeType);
-
-        // post-processing
-        if (filterIsFullySupportedByIndex) {
-            featureRefs = applyOffsetAndLimit(featureRefs);
-        }
-
-        final ObjectStore revFeatureSource = repo.objectDatabase();
-
-        AutoCloseableIterator<? extends SimpleFeature> features;
-
-        // contains only the attributes required to satisfy the output schema and the in-process
-        // filter
-        final SimpleFeatureType resultSchema;
-
-        if (indexContainsAllRequiredProperties) {
-            resultSchema = resolveMinimalNativeSchema(requiredProperties);
-            CoordinateReferenceSystem nativeCrs = fullSchema.getCoordinateReferenceSystem();
-            features = MaterializedIndexFeatureIterator.create(resultSchema, featureRefs,
-                    geometryFactory, nativeCrs);
-        } else {
-            BulkFeatureRetriever retriever = new BulkFeatureRetriever(revFeatureSource);
-            Name typeNameOverride;
-            if (simpleNames(nativeSchema).equals(simpleNames(fullSchema))) {
-                resultSchema = fullSchema;
-                typeNameOverride = fullSchema.getName();
-            } else {
-                resultSchema = nativeSchema;
-                typeNameOverride = null;
-            }
-            // using fullSchema here will build "normal" full-attribute lazy features
-            features = retriever.getGeoToolsFeatures(featureRefs, nativeType, typeNameOverride,
-                    geometryFactory);
-        }
-
-        if (!filterIsFullySupportedByIndex) {
-            features = applyPostFilter(postFilter, features);
-            features = applyOffsetAndLimit(features);
-        }
-
-        if (screenMap != null) {
-            features = AutoCloseableIterator.transform(features,
-                    new ScreenMapGeometryReplacer(screenMap));
-        }
-
-        FeatureReader<SimpleFeatureType, SimpleFeature> featureReader;
-        featureReader = new FeatureReaderAdapter<SimpleFeatureType, SimpleFeature>(resultSchema,
-                features);
-
-        // we only want a sub-set of the attributes provided - we need to re-type
-        // the features (either from the index or the full-feature)
-        final boolean retypeRequired = isRetypeRequired(resultSchema);
-        if (retypeRequired) {
-            List<String> outputSchemaProperties;
-            if (this.outputSchemaPropertyNames == Query.ALL_NAMES) {
-                outputSchemaProperties = simpleNames(fullSchema);
-            } else {
-                outputSchemaProperties = Lists.newArrayList(this.outputSchemaPropertyNames);
-            }
-            SimpleFeatureType outputSchema;
-            outputSchema = SimpleFeatureTypeBuilder.retype(fullSchema, outputSchemaProperties);
-
-            boolean cloneValues = false;
-            featureReader = new ReTypeFeatureReader(featureReader, outputSchema, cloneValues);
-        }
-
-        return featureReader;
+        return toFeatureRefs(diffs, changeType);
     }
 
     private SimpleFeatureType resolveFullSchema() {
@@ -465,14 +712,76 @@ public class FeatureReaderBuilder {
     private AutoCloseableIterator<? extends SimpleFeature> applyPostFilter(Filter postFilter,
             AutoCloseableIterator<? extends SimpleFeature> features) {
 
+        features = AutoCloseableIterator.filter(features, createPostFilter(postFilter));
+        return features;
+    }
+
+    private Predicate<SimpleFeature> createPostFilter(Filter postFilter) {
         Predicate<SimpleFeature> filterPredicate = PostFilter.forFilter(postFilter);
-        features = AutoCloseableIterator.filter(features, filterPredicate);
         if (screenMap != null) {
             Predicate<SimpleFeature> screenMapFilter = new FeatureScreenMapPredicate(screenMap);
-            features = AutoCloseableIterator.filter(features, screenMapFilter);
+            filterPredicate = Predicates.and(filterPredicate, screenMapFilter);
         }
+        return filterPredicate;
+    }
 
-        return features;
+    /**
+     * @return the sort stage for the requested {@link #sortBy} criteria, or {@code null} if there
+     *         are none or the walk of the canonical tree already returns the features in
+     *         {@link SortBy#NATURAL_ORDER natural order}
+     */
+    private @Nullable FeatureSort resolveSort(final boolean walksIndex) {
+        if (sortBy == null || sortBy.length == 0) {
+            return null;
+        }
+        if (FeatureSort.isNaturalOrder(sortBy) && !walksIndex) {
+            return null;
+        }
+        FeatureSort sort = new FeatureSort(sortBy, sortBufferSize);
+        for (String att : sort.attributeNames()) {
+            Preconditions.checkArgument(nativeSchemaAttributeNames.contains(att),
+                    "Can't sort by %s, no such attribute in %s", att, nativeSchema.getTypeName());
+        }
+        return sort;
+    }
+
+    /**
+     * Sorts the feature nodes by the sort key values available in the nodes themselves and applies
+     * offset and limit to the sorted nodes, so that only the features in the requested page need to
+     * be fetched
+     */
+    private AutoCloseableIterator<NodeRef> sortNodeRefs(FeatureSort sort,
+            AutoCloseableIterator<NodeRef> featureRefs, ObjectId featureTypeId) {
+
+        AutoCloseableIterator<FeatureSort.Entry> entries;
+        entries = AutoCloseableIterator.transform(featureRefs, (ref) -> sort.fromIndex(ref));
+        entries = applyOffsetAndLimit(sort.sort(entries));
+        return AutoCloseableIterator.transform(entries,
+                (e) -> new NodeRef(e.node(), NodeRef.ROOT, featureTypeId));
+    }
+
+    /**
+     * Sorts the fetched {@link RevFeature}s that pass the post filter by the sort key values of
+     * the features, and applies offset and limit to the sorted features
+     */
+    private AutoCloseableIterator<ObjectInfo<RevFeature>> sortFeatures(FeatureSort sort,
+            AutoCloseableIterator<ObjectInfo<RevFeature>> featureInfos,
+            FeatureBuilder featureBuilder, Predicate<SimpleFeature> postFilter,
+            ObjectId featureTypeId) {
+
+        AutoCloseableIterator<FeatureSort.Entry> entries;
+        entries = AutoCloseableIterator.transform(featureInfos, (info) -> {
+            SimpleFeature feature = MultiFeatureTypeBuilder.build(featureBuilder, info,
+                    geometryFactory);
+            if (!postFilter.apply(feature)) {
+                return null;
+            }
+            return sort.fromFeature(info.node(), info.object(), feature);
+        });
+        entries = AutoCloseableIterator.filter(entries, notNull());
+        entries = applyOffsetAndLimit(sort.sort(entries));
+        return AutoCloseableIterator.transform(entries, (e) -> ObjectInfo
+                .of(new NodeRef(e.node(), NodeRef.ROOT, featureTypeId), e.feature()));
     }
 
     private SimpleFeatureType resolveMinimalNativeSchema(Set<String> requiredProperties) {
@@ -511,6 +820,11 @@ public class FeatureReaderBuilder {
         return iterator;
     }
 
+    /**
+     * Number of features fetched at a time when fetching features for already sorted nodes
+     */
+    private static final int FETCH_IN_ORDER_BATCH_SIZE = 1_000;
+
     @SuppressWarnings("unchecked")
     private static final Optional<Index>[] NO_INDEX = new Optional[] { absent(), absent() };
 
@@ -739,15 +1053,15 @@ public class FeatureReaderBuilder {
      * <ul>
      * <li>{@link #limit} and/or {@link #offset} have been set, since most probably the caller is
      * doing paging
+     * <li>{@link #sortBy} has been set, either because the tree walk order is the requested
+     * {@link SortBy#NATURAL_ORDER natural order}, or so that features with equal sort keys are
+     * consistently returned in the same order, given the sort is stable
      * </ul>
      */
     private boolean shallPreserveIterationOrder() {
         boolean preserveIterationOrder = false;
         preserveIterationOrder |= limit != null || offset != null;
-        // TODO: revisit, sortBy should only force iteration order if we can return features in the
-        // requested order, otherwise a higher level decorator will still perform the sort
-        // in-process so there's no point in forcing the iteration order here
-        // preserveIterationOrder |= sortBy != null && sortBy.length > 0;
+        preserveIterationOrder |= sortBy != null && sortBy.length > 0;
         return preserveIterationOrder;
     }
 
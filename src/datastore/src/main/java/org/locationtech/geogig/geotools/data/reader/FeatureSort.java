@@ -0,0 +1,316 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.CanonicalNodeNameOrder;
+import org.locationtech.geogig.model.FieldType;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectInfo;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.DataStreamValueSerializerV2;
+import org.locationtech.geogig.storage.datastream.FormatCommonV2_2;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
+
+import com.google.common.collect.ImmutableSet;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Sort stage for {@link FeatureReaderBuilder}, sorts feature {@link Node nodes} by a list of
+ * {@link SortBy} criteria with an {@link ExternalMergeSort}, so that the amount of memory used is
+ * bounded regardless of the number of features.
+ * <p>
+ * Sort criteria with no property name ({@link SortBy#NATURAL_ORDER} and
+ * {@link SortBy#REVERSE_ORDER}) sort by feature id in {@link CanonicalNodeNameOrder canonical
+ * order}, which is the order in which a walk of the canonical tree returns the features. Attribute
+ * criteria sort by the attribute values, with {@code null}s first.
+ * <p>
+ * The sort keys are either taken from the nodes' materialized attributes, when they're stored in
+ * the spatial index {@link Node#getExtraData() extra data}, in which case only the nodes are sorted
+ * and the {@link RevFeature}s are fetched afterwards, or from already fetched features, in which
+ * case the {@link RevFeature}s are sorted along with their nodes.
+ */
+class FeatureSort {
+
+    /**
+     * A feature node, its sort key values (one per sort criteria, {@code null} for the feature id
+     * criteria since it's taken from the node name), and optionally the feature itself
+     */
+    static final class Entry {
+
+        private final Object[] keys;
+
+        private final Node node;
+
+        private final @Nullable RevFeature feature;
+
+        Entry(Object[] keys, Node node, @Nullable RevFeature feature) {
+            this.keys = keys;
+            this.node = node;
+            this.feature = feature;
+        }
+
+        public Node node() {
+            return node;
+        }
+
+        public @Nullable RevFeature feature() {
+            return feature;
+        }
+    }
+
+    private final SortBy[] sortBy;
+
+    /**
+     * The attribute name for each sort criteria, {@code null} for feature id criteria
+     */
+    private final String[] properties;
+
+    private final boolean hasAttributes;
+
+    private final int bufferSize;
+
+    FeatureSort(SortBy[] sortBy, int bufferSize) {
+        checkNotNull(sortBy);
+        checkArgument(sortBy.length > 0, "no sort criteria provided");
+        this.sortBy = sortBy.clone();
+        this.bufferSize = bufferSize;
+        this.properties = new String[sortBy.length];
+        boolean hasAttributes = false;
+        for (int i = 0; i < sortBy.length; i++) {
+            properties[i] = propertyName(sortBy[i]);
+            hasAttributes |= properties[i] != null;
+        }
+        this.hasAttributes = hasAttributes;
+    }
+
+    /**
+     * @return {@code true} if no sort criteria is given, or the only one is
+     *         {@link SortBy#NATURAL_ORDER}, hence walking the canonical tree preserving its
+     *         iteration order returns the features in the requested order
+     */
+    public static boolean isNaturalOrder(@Nullable SortBy[] sortBy) {
+        if (sortBy == null || sortBy.length == 0) {
+            return true;
+        }
+        return sortBy.length == 1 && propertyName(sortBy[0]) == null
+                && !SortOrder.DESCENDING.equals(sortBy[0].getSortOrder());
+    }
+
+    private static @Nullable String propertyName(SortBy sortBy) {
+        PropertyName property = sortBy.getPropertyName();
+        String name = property == null ? null : property.getPropertyName();
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        // strip namespace prefix if any
+        int prefix = name.indexOf(':');
+        return prefix == -1 ? name : name.substring(prefix + 1);
+    }
+
+    /**
+     * @return the names of the attributes to sort by, in order, excluding feature id criteria
+     */
+    public Set<String> attributeNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (String p : properties) {
+            if (p != null) {
+                names.add(p);
+            }
+        }
+        return ImmutableSet.copyOf(names);
+    }
+
+    /**
+     * Creates a sort entry taking the key values from the node's materialized attributes
+     */
+    public Entry fromIndex(NodeRef ref) {
+        final Node node = ref.getNode();
+        Object[] keys = new Object[properties.length];
+        if (hasAttributes) {
+            Map<String, Object> materialized = IndexInfo.getMaterializedAttributes(node);
+            for (int i = 0; i < properties.length; i++) {
+                if (properties[i] != null) {
+                    keys[i] = materialized.get(properties[i]);
+                }
+            }
+        }
+        return new Entry(keys, node, null);
+    }
+
+    /**
+     * Creates a sort entry taking the key values from the feature attributes
+     */
+    public Entry fromFeature(Node node, RevFeature revFeature, SimpleFeature feature) {
+        Object[] keys = new Object[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            if (properties[i] != null) {
+                keys[i] = feature.getAttribute(properties[i]);
+            }
+        }
+        return new Entry(keys, node, revFeature);
+    }
+
+    /**
+     * Consumes and closes {@code entries} and returns them sorted
+     */
+    public AutoCloseableIterator<Entry> sort(AutoCloseableIterator<Entry> entries) {
+        ExternalMergeSort<Entry> sorter = new ExternalMergeSort<>(comparator(), new EntryCodec(),
+                bufferSize);
+        return sorter.sort(entries);
+    }
+
+    private Comparator<Entry> comparator() {
+        return (e1, e2) -> {
+            for (int i = 0; i < properties.length; i++) {
+                int c;
+                if (properties[i] == null) {
+                    c = CanonicalNodeNameOrder.INSTANCE.compare(e1.node.getName(),
+                            e2.node.getName());
+                } else {
+                    c = compareValues(e1.keys[i], e2.keys[i]);
+                }
+                if (c != 0) {
+                    return SortOrder.DESCENDING.equals(sortBy[i].getSortOrder()) ? -c : c;
+                }
+            }
+            return 0;
+        };
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareValues(@Nullable Object v1, @Nullable Object v2) {
+        if (v1 == v2) {
+            return 0;
+        }
+        if (v1 == null) {
+            return -1;
+        }
+        if (v2 == null) {
+            return 1;
+        }
+        if (v1 instanceof Number && v2 instanceof Number && v1.getClass() != v2.getClass()) {
+            return Double.compare(((Number) v1).doubleValue(), ((Number) v2).doubleValue());
+        }
+        if (v1 instanceof Comparable) {
+            try {
+                return ((Comparable) v1).compareTo(v2);
+            } catch (ClassCastException e) {
+                // fall back to comparing string representations
+            }
+        }
+        return String.valueOf(v1).compareTo(String.valueOf(v2));
+    }
+
+    /**
+     * Fetches the {@link RevFeature}s for the given nodes preserving the order of the nodes, which
+     * {@link ObjectStore#getObjects} doesn't guarantee. Features are fetched in batches of
+     * {@code batchSize}.
+     */
+    public static AutoCloseableIterator<ObjectInfo<RevFeature>> fetchInOrder(
+            final ObjectStore store, final AutoCloseableIterator<NodeRef> refs,
+            final int batchSize) {
+
+        AutoCloseableIterator<List<NodeRef>> batches = AutoCloseableIterator.partition(refs,
+                batchSize);
+
+        AutoCloseableIterator<Iterator<ObjectInfo<RevFeature>>> fetched;
+        fetched = AutoCloseableIterator.transform(batches, (batch) -> {
+            Map<ObjectId, RevFeature> features = new HashMap<>();
+            try (AutoCloseableIterator<ObjectInfo<RevFeature>> objects = store.getObjects(
+                    batch.iterator(), BulkOpListener.NOOP_LISTENER, RevFeature.class)) {
+                while (objects.hasNext()) {
+                    RevFeature feature = objects.next().object();
+                    features.put(feature.getId(), feature);
+                }
+            }
+            List<ObjectInfo<RevFeature>> ordered = new ArrayList<>(batch.size());
+            for (NodeRef ref : batch) {
+                RevFeature feature = features.get(ref.getObjectId());
+                if (feature != null) {
+                    ordered.add(ObjectInfo.of(ref, feature));
+                }
+            }
+            return ordered.iterator();
+        });
+        return AutoCloseableIterator.concat(fetched);
+    }
+
+    /**
+     * Encodes sort entries as the key values, the node, and the feature if present, using the
+     * current serialization format
+     */
+    private class EntryCodec implements ExternalMergeSort.Codec<Entry> {
+
+        private final FormatCommonV2_2 format = FormatCommonV2_2.INSTANCE;
+
+        private final DataStreamValueSerializerV2 values = DataStreamValueSerializerV2.INSTANCE;
+
+        private final Envelope envBuff = new Envelope();
+
+        @Override
+        public void write(Entry e, DataOutput out) throws IOException {
+            for (int i = 0; i < properties.length; i++) {
+                if (properties[i] != null) {
+                    Object value = e.keys[i];
+                    FieldType type = FieldType.forValue(value);
+                    out.writeByte(type.getTag());
+                    values.encode(type, value, out);
+                }
+            }
+            format.writeNode(e.node, out, envBuff);
+            out.writeBoolean(e.feature != null);
+            if (e.feature != null) {
+                format.writeFeature(e.feature, out);
+            }
+        }
+
+        @Override
+        public Entry read(DataInput in) throws IOException {
+            Object[] keys = new Object[properties.length];
+            for (int i = 0; i < properties.length; i++) {
+                if (properties[i] != null) {
+                    FieldType type = FieldType.valueOf(in.readByte());
+                    keys[i] = values.decode(type, in);
+                }
+            }
+            Node node = format.readNode(in);
+            RevFeature feature = null;
+            if (in.readBoolean()) {
+                feature = format.readFeature(node.getObjectId(), in);
+            }
+            return new Entry(keys, node, feature);
+        }
+    }
+}
@@ -385,6 +385,39 @@ public class GeoGigDataStoreTest extends RepositoryTestCase {
         assertTrue(line.equals((Geometry) f.getAttribute("pp")));
     }
 
+    @Test
+    public void testFeatureWriterAppendReadYourWrites() throws Exception {
+        dataStore.createSchema(linesType);
+
+        Transaction tx = new DefaultTransaction();
+        FeatureWriter<SimpleFeatureType, SimpleFeature> fw = dataStore
+                .getFeatureWriterAppend(linesTypeName.getLocalPart(), tx);
+        try {
+            for (int i = 0; i < 3; i++) {
+                SimpleFeature f = (SimpleFeature) fw.next();
+                f.setAttribute("sp", "foo" + i);
+                f.setAttribute("ip", i);
+                f.setAttribute("pp", new GeometryBuilder().lineString(0, 0, i, i));
+                fw.write();
+            }
+            // pending writes are visible within the transaction even if the writer is still open
+            assertEquals(3, dataStore.getFeatureSource(linesName, tx).getCount(null));
+            assertEquals(0, dataStore.getFeatureSource(linesName).getCount(null));
+
+            SimpleFeature f = (SimpleFeature) fw.next();
+            f.setAttribute("sp", "bar");
+            f.setAttribute("pp", new GeometryBuilder().lineString(0, 0, 5, 5));
+            fw.write();
+
+            // and are committed with the transaction
+            tx.commit();
+        } finally {
+            fw.close();
+            tx.close();
+        }
+        assertEquals(4, dataStore.getFeatureSource(linesName).getCount(null));
+    }
+
     @Test
     public void testGetDiffFeatureSource() throws Exception {
         insertAndAdd(points1);
@@ -0,0 +1,82 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import static org.geotools.filter.text.ecql.ECQL.toFilter;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.locationtech.geogig.model.impl.AttributeTreeBuilder.key;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.geotools.factory.CommonFactoryFinder;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+public class AttributeKeyRangeTest {
+
+    private final FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    private AttributeKeyRange range(String ecql, Class<?> binding) throws Exception {
+        return AttributeKeyRange.of(toFilter(ecql), "att", binding);
+    }
+
+    private void assertRange(AttributeKeyRange range, @Nullable Object min, @Nullable Object max) {
+        assertNotNull(range);
+        assertEquals(min == null ? null : key(min), range.minKey);
+        assertEquals(max == null ? null : key(max), range.maxKey);
+    }
+
+    @Test
+    public void testComparisons() throws Exception {
+        assertRange(range("att = 5", Integer.class), 5, 5);
+        assertRange(range("att > 5", Integer.class), 5, null);
+        assertRange(range("att >= 5", Integer.class), 5, null);
+        assertRange(range("att < 5", Integer.class), null, 5);
+        assertRange(range("att <= 5", Integer.class), null, 5);
+        assertRange(range("5 < att", Integer.class), 5, null);
+        assertRange(range("5 > att", Integer.class), null, 5);
+        assertRange(range("att BETWEEN 1 AND 5", Integer.class), 1, 5);
+        assertRange(range("att IS NULL", Integer.class), null, null);
+        assertEquals(key(null), range("att IS NULL", Integer.class).minKey);
+        assertRange(range("att = 'geogig'", String.class), "geogig", "geogig");
+    }
+
+    @Test
+    public void testLiteralConversion() throws Exception {
+        assertRange(range("att > '5'", Integer.class), 5, null);
+        assertRange(range("att < 5.5", Integer.class), null, 5.5);
+        assertRange(range("att = 5", String.class), "5", "5");
+    }
+
+    @Test
+    public void testUnconstrained() throws Exception {
+        assertNull(range("att <> 5", Integer.class));
+        assertNull(range("other = 5", Integer.class));
+        assertNull(range("att = other", Integer.class));
+        assertNull(range("att LIKE 'geo%'", String.class));
+        assertNull(range("att = 5 OR other = 5", Integer.class));
+        assertNull(AttributeKeyRange.of(Filter.INCLUDE, "att", Integer.class));
+        assertNull(AttributeKeyRange.of(
+                ff.equal(ff.property("att"), ff.literal("geogig"), false), "att", String.class));
+        assertNotNull(AttributeKeyRange.of(ff.equal(ff.property("att"), ff.literal(5), false),
+                "att", Integer.class));
+    }
+
+    @Test
+    public void testLogicalOperators() throws Exception {
+        assertRange(range("att > 1 AND att < 5", Integer.class), 1, 5);
+        assertRange(range("att > 1 AND other = 3 AND att > 2", Integer.class), 2, null);
+        assertRange(range("att = 1 OR att = 5", Integer.class), 1, 5);
+        assertRange(range("att = 1 OR att > 5", Integer.class), 1, null);
+        assertRange(range("att < 1 OR att BETWEEN 3 AND 7", Integer.class), null, 7);
+    }
+}
@@ -0,0 +1,107 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+
+import com.google.common.collect.Lists;
+
+public class ExternalMergeSortTest {
+
+    /**
+     * Sorts by {@code value} only, {@code index} is used to verify the sort is stable
+     */
+    private static class Element {
+        final int value;
+
+        final int index;
+
+        Element(int value, int index) {
+            this.value = value;
+            this.index = index;
+        }
+    }
+
+    private static final ExternalMergeSort.Codec<Element> CODEC = new ExternalMergeSort.Codec<Element>() {
+
+        @Override
+        public void write(Element e, DataOutput out) throws IOException {
+            out.writeInt(e.value);
+            out.writeInt(e.index);
+        }
+
+        @Override
+        public Element read(DataInput in) throws IOException {
+            return new Element(in.readInt(), in.readInt());
+        }
+    };
+
+    private static final Comparator<Element> BY_VALUE = (e1, e2) -> Integer.compare(e1.value,
+            e2.value);
+
+    @Test
+    public void testEmpty() {
+        testSort(0, 10);
+    }
+
+    @Test
+    public void testInMemory() {
+        testSort(1000, 1000);
+        testSort(999, 1000);
+    }
+
+    @Test
+    public void testSpillToDisk() {
+        testSort(1000, 100);
+        testSort(1001, 100);
+        testSort(1000, 1);
+    }
+
+    @Test
+    public void testMultipleMergePasses() {
+        int bufferSize = 3;
+        int runs = 2 * ExternalMergeSort.MAX_MERGE_FAN_IN + 1;
+        testSort(bufferSize * runs, bufferSize);
+    }
+
+    private void testSort(final int size, final int bufferSize) {
+        Random random = new Random(size);
+        List<Element> elements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            // force plenty of repeated values to check stability
+            elements.add(new Element(random.nextInt(1 + size / 4), i));
+        }
+        List<Element> expected = new ArrayList<>(elements);
+        expected.sort(BY_VALUE);// List.sort is stable
+
+        ExternalMergeSort<Element> sorter = new ExternalMergeSort<>(BY_VALUE, CODEC, bufferSize);
+        List<Element> actual;
+        try (AutoCloseableIterator<Element> sorted = sorter
+                .sort(AutoCloseableIterator.fromIterator(elements.iterator()))) {
+            actual = Lists.newArrayList(sorted);
+        }
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < size; i++) {
+            assertEquals(expected.get(i).value, actual.get(i).value);
+            assertEquals(expected.get(i).index, actual.get(i).index);
+        }
+    }
+}
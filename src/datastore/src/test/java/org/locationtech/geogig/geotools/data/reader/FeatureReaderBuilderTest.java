@@ -15,6 +15,7 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.validateMockitoUsage;
 import static org.mockito.Mockito.verify;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,7 @@ import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.factory.Hints;
 import org.geotools.feature.NameImpl;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.renderer.ScreenMap;
 import org.junit.After;
 import org.junit.Test;
@@ -35,6 +37,7 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.impl.RevFeatureTypeBuilder;
 import org.locationtech.geogig.plumbing.DiffTree;
+import org.locationtech.geogig.porcelain.index.CreateAttributeIndex;
 import org.locationtech.geogig.porcelain.index.CreateQuadTree;
 import org.locationtech.geogig.porcelain.index.Index;
 import org.locationtech.geogig.repository.Context;
@@ -50,6 +53,7 @@ import org.opengis.filter.PropertyIsEqualTo;
 import org.opengis.filter.PropertyIsNotEqualTo;
 import org.opengis.filter.identity.FeatureId;
 import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
@@ -57,6 +61,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 
@@ -109,7 +114,10 @@ public class FeatureReaderBuilderTest extends RepositoryTestCase {
     protected void setUpInternal() throws Exception {
         insertAndAdd(points1, points2, points3);
         commit("inital");
+        builder = newBuilder();
+    }
 
+    private FeatureReaderBuilder newBuilder() {
         SimpleFeatureType fullSchema = pointsType;
         RevFeatureType nativeType = RevFeatureTypeBuilder.build(fullSchema);
         Context actualContext = repo.context();
@@ -121,7 +129,7 @@ public class FeatureReaderBuilderTest extends RepositoryTestCase {
         NodeRef typeRef = context.workingTree().getFeatureTypeTrees().get(0);
 
         FeatureReaderBuilder b = FeatureReaderBuilder.builder(context, nativeType, typeRef);
-        builder = spy(b);
+        return spy(b);
     }
 
     @Test
@@ -344,6 +352,180 @@ public class FeatureReaderBuilderTest extends RepositoryTestCase {
         verifyUsesIndex(index);
     }
 
+    @Test
+    public void testSortByAttribute() throws Exception {
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setSortBy(new SortBy[] { ff.sort("ip", SortOrder.DESCENDING) });
+        verifyOrder(query, points3, points2, points1);
+
+        query.setSortBy(new SortBy[] { ff.sort("sp", SortOrder.ASCENDING) });
+        verifyOrder(query, points1, points2, points3);
+    }
+
+    @Test
+    public void testSortByAttributeIndexed() throws Exception {
+        Index index = createIndex("ip");
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setSortBy(new SortBy[] { ff.sort("ip", SortOrder.DESCENDING) });
+        verifyOrder(query, points3, points2, points1);
+        verifyUsesIndex(index);
+    }
+
+    @Test
+    public void testSortByAttributeNotMaterializedInIndex() throws Exception {
+        Index index = createIndex("ip");
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setPropertyNames(new String[] { "ip" });
+        query.setSortBy(new SortBy[] { ff.sort("sp", SortOrder.DESCENDING) });
+        verifyOrder(query, points3, points2, points1);
+        verifyUsesIndex(index);
+    }
+
+    @Test
+    public void testSortWithOffsetAndLimit() throws Exception {
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setSortBy(new SortBy[] { ff.sort("ip", SortOrder.DESCENDING) });
+        query.setStartIndex(1);
+        query.setMaxFeatures(1);
+        verifyOrder(query, points2);
+    }
+
+    @Test
+    public void testSortSpillsToDisk() throws Exception {
+        builder.sortBufferSize(1);
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setFilter(ff.notEqual(ff.property("sp"), ff.literal("StringProp1_2")));
+        query.setSortBy(new SortBy[] { ff.sort("ip", SortOrder.DESCENDING) });
+        verifyOrder(query, points3, points1);
+    }
+
+    @Test
+    public void testNaturalAndReverseOrder() throws Exception {
+        Query query = new Query();
+        query.setSortBy(new SortBy[] { SortBy.NATURAL_ORDER });
+        List<String> natural = readIds(query);
+        assertEquals(3, natural.size());
+
+        builder = newBuilder();
+        query.setSortBy(new SortBy[] { SortBy.REVERSE_ORDER });
+        assertEquals(Lists.reverse(natural), readIds(query));
+
+        // walking the index requires sorting by feature id in canonical order
+        createIndex();
+        builder = newBuilder();
+        query.setSortBy(new SortBy[] { SortBy.NATURAL_ORDER });
+        assertEquals(natural, readIds(query));
+    }
+
+    @Test
+    public void testCountAndBoundsBBOX() throws Exception {
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setFilter(ff.bbox("pp", 1.5, 1.5, 4, 4, "EPSG:4326"));
+        verifyCountAndBounds(query, points2, points3);
+
+        query.setFilter(ff.bbox("pp", 10, 10, 20, 20, "EPSG:4326"));
+        verifyCountAndBounds(query);
+    }
+
+    @Test
+    public void testCountAndBoundsBBOXIndexed() throws Exception {
+        createIndex();
+        builder = newBuilder();
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setFilter(ff.bbox("pp", 0, 0, 2.5, 2.5, "EPSG:4326"));
+        verifyCountAndBounds(query, points1, points2);
+
+        query.setFilter(ff.bbox("pp", -180, -90, 180, 90, "EPSG:4326"));
+        verifyCountAndBounds(query, points1, points2, points3);
+
+        query.setStartIndex(1);
+        query.setMaxFeatures(1);
+        assertEquals(1L, prepare(query).count());
+    }
+
+    @Test
+    public void testCountAndBoundsFilterNotSupportedByIndex() throws Exception {
+        createIndex("ip");
+        builder = newBuilder();
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        Filter supported = ff.bbox("pp", 0, 0, 2.5, 2.5, "EPSG:4326");
+        Filter unsupported = ff.notEqual(ff.property("sp"), ff.literal("StringProp1_1"));
+        query.setFilter(ff.and(supported, unsupported));
+        verifyCountAndBounds(query, points2);
+
+        query.setFilter(ff.greater(ff.property("ip"), ff.literal(1500)));
+        verifyCountAndBounds(query, points2, points3);
+    }
+
+    @Test
+    public void testAttributeIndex() throws Exception {
+        Index index = repo.command(CreateAttributeIndex.class).setTreeRefSpec(pointsName)
+                .setAttributeName("ip").call();
+        builder = newBuilder();
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setFilter(ff.greater(ff.property("ip"), ff.literal(1500)));
+        verifyFeatures(query, points2, points3);
+        verifyUsesIndex(index);
+    }
+
+    @Test
+    public void testCountAndBoundsAttributeIndex() throws Exception {
+        repo.command(CreateAttributeIndex.class).setTreeRefSpec(pointsName).setAttributeName("sp")
+                .call();
+        builder = newBuilder();
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setFilter(ff.between(ff.property("sp"), ff.literal("StringProp1_1"),
+                ff.literal("StringProp1_2")));
+        verifyCountAndBounds(query, points1, points2);
+
+        query.setFilter(ff.or(ff.equals(ff.property("sp"), ff.literal("StringProp1_1")),
+                ff.equals(ff.property("sp"), ff.literal("StringProp1_3"))));
+        verifyCountAndBounds(query, points1, points3);
+    }
+
+    private void verifyCountAndBounds(Query query, Feature... expectedFeatures) {
+        ReferencedEnvelope expectedBounds = new ReferencedEnvelope(
+                pointsType.getCoordinateReferenceSystem());
+        for (Feature f : expectedFeatures) {
+            expectedBounds.include(f.getBounds());
+        }
+        assertEquals(expectedFeatures.length, prepare(query).count());
+        ReferencedEnvelope bounds = prepare(query).bounds();
+        assertEquals(expectedBounds.isEmpty(), bounds.isEmpty());
+        if (!expectedBounds.isEmpty()) {
+            assertEquals(new Envelope(expectedBounds), new Envelope(bounds));
+        }
+    }
+
+    private void verifyOrder(Query query, Feature... expectedFeatures) throws Exception {
+        List<String> expected = Lists.transform(Lists.newArrayList(expectedFeatures),
+                (f) -> f.getIdentifier().getID());
+        assertEquals(expected, readIds(query));
+    }
+
+    private List<String> readIds(Query query) throws Exception {
+        getReader(query);
+        List<String> ids = new ArrayList<>();
+        try {
+            while (reader.hasNext()) {
+                ids.add(reader.next().getID());
+            }
+        } finally {
+            reader.close();
+        }
+        return ids;
+    }
+
     private Map<FeatureId, SimpleFeature> verifyFeatures(Query query, Feature... expectedFeatures)
             throws Exception {
 
@@ -353,6 +535,11 @@ public class FeatureReaderBuilderTest extends RepositoryTestCase {
     }
 
     private FeatureReader<SimpleFeatureType, SimpleFeature> getReader(Query query) {
+        reader = prepare(query).build();
+        return reader;
+    }
+
+    private FeatureReaderBuilder prepare(Query query) {
         GeometryFactory geometryFactory = (GeometryFactory) query.getHints()
                 .get(Hints.JTS_GEOMETRY_FACTORY);
         Integer offset = query.getStartIndex();
@@ -361,15 +548,13 @@ public class FeatureReaderBuilderTest extends RepositoryTestCase {
         ScreenMap screenMap = (ScreenMap) query.getHints().get(Hints.SCREENMAP);
         SortBy[] sortBy = query.getSortBy();
 
-        reader = builder.filter(query.getFilter())//
+        return builder.filter(query.getFilter())//
                 .geometryFactory(geometryFactory)//
                 .offset(offset)//
                 .limit(limit)//
                 .propertyNames(propertyNames)//
                 .screenMap(screenMap)//
-                .sortBy(sortBy)//
-                .build();
-        return reader;
+                .sortBy(sortBy);
     }
 
     private Map<FeatureId, SimpleFeature> verifyFeatures(
@@ -519,10 +519,12 @@ public class ImportOp extends AbstractGeoGigOp<RevTree> {
             Iterator<Feature> features, final ProgressListener taskProgress,
             ObjectId featureTypeId) {
         try {
+            // copy the feature values while reading, since feature iterators are not meant to be
+            // accessed from other threads, but let the working tree hash them in parallel
             Iterator<FeatureInfo> infos = Iterators.transform(features, (f) -> {
-                RevFeature rf = RevFeatureBuilder.build(f);
                 String path = NodeRef.appendChild(treePath, f.getIdentifier().getID());
-                return FeatureInfo.insert(rf, featureTypeId, path);
+                RevFeatureBuilder builder = RevFeatureBuilder.builder(f);
+                return FeatureInfo.insert(builder::build, featureTypeId, path);
             });
             workTree.insert(infos, taskProgress);
         } catch (Exception e) {
@@ -53,6 +53,12 @@ public class Environment {
 
     public static final String KEY_PUTALL_BATCH_SIZE = "postgres.putAllBatchSize";
 
+    /**
+     * Boolean config key, if {@code true} {@code putAll} bulk loads objects through binary
+     * {@code COPY} instead of batched {@code INSERT} statements. Defaults to {@code false}.
+     */
+    public static final String KEY_PUTALL_COPY = "postgres.putAllCopy";
+
     public static final String KEY_ODB_BYTE_CACHE_MAX_SIZE = "postgres.bytecache.maxSize";
 
     public static final String KEY_ODB_BYTE_CACHE_CONCURRENCY_LEVEL = "postgres.bytecache.concurrencyLevel";
@@ -26,7 +26,6 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 
 import javax.sql.DataSource;
 
@@ -37,13 +36,14 @@ import org.locationtech.geogig.repository.RepositoryConnectionException;
 import org.locationtech.geogig.storage.ConfigDatabase;
 import org.locationtech.geogig.storage.GraphDatabase;
 import org.locationtech.geogig.storage.StorageType;
+import org.locationtech.geogig.storage.impl.GenerationNumbers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 
 /**
@@ -53,6 +53,16 @@ import com.google.inject.Inject;
 public class PGGraphDatabase implements GraphDatabase {
     static Logger LOG = LoggerFactory.getLogger(PGGraphDatabase.class);
 
+    /**
+     * Reserved node property holding the node's depth, see {@link GenerationNumbers}
+     */
+    static final String DEPTH_PROPERTY = "__depth";
+
+    /**
+     * Reserved node property holding the node's generation, see {@link GenerationNumbers}
+     */
+    static final String GENERATION_PROPERTY = "__generation";
+
     private final String EDGES;
 
     private final String PROPS;
@@ -67,6 +77,33 @@ public class PGGraphDatabase implements GraphDatabase {
 
     private Environment config;
 
+    private final GenerationNumbers generations = new GenerationNumbers() {
+
+        @Override
+        protected List<ObjectId> parents(ObjectId id) {
+            return getParents(id);
+        }
+
+        @Override
+        protected List<ObjectId> children(ObjectId id) {
+            return getChildren(id);
+        }
+
+        /**
+         * Nodes don't have a row of their own, so any node is considered to exist here, with
+         * unknown numbers if they were never set.
+         */
+        @Override
+        protected int[] get(ObjectId id) {
+            return numbers(PGId.valueOf(id));
+        }
+
+        @Override
+        protected void set(ObjectId id, int depth, int generation) {
+            setNumbers(PGId.valueOf(id), depth, generation);
+        }
+    };
+
     @Inject
     public PGGraphDatabase(ConfigDatabase configdb, Hints hints) throws URISyntaxException {
         this(configdb, Environment.get(hints));
@@ -174,7 +211,7 @@ public class PGGraphDatabase implements GraphDatabase {
         } catch (SQLException e) {
             throw propagate(e);
         }
-
+        generations.update(commitId);
         return updated;
     }
 
@@ -274,33 +311,75 @@ public class PGGraphDatabase implements GraphDatabase {
 
     @Override
     public int getDepth(ObjectId commitId) {
-        int depth = 0;
+        return generations.depth(commitId);
+    }
+
+    /**
+     * @return the node's depth and generation numbers, or {@link GenerationNumbers#UNKNOWN} for
+     *         the ones that are not set
+     */
+    private int[] numbers(final PGId node) {
+        final String sql = format(
+                "SELECT key, val FROM %s WHERE nid = CAST(ROW(?,?,?) AS OBJECTID) AND key IN (?, ?)",
+                PROPS);
 
-        Queue<PGId> q = Lists.newLinkedList();
+        int[] numbers = { GenerationNumbers.UNKNOWN, GenerationNumbers.UNKNOWN };
         try (Connection cx = PGStorage.newConnection(dataSource)) {
-            Iterables.addAll(q, outgoing(PGId.valueOf(commitId), cx));
-
-            List<PGId> next = Lists.newArrayList();
-            while (!q.isEmpty()) {
-                depth++;
-                while (!q.isEmpty()) {
-                    PGId n = q.poll();
-                    List<PGId> parents = Lists.newArrayList(outgoing(n, cx));
-                    if (parents.size() == 0) {
-                        return depth;
+            try (PreparedStatement ps = cx.prepareStatement(
+                    log(sql, LOG, node, DEPTH_PROPERTY, GENERATION_PROPERTY))) {
+                node.setArgs(ps, 1);
+                ps.setString(4, DEPTH_PROPERTY);
+                ps.setString(5, GENERATION_PROPERTY);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int index = DEPTH_PROPERTY.equals(rs.getString(1)) ? 0 : 1;
+                        numbers[index] = Integer.parseInt(rs.getString(2));
                     }
-
-                    Iterables.addAll(next, parents);
                 }
-
-                q.addAll(next);
-                next.clear();
             }
         } catch (SQLException e) {
             throw propagate(e);
         }
+        return numbers;
+    }
 
-        return depth;
+    private void setNumbers(final PGId node, final int depth, final int generation) {
+        final String delete = format(
+                "DELETE FROM %s WHERE nid = CAST(ROW(?,?,?) AS OBJECTID) AND key IN (?, ?)",
+                PROPS);
+        final String insert = format(
+                "INSERT INTO %s (nid,key,val) VALUES (ROW(?,?,?), ?, ?), (ROW(?,?,?), ?, ?)",
+                PROPS);
+        try (Connection cx = PGStorage.newConnection(dataSource)) {
+            cx.setAutoCommit(false);
+            try {
+                try (PreparedStatement ds = cx.prepareStatement(
+                        log(delete, LOG, node, DEPTH_PROPERTY, GENERATION_PROPERTY))) {
+                    node.setArgs(ds, 1);
+                    ds.setString(4, DEPTH_PROPERTY);
+                    ds.setString(5, GENERATION_PROPERTY);
+                    ds.executeUpdate();
+                }
+                try (PreparedStatement is = cx
+                        .prepareStatement(log(insert, LOG, node, depth, generation))) {
+                    node.setArgs(is, 1);
+                    is.setString(4, DEPTH_PROPERTY);
+                    is.setString(5, String.valueOf(depth));
+                    node.setArgs(is, 6);
+                    is.setString(9, GENERATION_PROPERTY);
+                    is.setString(10, String.valueOf(generation));
+                    is.executeUpdate();
+                }
+                cx.commit();
+            } catch (SQLException e) {
+                cx.rollback();
+                throw e;
+            } finally {
+                cx.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw propagate(e);
+        }
     }
 
     /**
@@ -493,5 +572,10 @@ public class PGGraphDatabase implements GraphDatabase {
             String sparse = property(PGId.valueOf(id), SPARSE_FLAG, dataSource);
             return Boolean.parseBoolean(sparse);
         }
+
+        @Override
+        public Optional<Integer> getGeneration() {
+            return generations.generation(id);
+        }
     }
 }
@@ -19,22 +19,27 @@ import static java.util.Spliterator.IMMUTABLE;
 import static java.util.Spliterator.NONNULL;
 import static org.locationtech.geogig.storage.postgresql.Environment.KEY_GETALL_BATCH_SIZE;
 import static org.locationtech.geogig.storage.postgresql.Environment.KEY_PUTALL_BATCH_SIZE;
+import static org.locationtech.geogig.storage.postgresql.Environment.KEY_PUTALL_COPY;
 import static org.locationtech.geogig.storage.postgresql.Environment.KEY_THREADPOOL_SIZE;
 import static org.locationtech.geogig.storage.postgresql.PGStorage.log;
 import static org.locationtech.geogig.storage.postgresql.PGStorage.rollbackAndRethrow;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -73,8 +78,12 @@ import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ConfigDatabase;
 import org.locationtech.geogig.storage.ObjectInfo;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.RawObject;
 import org.locationtech.geogig.storage.datastream.SerializationFactoryProxy;
 import org.locationtech.geogig.storage.postgresql.Environment.ConnectionConfig;
+import org.postgresql.PGConnection;
+import org.postgresql.PGStatement;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -114,6 +123,13 @@ public class PGObjectStore implements ObjectStore {
 
     private static final SerializationFactoryProxy encoder = new SerializationFactoryProxy();
 
+    /**
+     * Encodes objects in the format set by the repository config, see
+     * {@link SerializationFactoryProxy#fromConfig}. Objects in any format are decoded by
+     * {@link #encoder}
+     */
+    private SerializationFactoryProxy writer = encoder;
+
     protected DataSource dataSource;
 
     private ExecutorService executor = null;
@@ -128,6 +144,8 @@ public class PGObjectStore implements ObjectStore {
 
     private int putAllBatchSize = DEFAULT_PUT_ALL_PARTITION_SIZE;
 
+    private boolean putAllCopy = false;
+
     @Inject
     public PGObjectStore(final ConfigDatabase configdb, final Hints hints)
             throws URISyntaxException {
@@ -167,6 +185,9 @@ public class PGObjectStore implements ObjectStore {
                     batchSize);
             this.putAllBatchSize = batchSize;
         }
+        this.putAllCopy = configdb.get(KEY_PUTALL_COPY, Boolean.class).or(Boolean.FALSE)
+                .booleanValue();
+        this.writer = SerializationFactoryProxy.fromConfig(configdb);
 
         final String prefix = config.getTables().getPrefix();
         final ConnectionConfig connectionConfig = config.connectionConfig;
@@ -208,6 +229,11 @@ public class PGObjectStore implements ObjectStore {
         this.putAllBatchSize = size;
     }
 
+    @VisibleForTesting
+    void setPutAllCopy(boolean copy) {
+        this.putAllCopy = copy;
+    }
+
     protected String objectsTable() {
         return config.getTables().objects();
     }
@@ -686,7 +712,7 @@ public class PGObjectStore implements ObjectStore {
             cx.setAutoCommit(true);
             try (PreparedStatement ps = cx.prepareStatement(log(sql, LOG, id, object))) {
                 pgid.setArgs(ps, 1);
-                byte[] blob = encoder.encode(object);
+                byte[] blob = writer.encode(object);
                 ps.setBytes(4, blob);
 
                 final int updateCount = ps.executeUpdate();
@@ -786,19 +812,19 @@ public class PGObjectStore implements ObjectStore {
         // NOTE: the AND clause is for the ((id).h1) = ? comparison to use the hash index
         // and enable constraint exclusion
         final String sql = format(
-                "SELECT encode(object,'base64') FROM %s WHERE ((id).h1) = ? AND id = CAST(ROW(?,?,?) AS OBJECTID)",
+                "SELECT object FROM %s WHERE ((id).h1) = ? AND id = CAST(ROW(?,?,?) AS OBJECTID)",
                 tableName);
 
         byte[] bytes = null;
 
         try (Connection cx = PGStorage.newConnection(dataSource)) {
             try (PreparedStatement ps = cx.prepareStatement(log(sql, LOG, id))) {
+                forceBinaryTransfer(ps);
                 ps.setInt(1, pgid.hash1());
                 pgid.setArgs(ps, 2);
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        byte[] bytesBase64 = rs.getBytes(1);
-                        bytes = Base64.getMimeDecoder().decode(bytesBase64);
+                        bytes = rs.getBytes(1);
                     }
                 }
             }
@@ -891,12 +917,12 @@ public class PGObjectStore implements ObjectStore {
                 ObjectId id;
 
                 final String sql = format(
-                        "SELECT ((id).h1), ((id).h2),((id).h3), encode(object,'base64') FROM %s WHERE ((id).h1) = ANY(?)",
+                        "SELECT ((id).h1), ((id).h2),((id).h3), object FROM %s WHERE ((id).h1) = ANY(?)",
                         tableName);
 
                 try (Connection cx = PGStorage.newConnection(db.dataSource)) {
                     try (PreparedStatement ps = cx.prepareStatement(log(sql, LOG, queryIds))) {
-                        Base64.Decoder base64Decoder = Base64.getMimeDecoder();
+                        forceBinaryTransfer(ps);
                         final Array array = toJDBCArray(cx, queryIds);
                         ps.setFetchSize(queryCount);
                         ps.setArray(1, array);
@@ -915,8 +941,7 @@ public class PGObjectStore implements ObjectStore {
                                 // contain
                                 // more due to hash1 clashes
                                 if (queryIds.contains(id)) {
-                                    byte[] bytesBase64 = rs.getBytes(4);
-                                    bytes = base64Decoder.decode(bytesBase64);
+                                    bytes = rs.getBytes(4);
 
                                     RevObject obj = encoder.decode(id, bytes);
                                     if (objType == null || objType.equals(obj.getType())) {
@@ -946,19 +971,19 @@ public class PGObjectStore implements ObjectStore {
             }
             return found;
         }
+    }
 
-        private Array toJDBCArray(Connection cx, final Collection<ObjectId> queryIds)
-                throws SQLException {
-            Array array;
-            Object[] arr = new Object[queryIds.size()];
-            Iterator<ObjectId> it = queryIds.iterator();
-            for (int i = 0; it.hasNext(); i++) {
-                ObjectId id = it.next();
-                arr[i] = Integer.valueOf(PGId.valueOf(id).hash1());
-            }
-            array = cx.createArrayOf("integer", arr);
-            return array;
+    private static Array toJDBCArray(Connection cx, final Collection<ObjectId> queryIds)
+            throws SQLException {
+        Array array;
+        Object[] arr = new Object[queryIds.size()];
+        Iterator<ObjectId> it = queryIds.iterator();
+        for (int i = 0; it.hasNext(); i++) {
+            ObjectId id = it.next();
+            arr[i] = Integer.valueOf(PGId.valueOf(id).hash1());
         }
+        array = cx.createArrayOf("integer", arr);
+        return array;
     }
 
     private static class GetObjectOp<T extends RevObject> implements Callable<List<ObjectInfo<T>>> {
@@ -992,7 +1017,7 @@ public class PGObjectStore implements ObjectStore {
             final int queryCount = queryNodes.size();
 
             final String sql = format(
-                    "SELECT ((id).h1), ((id).h2),((id).h3), encode(object,'base64') FROM %s WHERE ((id).h1) = ANY(?)",
+                    "SELECT ((id).h1), ((id).h2),((id).h3), object FROM %s WHERE ((id).h1) = ANY(?)",
                     tableName);
 
             Map<ObjectId, byte[]> queryMatches = new HashMap<>();
@@ -1002,14 +1027,14 @@ public class PGObjectStore implements ObjectStore {
                 final Array array = toJDBCArray(cx, queryNodes);
 
                 try (PreparedStatement ps = cx.prepareStatement(log(sql, LOG, queryNodes))) {
+                    forceBinaryTransfer(ps);
                     ps.setFetchSize(queryCount);
                     ps.setArray(1, array);
 
                     try (ResultSet rs = ps.executeQuery()) {
                         while (rs.next()) {
                             ObjectId id = PGId.valueOf(rs, 1).toObjectId();
-                            byte[] bytesBase64 = rs.getBytes(4);
-                            byte[] bytes = Base64.getMimeDecoder().decode(bytesBase64);
+                            byte[] bytes = rs.getBytes(4);
                             queryMatches.put(id, bytes);
                         }
                     }
@@ -1052,12 +1077,23 @@ public class PGObjectStore implements ObjectStore {
         }
     }
 
+    /**
+     * Makes the driver request results in binary format from the statement's first execution,
+     * instead of after {@code prepareThreshold} executions, so {@code BYTEA} columns are received
+     * as raw bytes rather than as hex encoded text.
+     */
+    private static void forceBinaryTransfer(PreparedStatement ps) throws SQLException {
+        if (ps.isWrapperFor(PGStatement.class)) {
+            // a negative threshold means prepare on first use and force binary transfer
+            ps.unwrap(PGStatement.class).setPrepareThreshold(-1);
+        }
+    }
+
     /**
      * Deletes the object with the specified id.
      * 
      * @return Flag indicating if object was actually removed.
      */
-
     private void delete(final ObjectId id, DataSource ds) {
         String sql = format("DELETE FROM %s WHERE id = CAST(ROW(?,?,?) AS OBJECTID)",
                 objectsTable());
@@ -1092,11 +1128,11 @@ public class PGObjectStore implements ObjectStore {
 
         private final DataSource ds;
 
-        private final AtomicBoolean abortFlag;
+        final AtomicBoolean abortFlag;
 
-        private final BulkOpListener listener;
+        final BulkOpListener listener;
 
-        private final PGObjectStore objectStore;
+        final PGObjectStore objectStore;
 
         private List<EncodedObject> batch;
 
@@ -1134,7 +1170,7 @@ public class PGObjectStore implements ObjectStore {
             return null;
         }
 
-        private void doInsert(Connection cx, List<EncodedObject> partition) throws Exception {
+        void doInsert(Connection cx, List<EncodedObject> partition) throws Exception {
             Map<String, PreparedStatement> perTableStatements = new HashMap<>();
             ArrayListMultimap<String, ObjectId> perTableIds = ArrayListMultimap.create();
 
@@ -1190,15 +1226,136 @@ public class PGObjectStore implements ObjectStore {
 
     }
 
+    /**
+     * Bulk loads a batch of objects through binary {@code COPY}, which is much faster than
+     * {@code INSERT} statements but bypasses the rules that ignore duplicate inserts on the object
+     * tables. Hence the objects for each target table (already routed to their partition by
+     * {@code (id).h1}) are copied to a temporary staging table, and then merged into the target
+     * table skipping the ones that already exist.
+     */
+    private static class CopyInsertDbOp extends InsertDbOp {
+
+        private static final String STAGING_TABLE = "geogig_copy_staging";
+
+        private static final byte[] COPY_SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n',
+                (byte) 0xFF, '\r', '\n', 0 };
+
+        public CopyInsertDbOp(DataSource ds, AtomicBoolean abortFlag, List<EncodedObject> batch,
+                BulkOpListener listener, PGObjectStore objectStore) {
+            super(ds, abortFlag, batch, listener, objectStore);
+        }
+
+        @Override
+        void doInsert(Connection cx, List<EncodedObject> partition) throws Exception {
+            Map<String, Map<ObjectId, EncodedObject>> perTableObjects = new HashMap<>();
+            for (EncodedObject obj : partition) {
+                final String tableName = objectStore.tableNameForType(obj.type,
+                        PGId.valueOf(obj.id));
+                Map<ObjectId, EncodedObject> tableObjects = perTableObjects
+                        .computeIfAbsent(tableName, (t) -> new LinkedHashMap<>());
+                if (tableObjects.putIfAbsent(obj.id, obj) != null) {
+                    // repeated in the same batch, only the first one gets inserted
+                    listener.found(obj.id, null);
+                }
+            }
+
+            try (Statement st = cx.createStatement()) {
+                st.execute(format("CREATE TEMPORARY TABLE IF NOT EXISTS %s"
+                        + " (h1 INTEGER, h2 BIGINT, h3 BIGINT, object BYTEA) ON COMMIT DELETE ROWS",
+                        STAGING_TABLE));
+            }
+            final PGConnection pgConnection = cx.unwrap(PGConnection.class);
+
+            for (Map.Entry<String, Map<ObjectId, EncodedObject>> e : perTableObjects.entrySet()) {
+                if (abortFlag.get()) {
+                    return;
+                }
+                final String tableName = e.getKey();
+                final Map<ObjectId, EncodedObject> objects = e.getValue();
+
+                try (Statement st = cx.createStatement()) {
+                    st.execute(format("TRUNCATE %s", STAGING_TABLE));
+                }
+                copy(pgConnection, objects.values());
+                Set<ObjectId> existing = existing(cx, tableName);
+                merge(cx, tableName);
+
+                for (ObjectId id : objects.keySet()) {
+                    if (existing.contains(id)) {
+                        listener.found(id, null);
+                    } else {
+                        listener.inserted(id, null);
+                    }
+                }
+            }
+        }
+
+        private void copy(PGConnection cx, Collection<EncodedObject> objects)
+                throws SQLException, IOException {
+            final String sql = format("COPY %s (h1, h2, h3, object) FROM STDIN (FORMAT BINARY)",
+                    STAGING_TABLE);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new PGCopyOutputStream(cx, sql), 64 * 1024))) {
+                out.write(COPY_SIGNATURE);
+                out.writeInt(0);// flags
+                out.writeInt(0);// header extension length
+                for (EncodedObject o : objects) {
+                    PGId pgid = PGId.valueOf(o.id);
+                    out.writeShort(4);// field count
+                    out.writeInt(4);
+                    out.writeInt(pgid.hash1());
+                    out.writeInt(8);
+                    out.writeLong(pgid.hash2());
+                    out.writeInt(8);
+                    out.writeLong(pgid.hash3());
+                    out.writeInt(o.serialized.length);
+                    out.write(o.serialized);
+                }
+                out.writeShort(-1);// file trailer
+            }
+        }
+
+        private Set<ObjectId> existing(Connection cx, String tableName) throws SQLException {
+            final String sql = format(
+                    "SELECT s.h1, s.h2, s.h3 FROM %s s WHERE EXISTS (SELECT 1 FROM %s t"
+                            + " WHERE ((t.id).h1) = s.h1 AND t.id = CAST(ROW(s.h1, s.h2, s.h3) AS OBJECTID))",
+                    STAGING_TABLE, tableName);
+            Set<ObjectId> existing = new HashSet<>();
+            try (Statement st = cx.createStatement()) {
+                try (ResultSet rs = st.executeQuery(log(sql, LOG))) {
+                    while (rs.next()) {
+                        existing.add(PGId.valueOf(rs, 1).toObjectId());
+                    }
+                }
+            }
+            return existing;
+        }
+
+        private void merge(Connection cx, String tableName) throws SQLException {
+            final String sql = format(
+                    "INSERT INTO %s (id, object) SELECT CAST(ROW(s.h1, s.h2, s.h3) AS OBJECTID), s.object"
+                            + " FROM %s s WHERE NOT EXISTS (SELECT 1 FROM %s t"
+                            + " WHERE ((t.id).h1) = s.h1 AND t.id = CAST(ROW(s.h1, s.h2, s.h3) AS OBJECTID))",
+                    tableName, STAGING_TABLE, tableName);
+            try (Statement st = cx.createStatement()) {
+                st.executeUpdate(log(sql, LOG));
+            }
+        }
+    }
+
     private EncodedObject encode(RevObject o) {
         ObjectId id = o.getId();
         TYPE type = o.getType();
-        byte[] serialized = encoder.encode(o);
+        byte[] serialized = writer.encode(o);
         return new EncodedObject(id, type, serialized);
     }
 
     /**
      * Override to optimize batch insert.
+     * <p>
+     * Batches are inserted with {@code INSERT} statements, or bulk loaded through binary
+     * {@code COPY} if the {@link Environment#KEY_PUTALL_COPY postgres.putAllCopy} config option is
+     * {@code true}.
      */
     @Override
     public void putAll(final Iterator<? extends RevObject> objects, final BulkOpListener listener) {
@@ -1220,6 +1377,124 @@ public class PGObjectStore implements ObjectStore {
             encoded = StreamSupport.stream(spliterator, parallel).map((obj) -> encode(obj))
                     .iterator();
         }
+        putAllEncoded(encoded, listener);
+    }
+
+    /**
+     * Override to insert the already encoded objects the same way than
+     * {@link #putAll(Iterator, BulkOpListener)}.
+     * <p>
+     * Objects are routed to the table for their type, so objects whose {@link RawObject#type()
+     * type} is unknown are decoded in order to find it out, though they're still stored as given.
+     */
+    @Override
+    public void putAllRaw(final Iterator<RawObject> objects, final BulkOpListener listener) {
+        checkNotNull(objects, "objects is null");
+        checkNotNull(listener, "listener is null");
+        checkWritable();
+        config.checkRepositoryExists();
+
+        Iterator<EncodedObject> encoded;
+        {
+            final int characteristics = IMMUTABLE | NONNULL | DISTINCT;
+
+            Spliterator<RawObject> spliterator = Spliterators.spliteratorUnknownSize(objects,
+                    characteristics);
+
+            final boolean parallel = true;
+            encoded = StreamSupport.stream(spliterator, parallel).map((raw) -> {
+                final ObjectId id = raw.id();
+                final byte[] bytes = raw.bytes();
+                TYPE type = raw.type();
+                if (type == null) {
+                    type = encoder.decode(id, bytes).getType();
+                }
+                return new EncodedObject(id, type, bytes);
+            }).iterator();
+        }
+        putAllEncoded(encoded, listener);
+    }
+
+    /**
+     * Override to update the objects in place, in batches of {@link #putAllBatchSize} objects each
+     * one updated in a single transaction, inserting the ones that don't exist.
+     */
+    @Override
+    public void overwriteAll(final Iterator<? extends RevObject> objects) {
+        checkNotNull(objects, "objects is null");
+        checkWritable();
+        config.checkRepositoryExists();
+
+        final Iterator<List<EncodedObject>> partitions = Iterators
+                .partition(Iterators.transform(objects, (obj) -> encode(obj)), putAllBatchSize);
+
+        try (Connection cx = PGStorage.newConnection(dataSource)) {
+            cx.setAutoCommit(false);
+            try {
+                while (partitions.hasNext()) {
+                    final List<EncodedObject> batch = partitions.next();
+                    overwrite(cx, batch);
+                    cx.commit();
+                    // only once committed, or a concurrent read could cache the old contents again
+                    for (EncodedObject obj : batch) {
+                        sharedCache.invalidate(obj.id);
+                    }
+                }
+            } catch (SQLException e) {
+                rollbackAndRethrow(cx, e);
+            } finally {
+                cx.setAutoCommit(true);
+            }
+        } catch (SQLException connectEx) {
+            throw propagate(connectEx);
+        }
+    }
+
+    private void overwrite(final Connection cx, final List<EncodedObject> batch)
+            throws SQLException {
+
+        ArrayListMultimap<String, EncodedObject> perTable = ArrayListMultimap.create();
+        for (EncodedObject obj : batch) {
+            perTable.put(tableNameForType(obj.type, PGId.valueOf(obj.id)), obj);
+        }
+        for (String tableName : perTable.keySet()) {
+            final List<EncodedObject> tableObjects = perTable.get(tableName);
+            final String update = format(
+                    "UPDATE %s SET object = ? WHERE ((id).h1) = ? AND id = CAST(ROW(?,?,?) AS OBJECTID)",
+                    tableName);
+            final int[] updated;
+            try (PreparedStatement ps = cx.prepareStatement(log(update, LOG))) {
+                for (EncodedObject obj : tableObjects) {
+                    PGId pgid = PGId.valueOf(obj.id);
+                    ps.setBytes(1, obj.serialized);
+                    ps.setInt(2, pgid.hash1());
+                    pgid.setArgs(ps, 3);
+                    ps.addBatch();
+                }
+                updated = ps.executeBatch();
+            }
+            final String insert = format("INSERT INTO %s (id, object) VALUES(ROW(?,?,?),?)",
+                    tableName);
+            try (PreparedStatement ps = cx.prepareStatement(log(insert, LOG))) {
+                boolean inserts = false;
+                for (int i = 0; i < updated.length; i++) {
+                    EncodedObject obj = tableObjects.get(i);
+                    if (updated[i] == 0) {
+                        PGId.valueOf(obj.id).setArgs(ps, 1);
+                        ps.setBytes(4, obj.serialized);
+                        ps.addBatch();
+                        inserts = true;
+                    }
+                }
+                if (inserts) {
+                    ps.executeBatch();
+                }
+            }
+        }
+    }
+
+    private void putAllEncoded(final Iterator<EncodedObject> encoded,
+            final BulkOpListener listener) {
 
         final int maxTasks = Math.min(Runtime.getRuntime().availableProcessors(), threadPoolSize);
 
@@ -1237,7 +1512,9 @@ public class PGObjectStore implements ObjectStore {
             List<InsertDbOp> tasks = new ArrayList<>(maxTasks);
             for (int i = 0; i < maxTasks && partitions.hasNext() && !abortFlag.get(); i++) {
                 List<EncodedObject> batch = partitions.next();
-                InsertDbOp task = new InsertDbOp(dataSource, abortFlag, batch, listener, this);
+                InsertDbOp task = putAllCopy
+                        ? new CopyInsertDbOp(dataSource, abortFlag, batch, listener, this)
+                        : new InsertDbOp(dataSource, abortFlag, batch, listener, this);
                 tasks.add(task);
             }
             try {
@@ -1257,6 +1534,140 @@ public class PGObjectStore implements ObjectStore {
         }
     }
 
+    /**
+     * @return the {@link SerializationFactoryProxy#getRawFormat() format and codec} objects are
+     *         written with, as set by the repository config
+     */
+    @Override
+    public String getRawFormat() {
+        return writer.getRawFormat();
+    }
+
+    /**
+     * Override to fetch the objects in parallel batches of {@link #getAllBatchSize} ids, like
+     * {@link #getAll(Iterable, BulkOpListener)} does, but without decoding them nor going through
+     * the shared cache.
+     */
+    @Override
+    public Iterator<RawObject> getAllRaw(final Iterable<ObjectId> ids,
+            final BulkOpListener listener) {
+        checkNotNull(ids, "ids is null");
+        checkNotNull(listener, "listener is null");
+        checkState(isOpen(), "Database is closed");
+        config.checkRepositoryExists();
+
+        final int queryBatchSize = getAllBatchSize;
+        final int superPartitionBatchSize = 10 * queryBatchSize;
+
+        Iterator<List<ObjectId>> superPartitions = Iterators.partition(ids.iterator(),
+                superPartitionBatchSize);
+
+        Iterator<Iterator<RawObject>> batches = Iterators.transform(superPartitions,
+                (superPartition) -> {
+                    List<Future<List<RawObject>>> futures = new ArrayList<>();
+                    for (List<ObjectId> partition : Lists.partition(superPartition,
+                            queryBatchSize)) {
+                        futures.add(getAllRaw(partition, listener));
+                    }
+                    List<RawObject> found = new ArrayList<>(superPartition.size());
+                    try {
+                        for (Future<List<RawObject>> f : futures) {
+                            found.addAll(f.get());
+                        }
+                    } catch (InterruptedException | ExecutionException e) {
+                        throw propagate(e);
+                    }
+                    return found.iterator();
+                });
+
+        return Iterators.concat(batches);
+    }
+
+    private Future<List<RawObject>> getAllRaw(final List<ObjectId> ids,
+            final BulkOpListener listener) {
+        checkState(isOpen(), "Database is closed");
+
+        GetAllRawOp getAllOp = new GetAllRawOp(ids, listener, this);
+        // Avoid deadlocking by running the task synchronously if we are already in one of the
+        // threads on the executor.
+        if (Thread.currentThread().getThreadGroup().equals(threadGroup)) {
+            try {
+                List<RawObject> objects = getAllOp.call();
+                return Futures.immediateFuture(objects);
+            } catch (Exception e) {
+                propagate(e);
+            }
+        }
+        return executor.submit(getAllOp);
+    }
+
+    /**
+     * Queries all the object type tables at once, so that the returned {@link RawObject}s carry
+     * their {@link RawObject#type() type} and can be inserted into another
+     * {@link PGObjectStore} without being decoded
+     */
+    private static class GetAllRawOp implements Callable<List<RawObject>> {
+
+        private final Set<ObjectId> queryIds;
+
+        private final BulkOpListener callback;
+
+        private final PGObjectStore db;
+
+        public GetAllRawOp(Collection<ObjectId> ids, BulkOpListener listener, PGObjectStore db) {
+            this.queryIds = Sets.newHashSet(ids);
+            this.callback = listener;
+            this.db = db;
+        }
+
+        @Override
+        public List<RawObject> call() throws Exception {
+            checkState(db.isOpen(), "Database is closed");
+
+            final TYPE[] types = TYPE.values();
+            StringBuilder sql = new StringBuilder();
+            for (TYPE type : types) {
+                if (sql.length() > 0) {
+                    sql.append(" UNION ALL ");
+                }
+                sql.append(format(
+                        "SELECT %d, ((id).h1), ((id).h2), ((id).h3), object FROM %s WHERE ((id).h1) = ANY(?)",
+                        type.value(), db.tableNameForType(type, null)));
+            }
+
+            final int queryCount = queryIds.size();
+            List<RawObject> found = new ArrayList<>(queryCount);
+
+            try (Connection cx = PGStorage.newConnection(db.dataSource)) {
+                try (PreparedStatement ps = cx.prepareStatement(
+                        log(sql.toString(), LOG, queryIds))) {
+                    forceBinaryTransfer(ps);
+                    final Array array = toJDBCArray(cx, queryIds);
+                    ps.setFetchSize(queryCount);
+                    for (int i = 0; i < types.length; i++) {
+                        ps.setArray(i + 1, array);
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            ObjectId id = PGId.valueOf(rs, 2).toObjectId();
+                            // the resultset may contain more due to hash1 clashes
+                            if (queryIds.remove(id)) {
+                                TYPE type = TYPE.valueOf(rs.getInt(1));
+                                byte[] bytes = rs.getBytes(5);
+                                callback.found(id, Integer.valueOf(bytes.length));
+                                found.add(RawObject.of(id, type, bytes));
+                            }
+                        }
+                    }
+                }
+            }
+            for (ObjectId oid : queryIds) {
+                callback.notFound(oid);
+            }
+            return found;
+        }
+    }
+
     static final String tableName(TableNames tables, TYPE type, int hash) {
         switch (type) {
         case COMMIT:
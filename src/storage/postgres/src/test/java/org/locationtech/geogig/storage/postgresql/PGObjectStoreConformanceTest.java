@@ -13,9 +13,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.junit.After;
@@ -32,6 +34,7 @@ import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.geogig.storage.impl.ObjectStoreConformanceTest;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 
 public class PGObjectStoreConformanceTest extends ObjectStoreConformanceTest {
@@ -114,4 +117,29 @@ public class PGObjectStoreConformanceTest extends ObjectStoreConformanceTest {
         assertTrue(objects.hasNext());
         assertEquals(originalObject, objects.next());
     }
+
+    /**
+     * Objects are read as raw {@code bytea} values, make sure large objects round trip through all
+     * the read paths
+     */
+    @Test
+    public void testLargeObjectRoundTrip() {
+        Random random = new Random(1);
+        char[] chars = new char[4 * 1024 * 1024];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        RevObject large = RevObjectTestSupport.feature(0, null, new String(chars));
+        RevObject small = RevObjectTestSupport.feature(1, null, "some value");
+        db.put(large);
+        db.put(small);
+
+        assertEquals(large, db.get(large.getId()));
+        assertEquals(large, db.getIfPresent(large.getId()));
+
+        List<RevObject> all = Lists
+                .newArrayList(db.getAll(Lists.newArrayList(large.getId(), small.getId())));
+        assertEquals(2, all.size());
+        assertEquals(ImmutableSet.of(large, small), new HashSet<>(all));
+    }
 }
@@ -0,0 +1,28 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.postgresql;
+
+import org.locationtech.geogig.repository.Hints;
+import org.locationtech.geogig.repository.Platform;
+import org.locationtech.geogig.storage.ObjectStore;
+
+/**
+ * Runs the object store conformance tests with {@code putAll} bulk loading through binary
+ * {@code COPY}.
+ */
+public class PGObjectStoreCopyConformanceTest extends PGObjectStoreConformanceTest {
+
+    @Override
+    protected ObjectStore createOpen(Platform platform, Hints hints) {
+        PGObjectDatabase db = (PGObjectDatabase) super.createOpen(platform, hints);
+        db.setPutAllCopy(true);
+        return db;
+    }
+}
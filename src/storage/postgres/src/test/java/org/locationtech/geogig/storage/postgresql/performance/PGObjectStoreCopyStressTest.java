@@ -0,0 +1,152 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.postgresql.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.featureForceId;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.ClassRule;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.TestName;
+import org.junit.runners.MethodSorters;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.Platform;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.BulkOpListener.CountingListener;
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.locationtech.geogig.storage.fs.IniFileConfigDatabase;
+import org.locationtech.geogig.storage.postgresql.Environment;
+import org.locationtech.geogig.storage.postgresql.PGObjectDatabase;
+import org.locationtech.geogig.storage.postgresql.PGStorage;
+import org.locationtech.geogig.storage.postgresql.PGTemporaryTestConfig;
+import org.locationtech.geogig.test.TestPlatform;
+import org.locationtech.geogig.test.performance.EnablePerformanceTestRule;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Compares {@code putAll} throughput with batched {@code INSERT} statements against bulk loading
+ * through binary {@code COPY} (see {@link Environment#KEY_PUTALL_COPY}), first on an empty
+ * repository and then inserting the same objects again, which exercises the de-duplication of
+ * existing objects.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class PGObjectStoreCopyStressTest {
+
+    @Rule
+    public PGTemporaryTestConfig insertConfig = new PGTemporaryTestConfig(
+            getClass().getSimpleName() + "_insert");
+
+    @Rule
+    public PGTemporaryTestConfig copyConfig = new PGTemporaryTestConfig(
+            getClass().getSimpleName() + "_copy");
+
+    /**
+     * Enables this test only if the geogig.runPerformanceTests=true system property was provided
+     */
+    @ClassRule
+    public static EnablePerformanceTestRule performanceRule = new EnablePerformanceTestRule();
+
+    @Rule
+    public TestName testName = new TestName();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void test01_PutAll_100K() throws Exception {
+        testPutAll(100_000);
+    }
+
+    @Test
+    public void test02_PutAll_1M() throws Exception {
+        testPutAll(1_000_000);
+    }
+
+    @Test
+    public void test03_PutAll_5M() throws Exception {
+        testPutAll(5_000_000);
+    }
+
+    private void testPutAll(final int count) throws Exception {
+        System.err.printf("### test: %s\n", testName.getMethodName());
+
+        PGObjectDatabase db = createDb(insertConfig, false);
+        try {
+            System.err.println("--- INSERT:");
+            putAll(db, count, count);
+            putAll(db, count, 0);
+        } finally {
+            db.close();
+        }
+
+        db = createDb(copyConfig, true);
+        try {
+            System.err.println("--- COPY:");
+            putAll(db, count, count);
+            putAll(db, count, 0);
+        } finally {
+            db.close();
+        }
+    }
+
+    private PGObjectDatabase createDb(PGTemporaryTestConfig testConfig, boolean copy)
+            throws IOException {
+        File workingDirectory = tmp.newFolder(copy ? "copy" : "insert");
+        new File(workingDirectory, ".geogig").mkdir();
+        Platform platform = new TestPlatform(workingDirectory);
+        ConfigDatabase configdb = new IniFileConfigDatabase(platform);
+        configdb.put(Environment.KEY_PUTALL_COPY, copy);
+
+        Environment envconfig = testConfig.getEnvironment();
+        PGStorage.createNewRepo(envconfig);
+        PGObjectDatabase db = new PGObjectDatabase(configdb, envconfig, false);
+        db.open();
+        return db;
+    }
+
+    private void putAll(PGObjectDatabase db, final int count, final int expectedInserts) {
+        CountingListener listener = BulkOpListener.newCountingListener();
+        Stopwatch sw = Stopwatch.createStarted();
+        db.putAll(fakeObjects(count), listener);
+        sw.stop();
+        long millis = Math.max(1, sw.elapsed(TimeUnit.MILLISECONDS));
+        System.err.printf("----- %,d objects (%,d inserted, %,d found) in %s (%,d rows/s)\n",
+                count, listener.inserted(), listener.found(), sw, (count * 1000L) / millis);
+        assertEquals(expectedInserts, listener.inserted());
+        assertEquals(count - expectedInserts, listener.found());
+    }
+
+    private Iterator<RevObject> fakeObjects(final int count) {
+        return new AbstractIterator<RevObject>() {
+            int i = 0;
+
+            @Override
+            protected RevObject computeNext() {
+                if (i == count) {
+                    return endOfData();
+                }
+                ObjectId id = RevObjectTestSupport.hashString("fakeID" + i++);
+                return featureForceId(id, "Some string value " + id, Integer.valueOf(i));
+            }
+        };
+    }
+}
@@ -13,12 +13,44 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.storage.ConfigDatabase;
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.CompressionType;
 
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 
 class DBConfig {
 
+    /**
+     * Config key for the size in bytes of the block cache shared by all the databases in the JVM.
+     * Only the first database opened determines its size.
+     */
+    static final String KEY_BLOCK_CACHE_SIZE = "rocksdb.blockCacheSize";
+
+    /**
+     * Config key for the number of bits per key of the bloom filter used by each column family, a
+     * value of {@code 0} disables the bloom filter
+     */
+    static final String KEY_BLOOM_BITS_PER_KEY = "rocksdb.bloomBitsPerKey";
+
+    /**
+     * Config key for the compression type applied to each column family, one of {@code none},
+     * {@code snappy}, {@code zlib}, {@code bzip2}, {@code lz4}, {@code lz4hc}, or {@code zstd}
+     */
+    static final String KEY_COMPRESSION = "rocksdb.compression";
+
+    /**
+     * Config key for the size in bytes of each column family's memtable
+     */
+    static final String KEY_WRITE_BUFFER_SIZE = "rocksdb.writeBufferSize";
+
+    static final long DEFAULT_BLOCK_CACHE_SIZE = 256 * 1024 * 1024;
+
+    static final int DEFAULT_BLOOM_BITS_PER_KEY = 10;
+
     private final String dbpath;
 
     private final boolean readOnly;
@@ -27,6 +59,14 @@ class DBConfig {
 
     private Set<String> columnFamilyNames;
 
+    private long blockCacheSize = DEFAULT_BLOCK_CACHE_SIZE;
+
+    private int bloomBitsPerKey = DEFAULT_BLOOM_BITS_PER_KEY;
+
+    private @Nullable CompressionType compression;
+
+    private @Nullable Long writeBufferSize;
+
     public DBConfig(String dbpath, boolean readOnly) {
         this(dbpath, readOnly, ImmutableMap.of(), Collections.emptySet());
     }
@@ -38,7 +78,106 @@ class DBConfig {
         this.columnFamilyNames = columnFamilyNames;
         this.defaultMetadata = ImmutableMap.copyOf(defaultMetadata);
     }
-    
+
+    /**
+     * Reads the {@code rocksdb.*} tuning settings from the repository config, falling back to the
+     * global config.
+     * 
+     * @return {@code this}
+     */
+    public DBConfig withSettings(@Nullable ConfigDatabase configdb) {
+        if (configdb == null) {
+            return this;
+        }
+        Optional<Long> cacheSize = get(configdb, KEY_BLOCK_CACHE_SIZE, Long.class);
+        if (cacheSize.isPresent()) {
+            Preconditions.checkArgument(cacheSize.get().longValue() > 0,
+                    "%s must be a positive integer: %s. Check your config.", KEY_BLOCK_CACHE_SIZE,
+                    cacheSize.get());
+            this.blockCacheSize = cacheSize.get().longValue();
+        }
+        Optional<Integer> bloomBits = get(configdb, KEY_BLOOM_BITS_PER_KEY, Integer.class);
+        if (bloomBits.isPresent()) {
+            Preconditions.checkArgument(bloomBits.get().intValue() >= 0,
+                    "%s must be zero or a positive integer: %s. Check your config.",
+                    KEY_BLOOM_BITS_PER_KEY, bloomBits.get());
+            this.bloomBitsPerKey = bloomBits.get().intValue();
+        }
+        Optional<String> compression = get(configdb, KEY_COMPRESSION, String.class);
+        if (compression.isPresent()) {
+            this.compression = parseCompression(compression.get());
+        }
+        Optional<Long> writeBufferSize = get(configdb, KEY_WRITE_BUFFER_SIZE, Long.class);
+        if (writeBufferSize.isPresent()) {
+            Preconditions.checkArgument(writeBufferSize.get().longValue() > 0,
+                    "%s must be a positive integer: %s. Check your config.",
+                    KEY_WRITE_BUFFER_SIZE, writeBufferSize.get());
+            this.writeBufferSize = writeBufferSize.get();
+        }
+        return this;
+    }
+
+    private static <T> Optional<T> get(ConfigDatabase configdb, String key, Class<T> type) {
+        Optional<T> value = configdb.get(key, type);
+        if (!value.isPresent()) {
+            value = configdb.getGlobal(key, type);
+        }
+        return value;
+    }
+
+    static CompressionType parseCompression(String name) {
+        switch (name.trim().toLowerCase()) {
+        case "none":
+            return CompressionType.NO_COMPRESSION;
+        case "snappy":
+            return CompressionType.SNAPPY_COMPRESSION;
+        case "zlib":
+            return CompressionType.ZLIB_COMPRESSION;
+        case "bzip2":
+            return CompressionType.BZLIB2_COMPRESSION;
+        case "lz4":
+            return CompressionType.LZ4_COMPRESSION;
+        case "lz4hc":
+            return CompressionType.LZ4HC_COMPRESSION;
+        case "zstd":
+            return CompressionType.ZSTD_COMPRESSION;
+        default:
+            throw new IllegalArgumentException(String.format(
+                    "Invalid value for %s: '%s'. Expected one of none, snappy, zlib, bzip2, lz4, lz4hc, zstd",
+                    KEY_COMPRESSION, name));
+        }
+    }
+
+    /**
+     * @return the size in bytes of the block cache shared by all databases, defaults to
+     *         {@link #DEFAULT_BLOCK_CACHE_SIZE}
+     */
+    public long getBlockCacheSize() {
+        return blockCacheSize;
+    }
+
+    /**
+     * @return the number of bits per key of the column families bloom filter, {@code 0} meaning
+     *         no bloom filter
+     */
+    public int getBloomBitsPerKey() {
+        return bloomBitsPerKey;
+    }
+
+    /**
+     * @return the configured compression type, or {@code null} to use the best one available
+     */
+    public @Nullable CompressionType getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return the configured memtable size in bytes, or {@code null} to use RocksDB's default
+     */
+    public @Nullable Long getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
     /**
      * @return the names of extra columns to create when the database is created
      */
@@ -9,6 +9,7 @@
  */
 package org.locationtech.geogig.rocksdb;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -42,6 +43,12 @@ class DBHandle {
 
     private Map<String, ColumnFamilyHandle> extraColumns;
 
+    /**
+     * Native objects the database was configured with (column family options, filters, etc), to be
+     * closed after the database itself
+     */
+    private List<AutoCloseable> nativeResources;
+
     /**
      * A reference to the RocksDB instance. This needs to be closed after it's used to free up the
      * reference.
@@ -67,12 +74,14 @@ class DBHandle {
     }
 
     public DBHandle(final DBConfig config, final org.rocksdb.DBOptions options, final RocksDB db,
-            @Nullable ColumnFamilyHandle metadata, Map<String, ColumnFamilyHandle> extraColumns) {
+            @Nullable ColumnFamilyHandle metadata, Map<String, ColumnFamilyHandle> extraColumns,
+            List<AutoCloseable> nativeResources) {
         this.config = config;
         this.options = options;
         this.db = db;
         this.metadata = metadata;
         this.extraColumns = extraColumns;
+        this.nativeResources = nativeResources;
     }
 
     public synchronized void close() {
@@ -91,6 +100,7 @@ class DBHandle {
         extraColumns.values().forEach((c) -> close(c));
         close(options);
         close(db);
+        nativeResources.forEach((r) -> close(r));
     }
 
     /**
@@ -14,13 +14,20 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.storage.impl.ConnectionManager;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
 import org.rocksdb.CompressionType;
+import org.rocksdb.LRUCache;
 import org.rocksdb.Options;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
@@ -32,6 +39,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 
 class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
 
@@ -39,6 +47,12 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
 
     static final RocksConnectionManager INSTANCE = new RocksConnectionManager();
 
+    private static final ConcurrentMap<CompressionType, Boolean> SUPPORTED_COMPRESSION = new ConcurrentHashMap<>();
+
+    private Cache sharedBlockCache;
+
+    private long sharedBlockCacheSize;
+
     /**
      * Determine if a database exists at the given path.
      * 
@@ -61,7 +75,6 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
                 .setAdviseRandomOnOpen(true)//
                 .setAllowMmapReads(true)//
                 .setAllowMmapWrites(true)//
-                .setAllowOsBuffer(true)//
                 .setBytesPerSync(64 * 1024 * 1024);
 
         RocksDB db;
@@ -82,12 +95,13 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
         @Nullable
         ColumnFamilyHandle metadata = null;
         Map<String, ColumnFamilyHandle> extraColumns = new HashMap<>();
+        final List<AutoCloseable> nativeResources = new ArrayList<>();
+        final Function<String, ColumnFamilyDescriptor> newColDescriptor = (name) -> newColDescriptor(
+                name, dbconfig, nativeResources);
         try {
             List<ColumnFamilyDescriptor> colDescriptors = new ArrayList<>();
             for (String name : colFamilyNames) {
-                byte[] colFamilyName = name.getBytes(Charsets.UTF_8);
-                ColumnFamilyOptions colFamilyOptions = newColFamilyOptions();
-                colDescriptors.add(new ColumnFamilyDescriptor(colFamilyName, colFamilyOptions));
+                colDescriptors.add(newColDescriptor.apply(name));
             }
 
             DBHandle dbHandle;
@@ -105,13 +119,14 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
                         extraColumns.put(name, handle);
                     }
                 }
-                dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns);
+                dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns,
+                        nativeResources);
             } else {
                 if (!dbExists) {
-                    colDescriptors.add(newColDescriptor("default"));
+                    colDescriptors.add(newColDescriptor.apply("default"));
                     for (String name : dbconfig.getColumnFamilyNames()) {
                         if (colFamilyNames.indexOf(name) > -1) {
-                            colDescriptors.add(newColDescriptor(name));
+                            colDescriptors.add(newColDescriptor.apply(name));
                         }
                     }
                 }
@@ -121,14 +136,14 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
                 if (metadataExists) {
                     metadata = colFamiliesTarget.get(colFamilyNames.indexOf("metadata"));
                 } else {
-                    ColumnFamilyDescriptor mdd = newColDescriptor("metadata");
+                    ColumnFamilyDescriptor mdd = newColDescriptor.apply("metadata");
                     metadata = db.createColumnFamily(mdd);
                 }
                 for (String name : dbconfig.getColumnFamilyNames()) {
                     ColumnFamilyDescriptor colDescriptor;
                     ColumnFamilyHandle colHandle;
                     if (colFamilyNames.indexOf(name) == -1) {
-                        colDescriptor = newColDescriptor(name);
+                        colDescriptor = newColDescriptor.apply(name);
                         colHandle = db.createColumnFamily(colDescriptor);
                     } else {
                         int colIndex = colFamilyNames.indexOf(name);
@@ -137,7 +152,8 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
                     extraColumns.put(name, colHandle);
                 }
 
-                dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns);
+                dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns,
+                        nativeResources);
 
                 // save default metadata
                 if (!dbExists) {
@@ -152,21 +168,126 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
 
     }
 
-    private ColumnFamilyDescriptor newColDescriptor(String name) {
-        ColumnFamilyOptions options = newColFamilyOptions();
+    private ColumnFamilyDescriptor newColDescriptor(String name, DBConfig dbconfig,
+            List<AutoCloseable> nativeResources) {
+        ColumnFamilyOptions options = newColFamilyOptions(dbconfig, nativeResources);
         ColumnFamilyDescriptor descriptor = new ColumnFamilyDescriptor(
                 name.getBytes(Charsets.UTF_8), options);
         return descriptor;
     }
 
-    private ColumnFamilyOptions newColFamilyOptions() {
+    private ColumnFamilyOptions newColFamilyOptions(DBConfig dbconfig,
+            List<AutoCloseable> nativeResources) {
+
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+        tableConfig.setBlockCache(sharedBlockCache(dbconfig));
+        tableConfig.setCacheIndexAndFilterBlocks(true);
+        tableConfig.setPinL0FilterAndIndexBlocksInCache(true);
+        final int bloomBitsPerKey = dbconfig.getBloomBitsPerKey();
+        if (bloomBitsPerKey > 0) {
+            // full filters (not block based) are cheaper to query for point lookups
+            final boolean useBlockBasedBuilder = false;
+            BloomFilter bloomFilter = new BloomFilter(bloomBitsPerKey, useBlockBasedBuilder);
+            nativeResources.add(bloomFilter);
+            tableConfig.setFilter(bloomFilter);
+        }
+
         ColumnFamilyOptions colFamilyOptions = new ColumnFamilyOptions();
-        // cause the Windows jar doesn't come with
-        // snappy and hence fails
-        colFamilyOptions.setCompressionType(CompressionType.NO_COMPRESSION);
+        nativeResources.add(colFamilyOptions);
+        colFamilyOptions.setTableFormatConfig(tableConfig);
+
+        final CompressionType compression = resolveCompression(dbconfig);
+        colFamilyOptions.setCompressionType(compression);
+        if (CompressionType.NO_COMPRESSION != compression) {
+            // leave the most frequently rewritten levels uncompressed
+            List<CompressionType> perLevel = new ArrayList<>(colFamilyOptions.numLevels());
+            for (int level = 0; level < colFamilyOptions.numLevels(); level++) {
+                perLevel.add(level < 2 ? CompressionType.NO_COMPRESSION : compression);
+            }
+            colFamilyOptions.setCompressionPerLevel(perLevel);
+        }
+        Long writeBufferSize = dbconfig.getWriteBufferSize();
+        if (writeBufferSize != null) {
+            colFamilyOptions.setWriteBufferSize(writeBufferSize.longValue());
+        }
         return colFamilyOptions;
     }
 
+    /**
+     * Returns the block cache shared by all column families of all the databases open by this
+     * connection manager, creating it with the {@link DBConfig#getBlockCacheSize() configured
+     * size} of the first database opened. The cache lives as long as the JVM.
+     */
+    private Cache sharedBlockCache(DBConfig dbconfig) {
+        if (sharedBlockCache == null) {
+            final long size = dbconfig.getBlockCacheSize();
+            LOG.debug("Creating shared RocksDB block cache of {} bytes", size);
+            sharedBlockCache = new LRUCache(size);
+            sharedBlockCacheSize = size;
+        } else if (sharedBlockCacheSize != dbconfig.getBlockCacheSize()) {
+            LOG.debug(
+                    "Ignoring block cache size {} for {}, shared block cache already created with size {}",
+                    dbconfig.getBlockCacheSize(), dbconfig, sharedBlockCacheSize);
+        }
+        return sharedBlockCache;
+    }
+
+    /**
+     * Resolves the compression to use for the column families of a database: the configured one,
+     * if any, or otherwise LZ4 if the platform's native library supports it, and no compression if
+     * it doesn't (e.g. the windows binaries don't come with all the compression libraries).
+     */
+    private CompressionType resolveCompression(DBConfig dbconfig) {
+        final CompressionType configured = dbconfig.getCompression();
+        if (configured != null) {
+            Preconditions.checkArgument(isSupported(configured),
+                    "Compression type %s is not available on this platform. Check your %s config",
+                    configured, DBConfig.KEY_COMPRESSION);
+            return configured;
+        }
+        return isSupported(CompressionType.LZ4_COMPRESSION) ? CompressionType.LZ4_COMPRESSION
+                : CompressionType.NO_COMPRESSION;
+    }
+
+    static boolean isSupported(final CompressionType compression) {
+        if (CompressionType.NO_COMPRESSION == compression) {
+            return true;
+        }
+        return SUPPORTED_COMPRESSION.computeIfAbsent(compression,
+                (c) -> Boolean.valueOf(probe(c))).booleanValue();
+    }
+
+    /**
+     * RocksDB refuses to open a database with a compression type that's not linked into the native
+     * library, so try that on a throw away database
+     */
+    private static boolean probe(final CompressionType compression) {
+        RocksDB.loadLibrary();
+        final File dir = Files.createTempDir();
+        try (Options options = new Options()) {
+            options.setCreateIfMissing(true).setCompressionType(compression);
+            try (RocksDB db = RocksDB.open(options, dir.getAbsolutePath())) {
+                return true;
+            }
+        } catch (RocksDBException e) {
+            LOG.info("{} is not supported by the RocksDB native library: {}", compression,
+                    e.getMessage());
+            return false;
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
     @Override
     protected void disconnect(DBHandle connection) {
         LOG.debug("closing {}", connection.config);
@@ -13,7 +13,9 @@ import static com.google.common.base.Throwables.propagate;
 import static org.locationtech.geogig.rocksdb.RocksdbStorageProvider.FORMAT_NAME;
 import static org.locationtech.geogig.rocksdb.RocksdbStorageProvider.VERSION;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
@@ -24,7 +26,6 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
@@ -37,6 +38,7 @@ import org.locationtech.geogig.storage.ConfigDatabase;
 import org.locationtech.geogig.storage.GraphDatabase;
 import org.locationtech.geogig.storage.StorageType;
 import org.locationtech.geogig.storage.datastream.Varint;
+import org.locationtech.geogig.storage.impl.GenerationNumbers;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
@@ -48,9 +50,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
-import com.google.common.collect.Lists;
 import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 import com.google.inject.Inject;
@@ -69,6 +69,37 @@ public class RocksdbGraphDatabase implements GraphDatabase {
 
     private DBHandle dbhandle;
 
+    private final GenerationNumbers generations = new GenerationNumbers() {
+
+        @Override
+        protected List<ObjectId> parents(ObjectId id) {
+            return getParents(id);
+        }
+
+        @Override
+        protected List<ObjectId> children(ObjectId id) {
+            return getChildren(id);
+        }
+
+        @Override
+        protected @Nullable int[] get(ObjectId id) {
+            NodeData node = getNodeInternal(id, false);
+            return node == null ? null : new int[] { node.depth, node.generation };
+        }
+
+        @Override
+        protected void set(ObjectId id, int depth, int generation) {
+            NodeData node = getNodeInternal(id, true);
+            node.depth = depth;
+            node.generation = generation;
+            try {
+                putNodeInternal(id, node);
+            } catch (IOException e) {
+                throw propagate(e);
+            }
+        }
+    };
+
     @Inject
     public RocksdbGraphDatabase(ConfigDatabase configdb, Platform platform, Hints hints) {
         this.configdb = configdb;
@@ -109,7 +140,7 @@ public class RocksdbGraphDatabase implements GraphDatabase {
             return;
         }
         String dbpath = dbdir.getAbsolutePath();
-        DBConfig opts = new DBConfig(dbpath, readOnly);
+        DBConfig opts = new DBConfig(dbpath, readOnly).withSettings(configdb);
         this.dbhandle = RocksConnectionManager.INSTANCE.acquire(opts);
         this.open = true;
     }
@@ -190,6 +221,7 @@ public class RocksdbGraphDatabase implements GraphDatabase {
         } catch (Exception e) {
             throw Throwables.propagate(e);
         }
+        generations.update(commitId);
         return updated;
     }
 
@@ -216,31 +248,7 @@ public class RocksdbGraphDatabase implements GraphDatabase {
 
     @Override
     public int getDepth(ObjectId commitId) {
-        int depth = 0;
-
-        Queue<ObjectId> q = Lists.newLinkedList();
-        NodeData node = getNodeInternal(commitId, true);
-        Iterables.addAll(q, node.outgoing);
-
-        List<ObjectId> next = Lists.newArrayList();
-        while (!q.isEmpty()) {
-            depth++;
-            while (!q.isEmpty()) {
-                ObjectId n = q.poll();
-                NodeData parentNode = getNodeInternal(n, true);
-                List<ObjectId> parents = Lists.newArrayList(parentNode.outgoing);
-                if (parents.size() == 0) {
-                    return depth;
-                }
-
-                Iterables.addAll(next, parents);
-            }
-
-            q.addAll(next);
-            next.clear();
-        }
-
-        return depth;
+        return generations.depth(commitId);
     }
 
     @Override
@@ -368,6 +376,11 @@ public class RocksdbGraphDatabase implements GraphDatabase {
             return node.isSparse();
         }
 
+        @Override
+        public Optional<Integer> getGeneration() {
+            return node.generation == GenerationNumbers.UNKNOWN ? Optional.absent()
+                    : Optional.of(Integer.valueOf(node.generation));
+        }
     }
 
     private static class GraphNodeBinding {
@@ -379,7 +392,8 @@ public class RocksdbGraphDatabase implements GraphDatabase {
         private static final PropertiesBinding PROPS = new PropertiesBinding();
 
         public NodeData entryToObject(byte[] input) {
-            DataInput in = ByteStreams.newDataInput(input);
+            ByteArrayInputStream bytes = new ByteArrayInputStream(input);
+            DataInput in = new DataInputStream(bytes);
 
             try {
                 ObjectId id = OID.entryToObject(in);
@@ -389,6 +403,11 @@ public class RocksdbGraphDatabase implements GraphDatabase {
                 Map<String, String> properties = PROPS.entryToObject(in);
 
                 NodeData nodeData = new NodeData(id, mappedTo, outgoing, incoming, properties);
+                // entries written before depth and generation were stored end here
+                if (bytes.available() > 0) {
+                    nodeData.depth = Varint.readUnsignedVarInt(in) - 1;
+                    nodeData.generation = Varint.readUnsignedVarInt(in) - 1;
+                }
                 return nodeData;
             } catch (IOException e) {
                 throw propagate(e);
@@ -403,6 +422,8 @@ public class RocksdbGraphDatabase implements GraphDatabase {
                 OIDLIST.objectToEntry(node.outgoing, output);
                 OIDLIST.objectToEntry(node.incoming, output);
                 PROPS.objectToEntry(node.properties, output);
+                Varint.writeUnsignedVarInt(node.depth + 1, output);
+                Varint.writeUnsignedVarInt(node.generation + 1, output);
                 return output.toByteArray();
             } catch (IOException e) {
                 throw propagate(e);
@@ -492,6 +513,10 @@ public class RocksdbGraphDatabase implements GraphDatabase {
         @Nullable
         public ObjectId mappedTo;
 
+        public int depth = GenerationNumbers.UNKNOWN;
+
+        public int generation = GenerationNumbers.UNKNOWN;
+
         public NodeData(ObjectId id, List<ObjectId> parents) {
             this(id, ObjectId.NULL, new ArrayList<ObjectId>(parents), new ArrayList<ObjectId>(2),
                     new HashMap<String, String>());
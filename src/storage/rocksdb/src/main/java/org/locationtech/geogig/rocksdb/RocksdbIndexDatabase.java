@@ -73,6 +73,11 @@ public class RocksdbIndexDatabase extends RocksdbObjectStore implements IndexDat
         return StorageType.INDEX.verify(configdb, FORMAT_NAME, VERSION);
     }
 
+    @Override
+    protected ConfigDatabase getConfigDatabase() {
+        return configdb;
+    }
+
     @Override
     public boolean isReadOnly() {
         return super.readOnly;
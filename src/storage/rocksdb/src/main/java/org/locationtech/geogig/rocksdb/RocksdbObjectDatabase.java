@@ -47,6 +47,11 @@ public class RocksdbObjectDatabase extends RocksdbObjectStore implements ObjectD
         return StorageType.OBJECT.verify(configdb, FORMAT_NAME, VERSION);
     }
 
+    @Override
+    protected ConfigDatabase getConfigDatabase() {
+        return configdb;
+    }
+
     @Override
     public boolean isReadOnly() {
         return super.readOnly;
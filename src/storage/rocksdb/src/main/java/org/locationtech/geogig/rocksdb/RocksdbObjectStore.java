@@ -19,17 +19,21 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.ObjectIdMap;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.plumbing.ResolveGeogigURI;
 import org.locationtech.geogig.repository.Hints;
@@ -37,8 +41,10 @@ import org.locationtech.geogig.repository.Platform;
 import org.locationtech.geogig.rocksdb.DBHandle.RocksDBReference;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ConfigDatabase;
 import org.locationtech.geogig.storage.ObjectInfo;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.RawObject;
 import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV2;
 import org.locationtech.geogig.storage.datastream.LZFSerializationFactory;
 import org.locationtech.geogig.storage.datastream.SerializationFactoryProxy;
@@ -57,10 +63,32 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 
 public class RocksdbObjectStore extends AbstractObjectStore implements ObjectStore {
 
+    /**
+     * Config key for the number of object ids fetched at once by {@link #getAll} and
+     * {@link #getObjects}
+     */
+    public static final String KEY_GETALL_BATCH_SIZE = "rocksdb.getAllBatchSize";
+
+    private static final int DEFAULT_GET_ALL_BATCH_SIZE = 1_000;
+
+    /**
+     * Minimum number of objects deserialized by a single task, below which it's not worth
+     * deserializing in parallel
+     */
+    private static final int MIN_DESERIALIZE_CHUNK_SIZE = 100;
+
+    private static final int DESERIALIZER_THREADS = Math.max(2,
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final ExecutorService DESERIALIZER_POOL = Executors.newFixedThreadPool(
+            DESERIALIZER_THREADS, new ThreadFactoryBuilder()
+                    .setNameFormat("geogig-rocksdb-deserializer-%d").setDaemon(true).build());
+
     private volatile boolean open;
 
     protected final String path;
@@ -71,6 +99,8 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
 
     private ReadOptions bulkReadOptions;
 
+    private int getAllBatchSize = DEFAULT_GET_ALL_BATCH_SIZE;
+
     @Inject
     public RocksdbObjectStore(Platform platform, @Nullable Hints hints) {
         this(platform, hints, "objects.rocksdb");
@@ -98,14 +128,23 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         Map<String, String> defaultMetadata = ImmutableMap.of("version",
                 RocksdbStorageProvider.VERSION, "serializer", "proxy");
 
-        DBConfig address = new DBConfig(path, readOnly, defaultMetadata, columnFamilyNames);
+        final ConfigDatabase configdb = getConfigDatabase();
+        DBConfig address = new DBConfig(path, readOnly, defaultMetadata, columnFamilyNames)
+                .withSettings(configdb);
+        if (configdb != null) {
+            Optional<Integer> getAllBatchSize = configdb.get(KEY_GETALL_BATCH_SIZE, Integer.class);
+            if (getAllBatchSize.isPresent()) {
+                setGetAllBatchSize(getAllBatchSize.get().intValue());
+            }
+        }
         this.dbhandle = RocksConnectionManager.INSTANCE.acquire(address);
 
         this.bulkReadOptions = new ReadOptions();
         this.bulkReadOptions.setFillCache(false);
         this.bulkReadOptions.setVerifyChecksums(false);
 
-        ObjectSerializingFactory defaultSerializer = new SerializationFactoryProxy();
+        ObjectSerializingFactory defaultSerializer = SerializationFactoryProxy
+                .fromConfig(configdb);
         ObjectSerializingFactory serializer = defaultSerializer;
         final Optional<String> serializerValue = dbhandle.getMetadata("serializer");
         if (serializerValue.isPresent()) {
@@ -121,6 +160,23 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         open = true;
     }
 
+    /**
+     * @return the config database to read the {@code rocksdb.*} settings from, or {@code null} if
+     *         not available, in which case defaults are used
+     */
+    protected @Nullable ConfigDatabase getConfigDatabase() {
+        return null;
+    }
+
+    /**
+     * Sets the number of object ids fetched at once by {@link #getAll} and {@link #getObjects}
+     */
+    public void setGetAllBatchSize(int batchSize) {
+        checkArgument(batchSize > 0, "getAll batch size must be a positive integer: %s",
+                batchSize);
+        this.getAllBatchSize = batchSize;
+    }
+
     @Override
     public synchronized void close() {
         if (!open) {
@@ -205,7 +261,7 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
     private boolean exists(ReadOptions readOptions, byte[] key) {
         int size = RocksDB.NOT_FOUND;
         try (RocksDBReference dbRef = dbhandle.getReference()) {
-            if (dbRef.db().keyMayExist(key, new StringBuffer())) {
+            if (dbRef.db().keyMayExist(key, new StringBuilder())) {
                 try {
                     size = dbRef.db().get(key, NO_DATA);
                 } catch (RocksDBException e) {
@@ -241,46 +297,8 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         checkNotNull(type, "type is null");
         checkOpen();
 
-        return new AbstractIterator<T>() {
-
-            private Iterator<ObjectId> oids = ids.iterator();
-
-            private byte[] keybuff = new byte[ObjectId.NUM_BYTES];
-
-            private byte[] valueBuff = new byte[64 * 1024];
-
-            private ReadOptions readOps = bulkReadOptions;
-
-            @Override
-            protected T computeNext() {
-                checkOpen();
-                try (RocksDBReference dbRef = dbhandle.getReference()) {
-                    while (oids.hasNext()) {
-                        ObjectId id = oids.next();
-                        id.getRawValue(keybuff);
-                        final int size = dbRef.db().get(readOps, keybuff, valueBuff);
-                        if (RocksDB.NOT_FOUND == size) {
-                            listener.notFound(id);
-                            continue;
-                        }
-                        if (size > valueBuff.length) {
-                            valueBuff = dbRef.db().get(readOps, keybuff);
-                        }
-                        RevObject object;
-                        object = serializer().read(id, valueBuff, 0, size);
-                        if (type.isInstance(object)) {
-                            listener.found(id, Integer.valueOf(size));
-                            return type.cast(object);
-                        } else {
-                            listener.notFound(id);
-                        }
-                    }
-                } catch (Exception e) {
-                    throw Throwables.propagate(e);
-                }
-                return endOfData();
-            }
-        };
+        return new BatchedGetIterator<ObjectId, T>(ids.iterator(), (id) -> id,
+                (id, object) -> type.cast(object), type, listener);
     }
 
     @Override
@@ -346,12 +364,29 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         checkNotNull(listener, "listener is null");
         checkWritable();
 
+        final ByteArrayOutputStream rawOut = new ByteArrayOutputStream(4096);
+        Iterator<RawObject> encoded = Iterators.transform(objects, (object) -> {
+            rawOut.reset();
+            writeObject(object, rawOut);
+            return RawObject.of(object.getId(), object.getType(), rawOut.toByteArray());
+        });
+        putAllRaw(encoded, listener);
+    }
+
+    /**
+     * Overrides to insert the objects in {@link WriteBatch write batches} of up to 10,000 objects
+     */
+    @Override
+    public void putAllRaw(Iterator<RawObject> objects, final BulkOpListener listener) {
+        checkNotNull(objects, "objects is null");
+        checkNotNull(listener, "listener is null");
+        checkWritable();
+
         final boolean checkExists = !BulkOpListener.NOOP_LISTENER.equals(listener);
 
-        ByteArrayOutputStream rawOut = new ByteArrayOutputStream(4096);
         byte[] keybuff = new byte[ObjectId.NUM_BYTES];
 
-        Map<ObjectId, Integer> insertedIds = new HashMap<ObjectId, Integer>();
+        ObjectIdMap<Integer> insertedIds = new ObjectIdMap<>(10_000);
         try (RocksDBReference dbRef = dbhandle.getReference();
                 WriteOptions wo = new WriteOptions()) {
             wo.setDisableWAL(true);
@@ -360,31 +395,27 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
                 ro.setFillCache(false);
                 ro.setVerifyChecksums(false);
                 while (objects.hasNext()) {
-                    Iterator<? extends RevObject> partition = Iterators.limit(objects, 10_000);
+                    Iterator<RawObject> partition = Iterators.limit(objects, 10_000);
 
                     try (WriteBatch batch = new WriteBatch()) {
                         while (partition.hasNext()) {
-                            RevObject object = partition.next();
-                            rawOut.reset();
-                            writeObject(object, rawOut);
+                            RawObject object = partition.next();
 
-                            object.getId().getRawValue(keybuff);
-                            final byte[] value = rawOut.toByteArray();
+                            object.id().getRawValue(keybuff);
+                            final byte[] value = object.bytes();
 
                             boolean exists = checkExists ? exists(ro, keybuff) : false;
                             if (exists) {
-                                listener.found(object.getId(), null);
+                                listener.found(object.id(), null);
                             } else {
                                 batch.put(keybuff, value);
-                                insertedIds.put(object.getId(), Integer.valueOf(value.length));
+                                insertedIds.put(object.id(), Integer.valueOf(value.length));
                             }
 
                         }
                         // Stopwatch sw = Stopwatch.createStarted();
                         dbRef.db().write(wo, batch);
-                        for (Entry<ObjectId, Integer> entry : insertedIds.entrySet()) {
-                            listener.inserted(entry.getKey(), entry.getValue());
-                        }
+                        insertedIds.forEach((id, size) -> listener.inserted(id, size));
                         insertedIds.clear();
                         // System.err.printf("--- synced writes in %s\n", sw.stop());
                     }
@@ -396,6 +427,82 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         }
     }
 
+    /**
+     * Writes the objects in {@link WriteBatch write batches} of up to 10,000 objects, each one
+     * applied atomically and synced to the write ahead log, since the replaced objects may be
+     * already referenced
+     */
+    @Override
+    public void overwriteAll(Iterator<? extends RevObject> objects) {
+        checkNotNull(objects, "objects is null");
+        checkWritable();
+
+        final ByteArrayOutputStream rawOut = new ByteArrayOutputStream(4096);
+        byte[] keybuff = new byte[ObjectId.NUM_BYTES];
+
+        try (RocksDBReference dbRef = dbhandle.getReference();
+                WriteOptions wo = new WriteOptions()) {
+            wo.setSync(true);
+            while (objects.hasNext()) {
+                Iterator<? extends RevObject> partition = Iterators.limit(objects, 10_000);
+                try (WriteBatch batch = new WriteBatch()) {
+                    while (partition.hasNext()) {
+                        RevObject object = partition.next();
+                        rawOut.reset();
+                        writeObject(object, rawOut);
+                        object.getId().getRawValue(keybuff);
+                        batch.put(keybuff, rawOut.toByteArray());
+                    }
+                    dbRef.db().write(wo, batch);
+                }
+            }
+        } catch (RocksDBException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Overrides to fetch the objects in batches of {@link #getAllBatchSize} ids with a single
+     * {@link RocksDB#multiGet(ReadOptions, List) multiGet} call each
+     */
+    @Override
+    public Iterator<RawObject> getAllRaw(final Iterable<ObjectId> ids,
+            final BulkOpListener listener) {
+        checkNotNull(ids, "ids is null");
+        checkNotNull(listener, "listener is null");
+        checkOpen();
+
+        Iterator<List<ObjectId>> batches = Iterators.partition(ids.iterator(), getAllBatchSize);
+        return Iterators.concat(Iterators.transform(batches, (batch) -> getRaw(batch, listener)));
+    }
+
+    private Iterator<RawObject> getRaw(final List<ObjectId> ids, final BulkOpListener listener) {
+        checkOpen();
+        final List<byte[]> keys = new ArrayList<>(ids.size());
+        for (ObjectId id : ids) {
+            keys.add(id.getRawValue());
+        }
+        final Map<byte[], byte[]> values;
+        try (RocksDBReference dbRef = dbhandle.getReference()) {
+            // the returned map uses the very same key instances as the argument list
+            values = dbRef.db().multiGet(bulkReadOptions, keys);
+        } catch (RocksDBException e) {
+            throw Throwables.propagate(e);
+        }
+        List<RawObject> found = new ArrayList<>(values.size());
+        for (int i = 0; i < ids.size(); i++) {
+            final ObjectId id = ids.get(i);
+            final byte[] bytes = values.get(keys.get(i));
+            if (bytes == null) {
+                listener.notFound(id);
+            } else {
+                listener.found(id, Integer.valueOf(bytes.length));
+                found.add(RawObject.of(id, null, bytes));
+            }
+        }
+        return found.iterator();
+    }
+
     @Override
     public <T extends RevObject> AutoCloseableIterator<ObjectInfo<T>> getObjects(
             Iterator<NodeRef> refs, BulkOpListener listener, Class<T> type) {
@@ -405,85 +512,145 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         checkNotNull(type, "type is null");
         checkOpen();
 
-        return new AutoCloseableIterator<ObjectInfo<T>>() {
+        BatchedGetIterator<NodeRef, ObjectInfo<T>> objects = new BatchedGetIterator<>(refs,
+                (ref) -> ref.getObjectId(), (ref, object) -> ObjectInfo.of(ref, type.cast(object)),
+                type, listener);
+
+        return AutoCloseableIterator.fromIterator(objects, (it) -> it.close());
+    }
 
-            private Iterator<NodeRef> noderefs = refs;
+    /**
+     * Resolves the objects for the ids provided by a source iterator in partitions of
+     * {@link #getAllBatchSize} ids, fetching each partition with a single
+     * {@link RocksDB#multiGet(ReadOptions, List) multiGet} call and deserializing its results in
+     * parallel on {@link #DESERIALIZER_POOL}.
+     * <p>
+     * {@link BulkOpListener} notifications are issued on the consumer thread, in the same order as
+     * the source iterator, so listeners need not be thread safe.
+     *
+     * @param <I> the type of source elements (e.g. {@link ObjectId} or {@link NodeRef})
+     * @param <R> the type of result elements
+     */
+    private class BatchedGetIterator<I, R> extends AbstractIterator<R> {
 
-            private byte[] keybuff = new byte[ObjectId.NUM_BYTES];
+        private Iterator<I> source;
 
-            private byte[] valueBuff = new byte[64 * 1024];
+        private final Function<I, ObjectId> idFunction;
 
-            private ReadOptions readOps = bulkReadOptions;
+        private final BiFunction<I, RevObject, R> resultFunction;
 
-            private boolean closed;
+        private final Class<? extends RevObject> type;
 
-            private ObjectInfo<T> next;
+        private final BulkOpListener listener;
 
-            @Override
-            public void close() {
-                closed = true;
-                noderefs = null;
-                valueBuff = null;
-            }
+        private Iterator<R> batch = Collections.emptyIterator();
 
-            @Override
-            public boolean hasNext() {
-                if (closed) {
-                    return false;
-                }
-                if (next == null) {
-                    next = computeNext();
+        BatchedGetIterator(Iterator<I> source, Function<I, ObjectId> idFunction,
+                BiFunction<I, RevObject, R> resultFunction, Class<? extends RevObject> type,
+                BulkOpListener listener) {
+            this.source = source;
+            this.idFunction = idFunction;
+            this.resultFunction = resultFunction;
+            this.type = type;
+            this.listener = listener;
+        }
+
+        public void close() {
+            source = Collections.emptyIterator();
+            batch = Collections.emptyIterator();
+        }
+
+        @Override
+        protected R computeNext() {
+            while (!batch.hasNext()) {
+                if (!source.hasNext()) {
+                    return endOfData();
                 }
-                return next != null;
+                batch = nextBatch();
             }
+            return batch.next();
+        }
 
-            @Override
-            public ObjectInfo<T> next() {
-                if (closed) {
-                    throw new NoSuchElementException("Iterator is closed");
-                }
-                final ObjectInfo<T> curr;
-                if (next == null) {
-                    curr = computeNext();
+        private Iterator<R> nextBatch() {
+            checkOpen();
+            final int batchSize = getAllBatchSize;
+            final List<I> inputs = new ArrayList<>(batchSize);
+            final List<ObjectId> ids = new ArrayList<>(batchSize);
+            final List<byte[]> keys = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize && source.hasNext(); i++) {
+                I input = source.next();
+                ObjectId id = idFunction.apply(input);
+                inputs.add(input);
+                ids.add(id);
+                keys.add(id.getRawValue());
+            }
+
+            final Map<byte[], byte[]> values;
+            try (RocksDBReference dbRef = dbhandle.getReference()) {
+                // the returned map uses the very same key instances as the argument list
+                values = dbRef.db().multiGet(bulkReadOptions, keys);
+            } catch (RocksDBException e) {
+                throw Throwables.propagate(e);
+            }
+
+            final int size = inputs.size();
+            final byte[][] raw = new byte[size][];
+            for (int i = 0; i < size; i++) {
+                raw[i] = values.get(keys.get(i));
+            }
+            final RevObject[] objects = deserialize(ids, raw);
+
+            List<R> results = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final ObjectId id = ids.get(i);
+                final RevObject object = objects[i];
+                if (object != null && type.isInstance(object)) {
+                    listener.found(id, Integer.valueOf(raw[i].length));
+                    results.add(resultFunction.apply(inputs.get(i), object));
                 } else {
-                    curr = next;
-                    next = null;
+                    listener.notFound(id);
                 }
-                if (curr == null) {
-                    throw new NoSuchElementException();
+            }
+            return results.iterator();
+        }
+
+        private RevObject[] deserialize(final List<ObjectId> ids, final byte[][] raw) {
+            final int size = raw.length;
+            final RevObject[] objects = new RevObject[size];
+            final int chunkSize = Math.max(MIN_DESERIALIZE_CHUNK_SIZE,
+                    (size + DESERIALIZER_THREADS - 1) / DESERIALIZER_THREADS);
+            if (size <= chunkSize) {
+                deserialize(ids, raw, objects, 0, size);
+                return objects;
+            }
+            List<Future<?>> futures = new ArrayList<>();
+            for (int from = 0; from < size; from += chunkSize) {
+                final int start = from;
+                final int end = Math.min(size, from + chunkSize);
+                futures.add(DESERIALIZER_POOL.submit(() -> deserialize(ids, raw, objects, start,
+                        end)));
+            }
+            try {
+                for (Future<?> f : futures) {
+                    f.get();
                 }
-                return curr;
+            } catch (InterruptedException e) {
+                throw Throwables.propagate(e);
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
             }
+            return objects;
+        }
 
-            private @Nullable ObjectInfo<T> computeNext() {
-                checkOpen();
-                try (RocksDBReference dbRef = dbhandle.getReference()) {
-                    while (noderefs.hasNext()) {
-                        final NodeRef ref = noderefs.next();
-                        final ObjectId id = ref.getObjectId();
-                        id.getRawValue(keybuff);
-                        final int size = dbRef.db().get(readOps, keybuff, valueBuff);
-                        if (RocksDB.NOT_FOUND == size) {
-                            listener.notFound(id);
-                            continue;
-                        }
-                        if (size > valueBuff.length) {
-                            valueBuff = dbRef.db().get(readOps, keybuff);
-                        }
-                        RevObject object = serializer().read(id,
-                                new ByteArrayInputStream(valueBuff));
-                        if (type.isInstance(object)) {
-                            listener.found(id, Integer.valueOf(size));
-                            return ObjectInfo.of(ref, type.cast(object));
-                        } else {
-                            listener.notFound(id);
-                        }
-                    }
-                } catch (Exception e) {
-                    throw Throwables.propagate(e);
+        private void deserialize(List<ObjectId> ids, byte[][] raw, RevObject[] target, int from,
+                int to) {
+            final ObjectSerializingFactory serializer = serializer();
+            for (int i = from; i < to; i++) {
+                byte[] bytes = raw[i];
+                if (bytes != null) {
+                    target[i] = serializer.read(ids.get(i), bytes, 0, bytes.length);
                 }
-                return null;
             }
-        };
+        }
     }
 }
@@ -0,0 +1,185 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb.performance;
+
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.featureForceId;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.TestName;
+import org.junit.runners.MethodSorters;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.Platform;
+import org.locationtech.geogig.rocksdb.RocksdbObjectDatabase;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.BulkOpListener.CountingListener;
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.locationtech.geogig.storage.ObjectInfo;
+import org.locationtech.geogig.storage.fs.IniFileConfigDatabase;
+import org.locationtech.geogig.test.TestPlatform;
+import org.locationtech.geogig.test.performance.EnablePerformanceTestRule;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+
+/**
+ * Measures the read throughput (objects/sec) of {@link RocksdbObjectDatabase#getAll} and
+ * {@link RocksdbObjectDatabase#getObjects} for different number of ids, queried in a
+ * pseudo-random order.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class RocksdbObjectStoreGetAllStressTest {
+
+    /**
+     * Enables this test only if the geogig.runPerformanceTests=true system property was provided
+     */
+    @ClassRule
+    public static EnablePerformanceTestRule performanceRule = new EnablePerformanceTestRule();
+
+    @Rule
+    public TestName testName = new TestName();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private RocksdbObjectDatabase db;
+
+    @Before
+    public void setUp() throws IOException {
+        File workingDirectory = tmp.getRoot();
+        tmp.newFolder(".geogig");
+        Platform platform = new TestPlatform(workingDirectory);
+        ConfigDatabase config = new IniFileConfigDatabase(platform);
+        db = new RocksdbObjectDatabase(platform, null, config);
+        db.open();
+    }
+
+    @After
+    public void tearDown() {
+        if (db != null) {
+            db.close();
+        }
+    }
+
+    @Test
+    public void test01_GetAll_10K() {
+        testGetAll(10_000);
+    }
+
+    @Test
+    public void test02_GetAll_100K() {
+        testGetAll(100_000);
+    }
+
+    @Test
+    public void test03_GetAll_1M() {
+        testGetAll(1_000_000);
+    }
+
+    @Test
+    public void test04_GetAll_10M() {
+        testGetAll(10_000_000);
+    }
+
+    private void testGetAll(final int count) {
+        System.err.printf("### test: %s, dir: %s\n", testName.getMethodName(),
+                tmp.getRoot().getAbsolutePath());
+
+        Stopwatch sw = Stopwatch.createStarted();
+        db.putAll(Iterators.transform(ids(count), (id) -> fakeObject(id)));
+        System.err.printf("--- %,d objects inserted in %s\n", count, sw.stop());
+
+        db.close();
+        db.open();
+
+        for (int batchSize : new int[] { 100, 1_000, 10_000 }) {
+            db.setGetAllBatchSize(batchSize);
+
+            CountingListener listener = BulkOpListener.newCountingListener();
+            sw.reset().start();
+            Iterator<RevObject> objects = db.getAll(() -> ids(count), listener);
+            final int returned = Iterators.size(objects);
+            sw.stop();
+            report("getAll()", batchSize, returned, sw);
+            Assert.assertEquals(count, returned);
+            Assert.assertEquals(count, listener.found());
+
+            sw.reset().start();
+            int infos;
+            try (AutoCloseableIterator<ObjectInfo<RevFeature>> it = db
+                    .getObjects(Iterators.transform(ids(count), (id) -> ref(id)),
+                            BulkOpListener.NOOP_LISTENER, RevFeature.class)) {
+                infos = Iterators.size(it);
+            }
+            sw.stop();
+            report("getObjects()", batchSize, infos, sw);
+            Assert.assertEquals(count, infos);
+        }
+    }
+
+    private void report(String method, int batchSize, int count, Stopwatch sw) {
+        long millis = Math.max(1, sw.elapsed(TimeUnit.MILLISECONDS));
+        System.err.printf("----- %s: %,d objects, batch size %,d, in %s (%,d objects/s)\n", method,
+                count, batchSize, sw, (count * 1000L) / millis);
+    }
+
+    /**
+     * @return an iterator over the ids of the {@code count} fake objects, in a scattered but
+     *         deterministic order that visits each one exactly once
+     */
+    private Iterator<ObjectId> ids(final int count) {
+        // a prime larger than any count makes (i * step) % count a permutation of [0, count)
+        final long step = 15_485_863L;
+        return new AbstractIterator<ObjectId>() {
+            int i = 0;
+
+            @Override
+            protected ObjectId computeNext() {
+                if (i == count) {
+                    return endOfData();
+                }
+                int index = (int) ((i++ * step) % count);
+                return fakeId(index);
+            }
+        };
+    }
+
+    private NodeRef ref(ObjectId id) {
+        Node node = Node.create(id.toString(), id, ObjectId.NULL, TYPE.FEATURE, null);
+        return new NodeRef(node, "layer", ObjectId.NULL);
+    }
+
+    private RevObject fakeObject(ObjectId forcedId) {
+        return featureForceId(forcedId, "Some string value " + forcedId, Integer.valueOf(1000));
+    }
+
+    private ObjectId fakeId(int i) {
+        return RevObjectTestSupport.hashString("fakeID" + i);
+    }
+}
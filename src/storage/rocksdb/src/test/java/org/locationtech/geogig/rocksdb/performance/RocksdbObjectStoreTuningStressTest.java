@@ -0,0 +1,181 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb.performance;
+
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.featureForceId;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.TestName;
+import org.junit.runners.MethodSorters;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.Platform;
+import org.locationtech.geogig.rocksdb.RocksdbObjectDatabase;
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.locationtech.geogig.storage.fs.IniFileConfigDatabase;
+import org.locationtech.geogig.test.TestPlatform;
+import org.locationtech.geogig.test.performance.EnablePerformanceTestRule;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Compares random {@code exists()} and {@code get()} throughput on a store created with the
+ * previous hardcoded settings (no compression, no bloom filter) against one created with the
+ * default {@code rocksdb.*} tuning settings (LZ4 if available, bloom filter and shared block
+ * cache).
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class RocksdbObjectStoreTuningStressTest {
+
+    /**
+     * Enables this test only if the geogig.runPerformanceTests=true system property was provided
+     */
+    @ClassRule
+    public static EnablePerformanceTestRule performanceRule = new EnablePerformanceTestRule();
+
+    @Rule
+    public TestName testName = new TestName();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void test01_RandomLookups_100K() throws IOException {
+        testRandomLookups(100_000);
+    }
+
+    @Test
+    public void test02_RandomLookups_1M() throws IOException {
+        testRandomLookups(1_000_000);
+    }
+
+    @Test
+    public void test03_RandomLookups_10M() throws IOException {
+        testRandomLookups(10_000_000);
+    }
+
+    private void testRandomLookups(final int count) throws IOException {
+        System.err.printf("### test: %s, dir: %s\n", testName.getMethodName(),
+                tmp.getRoot().getAbsolutePath());
+
+        RocksdbObjectDatabase untuned = createDb("untuned", false);
+        RocksdbObjectDatabase tuned = createDb("tuned", true);
+        try {
+            insert(untuned, count);
+            insert(tuned, count);
+            // run twice each to account for warm up
+            for (int i = 0; i < 2; i++) {
+                System.err.println("--- no compression, no bloom filter:");
+                lookup(untuned, count);
+                System.err.println("--- default settings:");
+                lookup(tuned, count);
+            }
+        } finally {
+            untuned.close();
+            tuned.close();
+        }
+    }
+
+    private RocksdbObjectDatabase createDb(String name, boolean tuned) throws IOException {
+        File workingDirectory = tmp.newFolder(name);
+        new File(workingDirectory, ".geogig").mkdir();
+        Platform platform = new TestPlatform(workingDirectory);
+        ConfigDatabase config = new IniFileConfigDatabase(platform);
+        if (!tuned) {
+            config.put("rocksdb.compression", "none");
+            config.put("rocksdb.bloomBitsPerKey", 0);
+        }
+        RocksdbObjectDatabase db = new RocksdbObjectDatabase(platform, null, config);
+        db.open();
+        return db;
+    }
+
+    private void insert(RocksdbObjectDatabase db, final int count) {
+        Stopwatch sw = Stopwatch.createStarted();
+        Iterator<ObjectId> ids = sequentialIds(count);
+        db.putAll(new AbstractIterator<RevObject>() {
+            @Override
+            protected RevObject computeNext() {
+                if (!ids.hasNext()) {
+                    return endOfData();
+                }
+                ObjectId id = ids.next();
+                return featureForceId(id, "Some string value " + id, Integer.valueOf(1000));
+            }
+        });
+        // make sure lookups hit the sst files and not the memtables
+        db.close();
+        db.open();
+        System.err.printf("--- %,d objects inserted in %s\n", count, sw.stop());
+    }
+
+    private void lookup(RocksdbObjectDatabase db, final int count) {
+        final int queryCount = Math.min(count, 1_000_000);
+        final Random random = new Random(1);
+
+        Stopwatch sw = Stopwatch.createStarted();
+        int found = 0;
+        for (int i = 0; i < queryCount; i++) {
+            // half of the queried ids do not exist
+            int index = random.nextInt(2 * count);
+            if (db.exists(fakeId(index))) {
+                found++;
+            }
+        }
+        sw.stop();
+        report("exists()", queryCount, found, sw);
+
+        sw.reset().start();
+        found = 0;
+        for (int i = 0; i < queryCount; i++) {
+            int index = random.nextInt(count);
+            if (db.getIfPresent(fakeId(index)) != null) {
+                found++;
+            }
+        }
+        sw.stop();
+        report("get()", queryCount, found, sw);
+        Assert.assertEquals(queryCount, found);
+    }
+
+    private void report(String method, int queryCount, int found, Stopwatch sw) {
+        long millis = Math.max(1, sw.elapsed(TimeUnit.MILLISECONDS));
+        System.err.printf("----- %s: %,d random lookups (%,d found) in %s (%,d lookups/s)\n",
+                method, queryCount, found, sw, (queryCount * 1000L) / millis);
+    }
+
+    private Iterator<ObjectId> sequentialIds(final int count) {
+        return new AbstractIterator<ObjectId>() {
+            int i = 0;
+
+            @Override
+            protected ObjectId computeNext() {
+                return i == count ? endOfData() : fakeId(i++);
+            }
+        };
+    }
+
+    private ObjectId fakeId(int i) {
+        return RevObjectTestSupport.hashString("fakeID" + i);
+    }
+}
@@ -48,6 +48,11 @@ import com.google.gson.JsonParser;
 
 /**
  * Takes a set of commit Ids and packs up their contents into a binary stream to send to the client.
+ * <p>
+ * If the request message has the {@code incremental} flag set to {@code true}, only the objects
+ * that changed between each commit and its parent known to the client are sent (see
+ * {@link BinaryPackedObjects#writeIncremental}). The response format is the same either way, so
+ * clients that don't set the flag keep getting the full contents of each commit.
  */
 public class BatchedObjectResource extends Finder {
 
@@ -86,6 +91,7 @@ public class BatchedObjectResource extends Finder {
             LOGGER.info("Serving request to send objects based on message {}", messageJson);
             final List<ObjectId> want = new ArrayList<ObjectId>();
             final List<ObjectId> have = new ArrayList<ObjectId>();
+            boolean incremental = false;
 
             if (messageJson.isJsonObject()) {
                 final JsonObject message = messageJson.getAsJsonObject();
@@ -101,6 +107,9 @@ public class BatchedObjectResource extends Finder {
                 } else {
                     haveArray = new JsonArray();
                 }
+                if (message.has("incremental") && message.get("incremental").isJsonPrimitive()) {
+                    incremental = message.get("incremental").getAsBoolean();
+                }
                 for (final JsonElement e : wantArray) {
                     if (e.isJsonPrimitive()) {
                         want.add(ObjectId.valueOf(e.getAsJsonPrimitive().getAsString()));
@@ -120,7 +129,7 @@ public class BatchedObjectResource extends Finder {
             final Deduplicator deduplicator = deduplicatorService.createDeduplicator();
             BinaryPackedObjects packer = new BinaryPackedObjects(repository.objectDatabase());
             Representation rep = new RevObjectBinaryRepresentation(packer, want, have,
-                    deduplicator);
+                    deduplicator, incremental);
             Response response = getResponse();
             response.setEntity(rep);
         }
@@ -135,17 +144,21 @@ public class BatchedObjectResource extends Finder {
 
         private Deduplicator deduplicator;
 
+        private final boolean incremental;
+
         public RevObjectBinaryRepresentation( //
                 BinaryPackedObjects packer, //
                 List<ObjectId> want, //
                 List<ObjectId> have, //
-                Deduplicator deduplicator) //
+                Deduplicator deduplicator, //
+                boolean incremental) //
         {
             super(MediaType.APPLICATION_OCTET_STREAM);
             this.packer = packer;
             this.want = want;
             this.have = have;
             this.deduplicator = deduplicator;
+            this.incremental = incremental;
         }
 
         @Override
@@ -155,7 +168,11 @@ public class BatchedObjectResource extends Finder {
             try {
                 ObjectFunnel funnel;
                 funnel = ObjectFunnels.newFunnel(output, DataStreamSerializationFactoryV1.INSTANCE);
-                packer.write(funnel, want, have, false, deduplicator);
+                if (incremental) {
+                    packer.writeIncremental(funnel, want, have, deduplicator);
+                } else {
+                    packer.write(funnel, want, have, false, deduplicator);
+                }
                 counting.flush();
                 funnel.close();
             } catch (IOException e) {